@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.benchmarks;
+
+import com.clearlydecoded.messenger.DefaultMessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageResponse;
+import com.clearlydecoded.messenger.rest.MessageDispatcher;
+import com.clearlydecoded.messenger.rest.ReceivedMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import javax.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link DispatchBenchmark} class measures dispatching a message end to end, without HTTP: reading,
+ * binding and validating it, processing it, and serializing its response, exactly as the
+ * <code>/process</code> endpoint does between reading the request body and writing the response
+ * body.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+  /**
+   * Message to dispatch.
+   */
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  private MessageFixture fixture;
+
+  /**
+   * Dispatcher with the message processors of every fixture registered.
+   */
+  private MessageDispatcher messageDispatcher;
+
+  /**
+   * UTF-8 encoded JSON of the message.
+   */
+  private byte[] messageJson;
+
+  /**
+   * Registers the message processors of every fixture.
+   */
+  @Setup
+  public void setUp() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    MessageProcessorRegistry registry = new DefaultMessageProcessorRegistry(objectMapper);
+    for (MessageFixture messageFixture : MessageFixture.values()) {
+      registry.addProcessor(messageFixture.getProcessor());
+    }
+
+    messageDispatcher = new MessageDispatcher(registry, objectMapper);
+    messageDispatcher.setValidator(Validation.buildDefaultValidatorFactory().getValidator());
+    messageJson = fixture.getMessageJson();
+  }
+
+  /**
+   * @return UTF-8 encoded JSON of the message response.
+   */
+  @Benchmark
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public byte[] dispatch() {
+    ReceivedMessage receivedMessage = messageDispatcher
+        .readMessage(new ByteArrayInputStream(messageJson));
+    MessageResponse messageResponse = messageDispatcher.processMessage(receivedMessage);
+    return messageDispatcher.writeResponseAsBytes(receivedMessage.getDescriptor(),
+        messageResponse);
+  }
+}
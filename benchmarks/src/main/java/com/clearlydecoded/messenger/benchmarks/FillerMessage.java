@@ -6,26 +6,30 @@
  * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
  * the License for the specific language governing permissions and limitations under the License.
  */
-package com.clearlydecoded.messenger.rest;
+package com.clearlydecoded.messenger.benchmarks;
 
 import com.clearlydecoded.messenger.Message;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 /**
- * {@link MessageWithJustType} class represents a message, which contains only the
- * <code>type</code> property, to be used to deserialize the message string coming as the payload of
- * the REST request. It is then used to determine which real concrete {@link Message} implementation
- * to deserialize the message string to based on that deserialized <code>type</code>.
+ * {@link FillerMessage} class is a message whose type identifier is chosen when it is created, so
+ * that a registry can be filled with any number of distinct message types without declaring a
+ * class for each of them.
  *
  * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
  */
-@JsonIgnoreProperties(ignoreUnknown = true)
-public class MessageWithJustType implements Message {
+public class FillerMessage implements Message<FillerMessageResponse> {
 
   /**
-   * Message type identifier.
+   * Type identifier given to the messages created from now on. The registry creates a message of
+   * every processor it registers to verify its type identifier, so this must be set to the type
+   * identifier of the processor before registering it.
    */
-  private String type;
+  static volatile String typeOfNewMessages;
+
+  /**
+   * String-based type identifier of the message.
+   */
+  private final String type = typeOfNewMessages;
 
   @Override
   public String getType() {
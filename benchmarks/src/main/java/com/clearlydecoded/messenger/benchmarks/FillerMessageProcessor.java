@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.benchmarks;
+
+import com.clearlydecoded.messenger.MessageProcessor;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+
+/**
+ * {@link FillerMessageProcessor} class processes {@link FillerMessage}s of a single type
+ * identifier, chosen when it is created.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public class FillerMessageProcessor implements
+    MessageProcessor<FillerMessage, FillerMessageResponse> {
+
+  /**
+   * String-based type identifier of the messages this processor processes.
+   */
+  private final String messageType;
+
+  /**
+   * Constructor.
+   *
+   * @param messageType String-based type identifier of the messages this processor processes.
+   */
+  private FillerMessageProcessor(String messageType) {
+    this.messageType = messageType;
+  }
+
+  /**
+   * Registers a processor of {@link FillerMessage}s of the <code>messageType</code>.
+   *
+   * @param registry Registry to register the processor with.
+   * @param messageType String-based type identifier of the messages the processor processes.
+   */
+  static synchronized void register(MessageProcessorRegistry registry, String messageType) {
+    FillerMessage.typeOfNewMessages = messageType;
+    registry.addProcessor(new FillerMessageProcessor(messageType));
+  }
+
+  @Override
+  public FillerMessageResponse process(FillerMessage message) {
+    return new FillerMessageResponse();
+  }
+
+  @Override
+  public String getCompatibleMessageType() {
+    return messageType;
+  }
+
+  @Override
+  public Class<FillerMessage> getCompatibleMessageClassType() {
+    return FillerMessage.class;
+  }
+
+  @Override
+  public Class<FillerMessageResponse> getCompatibleMessageResponseClassType() {
+    return FillerMessageResponse.class;
+  }
+}
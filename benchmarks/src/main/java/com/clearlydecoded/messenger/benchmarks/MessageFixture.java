@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.benchmarks;
+
+import com.clearlydecoded.messenger.Message;
+import com.clearlydecoded.messenger.MessageProcessor;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.MessageResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import test.com.clearlydecoded.messenger.documentation.GetPersonMessageProcessor;
+import test.com.clearlydecoded.messenger.documentation.GetPersonMessageResponse;
+import test.com.clearlydecoded.messenger.documentation.Person;
+import test.com.clearlydecoded.messenger.documentation.PersonMessage;
+import test.com.clearlydecoded.messenger.documentation.PersonMessageProcessor;
+import test.com.clearlydecoded.messenger.rest.basic.Message4;
+import test.com.clearlydecoded.messenger.rest.basic.Message4Processor;
+import test.com.clearlydecoded.messenger.rest.basic.Message4Response;
+import test.com.clearlydecoded.messenger.rest.basic.Message5;
+import test.com.clearlydecoded.messenger.rest.basic.Message5Processor;
+import test.com.clearlydecoded.messenger.rest.basic.Message5Response;
+
+/**
+ * {@link MessageFixture} enum lists representative messages of different sizes, taken from the
+ * test packages of the library, along with their message processors and responses.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Getter
+@AllArgsConstructor
+public enum MessageFixture {
+
+  /**
+   * Message with a single string property, about 40 bytes.
+   */
+  SMALL(new Message5Processor(), json(new Message5("Hello")), new Message5Processor(),
+      new Message5Response("Hi!")),
+
+  /**
+   * Message with a nested object whose processor validates it, about 100 bytes.
+   */
+  MEDIUM(new Message4Processor(),
+      json(new Message4("Hello", new test.com.clearlydecoded.messenger.rest.basic.Person(
+          "Yaakov", "Chaikin"))),
+      new Message4Processor(), new Message4Response("Echo of Hello")),
+
+  /**
+   * Message with a deep graph of nested objects, arrays and maps, about 70 kilobytes. Its
+   * processor returns no response, so its response fixture is the same graph returned by a
+   * different processor.
+   */
+  LARGE(new PersonMessageProcessor(), json(new PersonMessage(family(), 42)),
+      new GetPersonMessageProcessor(), new GetPersonMessageResponse(family()));
+
+  /**
+   * Message processor of the message.
+   */
+  private final MessageProcessor<? extends Message<? extends MessageResponse>,
+      ? extends MessageResponse> processor;
+
+  /**
+   * UTF-8 encoded JSON of the message.
+   */
+  private final byte[] messageJson;
+
+  /**
+   * Message processor whose descriptor serializes the <code>response</code>.
+   */
+  private final MessageProcessor<? extends Message<? extends MessageResponse>,
+      ? extends MessageResponse> responseProcessor;
+
+  /**
+   * Message response of a comparable size as the message.
+   */
+  private final MessageResponse response;
+
+  /**
+   * @param objectMapper Jackson object mapper to prepare the message reader with.
+   * @return Descriptor of the message processor of the message.
+   */
+  @SuppressWarnings("unchecked")
+  public MessageProcessorDescriptor<?, ?> compileDescriptor(ObjectMapper objectMapper) {
+    return MessageProcessorDescriptor.compile((MessageProcessor) processor, objectMapper);
+  }
+
+  /**
+   * @param objectMapper Jackson object mapper to prepare the response writer with.
+   * @return Descriptor of the message processor whose response is the <code>response</code>.
+   */
+  @SuppressWarnings("unchecked")
+  public MessageProcessorDescriptor<?, ?> compileResponseDescriptor(ObjectMapper objectMapper) {
+    return MessageProcessorDescriptor.compile((MessageProcessor) responseProcessor, objectMapper);
+  }
+
+  /**
+   * @param message Message to serialize.
+   * @return UTF-8 encoded JSON of the <code>message</code>.
+   */
+  private static byte[] json(Object message) {
+    try {
+      return new ObjectMapper().writeValueAsBytes(message);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to serialize message fixture " + message, e);
+    }
+  }
+
+  /**
+   * @return Person with 20 relatives, each with their own preferences and relatives by name.
+   */
+  private static Person family() {
+    List<String> preferences = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      preferences.add("Preference number " + i);
+    }
+
+    Person parent = new Person(1, 1530000000000L, "Parent", "Chaikin", null, preferences, null,
+        null, false, new Date(0));
+    Person[] relatives = new Person[20];
+    Map<String, Person> nameToRelativeMap = new HashMap<>();
+    for (int i = 0; i < relatives.length; i++) {
+      Map<String, Person> relativeNameToRelativeMap = new HashMap<>();
+      for (int j = 0; j < 5; j++) {
+        relativeNameToRelativeMap.put("Cousin " + j, new Person(1000 * i + j, null, "Cousin",
+            "Chaikin", null, null, null, null, j % 2 == 0, null));
+      }
+      relatives[i] = new Person(i + 2, 1530000000000L + i, "Relative " + i, "Chaikin", parent,
+          preferences, null, relativeNameToRelativeMap, i % 2 == 0, new Date(0));
+      nameToRelativeMap.put(relatives[i].getFirstName(), relatives[i]);
+    }
+
+    return new Person(0, 1530000000000L, "Yaakov", "Chaikin", parent, preferences, relatives,
+        nameToRelativeMap, true, new Date(0));
+  }
+}
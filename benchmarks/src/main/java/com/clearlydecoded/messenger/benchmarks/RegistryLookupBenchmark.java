@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.benchmarks;
+
+import com.clearlydecoded.messenger.DefaultMessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link RegistryLookupBenchmark} class measures looking up the descriptor of a message type in a
+ * {@link DefaultMessageProcessorRegistry} holding 10 to 10,000 message types. Every lookup is
+ * given a new string, so hashing the message type is part of the measurement, or the characters of
+ * the message type, like the dispatcher looks it up straight from the parser's buffer.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryLookupBenchmark {
+
+  /**
+   * Number of distinct message types looked up, cycling through them. Must be a power of two.
+   */
+  private static final int LOOKED_UP_TYPES = 1024;
+
+  /**
+   * Logger of the registry, held on to so that it keeps its level while registering thousands of
+   * processors.
+   */
+  private static final Logger REGISTRY_LOG = Logger
+      .getLogger(DefaultMessageProcessorRegistry.class.getName());
+
+  /**
+   * Number of message types registered.
+   */
+  @Param({"10", "100", "1000", "10000"})
+  private int registeredTypes;
+
+  /**
+   * Registry holding the <code>registeredTypes</code>.
+   */
+  private MessageProcessorRegistry registry;
+
+  /**
+   * Characters of the registered message types to look up, picked at random.
+   */
+  private char[][] messageTypes;
+
+  /**
+   * Index of the next message type to look up.
+   */
+  private int next;
+
+  /**
+   * Fills the registry and picks the message types to look up.
+   */
+  @Setup
+  public void setUp() {
+    REGISTRY_LOG.setLevel(Level.WARNING);
+    registry = new DefaultMessageProcessorRegistry();
+    for (int i = 0; i < registeredTypes; i++) {
+      FillerMessageProcessor.register(registry, "Filler-" + i);
+    }
+
+    Random random = new Random(42);
+    messageTypes = new char[LOOKED_UP_TYPES][];
+    for (int i = 0; i < LOOKED_UP_TYPES; i++) {
+      messageTypes[i] = ("Filler-" + random.nextInt(registeredTypes)).toCharArray();
+    }
+  }
+
+  /**
+   * @return Descriptor of a registered message type.
+   */
+  @Benchmark
+  public MessageProcessorDescriptor<?, ?> registeredType() {
+    char[] messageType = messageTypes[next++ & (LOOKED_UP_TYPES - 1)];
+    return registry.getDescriptorFor(new String(messageType));
+  }
+
+  /**
+   * @return Descriptor of a registered message type, looked up by its characters.
+   */
+  @Benchmark
+  public MessageProcessorDescriptor<?, ?> registeredTypeCharacters() {
+    char[] messageType = messageTypes[next++ & (LOOKED_UP_TYPES - 1)];
+    return registry.getDescriptorFor(messageType, 0, messageType.length);
+  }
+
+  /**
+   * @return Nothing, since the message type is not registered.
+   */
+  @Benchmark
+  public MessageProcessorDescriptor<?, ?> unregisteredType() {
+    return registry.getDescriptorFor(new String(messageTypes[0]) + "-Unregistered");
+  }
+}
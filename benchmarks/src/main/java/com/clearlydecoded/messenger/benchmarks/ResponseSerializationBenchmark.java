@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.benchmarks;
+
+import com.clearlydecoded.messenger.DefaultMessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.MessageResponse;
+import com.clearlydecoded.messenger.rest.MessageDispatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ResponseSerializationBenchmark} class measures serializing message responses to JSON
+ * bytes with the writers prepared by their message processor descriptors.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+  /**
+   * Message response to serialize.
+   */
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  private MessageFixture fixture;
+
+  /**
+   * Dispatcher that serializes the message response.
+   */
+  private MessageDispatcher messageDispatcher;
+
+  /**
+   * Descriptor of the message processor whose response is serialized.
+   */
+  @SuppressWarnings("rawtypes")
+  private MessageProcessorDescriptor descriptor;
+
+  /**
+   * Message response to serialize.
+   */
+  private MessageResponse response;
+
+  /**
+   * Compiles the descriptor of the message processor.
+   */
+  @Setup
+  public void setUp() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    messageDispatcher = new MessageDispatcher(new DefaultMessageProcessorRegistry(objectMapper),
+        objectMapper);
+    descriptor = fixture.compileResponseDescriptor(objectMapper);
+    response = fixture.getResponse();
+  }
+
+  /**
+   * @return UTF-8 encoded JSON of the message response.
+   */
+  @Benchmark
+  @SuppressWarnings("unchecked")
+  public byte[] writeResponseAsBytes() {
+    return messageDispatcher.writeResponseAsBytes(descriptor, response);
+  }
+}
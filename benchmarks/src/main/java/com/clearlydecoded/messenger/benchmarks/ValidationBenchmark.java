@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import test.com.clearlydecoded.messenger.rest.validation.ValidMessage1;
+
+/**
+ * {@link ValidationBenchmark} class measures the JSR-380 validation of messages: the message
+ * fixtures, which have few or no constraints, and a message with constraints that passes or fails
+ * them.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+  /**
+   * Message to validate.
+   */
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  private MessageFixture fixture;
+
+  /**
+   * Validator the messages are validated with.
+   */
+  private Validator validator;
+
+  /**
+   * Concretely typed message of the <code>fixture</code>.
+   */
+  private Object message;
+
+  /**
+   * Message with constraints that passes them.
+   */
+  private ValidMessage1 validMessage;
+
+  /**
+   * Message with constraints that fails them.
+   */
+  private ValidMessage1 invalidMessage;
+
+  /**
+   * Creates the validator and the messages.
+   *
+   * @throws IOException If the message of the fixture can not be read.
+   */
+  @Setup
+  public void setUp() throws IOException {
+    validator = Validation.buildDefaultValidatorFactory().getValidator();
+    message = fixture.compileDescriptor(new ObjectMapper()).getMessageReader()
+        .readValue(fixture.getMessageJson());
+    validMessage = new ValidMessage1("Hello", "Yaakov");
+    invalidMessage = new ValidMessage1("", "");
+  }
+
+  /**
+   * @return Constraint violations of the message of the fixture.
+   */
+  @Benchmark
+  public Set<ConstraintViolation<Object>> fixtureMessage() {
+    return validator.validate(message);
+  }
+
+  /**
+   * @return No constraint violations.
+   */
+  @Benchmark
+  public Set<ConstraintViolation<ValidMessage1>> validMessage() {
+    return validator.validate(validMessage);
+  }
+
+  /**
+   * @return Constraint violations of both properties.
+   */
+  @Benchmark
+  public Set<ConstraintViolation<ValidMessage1>> invalidMessage() {
+    return validator.validate(invalidMessage);
+  }
+}
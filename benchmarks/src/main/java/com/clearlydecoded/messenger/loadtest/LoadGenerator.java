@@ -0,0 +1,322 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.java.Log;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * {@link LoadGenerator} class sends messages to a REST-MESSENGER endpoint at a constant arrival
+ * rate, i.e., following an open model, and measures the latency of each message type.
+ *
+ * <p>Request <code>i</code> is scheduled to start at <code>i / rate</code> seconds into the run,
+ * no matter how long the requests before it take, and its latency is measured from that intended
+ * start rather than from when it was actually sent. If the server stalls, the requests that should
+ * have been sent during the stall are therefore charged with the time they waited, instead of
+ * being silently delayed and then measured as fast, which is the coordinated omission a closed
+ * loop of clients suffers from. For the same reason, requests waiting for a free connection are
+ * charged with their wait.</p>
+ *
+ * <p>Latencies are recorded in microseconds into an HdrHistogram per message type, with 3
+ * significant digits. Only requests scheduled to start after the warmup are recorded.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+public class LoadGenerator {
+
+  /**
+   * Percentiles reported for each message type.
+   */
+  private static final double[] REPORTED_PERCENTILES = {50, 90, 99, 99.9};
+
+  /**
+   * URL of the endpoint to send the messages to.
+   */
+  private final URL endpoint;
+
+  /**
+   * Number of messages sent per second.
+   */
+  private final int rate;
+
+  /**
+   * Maximum number of messages in flight at once, i.e., the number of connections to the endpoint.
+   */
+  private final int maxConnections;
+
+  /**
+   * Message types to send, in the order they are sent. Request <code>i</code> is of the
+   * <code>i % schedule.length</code>th type, which spreads each type evenly over the run.
+   */
+  private final MessageType[] schedule;
+
+  /**
+   * Message types to send, keyed by their type identifier, in the order they are reported.
+   */
+  private final Map<String, MessageType> messageTypes = new LinkedHashMap<>();
+
+  /**
+   * Number of measured requests sent more than a millisecond after their intended start, because
+   * the generator could not keep up.
+   */
+  private long lateRequests;
+
+  /**
+   * Longest time a measured request was sent after its intended start, in nanoseconds.
+   */
+  private long maxSendLagNanos;
+
+  /**
+   * Constructor.
+   *
+   * @param endpoint URL of the endpoint to send the messages to.
+   * @param rate Number of messages sent per second.
+   * @param maxConnections Maximum number of messages in flight at once.
+   * @param mix Messages to send, keyed to their weight. Each message is sent in proportion to its
+   * weight, and the body of every request of its type is the message serialized as JSON.
+   * @param objectMapper Jackson object mapper used to serialize the messages.
+   * @throws JsonProcessingException If a message can not be serialized.
+   */
+  public LoadGenerator(URL endpoint, int rate, int maxConnections,
+      Map<SyntheticMessage, Integer> mix, ObjectMapper objectMapper)
+      throws JsonProcessingException {
+    this.endpoint = endpoint;
+    this.rate = rate;
+    this.maxConnections = maxConnections;
+
+    // Interleave the message types according to their weights
+    int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+    this.schedule = new MessageType[totalWeight];
+    for (Map.Entry<SyntheticMessage, Integer> entry : mix.entrySet()) {
+      MessageType messageType = new MessageType(entry.getKey().getType(),
+          objectMapper.writeValueAsBytes(entry.getKey()));
+      messageTypes.put(messageType.type, messageType);
+
+      // Spread the type evenly by taking the first free slot at each of its regular intervals
+      int weight = entry.getValue();
+      for (int i = 0; i < weight; i++) {
+        int slot = (int) ((long) i * totalWeight / weight);
+        while (schedule[slot % totalWeight] != null) {
+          slot++;
+        }
+        schedule[slot % totalWeight] = messageType;
+      }
+    }
+  }
+
+  /**
+   * Sends messages for <code>warmupSeconds</code> and then <code>durationSeconds</code> more,
+   * recording the latencies of the messages sent during the latter. Returns once every message
+   * sent has completed.
+   *
+   * @param warmupSeconds Number of seconds to send messages for before recording latencies.
+   * @param durationSeconds Number of seconds to send messages for while recording latencies.
+   * @throws InterruptedException If interrupted while sending messages.
+   */
+  public void run(int warmupSeconds, int durationSeconds) throws InterruptedException {
+
+    // Let connections to the endpoint be reused by every thread
+    System.setProperty("http.maxConnections", String.valueOf(maxConnections));
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(maxConnections, maxConnections, 1,
+        TimeUnit.MINUTES, new LinkedBlockingQueue<>());
+    executor.prestartAllCoreThreads();
+
+    long requestCount = (long) rate * (warmupSeconds + durationSeconds);
+    long firstMeasuredRequest = (long) rate * warmupSeconds;
+    long startNanos = System.nanoTime();
+    log.info("Sending " + requestCount + " messages at " + rate + " messages per second to "
+        + endpoint + ".");
+
+    for (long i = 0; i < requestCount; i++) {
+
+      // Wait for the intended start of the request, never for the requests before it
+      long intendedStartNanos = startNanos + i * 1_000_000_000L / rate;
+      long now;
+      while ((now = System.nanoTime()) < intendedStartNanos) {
+        LockSupport.parkNanos(intendedStartNanos - now);
+      }
+      boolean measured = i >= firstMeasuredRequest;
+      long sendLagNanos = now - intendedStartNanos;
+      if (measured && sendLagNanos > 1_000_000) {
+        maxSendLagNanos = Math.max(maxSendLagNanos, sendLagNanos);
+        lateRequests++;
+      }
+
+      MessageType messageType = schedule[(int) (i % schedule.length)];
+      executor.execute(() -> send(messageType, intendedStartNanos, measured));
+    }
+
+    executor.shutdown();
+    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Sends a single message and, if it is <code>measured</code>, records its latency from its
+   * intended start.
+   *
+   * @param messageType Type of the message to send.
+   * @param intendedStartNanos Time the message was scheduled to be sent at.
+   * @param measured Flag to indicate that the latency of the message is recorded.
+   */
+  private void send(MessageType messageType, long intendedStartNanos, boolean measured) {
+    boolean succeeded;
+    try {
+      HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+      connection.setRequestMethod("POST");
+      connection.setRequestProperty("Content-Type", "application/json");
+      connection.setDoOutput(true);
+      connection.setFixedLengthStreamingMode(messageType.body.length);
+      try (OutputStream outputStream = connection.getOutputStream()) {
+        outputStream.write(messageType.body);
+      }
+
+      // Read the whole response so that the connection can be reused
+      int status = connection.getResponseCode();
+      succeeded = status == HttpURLConnection.HTTP_OK;
+      try (InputStream inputStream = succeeded ? connection.getInputStream()
+          : connection.getErrorStream()) {
+        if (inputStream != null) {
+          byte[] buffer = new byte[8192];
+          while (inputStream.read(buffer) != -1) {
+            // Discard the response
+          }
+        }
+      }
+
+    } catch (IOException e) {
+      log.fine("Unable to send message of type [" + messageType.type + "]: " + e.getMessage());
+      succeeded = false;
+    }
+
+    if (!measured) {
+      return;
+    }
+    if (succeeded) {
+      messageType.latencies.recordValue((System.nanoTime() - intendedStartNanos) / 1000);
+    } else {
+      messageType.errors.incrementAndGet();
+    }
+  }
+
+  /**
+   * Prints the throughput and the latency percentiles of each message type and of all of them
+   * together, in milliseconds.
+   *
+   * @param out Stream to print the report to.
+   * @param durationSeconds Number of seconds latencies were recorded for.
+   */
+  public void printReport(PrintStream out, int durationSeconds) {
+    StringBuilder header = new StringBuilder(String.format("%-12s %10s %8s %10s", "type",
+        "count", "errors", "msg/s"));
+    for (double percentile : REPORTED_PERCENTILES) {
+      header.append(String.format(" %9s", "p" + formatPercentile(percentile)));
+    }
+    out.println(header.append(String.format(" %9s", "max")));
+
+    Histogram allLatencies = new Histogram(3);
+    long allErrors = 0;
+    for (MessageType messageType : messageTypes.values()) {
+      printRow(out, messageType.type, messageType.latencies, messageType.errors.get(),
+          durationSeconds);
+      allLatencies.add(messageType.latencies);
+      allErrors += messageType.errors.get();
+    }
+    printRow(out, "all", allLatencies, allErrors, durationSeconds);
+
+    if (lateRequests > 0) {
+      out.println(String.format("WARNING: %d messages were sent more than 1ms late (at most"
+              + " %.1fms) because the generator could not keep up. Latencies are still measured"
+              + " from the intended start, but the achieved rate may be lower than requested.",
+          lateRequests, maxSendLagNanos / 1_000_000.0));
+    }
+  }
+
+  /**
+   * Prints the statistics of a single message type.
+   *
+   * @param out Stream to print the row to.
+   * @param type Type identifier of the message type.
+   * @param latencies Recorded latencies of the message type, in microseconds.
+   * @param errors Number of messages of the type that failed.
+   * @param durationSeconds Number of seconds latencies were recorded for.
+   */
+  private static void printRow(PrintStream out, String type, Histogram latencies, long errors,
+      int durationSeconds) {
+    StringBuilder row = new StringBuilder(String.format("%-12s %10d %8d %10.1f", type,
+        latencies.getTotalCount(), errors,
+        (double) latencies.getTotalCount() / durationSeconds));
+    for (double percentile : REPORTED_PERCENTILES) {
+      row.append(String.format(" %9.3f", latencies.getValueAtPercentile(percentile) / 1000.0));
+    }
+    out.println(row.append(String.format(" %9.3f", latencies.getMaxValue() / 1000.0)));
+  }
+
+  /**
+   * @param percentile Percentile to format, e.g., 99.9.
+   * @return The <code>percentile</code> without its fraction if it has none, e.g., 99 or 99.9.
+   */
+  private static String formatPercentile(double percentile) {
+    return percentile == Math.rint(percentile) ? String.valueOf((long) percentile)
+        : String.valueOf(percentile);
+  }
+
+  /**
+   * {@link MessageType} class holds the request body and the recorded results of a message type.
+   */
+  private static class MessageType {
+
+    /**
+     * String-based type identifier of the message type.
+     */
+    private final String type;
+
+    /**
+     * Body of every request of the message type.
+     */
+    private final byte[] body;
+
+    /**
+     * Latencies of the successful messages of the type, in microseconds.
+     */
+    private final Histogram latencies = new ConcurrentHistogram(3);
+
+    /**
+     * Number of messages of the type that failed, i.e., were not answered with the 200 status.
+     */
+    private final AtomicLong errors = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param type String-based type identifier of the message type.
+     * @param body Body of every request of the message type.
+     */
+    private MessageType(String type, byte[] body) {
+      this.type = type;
+      this.body = body;
+    }
+  }
+}
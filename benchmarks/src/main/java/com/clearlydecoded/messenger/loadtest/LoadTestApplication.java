@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.loadtest;
+
+import com.clearlydecoded.messenger.rest.SpringRestMessenger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import lombok.extern.java.Log;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * {@link LoadTestApplication} class starts an application with the synthetic message processors of
+ * this package on a random port, drives its REST-MESSENGER endpoint with a {@link LoadGenerator}
+ * and prints the throughput and latency percentiles of each message type.
+ *
+ * <p>The load test is configured with Spring-based properties, e.g., on the command line:</p>
+ * <ul>
+ * <li><code>--loadtest.rate</code>: messages sent per second, 1000 by default.</li>
+ * <li><code>--loadtest.warmup-seconds</code>: seconds to send messages for before recording
+ * latencies, 10 by default.</li>
+ * <li><code>--loadtest.duration-seconds</code>: seconds to record latencies for, 30 by
+ * default.</li>
+ * <li><code>--loadtest.max-connections</code>: messages in flight at once, 200 by default.</li>
+ * <li><code>--loadtest.mix</code>: message types to send and their weights, by default
+ * <code>LightQuery:80,HeavyQuery:15,SlowCall:5</code>.</li>
+ * <li><code>--loadtest.&lt;type&gt;.cpu-micros</code>,
+ * <code>--loadtest.&lt;type&gt;.payload-bytes</code> and
+ * <code>--loadtest.&lt;type&gt;.delay-millis</code>: cost of a message type, e.g.,
+ * <code>--loadtest.HeavyQuery.cpu-micros=5000</code>, defaulting to the cost set by the message
+ * class.</li>
+ * </ul>
+ *
+ * <p>Any other property, e.g., <code>--server.tomcat.max-threads=50</code>, configures the
+ * application under test.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+@Configuration
+@ComponentScan
+@EnableAutoConfiguration
+public class LoadTestApplication {
+
+  /**
+   * Synthetic message types that can be sent, keyed by their type identifier.
+   */
+  private static final Map<String, Supplier<SyntheticMessage>> MESSAGE_TYPES =
+      new LinkedHashMap<>();
+
+  static {
+    MESSAGE_TYPES.put(LightQuery.TYPE, LightQuery::new);
+    MESSAGE_TYPES.put(HeavyQuery.TYPE, HeavyQuery::new);
+    MESSAGE_TYPES.put(SlowCall.TYPE, SlowCall::new);
+  }
+
+  /**
+   * Use the Spring-based message processor registry factory to create the registry with
+   * automatically discovered message handlers and expose it as a Bean into the Spring Context.
+   */
+  @Bean
+  public SpringRestMessenger createSpringRestMessenger(ApplicationContext springContext) {
+    return new SpringRestMessenger(springContext);
+  }
+
+  /**
+   * @param args Spring-based properties configuring the load test and the application under test.
+   * @throws Exception If the application can not be started or the load test fails.
+   */
+  public static void main(String[] args) throws Exception {
+    ConfigurableApplicationContext context = new SpringApplicationBuilder(
+        LoadTestApplication.class)
+        .properties("server.port=0")
+        .run(args);
+
+    try {
+      Environment environment = context.getEnvironment();
+      int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+      URL endpoint = new URL("http://localhost:" + port + "/"
+          + environment.getProperty("com.clearlydecoded.messenger.endpoint.uri", "process"));
+
+      LoadGenerator loadGenerator = new LoadGenerator(endpoint,
+          environment.getProperty("loadtest.rate", Integer.class, 1000),
+          environment.getProperty("loadtest.max-connections", Integer.class, 200),
+          createMix(environment), context.getBean(ObjectMapper.class));
+
+      int durationSeconds = environment.getProperty("loadtest.duration-seconds", Integer.class,
+          30);
+      loadGenerator.run(environment.getProperty("loadtest.warmup-seconds", Integer.class, 10),
+          durationSeconds);
+      loadGenerator.printReport(System.out, durationSeconds);
+
+    } finally {
+      context.close();
+    }
+  }
+
+  /**
+   * Creates the messages to send, with their cost configured, keyed to their weight.
+   *
+   * @param environment Environment with the load test configuration.
+   * @return Messages to send, keyed to their weight.
+   * @throws IllegalArgumentException If the <code>loadtest.mix</code> property is not valid.
+   */
+  private static Map<SyntheticMessage, Integer> createMix(Environment environment)
+      throws IllegalArgumentException {
+    Map<SyntheticMessage, Integer> mix = new LinkedHashMap<>();
+
+    String mixProperty = environment.getProperty("loadtest.mix",
+        "LightQuery:80,HeavyQuery:15,SlowCall:5");
+    for (String typeAndWeight : mixProperty.split(",")) {
+      String[] parts = typeAndWeight.trim().split(":");
+      Supplier<SyntheticMessage> messageSupplier = MESSAGE_TYPES.get(parts[0]);
+      if (parts.length != 2 || messageSupplier == null) {
+        String logMessage = "Invalid entry [" + typeAndWeight + "] of loadtest.mix. Entries must"
+            + " be <type>:<weight> with a type among " + MESSAGE_TYPES.keySet() + ".";
+        log.severe(logMessage);
+        throw new IllegalArgumentException(logMessage);
+      }
+
+      // Override the default cost of the message type with the configured one
+      SyntheticMessage message = messageSupplier.get();
+      String prefix = "loadtest." + message.getType() + ".";
+      message.setCpuMicros(environment.getProperty(prefix + "cpu-micros", Long.class,
+          message.getCpuMicros()));
+      message.setPayloadBytes(environment.getProperty(prefix + "payload-bytes", Integer.class,
+          message.getPayloadBytes()));
+      message.setDelayMillis(environment.getProperty(prefix + "delay-millis", Long.class,
+          message.getDelayMillis()));
+
+      mix.put(message, Integer.parseInt(parts[1]));
+    }
+
+    return mix;
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.loadtest;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * {@link SlowCall} class is a message whose processing mostly waits, e.g., on a remote
+ * service. By default, it takes little CPU time but blocks its thread for 50 milliseconds.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Getter
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class SlowCall extends SyntheticMessage {
+
+  /**
+   * String-based type identifier of the message.
+   */
+  public static final String TYPE = "SlowCall";
+
+  /**
+   * String-based type identifier of the message.
+   */
+  private final String type = TYPE;
+
+  /**
+   * Constructor that sets the default cost of the message.
+   */
+  public SlowCall() {
+    setCpuMicros(50);
+    setPayloadBytes(512);
+    setDelayMillis(50);
+  }
+}
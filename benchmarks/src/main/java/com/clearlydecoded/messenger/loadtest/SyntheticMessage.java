@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.loadtest;
+
+import com.clearlydecoded.messenger.Message;
+import java.util.Arrays;
+import lombok.Data;
+
+/**
+ * {@link SyntheticMessage} class is the base class of the messages sent by the load test. Every
+ * message carries the cost its processor has to simulate, so that the cost of each message type
+ * can be configured from the command line.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Data
+public abstract class SyntheticMessage implements Message<SyntheticResponse> {
+
+  /**
+   * Number of microseconds the processor keeps a CPU busy for.
+   */
+  private long cpuMicros;
+
+  /**
+   * Size of the payload of the message response, in characters.
+   */
+  private int payloadBytes;
+
+  /**
+   * Number of milliseconds the processor blocks its thread for, e.g., like waiting for a database.
+   */
+  private long delayMillis;
+
+  /**
+   * Sink for the work done while keeping the CPU busy, so that it can not be optimized away.
+   */
+  private static volatile long blackhole;
+
+  /**
+   * Simulates the cost of processing this message on the calling thread.
+   *
+   * @return Message response with a payload of <code>payloadBytes</code> characters.
+   */
+  SyntheticResponse process() {
+
+    // Keep the CPU busy
+    long busyUntil = System.nanoTime() + cpuMicros * 1000;
+    long spins = 0;
+    while (System.nanoTime() < busyUntil) {
+      spins++;
+    }
+    blackhole = spins;
+
+    // Block the thread
+    if (delayMillis > 0) {
+      try {
+        Thread.sleep(delayMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    char[] payload = new char[payloadBytes];
+    Arrays.fill(payload, 'x');
+    return new SyntheticResponse(new String(payload));
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.DefaultMessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.clearlydecoded.messenger.benchmarks.MessageFixture;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link MessageReadingBenchmark} class measures the phases of reading a message: scanning it for
+ * its type identifier and looking up its processor, and binding it to its concrete message
+ * class. It lives in the package of the {@link TypedMessageParser} so that it can measure the
+ * parser on its own.
+ *
+ * <p><code>typeExtractionAndBinding</code> is what the dispatcher actually does; the cost of
+ * binding is its difference from <code>typeExtraction</code>. <code>concreteDeserialization</code>
+ * binds the whole message with Jackson alone, as the baseline to compare the single-pass parser
+ * with.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageReadingBenchmark {
+
+  /**
+   * Message to read.
+   */
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  private MessageFixture fixture;
+
+  /**
+   * Jackson object mapper to create parsers with.
+   */
+  private ObjectMapper objectMapper;
+
+  /**
+   * Registry holding the message processor of the message.
+   */
+  private MessageProcessorRegistry registry;
+
+  /**
+   * Descriptor of the message processor of the message.
+   */
+  private MessageProcessorDescriptor<?, ?> descriptor;
+
+  /**
+   * UTF-8 encoded JSON of the message.
+   */
+  private byte[] messageJson;
+
+  /**
+   * Registers the message processor.
+   */
+  @Setup
+  public void setUp() {
+    objectMapper = new ObjectMapper();
+    registry = new DefaultMessageProcessorRegistry(objectMapper);
+    registry.addProcessor(fixture.getProcessor());
+    descriptor = registry.getDescriptorFor(fixture.getProcessor().getCompatibleMessageType());
+    messageJson = fixture.getMessageJson();
+  }
+
+  /**
+   * @return Descriptor of the message processor of the message.
+   * @throws IOException If the message is not valid JSON.
+   */
+  @Benchmark
+  public MessageProcessorDescriptor<?, ?> typeExtraction() throws IOException {
+    return new TypedMessageParser(objectMapper.getFactory().createParser(messageJson))
+        .scanMessageDescriptor(registry);
+  }
+
+  /**
+   * @return Concretely typed message.
+   * @throws IOException If the message is not valid JSON.
+   */
+  @Benchmark
+  public Object typeExtractionAndBinding() throws IOException {
+    TypedMessageParser messageParser = new TypedMessageParser(objectMapper.getFactory()
+        .createParser(messageJson));
+    messageParser.scanMessageDescriptor(registry);
+    return messageParser.readMessage(descriptor.getMessageReader());
+  }
+
+  /**
+   * @return Concretely typed message.
+   * @throws IOException If the message is not valid JSON.
+   */
+  @Benchmark
+  public Object concreteDeserialization() throws IOException {
+    return descriptor.getMessageReader().readValue(messageJson);
+  }
+}
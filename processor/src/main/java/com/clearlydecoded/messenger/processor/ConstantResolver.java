@@ -0,0 +1,299 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.processor;
+
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.ImportTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import java.util.List;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+
+/**
+ * {@link ConstantResolver} class determines the string a method or field of a class being compiled
+ * always evaluates to, if it can be told from the source code alone. This is the case for methods
+ * whose body is a single <code>return</code> statement of a string literal or a constant, e.g.,
+ * <code>return TYPE;</code> or <code>return MyMessage.TYPE;</code>, and for fields that are
+ * constants, e.g., <code>private final String type = TYPE;</code>.
+ *
+ * <p>Method bodies are not attributed yet while annotation processors run, so names used in them
+ * are resolved here the same way the compiler would: fields of the class, its superclasses and its
+ * enclosing classes, and types of the class, its imports, its package and <code>java.lang</code>.
+ * </p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class ConstantResolver {
+
+  /**
+   * Source trees of the classes being compiled, or <code>null</code> if the compiler does not
+   * provide them.
+   */
+  private final Trees trees;
+
+  /**
+   * Utility methods for operating on elements.
+   */
+  private final Elements elements;
+
+  /**
+   * Constructor.
+   *
+   * @param processingEnv Environment of the annotation processor.
+   */
+  ConstantResolver(ProcessingEnvironment processingEnv) {
+    this.trees = getTrees(processingEnv);
+    this.elements = processingEnv.getElementUtils();
+  }
+
+  /**
+   * @param processingEnv Environment of the annotation processor.
+   * @return Source trees of the classes being compiled, or <code>null</code> if the compiler is
+   * not <code>javac</code> and does not provide them.
+   */
+  private static Trees getTrees(ProcessingEnvironment processingEnv) {
+    try {
+      return Trees.instance(processingEnv);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Finds the method with the <code>methodName</code> and no parameters that instances of the
+   * <code>type</code> run, i.e., the one declared in the <code>type</code> or its closest
+   * superclass that is not abstract.
+   *
+   * @param type Class to look for the method in.
+   * @param methodName Name of the method.
+   * @return Method instances of the <code>type</code> run or <code>null</code> if none is found.
+   */
+  ExecutableElement findMethod(TypeElement type, String methodName) {
+
+    for (TypeElement current = type; current != null; current = getSuperclass(current)) {
+      for (ExecutableElement method : ElementFilter.methodsIn(current.getEnclosedElements())) {
+        if (method.getSimpleName().contentEquals(methodName) && method.getParameters().isEmpty()
+            && !method.getModifiers().contains(Modifier.ABSTRACT)) {
+          return method;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Resolves the string the <code>method</code> always returns.
+   *
+   * @param method Method to resolve the return value of.
+   * @return Returned string or <code>null</code> if it can not be told from the source code, e.g.,
+   * because the method is compiled already or its body is more than a single return statement.
+   */
+  String resolveReturnValue(ExecutableElement method) {
+
+    if (trees == null) {
+      return null;
+    }
+
+    MethodTree methodTree = trees.getTree(method);
+    if (methodTree == null || methodTree.getBody() == null) {
+      return null;
+    }
+
+    List<? extends StatementTree> statements = methodTree.getBody().getStatements();
+    if (statements.size() != 1 || !(statements.get(0) instanceof ReturnTree)) {
+      return null;
+    }
+
+    ExpressionTree returnedExpression = ((ReturnTree) statements.get(0)).getExpression();
+    return resolveExpression(returnedExpression, (TypeElement) method.getEnclosingElement());
+  }
+
+  /**
+   * Resolves the value of the constant field with the <code>fieldName</code> that is visible in
+   * the <code>scope</code>.
+   *
+   * @param scope Class the field is referred to from.
+   * @param fieldName Name of the field.
+   * @return Value of the field or <code>null</code> if it is not found or is not a string constant.
+   */
+  String resolveField(TypeElement scope, String fieldName) {
+
+    // Look in the class, its superclasses and interfaces, then in the classes it is nested in
+    for (Element current = scope; current instanceof TypeElement;
+        current = current.getEnclosingElement()) {
+      VariableElement field = findField(current.getEnclosedElements(), fieldName);
+      if (field == null) {
+        field = findField(elements.getAllMembers((TypeElement) current), fieldName);
+      }
+      if (field != null) {
+        Object constantValue = field.getConstantValue();
+        return constantValue instanceof String ? (String) constantValue : null;
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @param members Members of a class.
+   * @param fieldName Name of the field.
+   * @return Field with the <code>fieldName</code> or <code>null</code> if there is none among the
+   * <code>members</code>. A field declared in the class itself hides any inherited one.
+   */
+  private static VariableElement findField(List<? extends Element> members, String fieldName) {
+    for (VariableElement field : ElementFilter.fieldsIn(members)) {
+      if (field.getSimpleName().contentEquals(fieldName)) {
+        return field;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param expression Expression to resolve.
+   * @param scope Class the expression appears in.
+   * @return String the <code>expression</code> evaluates to or <code>null</code> if it can not be
+   * told from the source code.
+   */
+  private String resolveExpression(ExpressionTree expression, TypeElement scope) {
+
+    switch (expression.getKind()) {
+      case STRING_LITERAL:
+        return (String) ((LiteralTree) expression).getValue();
+
+      case PARENTHESIZED:
+        return resolveExpression(((ParenthesizedTree) expression).getExpression(), scope);
+
+      case IDENTIFIER:
+        return resolveField(scope, ((IdentifierTree) expression).getName().toString());
+
+      case MEMBER_SELECT:
+        MemberSelectTree memberSelect = (MemberSelectTree) expression;
+        String fieldName = memberSelect.getIdentifier().toString();
+        String qualifier = memberSelect.getExpression().toString();
+        if ("this".equals(qualifier)) {
+          return resolveField(scope, fieldName);
+        }
+        TypeElement qualifierType = resolveType(qualifier, scope);
+        return qualifierType == null ? null : resolveField(qualifierType, fieldName);
+
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @param typeName Simple, nested or fully qualified name of a class.
+   * @param scope Class the name appears in.
+   * @return Class with the <code>typeName</code> or <code>null</code> if it is not found.
+   */
+  private TypeElement resolveType(String typeName, TypeElement scope) {
+
+    // Resolve the first part of the name, the rest of it are nested classes
+    int firstDot = typeName.indexOf('.');
+    String firstName = firstDot < 0 ? typeName : typeName.substring(0, firstDot);
+    String nestedNames = firstDot < 0 ? "" : typeName.substring(firstDot);
+
+    // Classes the scope is or is nested in, and classes nested in any of them
+    for (Element current = scope; current instanceof TypeElement;
+        current = current.getEnclosingElement()) {
+      TypeElement type = (TypeElement) current;
+      if (type.getSimpleName().contentEquals(firstName)) {
+        return findType(type.getQualifiedName() + nestedNames);
+      }
+      for (TypeElement memberType : ElementFilter.typesIn(elements.getAllMembers(type))) {
+        if (memberType.getSimpleName().contentEquals(firstName)) {
+          return findType(memberType.getQualifiedName() + nestedNames);
+        }
+      }
+    }
+
+    // Single-type imports, then the package of the scope, then on-demand imports and java.lang
+    CompilationUnitTree compilationUnit = getCompilationUnit(scope);
+    List<? extends ImportTree> imports = compilationUnit == null ? null
+        : compilationUnit.getImports();
+    if (imports != null) {
+      for (ImportTree importTree : imports) {
+        String importedName = importTree.getQualifiedIdentifier().toString();
+        if (!importTree.isStatic() && importedName.endsWith("." + firstName)) {
+          return findType(importedName + nestedNames);
+        }
+      }
+    }
+
+    TypeElement samePackageType = findType(
+        elements.getPackageOf(scope).getQualifiedName() + "." + typeName);
+    if (samePackageType != null) {
+      return samePackageType;
+    }
+
+    if (imports != null) {
+      for (ImportTree importTree : imports) {
+        String importedName = importTree.getQualifiedIdentifier().toString();
+        if (!importTree.isStatic() && importedName.endsWith(".*")) {
+          TypeElement importedType = findType(
+              importedName.substring(0, importedName.length() - 1) + typeName);
+          if (importedType != null) {
+            return importedType;
+          }
+        }
+      }
+    }
+
+    TypeElement javaLangType = findType("java.lang." + typeName);
+    return javaLangType != null ? javaLangType : findType(typeName);
+  }
+
+  /**
+   * @param canonicalName Canonical name of a class.
+   * @return Class with the <code>canonicalName</code> or <code>null</code> if it is not found.
+   */
+  private TypeElement findType(String canonicalName) {
+    return elements.getTypeElement(canonicalName);
+  }
+
+  /**
+   * @param type Class being compiled.
+   * @return Source file the <code>type</code> is declared in, or <code>null</code> if it is not
+   * available.
+   */
+  private CompilationUnitTree getCompilationUnit(TypeElement type) {
+    TreePath path = trees == null ? null : trees.getPath(type);
+    return path == null ? null : path.getCompilationUnit();
+  }
+
+  /**
+   * @param type Class to get the superclass of.
+   * @return Superclass of the <code>type</code> or <code>null</code> if it has none.
+   */
+  private static TypeElement getSuperclass(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    return superclass.getKind() == TypeKind.DECLARED
+        ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+  }
+}
@@ -0,0 +1,404 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * {@link MessageProcessorIndexer} class is an annotation processor that indexes every concrete
+ * <code>MessageProcessor</code> being compiled with the string-based type identifier, message
+ * class and message response class it is typed with. The index is written to
+ * {@value #INDEX_LOCATION}, where the <code>DefaultMessageProcessorRegistry</code> finds it at
+ * startup and registers the indexed processors without resolving their generic types or
+ * instantiating their messages.
+ *
+ * <p>The same checks <code>MessageProcessorValidator</code> makes at startup are made while
+ * compiling, and fail the build instead:</p>
+ * <ul>
+ * <li>The type identifier returned by the processor's <code>getCompatibleMessageType()</code> must
+ * be identical to the one returned by its message's <code>getType()</code>.</li>
+ * <li>The message and message response classes must be concrete classes with a public no-argument
+ * constructor.</li>
+ * </ul>
+ *
+ * <p>The processors, their messages and message responses, and every class those hold, are also
+ * written to the reflection configuration of a GraalVM native image, under
+ * <code>META-INF/native-image/rest-messenger/</code>, where the native image builder finds it.</p>
+ *
+ * <p>Type identifiers are determined from the source code, e.g., a <code>getType()</code> method
+ * that returns a constant or a constant <code>type</code> field. A processor whose type identifiers
+ * can not be determined this way is not indexed, and is validated at startup as before. A type
+ * identifier shared by more than one processor is reported as a warning, since the processors may
+ * be registered in different applications.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@SupportedAnnotationTypes("*")
+public class MessageProcessorIndexer extends AbstractProcessor {
+
+  /**
+   * Location of the index in the class output. Must match the location the
+   * <code>MessageProcessorIndex</code> is loaded from.
+   */
+  static final String INDEX_LOCATION = "META-INF/rest-messenger.processors";
+
+  /**
+   * Name of the interface every message processor implements.
+   */
+  private static final String MESSAGE_PROCESSOR = "com.clearlydecoded.messenger.MessageProcessor";
+
+  /**
+   * Name of the class that implements <code>getCompatibleMessageType()</code> by instantiating the
+   * message.
+   */
+  private static final String ABSTRACT_MESSAGE_PROCESSOR =
+      "com.clearlydecoded.messenger.AbstractMessageProcessor";
+
+  /**
+   * Index entries, keyed by processor class name, sorted so that the index is the same for the same
+   * sources.
+   */
+  private final Map<String, String> index = new TreeMap<>();
+
+  /**
+   * Names of the processor classes indexed so far, keyed by their message type identifier.
+   */
+  private final Map<String, String> processorsByMessageType = new HashMap<>();
+
+  /**
+   * Resolver of the type identifiers from the source code.
+   */
+  private ConstantResolver constantResolver;
+
+  /**
+   * Native image reflection configuration of the processors compiled.
+   */
+  private ReflectionConfig reflectionConfig;
+
+  @Override
+  public synchronized void init(ProcessingEnvironment processingEnv) {
+    super.init(processingEnv);
+    this.constantResolver = new ConstantResolver(processingEnv);
+    this.reflectionConfig = new ReflectionConfig(processingEnv.getElementUtils());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+    // Nothing to index if the library is not on the class path
+    TypeElement messageProcessorType = processingEnv.getElementUtils()
+        .getTypeElement(MESSAGE_PROCESSOR);
+    if (messageProcessorType == null) {
+      return false;
+    }
+
+    if (roundEnv.processingOver()) {
+      writeIndex();
+      writeReflectionConfig();
+      return false;
+    }
+
+    // Look at every class being compiled, including classes nested in them
+    Deque<TypeElement> types = new ArrayDeque<>(
+        ElementFilter.typesIn(roundEnv.getRootElements()));
+    while (!types.isEmpty()) {
+      TypeElement type = types.pop();
+      types.addAll(ElementFilter.typesIn(type.getEnclosedElements()));
+      indexProcessor(type, messageProcessorType);
+    }
+
+    // Never claim annotations, other annotation processors, e.g., Lombok, must still see them
+    return false;
+  }
+
+  /**
+   * Validates and indexes the <code>type</code> if it is a concrete message processor.
+   *
+   * @param type Class being compiled.
+   * @param messageProcessorType Interface every message processor implements.
+   */
+  private void indexProcessor(TypeElement type, TypeElement messageProcessorType) {
+
+    // Only concrete classes that can be instantiated on their own can be registered
+    if (type.getKind() != ElementKind.CLASS || type.getModifiers().contains(Modifier.ABSTRACT)
+        || (type.getNestingKind() != NestingKind.TOP_LEVEL
+        && !type.getModifiers().contains(Modifier.STATIC))) {
+      return;
+    }
+
+    DeclaredType processorSupertype = findSupertype(type.asType(), messageProcessorType);
+    if (processorSupertype == null) {
+      return;
+    }
+
+    Messager messager = processingEnv.getMessager();
+    String processorName = type.getQualifiedName().toString();
+
+    // Raw processors are not typed with their message classes
+    List<? extends TypeMirror> typeArguments = processorSupertype.getTypeArguments();
+    if (typeArguments.size() != 2 || typeArguments.get(0).getKind() != TypeKind.DECLARED
+        || typeArguments.get(1).getKind() != TypeKind.DECLARED) {
+      messager.printMessage(Kind.NOTE, "Message processor [" + processorName + "] is not indexed,"
+          + " since it is not typed with concrete message and message response classes.", type);
+      return;
+    }
+    TypeElement messageType = (TypeElement) ((DeclaredType) typeArguments.get(0)).asElement();
+    TypeElement messageResponseType = (TypeElement) ((DeclaredType) typeArguments.get(1))
+        .asElement();
+
+    // Verify message and message response can be instantiated
+    boolean valid = validateInstantiable(type, messageType, "message");
+    valid &= validateInstantiable(type, messageResponseType, "message response");
+
+    // Resolve string-based type identifiers of the message and the processor
+    String messageTypeId = resolveMessageTypeId(messageType);
+    ExecutableElement compatibleMessageTypeMethod = constantResolver
+        .findMethod(type, "getCompatibleMessageType");
+    String processorTypeId = compatibleMessageTypeMethod == null ? null
+        : ((TypeElement) compatibleMessageTypeMethod.getEnclosingElement()).getQualifiedName()
+            .contentEquals(ABSTRACT_MESSAGE_PROCESSOR) ? messageTypeId
+            : constantResolver.resolveReturnValue(compatibleMessageTypeMethod);
+
+    // Compare message's string-based type with processor's string-based type
+    if (messageTypeId != null && processorTypeId != null
+        && !messageTypeId.equals(processorTypeId)) {
+      String logTemplate = "Message processor [{0}] is NOT valid! It declares to process messages"
+          + " of type [{1}]. Processor''s getCompatibleMessageType() returns [{2}], but message''s"
+          + " getType() returns [{3}]. These must return identical string-based identifiers.";
+      messager.printMessage(Kind.ERROR, MessageFormat.format(logTemplate, processorName,
+          messageType.getQualifiedName(), processorTypeId, messageTypeId), type);
+      return;
+    }
+
+    if (!valid) {
+      return;
+    }
+
+    // Processor is used reflectively at runtime whether it is indexed or not
+    reflectionConfig.addProcessor(type, messageType, messageResponseType);
+
+    if (messageTypeId == null || processorTypeId == null) {
+      messager.printMessage(Kind.NOTE, "Message processor [" + processorName + "] is not indexed"
+          + " and will be validated at startup, since the string-based type identifier of it or of"
+          + " its message [" + messageType.getQualifiedName() + "] is not a constant.", type);
+      return;
+    }
+
+    // Warn about a type identifier that is already processed by another processor
+    String otherProcessorName = processorsByMessageType.putIfAbsent(messageTypeId, processorName);
+    if (otherProcessorName != null) {
+      messager.printMessage(Kind.WARNING, "Message processor [" + processorName + "] processes"
+          + " messages of type [" + messageTypeId + "], as does message processor ["
+          + otherProcessorName + "]. Only one of them may be registered in an application.", type);
+    }
+
+    Elements elements = processingEnv.getElementUtils();
+    index.put(elements.getBinaryName(type).toString(),
+        elements.getBinaryName(messageType) + "," + elements.getBinaryName(messageResponseType)
+            + "," + messageTypeId);
+  }
+
+  /**
+   * Resolves the string-based type identifier of the <code>messageType</code>, returned by its
+   * <code>getType()</code> method or, if it is generated later, e.g., by Lombok, held by its
+   * <code>type</code> field.
+   *
+   * @param messageType Message class.
+   * @return Type identifier or <code>null</code> if it can not be told from the source code.
+   */
+  private String resolveMessageTypeId(TypeElement messageType) {
+    ExecutableElement getTypeMethod = constantResolver.findMethod(messageType, "getType");
+    return getTypeMethod != null ? constantResolver.resolveReturnValue(getTypeMethod)
+        : constantResolver.resolveField(messageType, "type");
+  }
+
+  /**
+   * Validates that the <code>type</code> is a concrete class with a public no-argument constructor,
+   * reporting an error if it is not. A class annotated by Lombok is given the benefit of the doubt,
+   * since its constructors may not be generated yet.
+   *
+   * @param processorType Message processor typed with the <code>type</code>.
+   * @param type Message or message response class.
+   * @param description Description of the <code>type</code> to report it with.
+   * @return <code>true</code> if the <code>type</code> is valid, <code>false</code> otherwise.
+   */
+  private boolean validateInstantiable(TypeElement processorType, TypeElement type,
+      String description) {
+
+    boolean concrete = type.getKind() == ElementKind.CLASS
+        && !type.getModifiers().contains(Modifier.ABSTRACT)
+        && (type.getNestingKind() == NestingKind.TOP_LEVEL
+        || type.getModifiers().contains(Modifier.STATIC));
+    boolean publicNoArgumentConstructor = ElementFilter.constructorsIn(type.getEnclosedElements())
+        .stream()
+        .anyMatch(constructor -> constructor.getParameters().isEmpty()
+            && constructor.getModifiers().contains(Modifier.PUBLIC));
+
+    if (concrete && (publicNoArgumentConstructor || isAnnotatedByLombok(type))) {
+      return true;
+    }
+
+    String logTemplate = "Message processor [{0}] is NOT valid! Its {1} class [{2}] must be a"
+        + " concrete class with a public no-argument constructor.";
+    processingEnv.getMessager().printMessage(Kind.ERROR, MessageFormat.format(logTemplate,
+        processorType.getQualifiedName(), description, type.getQualifiedName()), processorType);
+    return false;
+  }
+
+  /**
+   * @param type Class to inspect.
+   * @return <code>true</code> if the <code>type</code> has any Lombok annotation,
+   * <code>false</code> otherwise.
+   */
+  private static boolean isAnnotatedByLombok(TypeElement type) {
+    for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+      if (annotation.getAnnotationType().toString().startsWith("lombok.")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Finds the supertype of the <code>type</code> that is the <code>targetType</code>, with the type
+   * arguments the <code>type</code> gives it.
+   *
+   * @param type Type to look up the supertype of.
+   * @param targetType Class or interface to look for.
+   * @return Supertype or <code>null</code> if the <code>type</code> is not a subtype of the
+   * <code>targetType</code>.
+   */
+  private DeclaredType findSupertype(TypeMirror type, TypeElement targetType) {
+
+    Types types = processingEnv.getTypeUtils();
+    Deque<TypeMirror> supertypes = new ArrayDeque<>();
+    supertypes.add(type);
+
+    while (!supertypes.isEmpty()) {
+      TypeMirror supertype = supertypes.pop();
+      if (supertype.getKind() == TypeKind.DECLARED
+          && ((DeclaredType) supertype).asElement().equals(targetType)) {
+        return (DeclaredType) supertype;
+      }
+      supertypes.addAll(types.directSupertypes(supertype));
+    }
+
+    return null;
+  }
+
+  /**
+   * Writes the index of the processors compiled, if there are any, to the class output.
+   */
+  private void writeIndex() {
+
+    if (index.isEmpty()) {
+      return;
+    }
+
+    try {
+      FileObject indexFile = processingEnv.getFiler()
+          .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+      try (Writer writer = indexFile.openWriter()) {
+        writer.write("# Generated by rest-messenger-processor. Do not edit.\n");
+        for (Map.Entry<String, String> entry : index.entrySet()) {
+          writer.write(entry.getKey() + "=" + escape(entry.getValue()) + "\n");
+        }
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Kind.ERROR,
+          "Unable to write message processor index [" + INDEX_LOCATION + "]: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Writes the native image reflection configuration of the processors compiled, if there are any,
+   * to the class output.
+   */
+  private void writeReflectionConfig() {
+
+    if (reflectionConfig.isEmpty()) {
+      return;
+    }
+
+    String location = reflectionConfig.getDirectory() + "/" + ReflectionConfig.FILE_NAME;
+    try {
+      FileObject configFile = processingEnv.getFiler()
+          .createResource(StandardLocation.CLASS_OUTPUT, "", location);
+      try (Writer writer = configFile.openWriter()) {
+        reflectionConfig.write(writer);
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Kind.ERROR,
+          "Unable to write native image configuration [" + location + "]: " + e.getMessage());
+    }
+  }
+
+  /**
+   * @param value Value of an index entry.
+   * @return <code>value</code> escaped as the value of a <code>java.util.Properties</code> entry.
+   */
+  private static String escape(String value) {
+
+    StringBuilder escapedValue = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char character = value.charAt(i);
+      if (character == '\\') {
+        escapedValue.append("\\\\");
+      } else if (character == '\n') {
+        escapedValue.append("\\n");
+      } else if (character == '\r') {
+        escapedValue.append("\\r");
+      } else if (character == '\t') {
+        escapedValue.append("\\t");
+      } else if (character == '\f') {
+        escapedValue.append("\\f");
+      } else if ((i == 0 && character == ' ') || character < 0x20 || character > 0x7e) {
+        escapedValue.append(String.format("\\u%04x", (int) character));
+      } else {
+        escapedValue.append(character);
+      }
+    }
+    return escapedValue.toString();
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+
+/**
+ * {@link ReflectionConfig} class collects the classes of the message processors being compiled
+ * that are used reflectively at runtime, and writes them as the reflection configuration of a
+ * GraalVM native image. These are the processors themselves, whose processing methods are looked
+ * up by name, and their messages and message responses, which are instantiated and bound by
+ * Jackson, along with every class they hold.
+ *
+ * <p>Classes of the JDK and of rest-messenger itself are left out. The rest-messenger jar carries
+ * its own configuration.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class ReflectionConfig {
+
+  /**
+   * Name of the file the configuration is written to, in the directory of the native image
+   * configuration.
+   */
+  static final String FILE_NAME = "reflect-config.json";
+
+  /**
+   * Package of the rest-messenger classes, which are configured by rest-messenger itself.
+   */
+  private static final String LIBRARY_PACKAGE = "com.clearlydecoded.messenger.";
+
+  /**
+   * Utility methods for operating on elements.
+   */
+  private final Elements elements;
+
+  /**
+   * Binary names of the classes to configure, sorted so that the configuration is the same for the
+   * same sources.
+   */
+  private final Set<String> classNames = new TreeSet<>();
+
+  /**
+   * Common package of the message processors, or <code>null</code> if no processor is added yet.
+   */
+  private String commonPackage;
+
+  /**
+   * Constructor.
+   *
+   * @param elements Utility methods for operating on elements.
+   */
+  ReflectionConfig(Elements elements) {
+    this.elements = elements;
+  }
+
+  /**
+   * Adds the <code>processorType</code> along with its message and message response classes.
+   *
+   * @param processorType Message processor class.
+   * @param messageType Message class of the processor.
+   * @param messageResponseType Message response class of the processor.
+   */
+  void addProcessor(TypeElement processorType, TypeElement messageType,
+      TypeElement messageResponseType) {
+
+    // Processing methods are looked up on the processor and its superclasses
+    for (TypeElement type = processorType; type != null && isConfigurable(type);
+        type = getSuperclass(type)) {
+      classNames.add(elements.getBinaryName(type).toString());
+    }
+
+    addBoundType(messageType.asType());
+    addBoundType(messageResponseType.asType());
+
+    String processorPackage = elements.getPackageOf(processorType).getQualifiedName().toString();
+    commonPackage = commonPackage == null ? processorPackage
+        : getCommonPackage(commonPackage, processorPackage);
+  }
+
+  /**
+   * @return <code>true</code> if no class is added, <code>false</code> otherwise.
+   */
+  boolean isEmpty() {
+    return classNames.isEmpty();
+  }
+
+  /**
+   * @return Directory to write the configuration to, named after the common package of the message
+   * processors, since the artifact they are compiled for is not known.
+   */
+  String getDirectory() {
+    String name = commonPackage == null || commonPackage.isEmpty() ? "application" : commonPackage;
+    return "META-INF/native-image/rest-messenger/" + name;
+  }
+
+  /**
+   * Writes the configuration as JSON.
+   *
+   * @param writer Writer to write the configuration to.
+   * @throws IOException If writing fails.
+   */
+  void write(Writer writer) throws IOException {
+
+    writer.write("[\n");
+    for (Iterator<String> iterator = classNames.iterator(); iterator.hasNext(); ) {
+      writer.write("  {\n"
+          + "    \"name\": \"" + iterator.next() + "\",\n"
+          + "    \"allDeclaredConstructors\": true,\n"
+          + "    \"allDeclaredFields\": true,\n"
+          + "    \"allDeclaredMethods\": true,\n"
+          + "    \"allPublicMethods\": true\n"
+          + "  }" + (iterator.hasNext() ? "," : "") + "\n");
+    }
+    writer.write("]\n");
+  }
+
+  /**
+   * Adds the class of the <code>type</code>, its superclasses and the classes of its fields, i.e.,
+   * everything Jackson binds when binding the <code>type</code>.
+   *
+   * @param type Type bound by Jackson.
+   */
+  private void addBoundType(TypeMirror type) {
+
+    if (type.getKind() == TypeKind.ARRAY) {
+      addBoundType(((ArrayType) type).getComponentType());
+      return;
+    }
+    if (type.getKind() != TypeKind.DECLARED) {
+      return;
+    }
+
+    // Type arguments, e.g., of a list, are bound as well
+    DeclaredType declaredType = (DeclaredType) type;
+    declaredType.getTypeArguments().forEach(this::addBoundType);
+
+    TypeElement typeElement = (TypeElement) declaredType.asElement();
+    if (!isConfigurable(typeElement)
+        || !classNames.add(elements.getBinaryName(typeElement).toString())) {
+      return;
+    }
+
+    for (VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+      if (!field.getModifiers().contains(Modifier.STATIC)) {
+        addBoundType(field.asType());
+      }
+    }
+    if (typeElement.getSuperclass().getKind() == TypeKind.DECLARED) {
+      addBoundType(typeElement.getSuperclass());
+    }
+  }
+
+  /**
+   * @param type Class to configure.
+   * @return <code>true</code> if the <code>type</code> is neither a JDK class nor a rest-messenger
+   * class, <code>false</code> otherwise.
+   */
+  private static boolean isConfigurable(TypeElement type) {
+    String name = type.getQualifiedName().toString();
+    return !name.startsWith("java.") && !name.startsWith("javax.")
+        && !name.startsWith(LIBRARY_PACKAGE);
+  }
+
+  /**
+   * @param type Class to get the superclass of.
+   * @return Superclass of the <code>type</code> or <code>null</code> if it has none.
+   */
+  private static TypeElement getSuperclass(TypeElement type) {
+    TypeMirror superclass = type.getSuperclass();
+    return superclass.getKind() == TypeKind.DECLARED
+        ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+  }
+
+  /**
+   * @param firstPackage Package name.
+   * @param secondPackage Another package name.
+   * @return Longest package name both packages are in, possibly the empty string.
+   */
+  private static String getCommonPackage(String firstPackage, String secondPackage) {
+    String[] firstNames = firstPackage.split("\\.");
+    String[] secondNames = secondPackage.split("\\.");
+
+    StringBuilder commonPackage = new StringBuilder();
+    for (int i = 0; i < Math.min(firstNames.length, secondNames.length)
+        && firstNames[i].equals(secondNames[i]); i++) {
+      commonPackage.append(i == 0 ? "" : ".").append(firstNames[i]);
+    }
+    return commonPackage.toString();
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.clearlydecoded.messenger.processor.MessageProcessorIndexer;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link MessageProcessorIndexerTest} class is used to test indexing and validating message
+ * processors while they are compiled.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public class MessageProcessorIndexerTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final StringWriter diagnostics = new StringWriter();
+
+  @Test
+  public void testProcessorWhoseTypeMatchesItsMessageIsIndexed() throws Exception {
+    writeMessage("Greeting", "public Greeting() {}");
+    writeSource("GreetingProcessor", "public class GreetingProcessor extends"
+        + " com.clearlydecoded.messenger.AbstractMessageProcessor<Greeting, GreetingResponse> {"
+        + "  public GreetingResponse process(Greeting message) { return null; }"
+        + "}");
+
+    assertTrue(diagnostics.toString(), compile());
+
+    Properties index = readIndex();
+    assertEquals(1, index.size());
+    assertEquals("app.Greeting,app.GreetingResponse,Greeting-1",
+        index.getProperty("app.GreetingProcessor"));
+  }
+
+  @Test
+  public void testProcessorWhoseTypeDiffersFromItsMessageFailsCompilation() throws Exception {
+    writeMessage("Greeting", "public Greeting() {}");
+    writeSource("GreetingHandler", "public class GreetingHandler implements"
+        + " com.clearlydecoded.messenger.MessageProcessor<Greeting, GreetingResponse> {"
+        + "  public GreetingResponse process(Greeting message) { return null; }"
+        + "  public String getCompatibleMessageType() { return \"Hello\"; }"
+        + "  public Class<Greeting> getCompatibleMessageClassType() { return Greeting.class; }"
+        + "  public Class<GreetingResponse> getCompatibleMessageResponseClassType() {"
+        + "    return GreetingResponse.class;"
+        + "  }"
+        + "}");
+
+    assertFalse(compile());
+    assertTrue(diagnostics.toString(), diagnostics.toString()
+        .contains("getCompatibleMessageType() returns [Hello], but message's getType() returns"
+            + " [Greeting-1]"));
+  }
+
+  @Test
+  public void testMessageWithoutNoArgumentConstructorFailsCompilation() throws Exception {
+    writeMessage("Greeting", "public Greeting(String name) {}");
+    writeSource("GreetingProcessor", "public class GreetingProcessor extends"
+        + " com.clearlydecoded.messenger.AbstractMessageProcessor<Greeting, GreetingResponse> {"
+        + "  public GreetingResponse process(Greeting message) { return null; }"
+        + "}");
+
+    assertFalse(compile());
+    assertTrue(diagnostics.toString(), diagnostics.toString()
+        .contains("message class [app.Greeting] must be a concrete class with a public"
+            + " no-argument constructor"));
+  }
+
+  @Test
+  public void testReflectionConfigHoldsProcessorAndEveryClassItsMessagesHold() throws Exception {
+    writeMessage("Greeting", "private java.util.List<Address> addresses; public Greeting() {}");
+    writeSource("Address", "public class Address { private String street; }");
+    writeSource("GreetingProcessor", "public class GreetingProcessor extends"
+        + " com.clearlydecoded.messenger.AbstractMessageProcessor<Greeting, GreetingResponse> {"
+        + "  public GreetingResponse process(Greeting message) { return null; }"
+        + "}");
+
+    assertTrue(diagnostics.toString(), compile());
+
+    String reflectionConfig = new String(Files.readAllBytes(folder.getRoot().toPath()
+        .resolve("classes/META-INF/native-image/rest-messenger/app/reflect-config.json")),
+        StandardCharsets.UTF_8);
+    for (String className : Arrays.asList("app.Address", "app.Greeting", "app.GreetingProcessor",
+        "app.GreetingResponse")) {
+      assertTrue(reflectionConfig, reflectionConfig.contains("\"name\": \"" + className + "\""));
+    }
+    assertFalse(reflectionConfig, reflectionConfig.contains("java.util.List"));
+    assertFalse(reflectionConfig, reflectionConfig.contains("AbstractMessageProcessor"));
+  }
+
+  private void writeMessage(String name, String constructor) throws IOException {
+    writeSource(name, "public class " + name + " implements"
+        + " com.clearlydecoded.messenger.Message<GreetingResponse> {"
+        + "  public static final String TYPE = \"" + name + "-1\";"
+        + "  private final String type = TYPE;"
+        + "  " + constructor
+        + "  public String getType() { return type; }"
+        + "}");
+    writeSource("GreetingResponse", "public class GreetingResponse implements"
+        + " com.clearlydecoded.messenger.MessageResponse {}");
+  }
+
+  private void writeSource(String name, String body) throws IOException {
+    Path sourceFile = folder.getRoot().toPath().resolve("src/app/" + name + ".java");
+    Files.createDirectories(sourceFile.getParent());
+    Files.write(sourceFile, ("package app;\n" + body).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private boolean compile() throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    File outputDirectory = folder.newFolder("classes");
+    List<File> sourceFiles = new ArrayList<>();
+    Files.walk(folder.getRoot().toPath().resolve("src"))
+        .filter(path -> path.toString().endsWith(".java"))
+        .forEach(path -> sourceFiles.add(path.toFile()));
+
+    try (StandardJavaFileManager fileManager = compiler
+        .getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+      CompilationTask task = compiler.getTask(diagnostics, fileManager, null,
+          Arrays.asList("-proc:only", "-classpath", System.getProperty("java.class.path"),
+              "-d", outputDirectory.getPath()),
+          null, fileManager.getJavaFileObjectsFromFiles(sourceFiles));
+      task.setProcessors(Arrays.asList(new MessageProcessorIndexer()));
+      return task.call();
+    }
+  }
+
+  private Properties readIndex() throws IOException {
+    Properties index = new Properties();
+    try (InputStream indexStream = Files.newInputStream(folder.getRoot().toPath()
+        .resolve("classes/META-INF/rest-messenger.processors"))) {
+      index.load(indexStream);
+    }
+    return index;
+  }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger;
+
+/**
+ * {@link AbstractAsyncMessageProcessor} abstract class implements boilerplate methods of the {@link
+ * AsyncMessageProcessor} interface such that the user of this interface only has to implement
+ * {@link AsyncMessageProcessor#processAsync(Message)}.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public abstract class AbstractAsyncMessageProcessor
+    <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+    extends AbstractMessageProcessor<MessageT, MessageResponseT>
+    implements AsyncMessageProcessor<MessageT, MessageResponseT> {
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * {@link AsyncMessageProcessor} interface is a {@link MessageProcessor} whose processing of a
+ * message completes asynchronously. Use it for processors that mostly wait on I/O, e.g., calls to
+ * remote services, so that no thread has to be blocked while the work is pending.
+ * <p>
+ * When the message is received through the REST endpoint, the container thread is released as soon
+ * as {@link #processAsync(Message)} returns and the HTTP response is written once the returned
+ * future completes.
+ * </p>
+ * <p>
+ * Since {@link AsyncMessageProcessor} is a {@link MessageProcessor}, it is discovered, validated
+ * and registered exactly the same way. Callers that need a synchronous result, e.g., when looking
+ * the processor up in the {@link MessageProcessorRegistry} directly, can still call
+ * {@link #process(Message)}, which waits for the future to complete.
+ * </p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public interface AsyncMessageProcessor
+    <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+    extends MessageProcessor<MessageT, MessageResponseT> {
+
+  /**
+   * Starts executing the <code>message</code>, producing a future of the message response of class
+   * type which is embedded in the type of <code>message</code>.
+   *
+   * <p>To validate the <code>message</code> before it is processed, annotate its parameter of this
+   * method with {@link javax.validation.Valid}.</p>
+   *
+   * @param message Message object containing data which is needed for processing this message.
+   * @return Future of the message response object that represents a processed response to the
+   * <code>message</code>. Processing failures should complete the future exceptionally.
+   */
+  CompletableFuture<MessageResponseT> processAsync(MessageT message);
+
+  /**
+   * Executes the <code>message</code> by waiting for {@link #processAsync(Message)} to complete.
+   *
+   * @param message Message object containing data which is needed for processing this message.
+   * @return Message response object that represents a processed response to the
+   * <code>message</code>.
+   */
+  @Override
+  default MessageResponseT process(MessageT message) {
+    try {
+      return processAsync(message).join();
+    } catch (CompletionException e) {
+
+      // Rethrow the original exception so it is reported the same way as a synchronous one
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link Bulkhead} annotation gives a message type its own bulkhead, i.e., its own bounded pool of
+ * threads and queue of waiting messages, so that a slow message type can not use up the threads
+ * that other message types need. Place it on either the {@link MessageProcessor} class or the
+ * {@link Message} class.
+ *
+ * <p>Bulkheads are only used if turned on with the
+ * <code>'com.clearlydecoded.messenger.bulkhead.enabled'</code> property. Message types without this
+ * annotation then share the default bulkhead. Messages that arrive while their bulkhead's threads
+ * are busy and its queue is full are rejected with HTTP 503 and a <code>Retry-After</code>
+ * header.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Bulkhead {
+
+  /**
+   * @return Maximum number of messages of the message type processed at the same time.
+   */
+  int maxConcurrent() default 10;
+
+  /**
+   * @return Maximum number of messages of the message type waiting for a thread. Once reached,
+   * further messages are rejected.
+   */
+  int maxQueued() default 100;
+}
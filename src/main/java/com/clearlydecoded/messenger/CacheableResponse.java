@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CacheableResponse} annotation marks the responses of a message type as cacheable. Place it
+ * on either the {@link MessageProcessor} class or the {@link Message} class.
+ *
+ * <p>Only use it for idempotent messages, i.e., pure lookups whose response depends on nothing but
+ * the message itself. When the same message (same type and same properties, regardless of their
+ * order or whitespace) is received again within the <code>ttl</code>, the serialized response is
+ * returned as-is, without binding or validating the message, calling the processor or serializing
+ * the response.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CacheableResponse {
+
+  /**
+   * @return How long a cached response stays valid after it was cached, in <code>timeUnit</code>s.
+   */
+  long ttl() default 60;
+
+  /**
+   * @return Time unit of the <code>ttl</code>.
+   */
+  TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+  /**
+   * @return Maximum number of responses cached for the message type. Once reached, the least
+   * recently used response is evicted.
+   */
+  int maxSize() default 1000;
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link CoalescedProcessing} annotation marks a message type whose identical messages, when they
+ * arrive while one of them is still being processed, share that single processing instead of each
+ * calling the processor. Place it on either the {@link MessageProcessor} class or the
+ * {@link Message} class.
+ *
+ * <p>Only use it for idempotent messages, i.e., messages whose response depends on nothing but the
+ * message itself, such as expensive queries. Messages are identical if they have the same type and
+ * the same properties, regardless of their order or whitespace. Every coalesced message receives
+ * the same serialized response, or the same error.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface CoalescedProcessing {
+
+}
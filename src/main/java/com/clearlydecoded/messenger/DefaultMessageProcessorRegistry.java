@@ -10,64 +10,220 @@ package com.clearlydecoded.messenger;
 
 import static com.clearlydecoded.messenger.discovery.MessageProcessorValidator.validateMessageProcessor;
 
+import com.clearlydecoded.messenger.discovery.MessageProcessorIndex;
+import com.clearlydecoded.messenger.discovery.MessageProcessorIndex.IndexedProcessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
+import java.util.stream.Collectors;
 import lombok.extern.java.Log;
 
 /**
  * {@link DefaultMessageProcessorRegistry} class is the default implementation of the
  * {@link MessageProcessorRegistry} interface.
  *
+ * <p>The registry may be changed while messages are being processed. Registered processors are
+ * held in an immutable snapshot that is replaced as a whole, i.e., copied on write, every time a
+ * processor is added or removed. Looking up a processor is therefore a single volatile read
+ * followed by a map lookup, without any locking, and always sees either the state before or the
+ * state after a change, never a change in progress. Changes are serialized with one another.</p>
+ *
+ * <p>Each snapshot also holds a {@link MessageTypeIndex} of its descriptors, so that a message type
+ * can be looked up straight from the characters a JSON parser has read, without creating a string
+ * for it.</p>
+ *
  * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
  */
 @Log
 public class DefaultMessageProcessorRegistry implements MessageProcessorRegistry {
 
   /**
-   * Map of {@link MessageProcessor} instances keyed by the message type they are able to process.
+   * Minimum number of processors added at once for them to be validated and compiled in parallel.
+   * Below it, forking costs more than it saves.
+   */
+  private static final int PARALLEL_COMPILATION_THRESHOLD = 16;
+
+  /**
+   * Current snapshot of the registered processors. Never modified, only replaced, while holding the
+   * <code>writeLock</code>.
+   */
+  private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+  /**
+   * Lock that serializes changes to the registry.
+   */
+  private final Object writeLock = new Object();
+
+  /**
+   * Jackson object mapper used to prepare message readers and response writers of the descriptors.
+   */
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Build-time index of the message processors. Processors found in it are neither validated nor
+   * asked for their message types and classes when they are added.
+   */
+  private final MessageProcessorIndex processorIndex;
+
+  /**
+   * Constructor.
+   */
+  public DefaultMessageProcessorRegistry() {
+    this(new ObjectMapper());
+  }
+
+  /**
+   * Constructor. Uses the {@link MessageProcessorIndex} of every jar visible to the context class
+   * loader of the current thread, if any.
+   *
+   * @param objectMapper Jackson object mapper used to prepare message readers and response writers
+   * of the registered processors.
+   */
+  public DefaultMessageProcessorRegistry(ObjectMapper objectMapper) {
+    this(objectMapper, MessageProcessorIndex.load(getDefaultClassLoader()));
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param objectMapper Jackson object mapper used to prepare message readers and response writers
+   * of the registered processors.
+   * @param processorIndex Build-time index of the message processors. Use
+   * {@link MessageProcessorIndex#EMPTY} to always validate and resolve processors when they are
+   * added.
+   */
+  public DefaultMessageProcessorRegistry(ObjectMapper objectMapper,
+      MessageProcessorIndex processorIndex) {
+    this.objectMapper = objectMapper;
+    this.processorIndex = processorIndex;
+  }
+
+  /**
+   * @return Context class loader of the current thread or, if there is none, the class loader of
+   * this class.
    */
-  private Map<String, MessageProcessor<? extends Message<? extends MessageResponse>,
-      ? extends MessageResponse>> processorMap = new HashMap<>();
+  private static ClassLoader getDefaultClassLoader() {
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    return classLoader != null ? classLoader
+        : DefaultMessageProcessorRegistry.class.getClassLoader();
+  }
 
   @Override
   public void addProcessor(MessageProcessor<? extends Message<? extends MessageResponse>,
       ? extends MessageResponse> processor) {
 
-    // Verify string and Java-based types are compatible in the message processor
-    validateMessageProcessor(processor);
+    // Validate and compile outside of the lock, so that other changes are not held up by it
+    CompiledProcessor compiledProcessor = compile(processor);
+
+    synchronized (writeLock) {
+      Map<String, MessageProcessorDescriptor<?, ?>> descriptors = new HashMap<>(
+          snapshot.descriptors);
+      List<MessageProcessor<?, ?>> processors = new ArrayList<>(snapshot.processors);
+      register(compiledProcessor, descriptors, processors);
+      snapshot = new Snapshot(descriptors, processors, snapshot.version + 1);
+    }
+  }
+
+  /**
+   * Validates the <code>processor</code> and compiles its descriptor. Both are independent of the
+   * state of the registry, so processors may be compiled in parallel. If the processor is in the
+   * <code>processorIndex</code>, it was already validated at build time, and its descriptor is
+   * compiled from the index.
+   *
+   * @param processor Message processor to compile.
+   * @return Compiled processor, or the failure to compile it.
+   */
+  @SuppressWarnings("unchecked")
+  private CompiledProcessor compile(MessageProcessor<? extends Message<? extends MessageResponse>,
+      ? extends MessageResponse> processor) {
+    try {
+
+      // Use the message type identifier and classes resolved and validated at build time, if any
+      IndexedProcessor indexedProcessor = processorIndex.get(processor.getClass());
+      if (indexedProcessor != null) {
+        return new CompiledProcessor(processor, MessageProcessorDescriptor.compile(
+            (MessageProcessor) processor, indexedProcessor.getMessageType(),
+            (Class) indexedProcessor.getMessageClass(),
+            (Class) indexedProcessor.getMessageResponseClass(), objectMapper), true, null);
+      }
+
+      // Verify string and Java-based types are compatible in the message processor
+      validateMessageProcessor(processor);
+
+      // Compile descriptor once, resolving the message type identifier and classes only once
+      return new CompiledProcessor(processor,
+          MessageProcessorDescriptor.compile((MessageProcessor) processor, objectMapper), false,
+          null);
+
+    } catch (RuntimeException e) {
+      return new CompiledProcessor(processor, null, false, e);
+    }
+  }
+
+  /**
+   * Adds the compiled processor to the provided copies of the current snapshot.
+   *
+   * @param compiledProcessor Compiled message processor to add.
+   * @param descriptors Copy of the descriptors of the current snapshot to add the descriptor to.
+   * @param processors Copy of the processors of the current snapshot to add the processor to.
+   * @throws IllegalStateException If the processor is not valid or a processor for the same
+   * string-based type ID is already registered.
+   */
+  private void register(CompiledProcessor compiledProcessor,
+      Map<String, MessageProcessorDescriptor<?, ?>> descriptors,
+      List<MessageProcessor<?, ?>> processors) throws IllegalStateException {
+
+    // Rethrow the failure to validate or compile the processor
+    if (compiledProcessor.failure != null) {
+      throw compiledProcessor.failure;
+    }
 
     // Verify no processor for the same string-based type ID is already registered
-    validateNoDuplicateTypeIdProcessor(processor);
+    MessageProcessorDescriptor<?, ?> descriptor = compiledProcessor.descriptor;
+    validateNoDuplicateTypeIdProcessor(descriptor, descriptors);
 
-    // Place message processor into map, keyed by string-based message type identifier
-    String processorStringType = processor.getCompatibleMessageType();
-    processorMap.put(processorStringType, processor);
+    // Place descriptor into map, keyed by string-based message type identifier
+    String processorStringType = descriptor.getMessageType();
+    descriptors.put(processorStringType, descriptor);
+    processors.add(compiledProcessor.processor);
 
     // Log registration
-    Class<?> processedMessage = processor.getCompatibleMessageClassType();
+    Class<?> processedMessage = descriptor.getMessageClass();
     String logTemplate = "Registered [{0}] to process messages of type [{1}] identified by [{2}]";
 
     if (log.isLoggable(Level.INFO)) {
       String infoLogMessage = MessageFormat.format(
           logTemplate,
-          processor.getClass().getSimpleName(),
+          compiledProcessor.processor.getClass().getSimpleName(),
           processedMessage.getSimpleName(),
           processorStringType);
       log.info(infoLogMessage);
     } else if (log.isLoggable(Level.FINE)) {
       String debugLogMessage = MessageFormat.format(
           logTemplate,
-          processor.getClass().getName(),
+          compiledProcessor.processor.getClass().getName(),
           processedMessage.getName(),
           processorStringType);
       log.info(debugLogMessage);
     }
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>Processors are validated and their descriptors are compiled in parallel on the common
+   * fork-join pool once there are at least {@value #PARALLEL_COMPILATION_THRESHOLD} of them, since
+   * both are reflective and independent of one another. They are then registered one at a time,
+   * in the order provided, exactly as if they were added one by one: duplicate message types are
+   * detected in that order, and the processors before the first invalid or duplicate one are still
+   * registered.</p>
+   */
   @Override
   public void addProcessors(List<? extends MessageProcessor<? extends
       Message<? extends MessageResponse>, ? extends MessageResponse>> processors) {
@@ -79,17 +235,62 @@ public class DefaultMessageProcessorRegistry implements MessageProcessorRegistry
       return;
     }
 
-    // Add each processor to the map
-    processors.forEach(this::addProcessor);
+    // Validate and compile every processor, keeping the order they are provided in
+    long compilationStart = System.nanoTime();
+    boolean parallel = processors.size() >= PARALLEL_COMPILATION_THRESHOLD;
+    List<CompiledProcessor> compiledProcessors = (parallel ? processors.parallelStream()
+        : processors.stream())
+        .map(this::compile)
+        .collect(Collectors.toList());
+    long registrationStart = System.nanoTime();
+
+    // Add each processor to a single copy of the snapshot, publishing the ones added before any
+    // invalid processor
+    synchronized (writeLock) {
+      Map<String, MessageProcessorDescriptor<?, ?>> descriptors = new HashMap<>(
+          snapshot.descriptors);
+      List<MessageProcessor<?, ?>> addedProcessors = new ArrayList<>(snapshot.processors);
+      try {
+        compiledProcessors.forEach(compiledProcessor -> register(compiledProcessor, descriptors,
+            addedProcessors));
+      } finally {
+        snapshot = new Snapshot(descriptors, addedProcessors, snapshot.version + 1);
+      }
+    }
+
+    long indexedCount = compiledProcessors.stream()
+        .filter(compiledProcessor -> compiledProcessor.indexed)
+        .count();
+    log.info("Validated and compiled " + processors.size() + " message processors ("
+        + indexedCount + " from the build-time index) in "
+        + TimeUnit.NANOSECONDS.toMillis(registrationStart - compilationStart) + "ms"
+        + (parallel ? " in parallel" : "") + ", registered them in "
+        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - registrationStart) + "ms.");
   }
 
   @Override
   public MessageProcessor<? extends Message<? extends MessageResponse>,
       ? extends MessageResponse> getProcessorFor(String messageType) {
 
-    log.fine("Retrieving processor for Message identifier type [" + messageType + "].");
+    if (log.isLoggable(Level.FINE)) {
+      log.fine("Retrieving processor for Message identifier type [" + messageType + "].");
+    }
+
+    MessageProcessorDescriptor<? extends Message<? extends MessageResponse>,
+        ? extends MessageResponse> descriptor = snapshot.descriptors.get(messageType);
+    return descriptor == null ? null : descriptor.getProcessor();
+  }
 
-    return processorMap.get(messageType);
+  @Override
+  public MessageProcessorDescriptor<? extends Message<? extends MessageResponse>,
+      ? extends MessageResponse> getDescriptorFor(String messageType) {
+    return snapshot.descriptors.get(messageType);
+  }
+
+  @Override
+  public MessageProcessorDescriptor<? extends Message<? extends MessageResponse>,
+      ? extends MessageResponse> getDescriptorFor(char[] typeCharacters, int offset, int length) {
+    return snapshot.typeIndex.get(typeCharacters, offset, length);
   }
 
   @Override
@@ -97,43 +298,155 @@ public class DefaultMessageProcessorRegistry implements MessageProcessorRegistry
 
     log.fine("Removing processor for Message identifier type [" + messageType + "].");
 
-    processorMap.remove(messageType);
+    synchronized (writeLock) {
+      MessageProcessorDescriptor<?, ?> descriptor = snapshot.descriptors.get(messageType);
+      if (descriptor == null) {
+        return;
+      }
+
+      Map<String, MessageProcessorDescriptor<?, ?>> descriptors = new HashMap<>(
+          snapshot.descriptors);
+      descriptors.remove(messageType);
+      List<MessageProcessor<?, ?>> processors = new ArrayList<>(snapshot.processors);
+      processors.remove(descriptor.getProcessor());
+      snapshot = new Snapshot(descriptors, processors, snapshot.version + 1);
+    }
   }
 
   @Override
+  @SuppressWarnings("unchecked")
   public List<MessageProcessor<? extends Message<? extends MessageResponse>,
       ? extends MessageResponse>> getProcessors() {
-    return new ArrayList<>(processorMap.values());
+    return new ArrayList(snapshot.processors);
+  }
+
+  @Override
+  public long getVersion() {
+    return snapshot.version;
   }
 
   /**
-   * Validates that the <code>processor</code> about to be added has a unique string-based type ID.
-   * If a processor with the same string-based type ID already exists in the map of processors,
-   * throw {@link IllegalStateException}.
+   * Validates that the processor about to be added has a unique string-based type ID. If a
+   * processor with the same string-based type ID already exists in the map of processors, throw
+   * {@link IllegalStateException}.
    *
-   * @param processor Processor to validate.
+   * @param descriptor Descriptor of the processor to validate.
+   * @param descriptors Descriptors of the processors registered so far, keyed by message type.
    * @throws IllegalStateException If a processor with the same string-based type ID already exists
    * in the map of processors
    */
-  private void validateNoDuplicateTypeIdProcessor(
-      MessageProcessor<? extends Message<? extends MessageResponse>,
-          ? extends MessageResponse> processor) throws IllegalStateException {
+  private void validateNoDuplicateTypeIdProcessor(MessageProcessorDescriptor<?, ?> descriptor,
+      Map<String, MessageProcessorDescriptor<?, ?>> descriptors) throws IllegalStateException {
 
     // Retrieve possibly existing processor
-    MessageProcessor<? extends Message<? extends MessageResponse>, ? extends MessageResponse>
-        existingProcessor = getProcessorFor(processor.getCompatibleMessageType());
+    MessageProcessorDescriptor<?, ?> existingDescriptor = descriptors
+        .get(descriptor.getMessageType());
 
     // If processor for that type already exists, throw exception
-    if (existingProcessor != null) {
+    if (existingDescriptor != null) {
       String logMessage = "Unable to register [{0}] to process messages of type [{1}] identified"
           + " by [{2}]. Another message processor [{3}] already identifies itself as the processor"
           + " of the same message type with string identifier [{4}].";
-      String message = MessageFormat.format(logMessage, processor.getClass().getName(),
-          processor.getCompatibleMessageClassType().getName(),
-          processor.getCompatibleMessageType(), existingProcessor.getClass().getName(),
-          existingProcessor.getCompatibleMessageType());
+      String message = MessageFormat.format(logMessage,
+          descriptor.getProcessor().getClass().getName(), descriptor.getMessageClass().getName(),
+          descriptor.getMessageType(), existingDescriptor.getProcessor().getClass().getName(),
+          existingDescriptor.getMessageType());
 
       throw new IllegalStateException(message);
     }
   }
+
+  /**
+   * {@link CompiledProcessor} class holds a validated processor along with its compiled descriptor,
+   * or the failure to validate or compile it.
+   */
+  private static class CompiledProcessor {
+
+    /**
+     * Message processor.
+     */
+    private final MessageProcessor<?, ?> processor;
+
+    /**
+     * Compiled descriptor of the processor, or <code>null</code> if it failed.
+     */
+    private final MessageProcessorDescriptor<?, ?> descriptor;
+
+    /**
+     * Failure to validate or compile the processor, or <code>null</code> if it succeeded.
+     */
+    private final RuntimeException failure;
+
+    /**
+     * Flag to indicate that the descriptor was compiled from the build-time index.
+     */
+    private final boolean indexed;
+
+    /**
+     * Constructor.
+     *
+     * @param processor Message processor.
+     * @param descriptor Compiled descriptor of the processor, or <code>null</code> if it failed.
+     * @param indexed Flag to indicate that the descriptor was compiled from the build-time index.
+     * @param failure Failure to validate or compile the processor, or <code>null</code> if it
+     * succeeded.
+     */
+    private CompiledProcessor(MessageProcessor<?, ?> processor,
+        MessageProcessorDescriptor<?, ?> descriptor, boolean indexed, RuntimeException failure) {
+      this.processor = processor;
+      this.descriptor = descriptor;
+      this.indexed = indexed;
+      this.failure = failure;
+    }
+  }
+
+  /**
+   * {@link Snapshot} class is an immutable state of the registry.
+   */
+  private static class Snapshot {
+
+    /**
+     * Snapshot of a registry with no processors.
+     */
+    private static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(),
+        Collections.emptyList(), 0);
+
+    /**
+     * Precompiled {@link MessageProcessor} descriptors keyed by the message type they are able to
+     * process.
+     */
+    private final Map<String, MessageProcessorDescriptor<?, ?>> descriptors;
+
+    /**
+     * Registered processors, in the order they were registered.
+     */
+    private final List<MessageProcessor<?, ?>> processors;
+
+    /**
+     * Precompiled descriptors indexed by the characters of the message type they are able to
+     * process.
+     */
+    private final MessageTypeIndex typeIndex;
+
+    /**
+     * Version of the snapshot, one more than the version of the snapshot it replaces.
+     */
+    private final long version;
+
+    /**
+     * Constructor.
+     *
+     * @param descriptors Precompiled descriptors keyed by the message type they are able to
+     * process. Must not be modified afterwards.
+     * @param processors Registered processors. Must not be modified afterwards.
+     * @param version Version of the snapshot.
+     */
+    private Snapshot(Map<String, MessageProcessorDescriptor<?, ?>> descriptors,
+        List<MessageProcessor<?, ?>> processors, long version) {
+      this.descriptors = Collections.unmodifiableMap(descriptors);
+      this.processors = Collections.unmodifiableList(processors);
+      this.typeIndex = new MessageTypeIndex(descriptors.values());
+      this.version = version;
+    }
+  }
 }
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.validation.Valid;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.extern.java.Log;
+
+/**
+ * {@link MessageProcessorDescriptor} class is an immutable, precompiled description of a
+ * {@link MessageProcessor}. It is built once, when the processor is registered, so that processing
+ * a message does not have to repeat any reflective work on the processor, its {@link Message} or
+ * its {@link MessageResponse} classes.
+ *
+ * @param <MessageT> Type of the message the described processor is able to process.
+ * @param <MessageResponseT> Type of the message response the described processor returns.
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+@Getter
+public class MessageProcessorDescriptor
+    <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse> {
+
+  /**
+   * Names of the methods that may process messages for an {@link AsyncMessageProcessor}, in the
+   * order they are looked for. Reactive message processors implement <code>processAsync</code>
+   * through a default method and process messages in <code>processReactive</code> instead.
+   */
+  private static final String[] ASYNC_PROCESSING_METHOD_NAMES = {"processAsync",
+      "processReactive"};
+
+  /**
+   * Names of the methods that may process messages for a synchronous {@link MessageProcessor}.
+   */
+  private static final String[] PROCESSING_METHOD_NAMES = {"process"};
+
+  /**
+   * Described message processor.
+   */
+  private final MessageProcessor<MessageT, MessageResponseT> processor;
+
+  /**
+   * String-based type identifier of the messages the processor is able to process.
+   */
+  private final String messageType;
+
+  /**
+   * Class type of the message the processor is able to process.
+   */
+  private final Class<MessageT> messageClass;
+
+  /**
+   * Class type of the message response the processor returns.
+   */
+  private final Class<MessageResponseT> messageResponseClass;
+
+  /**
+   * Flag to indicate that the processor is an {@link AsyncMessageProcessor}, i.e., its response is
+   * produced asynchronously.
+   */
+  private final boolean async;
+
+  /**
+   * Flag to indicate that the message argument of the processor's <code>process</code> method, or
+   * <code>processAsync</code> method for an {@link AsyncMessageProcessor}, is annotated with
+   * {@link Valid} and therefore must be validated before it is processed.
+   */
+  private final boolean validationRequired;
+
+  /**
+   * Caching settings of the message type's responses, or <code>null</code> if they are not
+   * cacheable. Taken from the processor class or, if not present there, from the message class.
+   */
+  private final CacheableResponse cacheableResponse;
+
+  /**
+   * Flag to indicate that concurrent identical messages share a single processing. Set if
+   * {@link CoalescedProcessing} is present on the processor class or the message class.
+   */
+  private final boolean coalescedProcessing;
+
+  /**
+   * Settings of the message type's own bulkhead, or <code>null</code> if it shares the default
+   * bulkhead. Taken from the processor class or, if not present there, from the message class.
+   */
+  private final Bulkhead bulkhead;
+
+  /**
+   * Rate limit of the message type, or <code>null</code> if it is not rate limited. Taken from the
+   * processor class or, if not present there, from the message class.
+   */
+  private final RateLimit rateLimit;
+
+  /**
+   * Jackson reader prepared to read JSON into the <code>messageClass</code>.
+   */
+  private final ObjectReader messageReader;
+
+  /**
+   * Jackson writer prepared to write the <code>messageResponseClass</code> as JSON.
+   */
+  @Getter(AccessLevel.NONE)
+  private final ObjectWriter messageResponseWriter;
+
+  /**
+   * Jackson object mapper used to prepare readers and writers.
+   */
+  @Getter(AccessLevel.NONE)
+  private final ObjectMapper mapper;
+
+  /**
+   * Jackson writers prepared for message responses whose runtime class is not exactly the
+   * <code>messageResponseClass</code>, i.e., subclasses of it, keyed by their runtime class.
+   */
+  @Getter(AccessLevel.NONE)
+  private final Map<Class<?>, ObjectWriter> subclassWriters = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param processor Message processor to describe.
+   * @param messageType String-based type identifier of the messages the processor is able to
+   * process.
+   * @param messageClass Class type of the message the processor is able to process.
+   * @param messageResponseClass Class type of the message response the processor returns.
+   * @param mapper Jackson object mapper to prepare message readers and response writers with.
+   * @throws IllegalArgumentException If the {@link RateLimit} of the message type is not valid.
+   */
+  private MessageProcessorDescriptor(MessageProcessor<MessageT, MessageResponseT> processor,
+      String messageType, Class<MessageT> messageClass,
+      Class<MessageResponseT> messageResponseClass, ObjectMapper mapper) {
+    this.processor = processor;
+    this.messageType = messageType;
+    this.messageClass = messageClass;
+    this.messageResponseClass = messageResponseClass;
+    this.async = processor instanceof AsyncMessageProcessor;
+    this.validationRequired = isMessageAnnotatedWithValid(processor, messageClass,
+        async ? ASYNC_PROCESSING_METHOD_NAMES : PROCESSING_METHOD_NAMES);
+    this.cacheableResponse = processor.getClass().isAnnotationPresent(CacheableResponse.class)
+        ? processor.getClass().getAnnotation(CacheableResponse.class)
+        : messageClass.getAnnotation(CacheableResponse.class);
+    this.coalescedProcessing = processor.getClass().isAnnotationPresent(CoalescedProcessing.class)
+        || messageClass.isAnnotationPresent(CoalescedProcessing.class);
+    this.bulkhead = processor.getClass().isAnnotationPresent(Bulkhead.class)
+        ? processor.getClass().getAnnotation(Bulkhead.class)
+        : messageClass.getAnnotation(Bulkhead.class);
+    this.rateLimit = processor.getClass().isAnnotationPresent(RateLimit.class)
+        ? processor.getClass().getAnnotation(RateLimit.class)
+        : messageClass.getAnnotation(RateLimit.class);
+    validateRateLimit(rateLimit, messageType);
+    this.messageReader = mapper.readerFor(messageClass);
+    this.messageResponseWriter = mapper.writerFor(messageResponseClass);
+    this.mapper = mapper;
+  }
+
+  /**
+   * Compiles the descriptor of the provided <code>processor</code>.
+   *
+   * @param processor Message processor to describe.
+   * @param mapper Jackson object mapper to prepare message readers and response writers with.
+   * @param <MessageT> Type of the message the processor is able to process.
+   * @param <MessageResponseT> Type of the message response the processor returns.
+   * @return Immutable descriptor of the <code>processor</code>.
+   * @throws IllegalStateException If the <code>process</code> method of the processor can not be
+   * found.
+   * @throws IllegalArgumentException If the {@link RateLimit} of the message type is not valid.
+   */
+  public static <MessageT extends Message<MessageResponseT>,
+      MessageResponseT extends MessageResponse> MessageProcessorDescriptor<MessageT,
+      MessageResponseT> compile(MessageProcessor<MessageT, MessageResponseT> processor,
+      ObjectMapper mapper) throws IllegalStateException, IllegalArgumentException {
+    return new MessageProcessorDescriptor<>(processor, processor.getCompatibleMessageType(),
+        processor.getCompatibleMessageClassType(),
+        processor.getCompatibleMessageResponseClassType(), mapper);
+  }
+
+  /**
+   * Compiles the descriptor of the provided <code>processor</code> from its already known message
+   * type identifier and classes, e.g., from the {@link
+   * com.clearlydecoded.messenger.discovery.MessageProcessorIndex}, without asking the processor for
+   * them.
+   *
+   * @param processor Message processor to describe.
+   * @param messageType String-based type identifier of the messages the processor is able to
+   * process.
+   * @param messageClass Class type of the message the processor is able to process.
+   * @param messageResponseClass Class type of the message response the processor returns.
+   * @param mapper Jackson object mapper to prepare message readers and response writers with.
+   * @param <MessageT> Type of the message the processor is able to process.
+   * @param <MessageResponseT> Type of the message response the processor returns.
+   * @return Immutable descriptor of the <code>processor</code>.
+   * @throws IllegalStateException If the <code>process</code> method of the processor can not be
+   * found.
+   * @throws IllegalArgumentException If the {@link RateLimit} of the message type is not valid.
+   */
+  public static <MessageT extends Message<MessageResponseT>,
+      MessageResponseT extends MessageResponse> MessageProcessorDescriptor<MessageT,
+      MessageResponseT> compile(MessageProcessor<MessageT, MessageResponseT> processor,
+      String messageType, Class<MessageT> messageClass,
+      Class<MessageResponseT> messageResponseClass, ObjectMapper mapper)
+      throws IllegalStateException, IllegalArgumentException {
+    return new MessageProcessorDescriptor<>(processor, messageType, messageClass,
+        messageResponseClass, mapper);
+  }
+
+  /**
+   * Retrieves the writer to use for the provided <code>messageResponse</code>. The prepared
+   * <code>messageResponseWriter</code> is only used if the runtime class of the response is exactly
+   * the declared <code>messageResponseClass</code> so that properties of subclasses are not lost.
+   * Writers for subclasses are prepared on first use and cached.
+   *
+   * @param messageResponse Message response about to be written.
+   * @return Jackson writer to write the <code>messageResponse</code> with.
+   */
+  public ObjectWriter getMessageResponseWriter(MessageResponseT messageResponse) {
+    if (messageResponse == null || messageResponse.getClass() == messageResponseClass) {
+      return messageResponseWriter;
+    }
+
+    return subclassWriters.computeIfAbsent(messageResponse.getClass(), mapper::writerFor);
+  }
+
+  /**
+   * @param processor Message processor whose processing method to inspect.
+   * @param messageClass Class type of the message argument of the processing method.
+   * @param methodNames Names of the methods that may be the processing method, in the order they
+   * are looked for.
+   * @return <code>true</code> if the message argument of the processing method is annotated with
+   * {@link Valid}, <code>false</code> otherwise.
+   * @throws IllegalStateException If the processing method can not be found.
+   */
+  private static boolean isMessageAnnotatedWithValid(MessageProcessor<?, ?> processor,
+      Class<?> messageClass, String[] methodNames) throws IllegalStateException {
+
+    // Look for the processing method on the processor class and its superclasses
+    for (String methodName : methodNames) {
+      for (Class<?> type = processor.getClass(); type != null; type = type.getSuperclass()) {
+        try {
+          Method method = type.getDeclaredMethod(methodName, messageClass);
+
+          // Extract annotations for the 1st and only parameter
+          Annotation[] messageAnnotations = method.getParameterAnnotations()[0];
+          return Arrays.stream(messageAnnotations).anyMatch(Valid.class::isInstance);
+
+        } catch (NoSuchMethodException e) {
+          // Keep looking in the superclass
+        }
+      }
+    }
+
+    String logTemplate = "Unable to find {0}({1}) method on message processor [{2}]. Unable to"
+        + " determine if messages should be validated.";
+    String logMessage = MessageFormat.format(logTemplate, String.join("/", methodNames),
+        messageClass.getName(), processor.getClass().getName());
+    log.severe(logMessage);
+    throw new IllegalStateException(logMessage);
+  }
+
+  /**
+   * @param rateLimit Rate limit of the message type, or <code>null</code> if it is not rate
+   * limited.
+   * @param messageType String-based type identifier of the rate limited messages.
+   * @throws IllegalArgumentException If <code>permitsPerSecond</code> is not a positive finite
+   * number, or <code>burst</code> is less than 1.
+   */
+  private static void validateRateLimit(RateLimit rateLimit, String messageType)
+      throws IllegalArgumentException {
+
+    if (rateLimit == null) {
+      return;
+    }
+
+    // Negated comparison also rejects NaN
+    if (!(rateLimit.permitsPerSecond() > 0) || Double.isInfinite(rateLimit.permitsPerSecond())) {
+      throw new IllegalArgumentException(MessageFormat.format("@RateLimit of message type [{0}]"
+          + " must have a positive finite permitsPerSecond, but has {1}.", messageType,
+          String.valueOf(rateLimit.permitsPerSecond())));
+    }
+    if (rateLimit.burst() < 1) {
+      throw new IllegalArgumentException(MessageFormat.format("@RateLimit of message type [{0}]"
+          + " must have a burst of at least 1, but has {1}.", messageType,
+          String.valueOf(rateLimit.burst())));
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link MessageProcessorDescriptorCache} class holds the descriptors compiled for registries that
+ * do not compile descriptors themselves, i.e., that rely on the default implementation of
+ * {@link MessageProcessorRegistry#getDescriptorFor(String)}. A descriptor is compiled the first
+ * time its processor instance is looked up and is reused for as long as that instance is.
+ *
+ * <p>Descriptors are kept for as long as this class is loaded, so registries that keep replacing
+ * their processors with new instances should compile descriptors themselves.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+final class MessageProcessorDescriptorCache {
+
+  /**
+   * Jackson object mapper used to prepare message readers and response writers of the
+   * descriptors.
+   */
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  /**
+   * Compiled descriptors keyed by the processor they describe.
+   */
+  private static final Map<MessageProcessor<?, ?>, MessageProcessorDescriptor<?, ?>> DESCRIPTORS =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Prevents instantiation.
+   */
+  private MessageProcessorDescriptorCache() {
+  }
+
+  /**
+   * Retrieves the descriptor of the <code>processor</code>, compiling it only if this processor
+   * instance was never looked up before.
+   *
+   * @param processor Message processor to describe.
+   * @return Descriptor of the <code>processor</code>.
+   * @throws IllegalStateException If the <code>process</code> method of the processor can not be
+   * found.
+   */
+  @SuppressWarnings("unchecked")
+  static MessageProcessorDescriptor<?, ?> getDescriptor(MessageProcessor processor)
+      throws IllegalStateException {
+
+    MessageProcessorDescriptor<?, ?> descriptor = DESCRIPTORS.get(processor);
+
+    // Processors that override equals() may be equal to another instance, whose descriptor must
+    // not be shared
+    if (descriptor == null || descriptor.getProcessor() != processor) {
+      descriptor = MessageProcessorDescriptor.compile(processor, OBJECT_MAPPER);
+      DESCRIPTORS.put(processor, descriptor);
+    }
+
+    return descriptor;
+  }
+}
@@ -46,6 +46,48 @@ public interface MessageProcessorRegistry {
   MessageProcessor<? extends Message<? extends MessageResponse>,
       ? extends MessageResponse> getProcessorFor(String messageType);
 
+  /**
+   * Retrieves the precompiled {@link MessageProcessorDescriptor} of the processor for the type of
+   * the message. If not found, returns <code>null</code>.
+   *
+   * <p>Implementations are expected to compile descriptors once, when processors are added. This
+   * default implementation compiles the descriptor the first time a processor instance is looked
+   * up and reuses it for as long as the same instance is returned by
+   * {@link #getProcessorFor(String)}. It is only provided so that existing registry
+   * implementations keep working.</p>
+   *
+   * @param messageType Message type identifier that is unique system-wide.
+   * @return Descriptor of the message processor registered for the <code>messageType</code>. If no
+   * processor is found for the message type, returns <code>null</code>.
+   */
+  default MessageProcessorDescriptor<? extends Message<? extends MessageResponse>,
+      ? extends MessageResponse> getDescriptorFor(String messageType) {
+
+    MessageProcessor<? extends Message<? extends MessageResponse>, ? extends MessageResponse>
+        processor = getProcessorFor(messageType);
+    return processor == null ? null : MessageProcessorDescriptorCache.getDescriptor(processor);
+  }
+
+  /**
+   * Retrieves the precompiled {@link MessageProcessorDescriptor} of the processor for the type of
+   * the message, given the characters of its type identifier, e.g., straight from the buffer of a
+   * JSON parser. If not found, returns <code>null</code>.
+   *
+   * <p>Implementations are expected to look the characters up without creating a string. This
+   * default implementation creates one and is only provided so that existing registry
+   * implementations keep working.</p>
+   *
+   * @param typeCharacters Buffer holding the characters of the message type identifier.
+   * @param offset Offset of the first character of the message type identifier in the buffer.
+   * @param length Number of characters of the message type identifier.
+   * @return Descriptor of the message processor registered for the message type. If no processor
+   * is found for the message type, returns <code>null</code>.
+   */
+  default MessageProcessorDescriptor<? extends Message<? extends MessageResponse>,
+      ? extends MessageResponse> getDescriptorFor(char[] typeCharacters, int offset, int length) {
+    return getDescriptorFor(new String(typeCharacters, offset, length));
+  }
+
   /**
    * Removes message processor which is identified by the <code>messageType</code> from the message
    * processor registry.
@@ -56,10 +98,26 @@ public interface MessageProcessorRegistry {
 
   /**
    * Retrieve all message processors successfully registered in the message processor registry.
+   * The returned list is a consistent snapshot that does not change if processors are added or
+   * removed afterwards.
    *
    * @return List of successfully discovered and registered message processors. If none are
    * registered, returns an empty list.
    */
   List<MessageProcessor<? extends Message<? extends MessageResponse>,
       ? extends MessageResponse>> getProcessors();
+
+  /**
+   * Retrieves the version of the registered processors, which changes every time processors are
+   * added or removed, so that anything derived from them, e.g., their documentation, only has to
+   * be derived again when they change.
+   *
+   * <p>This default implementation always returns 0, i.e., the processors are treated as if they
+   * never change, and is only provided so that existing registry implementations keep working.</p>
+   *
+   * @return Version of the registered processors.
+   */
+  default long getVersion() {
+    return 0;
+  }
 }
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger;
+
+import java.util.Collection;
+
+/**
+ * {@link MessageTypeIndex} class is an immutable hash table of {@link MessageProcessorDescriptor}s
+ * that is looked up by the characters of a message type identifier rather than by a
+ * {@link String}. This lets a message type be resolved straight from the character buffer of a
+ * JSON parser, without creating a string for every message.
+ *
+ * <p>The table uses open addressing with linear probing and is never more than half full, so a
+ * lookup hashes the characters once and compares them with one entry in the common case. The
+ * hash is the same as {@link String#hashCode()}, so hashes of the registered type identifiers are
+ * computed once by the strings themselves.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+final class MessageTypeIndex {
+
+  /**
+   * Characters of the type identifiers of the entries, or <code>null</code> for an empty slot.
+   */
+  private final char[][] types;
+
+  /**
+   * Hashes of the type identifiers of the entries.
+   */
+  private final int[] hashes;
+
+  /**
+   * Descriptors of the entries.
+   */
+  private final MessageProcessorDescriptor<?, ?>[] descriptors;
+
+  /**
+   * Mask that turns a hash into a slot, i.e., the number of slots minus 1.
+   */
+  private final int mask;
+
+  /**
+   * Constructor.
+   *
+   * @param descriptors Descriptors to index by their message type identifiers, which must be
+   * distinct.
+   */
+  MessageTypeIndex(Collection<MessageProcessorDescriptor<?, ?>> descriptors) {
+
+    // Keep at least half of the slots empty so that probe sequences stay short
+    int slots = Integer.highestOneBit(Math.max(1, descriptors.size()) * 4 - 1);
+    this.types = new char[slots][];
+    this.hashes = new int[slots];
+    this.descriptors = new MessageProcessorDescriptor<?, ?>[slots];
+    this.mask = slots - 1;
+
+    for (MessageProcessorDescriptor<?, ?> descriptor : descriptors) {
+      String type = descriptor.getMessageType();
+      int hash = type.hashCode();
+      int slot = spread(hash) & mask;
+      while (this.types[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      this.types[slot] = type.toCharArray();
+      this.hashes[slot] = hash;
+      this.descriptors[slot] = descriptor;
+    }
+  }
+
+  /**
+   * Looks up the descriptor of the message type whose identifier consists of the provided
+   * characters. Allocates nothing.
+   *
+   * @param characters Buffer holding the characters of the message type identifier.
+   * @param offset Offset of the first character of the message type identifier in the buffer.
+   * @param length Number of characters of the message type identifier.
+   * @return Descriptor of the message type or <code>null</code> if it is not indexed.
+   */
+  MessageProcessorDescriptor<?, ?> get(char[] characters, int offset, int length) {
+    int hash = 0;
+    for (int i = offset, end = offset + length; i < end; i++) {
+      hash = 31 * hash + characters[i];
+    }
+
+    for (int slot = spread(hash) & mask; types[slot] != null; slot = (slot + 1) & mask) {
+      if (hashes[slot] == hash && matches(types[slot], characters, offset, length)) {
+        return descriptors[slot];
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * @param hash Hash of a message type identifier.
+   * @return The <code>hash</code> with its high bits mixed into its low bits, which pick the slot.
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * @param type Characters of an indexed message type identifier.
+   * @param characters Buffer holding the characters of the message type identifier looked up.
+   * @param offset Offset of the first character of the looked up identifier in the buffer.
+   * @param length Number of characters of the looked up identifier.
+   * @return <code>true</code> if both identifiers consist of the same characters,
+   * <code>false</code> otherwise.
+   */
+  private static boolean matches(char[] type, char[] characters, int offset, int length) {
+    if (type.length != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (type[i] != characters[offset + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * {@link RateLimit} annotation limits the rate at which messages of a message type are accepted,
+ * across all clients, with a token bucket. Place it on either the {@link MessageProcessor} class
+ * or the {@link Message} class.
+ *
+ * <p>The bucket holds up to <code>burst</code> tokens and is refilled at
+ * <code>permitsPerSecond</code>. Each message takes a token. Messages that find the bucket empty
+ * are rejected with HTTP 429 and a <code>Retry-After</code> header, before they are bound to their
+ * message class.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface RateLimit {
+
+  /**
+   * @return Sustained number of messages of the message type accepted per second.
+   */
+  double permitsPerSecond();
+
+  /**
+   * @return Maximum number of messages of the message type accepted at once after a quiet period.
+   */
+  int burst() default 1;
+}
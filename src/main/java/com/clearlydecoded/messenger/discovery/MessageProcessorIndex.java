@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.discovery;
+
+import com.clearlydecoded.messenger.Message;
+import com.clearlydecoded.messenger.MessageProcessor;
+import com.clearlydecoded.messenger.MessageResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.java.Log;
+
+/**
+ * {@link MessageProcessorIndex} class holds what is known about {@link MessageProcessor}s at build
+ * time: the string-based type identifier, {@link Message} class and {@link MessageResponse} class
+ * of each processor. The index is generated while compiling the processors by the annotation
+ * processor of the <code>rest-messenger-processor</code> artifact, which also fails the build if a
+ * processor and its message do not agree on their type identifier.
+ *
+ * <p>Processors found in the index are registered without resolving their generic types or
+ * instantiating their messages. Processors that are not in it, e.g., because the annotation
+ * processor could not determine their type identifier at build time or is not used at all, are
+ * resolved and validated when they are registered.</p>
+ *
+ * <p>Each jar holds the index of its own processors at {@value #INDEX_LOCATION}, keyed by the
+ * processor class name, with the message class name, message response class name and message type
+ * identifier as a comma-separated value.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+public class MessageProcessorIndex {
+
+  /**
+   * Location of the index in each jar, or in any other class path root.
+   */
+  public static final String INDEX_LOCATION = "META-INF/rest-messenger.processors";
+
+  /**
+   * Index that holds no processors.
+   */
+  public static final MessageProcessorIndex EMPTY = new MessageProcessorIndex(new Properties());
+
+  /**
+   * Indexed values, keyed by the processor class name.
+   */
+  private final Map<String, String> entries = new HashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param properties Indexed values, keyed by the processor class name.
+   */
+  public MessageProcessorIndex(Properties properties) {
+    properties.stringPropertyNames()
+        .forEach(processorClassName -> entries.put(processorClassName,
+            properties.getProperty(processorClassName)));
+  }
+
+  /**
+   * Loads the index of every jar the <code>classLoader</code> sees. An index that can not be read
+   * is skipped, so its processors are resolved at startup instead.
+   *
+   * @param classLoader Class loader to look up the index with.
+   * @return Index of the processors of every jar, or {@link #EMPTY} if there is none.
+   */
+  public static MessageProcessorIndex load(ClassLoader classLoader) {
+
+    Properties properties = new Properties();
+    Enumeration<URL> indexUrls;
+    try {
+      indexUrls = classLoader.getResources(INDEX_LOCATION);
+    } catch (IOException e) {
+      log.warning("Unable to look up message processor index [" + INDEX_LOCATION + "]: "
+          + e.getMessage());
+      return EMPTY;
+    }
+
+    for (URL indexUrl : Collections.list(indexUrls)) {
+      try (InputStream indexStream = indexUrl.openStream()) {
+        properties.load(indexStream);
+      } catch (IOException e) {
+        log.warning("Unable to read message processor index [" + indexUrl + "]: "
+            + e.getMessage());
+      }
+    }
+
+    return properties.isEmpty() ? EMPTY : new MessageProcessorIndex(properties);
+  }
+
+  /**
+   * @return Number of processors in the index.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Retrieves what is known about the <code>processorClass</code> at build time. Its message and
+   * message response classes are loaded with the class loader of the <code>processorClass</code>.
+   *
+   * @param processorClass Class of the message processor to look up.
+   * @return Indexed processor or <code>null</code> if the <code>processorClass</code> is not in the
+   * index or its entry can not be used.
+   */
+  public IndexedProcessor get(Class<?> processorClass) {
+
+    String entry = entries.get(processorClass.getName());
+    if (entry == null) {
+      return null;
+    }
+
+    // Message and response class names never contain a comma, the type identifier may
+    String[] values = entry.split(",", 3);
+    if (values.length != 3) {
+      log.warning(MessageFormat.format("Ignoring malformed message processor index entry"
+          + " [{0}={1}].", processorClass.getName(), entry));
+      return null;
+    }
+
+    try {
+      ClassLoader classLoader = processorClass.getClassLoader();
+      return new IndexedProcessor(values[2], Class.forName(values[0], false, classLoader),
+          Class.forName(values[1], false, classLoader));
+
+    } catch (ClassNotFoundException | LinkageError e) {
+      log.warning(MessageFormat.format("Ignoring message processor index entry of [{0}], since its"
+          + " classes can not be loaded: {1}", processorClass.getName(), e));
+      return null;
+    }
+  }
+
+  /**
+   * {@link IndexedProcessor} class holds what is known about a single {@link MessageProcessor} at
+   * build time.
+   */
+  @Getter
+  @AllArgsConstructor
+  public static class IndexedProcessor {
+
+    /**
+     * String-based type identifier of the messages the processor is able to process.
+     */
+    private final String messageType;
+
+    /**
+     * Class type of the message the processor is able to process.
+     */
+    private final Class<?> messageClass;
+
+    /**
+     * Class type of the message response the processor returns.
+     */
+    private final Class<?> messageResponseClass;
+  }
+}
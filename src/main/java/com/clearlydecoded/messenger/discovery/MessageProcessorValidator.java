@@ -8,6 +8,7 @@
  */
 package com.clearlydecoded.messenger.discovery;
 
+import com.clearlydecoded.messenger.AsyncMessageProcessor;
 import com.clearlydecoded.messenger.Message;
 import com.clearlydecoded.messenger.MessageProcessor;
 import com.clearlydecoded.messenger.MessageResponse;
@@ -22,6 +23,10 @@ import java.util.logging.Logger;
  * <p>In addition, the {@link MessageResponse} class that the processor is typed with is validated
  * for existence of proper constructor definitions.</p>
  *
+ * <p>Both synchronous message processors and {@link AsyncMessageProcessor}s are validated the same
+ * way, since they are typed with their {@link Message} and {@link MessageResponse} classes alike.
+ * </p>
+ *
  * <p>The reason for this validation is to cause the failure to happen at startup of the application
  * instead of discovering during runtime at some point later that a particular message can not be
  * properly processed.</p>
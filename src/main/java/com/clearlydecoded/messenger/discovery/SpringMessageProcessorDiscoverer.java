@@ -8,6 +8,7 @@
  */
 package com.clearlydecoded.messenger.discovery;
 
+import com.clearlydecoded.messenger.AsyncMessageProcessor;
 import com.clearlydecoded.messenger.Message;
 import com.clearlydecoded.messenger.MessageProcessor;
 import com.clearlydecoded.messenger.MessageResponse;
@@ -21,7 +22,9 @@ import org.springframework.context.ApplicationContext;
 /**
  * {@link SpringMessageProcessorDiscoverer} class is a Spring Framework implementation of the
  * {@link MessageProcessorDiscoverer} interface. It uses only the Spring context to look for
- * concrete implementations of {@link MessageProcessor} interface.
+ * concrete implementations of {@link MessageProcessor} interface. Since
+ * {@link AsyncMessageProcessor} extends {@link MessageProcessor}, both synchronous and asynchronous
+ * message processors are discovered.
  *
  * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
  */
@@ -61,6 +64,10 @@ public class SpringMessageProcessorDiscoverer implements MessageProcessorDiscove
           ? extends MessageResponse>) beanMap.get(beanName);
 
       processors.add(processor);
+
+      if (processor instanceof AsyncMessageProcessor) {
+        log.fine("Discovered asynchronous message processor [" + beanName + "].");
+      }
     }
 
     // Check that at least 1 message processor is discovered; log warning if not
@@ -9,8 +9,14 @@
 package com.clearlydecoded.messenger.discovery;
 
 import com.clearlydecoded.messenger.DefaultMessageProcessorRegistry;
+import com.clearlydecoded.messenger.Message;
 import com.clearlydecoded.messenger.MessageProcessor;
 import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.java.Log;
 import org.springframework.context.ApplicationContext;
 
 /**
@@ -22,8 +28,13 @@ import org.springframework.context.ApplicationContext;
  * accomplished by marking processor classes with {@link org.springframework.stereotype.Service},
  * or {@link org.springframework.stereotype.Component}, etc.</p>
  *
+ * <p>Discovery itself stays on the calling thread, since it creates the processor beans and Spring
+ * does not support creating beans in parallel. The discovered processors are then validated and
+ * compiled in parallel by the registry. The time spent in each phase is logged.</p>
+ *
  * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
  */
+@Log
 public class SpringMessageProcessorRegistryFactory {
 
   /**
@@ -36,15 +47,41 @@ public class SpringMessageProcessorRegistryFactory {
    */
   public static MessageProcessorRegistry discoverMessageProcessorsAndCreateRegistry(
       ApplicationContext springContext) {
+    return discoverMessageProcessorsAndCreateRegistry(springContext, new ObjectMapper());
+  }
+
+  /**
+   * Invokes automatic discovery of message processors in the system and registers them in the
+   * message processor registry, which is what is returned to the caller of this method.
+   *
+   * @param springContext Spring Application Context.
+   * @param objectMapper Jackson object mapper used to prepare message readers and response writers
+   * of the registered processors.
+   * @return Registry with already automatically discovered
+   * {@link MessageProcessor}s.
+   */
+  public static MessageProcessorRegistry discoverMessageProcessorsAndCreateRegistry(
+      ApplicationContext springContext, ObjectMapper objectMapper) {
+
+    long discoveryStart = System.nanoTime();
 
     // Create default registry
-    MessageProcessorRegistry processorRegistry = new DefaultMessageProcessorRegistry();
+    MessageProcessorRegistry processorRegistry = new DefaultMessageProcessorRegistry(objectMapper);
 
     // Create spring-based automatic processor discoverer based on the provided Spring Context
     MessageProcessorDiscoverer discoverer = new SpringMessageProcessorDiscoverer(springContext);
 
-    // Discover message processors in the provided Spring Context and add them to the registry
-    processorRegistry.addProcessors(discoverer.discoverProcessors());
+    // Discover message processors in the provided Spring Context
+    List<? extends MessageProcessor<? extends Message<? extends MessageResponse>,
+        ? extends MessageResponse>> processors = discoverer.discoverProcessors();
+    long registrationStart = System.nanoTime();
+    log.info("Discovered " + processors.size() + " message processors in "
+        + TimeUnit.NANOSECONDS.toMillis(registrationStart - discoveryStart) + "ms.");
+
+    // Add discovered message processors to the registry
+    processorRegistry.addProcessors(processors);
+    log.info("Created message processor registry in "
+        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - discoveryStart) + "ms.");
 
     return processorRegistry;
   }
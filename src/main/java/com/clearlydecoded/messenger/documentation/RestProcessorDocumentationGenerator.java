@@ -10,6 +10,7 @@ package com.clearlydecoded.messenger.documentation;
 
 import com.clearlydecoded.messenger.Message;
 import com.clearlydecoded.messenger.MessageProcessor;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
 import com.clearlydecoded.messenger.MessageResponse;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -25,15 +26,18 @@ import com.fasterxml.jackson.module.jsonSchema.types.ObjectSchema;
 import com.fasterxml.jackson.module.jsonSchema.types.ReferenceSchema;
 import com.fasterxml.jackson.module.jsonSchema.types.StringSchema;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * {@link RestProcessorDocumentationGenerator} is a utility class that produces JSON-based
  * documentation for {@link MessageProcessor}s.
  *
+ * <p>The documentation of a class is generated once per call, no matter how many processors it is
+ * documented for, e.g., a message response class shared by several processors.</p>
+ *
  * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
  */
 public class RestProcessorDocumentationGenerator {
@@ -43,6 +47,29 @@ public class RestProcessorDocumentationGenerator {
    */
   private static String spacePadding = "  ";
 
+  /**
+   * Generates REST friendly documentation for every processor registered in the provided
+   * <code>processorRegistry</code>, using the provided <code>mapper</code> to introspect message
+   * and message response classes.
+   *
+   * @param processorRegistry Registry whose {@link MessageProcessor}s to generate documentation
+   * for.
+   * @param mapper Jackson object mapper to use for JSON schema generation.
+   * @return Documentation of each registered processor.
+   * @throws Exception If anything goes wrong with generating message processor documentation.
+   */
+  public static List<RestProcessorDocumentation> generateDocumentation(
+      MessageProcessorRegistry processorRegistry, ObjectMapper mapper) throws Exception {
+
+    ClassDocumentationCache cache = new ClassDocumentationCache(mapper);
+    List<RestProcessorDocumentation> processorDocs = new ArrayList<>();
+    for (MessageProcessor messageProcessor : processorRegistry.getProcessors()) {
+      processorDocs.add(generateDocumentation(messageProcessor, cache));
+    }
+
+    return processorDocs;
+  }
+
   /**
    * Generates REST friendly documentation for the provided <code>processor</code>.
    *
@@ -50,9 +77,38 @@ public class RestProcessorDocumentationGenerator {
    * @return Object that hold the documentation for the provided <code>processor</code>.
    * @throws Exception If anything goes wrong with generating message processor documentation.
    */
-  @SuppressWarnings("unchecked")
   public static RestProcessorDocumentation generateDocumentation(MessageProcessor processor)
       throws Exception {
+    return generateDocumentation(processor, new ObjectMapper());
+  }
+
+  /**
+   * Generates REST friendly documentation for the provided <code>processor</code>, using the
+   * provided <code>mapper</code> to introspect message and message response classes.
+   *
+   * @param processor {@link MessageProcessor} to generate documentation for.
+   * @param mapper Jackson object mapper to use for JSON schema generation. Should be the same
+   * mapper that reads messages and writes message responses so the docs match the wire format.
+   * @return Object that hold the documentation for the provided <code>processor</code>.
+   * @throws Exception If anything goes wrong with generating message processor documentation.
+   */
+  public static RestProcessorDocumentation generateDocumentation(MessageProcessor processor,
+      ObjectMapper mapper) throws Exception {
+    return generateDocumentation(processor, new ClassDocumentationCache(mapper));
+  }
+
+  /**
+   * Generates REST friendly documentation for the provided <code>processor</code>, reusing the
+   * documentation of classes already documented through the <code>cache</code>.
+   *
+   * @param processor {@link MessageProcessor} to generate documentation for.
+   * @param cache Documentation of the classes documented so far.
+   * @return Object that hold the documentation for the provided <code>processor</code>.
+   * @throws Exception If anything goes wrong with generating message processor documentation.
+   */
+  @SuppressWarnings("unchecked")
+  private static RestProcessorDocumentation generateDocumentation(MessageProcessor processor,
+      ClassDocumentationCache cache) throws Exception {
     RestProcessorDocumentation documentation = new RestProcessorDocumentation();
 
     // Extract message & message response classes and string-based type ID
@@ -61,13 +117,21 @@ public class RestProcessorDocumentationGenerator {
         .getCompatibleMessageResponseClassType();
     String compatibleMessageType = processor.getCompatibleMessageType();
 
-    // Generate documentation for message and message response
-    String messageDocs = generateMessageDocumentation(messageClass);
-    String messageResponseDocs = generateMessageResponseDocumentation(messageResponseClass);
+    // Generate documentation for message and message response, unless already generated
+    String messageDocs = cache.messageModels.get(messageClass);
+    if (messageDocs == null) {
+      messageDocs = generateMessageDocumentation(cache, messageClass);
+      cache.messageModels.put(messageClass, messageDocs);
+    }
+    String messageResponseDocs = cache.messageResponseModels.get(messageResponseClass);
+    if (messageResponseDocs == null) {
+      messageResponseDocs = generateMessageResponseDocumentation(cache, messageResponseClass);
+      cache.messageResponseModels.put(messageResponseClass, messageResponseDocs);
+    }
 
     // Generate JSON schemas for message and message response
-    JsonSchema messageSchema = generateJsonSchema(messageClass);
-    JsonSchema messageResponseSchema = generateJsonSchema(messageClass);
+    JsonSchema messageSchema = generateJsonSchema(cache, messageClass);
+    JsonSchema messageResponseSchema = generateJsonSchema(cache, messageResponseClass);
 
     // Set up the message processor documentation object
     documentation.setCompatibleMessageType(compatibleMessageType);
@@ -84,30 +148,33 @@ public class RestProcessorDocumentationGenerator {
   }
 
   /**
+   * Generates the JSON schema of the <code>classType</code>, unless it was already generated. The
+   * returned schema is shared and must not be modified.
+   *
+   * @param cache Documentation of the classes documented so far.
    * @param classType Class type whose JSON Schema to generate.
    * @return Java-based JSON Schema (v3) representation of the provided <code>classType</code>.
    */
-  private static JsonSchema generateJsonSchema(Class<?> classType)
-      throws JsonMappingException {
-    // Jackson object mapper to use for JSON schema generation.
-    ObjectMapper mapper = new ObjectMapper();
-
-    // JSON module schema parser.
-    JsonSchemaGenerator schemaGenerator = new JsonSchemaGenerator(mapper);
-
-    // Return generated JSON schema
-    return schemaGenerator.generateSchema(classType);
+  private static JsonSchema generateJsonSchema(ClassDocumentationCache cache,
+      Class<?> classType) throws JsonMappingException {
+    JsonSchema schema = cache.schemas.get(classType);
+    if (schema == null) {
+      schema = cache.schemaGenerator.generateSchema(classType);
+      cache.schemas.put(classType, schema);
+    }
+    return schema;
   }
 
   /**
    * Generates rest message documentation for the provided <code>messageClass</code>.
    *
+   * @param cache Documentation of the classes documented so far.
    * @param messageClass Message class that implements the {@link Message} interface.
    * @return Documentation for the <code>messageClass</code> in JSON schema-like format.
    * @throws Exception If anything goes wrong during schema generation.
    */
-  private static String generateMessageDocumentation(Class<? extends Message> messageClass)
-      throws Exception {
+  private static String generateMessageDocumentation(ClassDocumentationCache cache,
+      Class<? extends Message> messageClass) throws Exception {
 
     StringBuilder model = new StringBuilder();
 
@@ -118,13 +185,13 @@ public class RestProcessorDocumentationGenerator {
     model.append(getMessageType(messageClass));
 
     // Generate message object schema
-    ObjectSchema messageSchema = generateJsonSchema(messageClass).asObjectSchema();
+    ObjectSchema messageSchema = generateJsonSchema(cache, messageClass).asObjectSchema();
 
-    // Loop over all properties of message object, skipping 'type' property
+    // Loop over all properties of message object, skipping 'type' property without removing it
+    // from the shared schema
     Map<String, JsonSchema> propertiesMap = messageSchema.getProperties();
-    Set<String> propNames = propertiesMap.keySet();
-    propNames.remove("type");
-    propNames.stream()
+    propertiesMap.keySet().stream()
+        .filter(propName -> !"type".equals(propName))
         .map(propName -> {
           JsonSchema propSchema = propertiesMap.get(propName);
           return getJsonEntry(propName, propSchema, spacePadding, true);
@@ -141,13 +208,15 @@ public class RestProcessorDocumentationGenerator {
    * Generates rest message response documentation for the provided
    * <code>messageResponseClass</code> class.
    *
+   * @param cache Documentation of the classes documented so far.
    * @param messageResponseClass Message response class that implements {@link MessageResponse}
    * interface.
    * @return Documentation for the <code>messageResponseClass</code> in JSON schema-like format.
    * @throws Exception If anything goes wrong during schema generation.
    */
   private static String generateMessageResponseDocumentation(
-      Class<? extends MessageResponse> messageResponseClass) throws Exception {
+      ClassDocumentationCache cache, Class<? extends MessageResponse> messageResponseClass)
+      throws Exception {
 
     StringBuilder model = new StringBuilder();
 
@@ -155,12 +224,11 @@ public class RestProcessorDocumentationGenerator {
     model.append("{");
 
     // If any schema, i.e., empty, skip the rest of model generation
-    JsonSchema schema = generateJsonSchema(messageResponseClass);
+    JsonSchema schema = generateJsonSchema(cache, messageResponseClass);
     if (!(schema instanceof AnySchema)) {
 
-      // Generate message response object schema
-      ObjectSchema messageResponseSchema = generateJsonSchema(messageResponseClass)
-          .asObjectSchema();
+      // Use the same schema as the message response object schema
+      ObjectSchema messageResponseSchema = schema.asObjectSchema();
 
       // Append message response object properties schema
       model.append(generateObjectModel(messageResponseSchema.getProperties(), spacePadding));
@@ -487,19 +555,40 @@ public class RestProcessorDocumentationGenerator {
       return possibleComma + "\n" + currentPadding + "\"" + propName + "\": " + type.toString();
     }
   }
-}
-
-
-
-
-
-
-
-
-
-
-
-
-
-
 
+  /**
+   * {@link ClassDocumentationCache} class holds the documentation of the classes documented so
+   * far, keyed by class, so that each class is documented only once.
+   */
+  private static class ClassDocumentationCache {
+
+    /**
+     * JSON module schema generator, shared by all schemas.
+     */
+    private final JsonSchemaGenerator schemaGenerator;
+
+    /**
+     * JSON schemas generated so far.
+     */
+    private final Map<Class<?>, JsonSchema> schemas = new HashMap<>();
+
+    /**
+     * Message models generated so far.
+     */
+    private final Map<Class<?>, String> messageModels = new HashMap<>();
+
+    /**
+     * Message response models generated so far.
+     */
+    private final Map<Class<?>, String> messageResponseModels = new HashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param mapper Jackson object mapper to use for JSON schema generation.
+     */
+    private ClassDocumentationCache(ObjectMapper mapper) {
+      this.schemaGenerator = new JsonSchemaGenerator(mapper);
+    }
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.documentation;
+
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.java.Log;
+
+/**
+ * {@link RestProcessorDocumentationProvider} class generates the documentation of every processor
+ * registered in a {@link MessageProcessorRegistry} on a background thread, so that generating it
+ * does not hold up the application from serving messages.
+ *
+ * <p>Generation starts with {@link #generateInBackground()}, or at the latest the first time the
+ * documentation is asked for. Until it is done, {@link #getDocumentation()} returns
+ * <code>null</code>. If generation fails, the failure is logged and the documentation is
+ * empty, since it does not affect processing messages.</p>
+ *
+ * <p>The documentation is generated again only when the version of the registry changes, i.e.,
+ * when processors are added or removed. Until the new documentation is generated, the previous one
+ * is returned.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+public class RestProcessorDocumentationProvider {
+
+  /**
+   * Registry whose processors to document.
+   */
+  private final MessageProcessorRegistry processorRegistry;
+
+  /**
+   * Jackson object mapper to use for JSON schema generation.
+   */
+  private final ObjectMapper mapper;
+
+  /**
+   * Latest generation started, or <code>null</code> if none is started yet.
+   */
+  private final AtomicReference<Generation> startedGeneration = new AtomicReference<>();
+
+  /**
+   * Latest generation completed, or <code>null</code> if none is completed yet.
+   */
+  private volatile Generation completedGeneration;
+
+  /**
+   * Constructor.
+   *
+   * @param processorRegistry Registry whose processors to document.
+   * @param mapper Jackson object mapper to use for JSON schema generation. Should be the same
+   * mapper that reads messages and writes message responses so the docs match the wire format.
+   */
+  public RestProcessorDocumentationProvider(MessageProcessorRegistry processorRegistry,
+      ObjectMapper mapper) {
+    this.processorRegistry = processorRegistry;
+    this.mapper = mapper;
+  }
+
+  /**
+   * Starts generating the documentation on a background thread, unless it is already started for
+   * the current version of the registry.
+   */
+  public void generateInBackground() {
+    startGeneration();
+  }
+
+  /**
+   * Retrieves the documentation of every registered processor, starting to generate it if it is
+   * not started yet for the current version of the registry.
+   *
+   * @return Documentation of every registered processor, possibly of a previous version of the
+   * registry while the current one is being generated, or <code>null</code> if none is generated
+   * yet. The same list instance is returned until the registry changes.
+   */
+  public List<RestProcessorDocumentation> getDocumentation() {
+    List<RestProcessorDocumentation> documentation = startGeneration().documentation.getNow(null);
+    if (documentation != null) {
+      return documentation;
+    }
+
+    Generation generation = completedGeneration;
+    return generation == null ? null : generation.documentation.getNow(null);
+  }
+
+  /**
+   * Waits for the documentation of the current version of the registry to be generated, starting
+   * to generate it if it is not started yet.
+   *
+   * @param timeout Maximum time to wait.
+   * @param unit Time unit of the <code>timeout</code>.
+   * @return <code>true</code> if the documentation is generated, <code>false</code> if the
+   * <code>timeout</code> elapsed first.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  public boolean awaitDocumentation(long timeout, TimeUnit unit) throws InterruptedException {
+    try {
+      startGeneration().documentation.get(timeout, unit);
+      return true;
+    } catch (TimeoutException e) {
+      return false;
+    } catch (ExecutionException e) {
+      // Never completed exceptionally
+      return true;
+    }
+  }
+
+  /**
+   * Starts generating the documentation of the current version of the registry on a background
+   * thread, unless it is already started.
+   *
+   * @return Generation of the current version of the registry, or of a later one.
+   */
+  private Generation startGeneration() {
+    long registryVersion = processorRegistry.getVersion();
+
+    Generation generation = startedGeneration.get();
+    while (generation == null || generation.registryVersion < registryVersion) {
+      Generation nextGeneration = new Generation(registryVersion);
+      if (startedGeneration.compareAndSet(generation, nextGeneration)) {
+        Thread generator = new Thread(() -> generate(nextGeneration), "rest-messenger-docs");
+        generator.setDaemon(true);
+        generator.start();
+        return nextGeneration;
+      }
+      generation = startedGeneration.get();
+    }
+
+    return generation;
+  }
+
+  /**
+   * Generates the documentation of every registered processor and completes the
+   * <code>generation</code> with it.
+   *
+   * @param generation Generation to complete.
+   */
+  private void generate(Generation generation) {
+    long start = System.nanoTime();
+    try {
+      List<RestProcessorDocumentation> processorDocs = RestProcessorDocumentationGenerator
+          .generateDocumentation(processorRegistry, mapper);
+      complete(generation, processorDocs);
+      log.info("Generated documentation of " + processorDocs.size() + " message processors in "
+          + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+
+    } catch (Exception e) {
+      String logMessage = "Generating message processor documentation failed. However, this will"
+          + " NOT affect the functionality of the rest of the application. While it is most"
+          + " probably a bug, the application will still function correctly because it only"
+          + " affects the documentation of the REST API.";
+      log.severe(logMessage);
+      complete(generation, Collections.emptyList());
+    }
+  }
+
+  /**
+   * Completes the <code>generation</code>, making it the latest completed one unless a later one
+   * is completed already.
+   *
+   * @param generation Generation to complete.
+   * @param processorDocs Generated documentation.
+   */
+  private synchronized void complete(Generation generation,
+      List<RestProcessorDocumentation> processorDocs) {
+    generation.documentation.complete(processorDocs);
+    if (completedGeneration == null
+        || completedGeneration.registryVersion < generation.registryVersion) {
+      completedGeneration = generation;
+    }
+  }
+
+  /**
+   * {@link Generation} class is the documentation generated for a single version of the registry.
+   */
+  private static class Generation {
+
+    /**
+     * Version of the registry being documented.
+     */
+    private final long registryVersion;
+
+    /**
+     * Documentation of every registered processor, completed once it is generated.
+     */
+    private final CompletableFuture<List<RestProcessorDocumentation>> documentation =
+        new CompletableFuture<>();
+
+    /**
+     * Constructor.
+     *
+     * @param registryVersion Version of the registry being documented.
+     */
+    private Generation(long registryVersion) {
+      this.registryVersion = registryVersion;
+    }
+  }
+}
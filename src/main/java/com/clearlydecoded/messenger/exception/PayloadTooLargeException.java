@@ -0,0 +1,31 @@
+package com.clearlydecoded.messenger.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * {@link PayloadTooLargeException} class is an exception that is thrown when a client sends more
+ * messages at once than the host app accepts, e.g., a batch of more messages than its configured
+ * maximum.
+ * <p>
+ * This exception triggers HTTP 413 Payload Too Large.
+ * </p>
+ */
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class PayloadTooLargeException extends RuntimeException {
+
+  public PayloadTooLargeException() {
+  }
+
+  public PayloadTooLargeException(String message) {
+    super(message);
+  }
+
+  public PayloadTooLargeException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public PayloadTooLargeException(Throwable cause) {
+    super(cause);
+  }
+}
@@ -0,0 +1,32 @@
+package com.clearlydecoded.messenger.exception;
+
+import lombok.Getter;
+
+/**
+ * {@link RetryLaterException} class is the base class of exceptions that are thrown when a message
+ * is turned away because of load rather than because anything is wrong with it. The client should
+ * send the message again after <code>retryAfterSeconds</code>, which is returned to it in the
+ * <code>Retry-After</code> HTTP header.
+ * <p>
+ * The HTTP status is determined by the
+ * {@link org.springframework.web.bind.annotation.ResponseStatus} annotation of the subclass.
+ * </p>
+ */
+@Getter
+public abstract class RetryLaterException extends RuntimeException {
+
+  /**
+   * Number of seconds the client should wait before sending the message again.
+   */
+  private final long retryAfterSeconds;
+
+  public RetryLaterException(String message, long retryAfterSeconds) {
+    super(message);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public RetryLaterException(String message, Throwable cause, long retryAfterSeconds) {
+    super(message, cause);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+}
@@ -0,0 +1,24 @@
+package com.clearlydecoded.messenger.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * {@link ServiceUnavailableException} class is an exception that is thrown when a message can not
+ * be accepted for processing right now, e.g., because the bulkhead of its message type is full.
+ * <p>
+ * This exception triggers HTTP 503 Service Unavailable, along with the <code>Retry-After</code>
+ * header.
+ * </p>
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class ServiceUnavailableException extends RetryLaterException {
+
+  public ServiceUnavailableException(String message, long retryAfterSeconds) {
+    super(message, retryAfterSeconds);
+  }
+
+  public ServiceUnavailableException(String message, Throwable cause, long retryAfterSeconds) {
+    super(message, cause, retryAfterSeconds);
+  }
+}
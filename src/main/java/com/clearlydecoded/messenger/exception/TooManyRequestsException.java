@@ -0,0 +1,24 @@
+package com.clearlydecoded.messenger.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * {@link TooManyRequestsException} class is an exception that is thrown when a client, or a message
+ * type, exceeds its rate limit.
+ * <p>
+ * This exception triggers HTTP 429 Too Many Requests, along with the <code>Retry-After</code>
+ * header.
+ * </p>
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class TooManyRequestsException extends RetryLaterException {
+
+  public TooManyRequestsException(String message, long retryAfterSeconds) {
+    super(message, retryAfterSeconds);
+  }
+
+  public TooManyRequestsException(String message, Throwable cause, long retryAfterSeconds) {
+    super(message, cause, retryAfterSeconds);
+  }
+}
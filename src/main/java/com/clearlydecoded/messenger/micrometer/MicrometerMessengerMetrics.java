@@ -0,0 +1,307 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.micrometer;
+
+import com.clearlydecoded.messenger.MessageProcessor;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.clearlydecoded.messenger.exception.BadMessageFormatException;
+import com.clearlydecoded.messenger.exception.MessageTypeNotSupportedException;
+import com.clearlydecoded.messenger.exception.ValidationException;
+import com.clearlydecoded.messenger.rest.MessageExchangeListener;
+import com.clearlydecoded.messenger.rest.SpringRestMessenger;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.NoUniqueBeanDefinitionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * {@link MicrometerMessengerMetrics} class publishes Micrometer meters of the message exchanges of
+ * the <code>/process</code> endpoint of a {@link SpringRestMessenger}. The
+ * {@link SpringRestMessenger} binds it automatically whenever Micrometer is on the classpath and a
+ * single (or primary) <code>MeterRegistry</code> bean is present. The following meters are
+ * published:
+ *
+ * <ul>
+ * <li><code>rest.messenger.messages</code>: timer of every exchange, tagged by <code>type</code>
+ * and <code>outcome</code>, i.e., <code>SUCCESS</code>, <code>CLIENT_ERROR</code> or
+ * <code>SERVER_ERROR</code>. Messages that failed before their type was known, e.g., because
+ * their type is not supported or they are not valid JSON up to their type, are tagged with the
+ * <code>UNKNOWN</code> type.</li>
+ * <li><code>rest.messenger.errors</code>: counters of
+ * {@link MessageTypeNotSupportedException}, {@link BadMessageFormatException} and
+ * {@link ValidationException}, tagged by <code>exception</code>.</li>
+ * <li><code>rest.messenger.request.size</code> and <code>rest.messenger.response.size</code>:
+ * distributions of the body sizes in bytes, tagged by <code>type</code>.</li>
+ * <li><code>rest.messenger.processors</code>: gauge of the registered message processors.</li>
+ * <li><code>rest.messenger.requests.active</code>: gauge of the exchanges in flight.</li>
+ * </ul>
+ *
+ * <p>The meters of every registered message type are registered up front. While processing
+ * messages, meters are found by message type in a concurrent map, so no tags are allocated and no
+ * lock is taken. Recompiled descriptors and processors added at runtime share the meters of their
+ * message type.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+public class MicrometerMessengerMetrics implements MessageExchangeListener {
+
+  /**
+   * Type tag of the meters of messages that failed before their type was known.
+   */
+  private static final String UNKNOWN_TYPE = "UNKNOWN";
+
+  /**
+   * Meter registry the meters are registered with.
+   */
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * Meters of each message type, keyed by the message type.
+   */
+  private final Map<String, TypeMeters> typeMetersByType = new ConcurrentHashMap<>();
+
+  /**
+   * Meters of messages that failed before their type was known.
+   */
+  private final TypeMeters unknownTypeMeters;
+
+  /**
+   * Counter of {@link MessageTypeNotSupportedException}s.
+   */
+  private final Counter messageTypeNotSupportedErrors;
+
+  /**
+   * Counter of {@link BadMessageFormatException}s.
+   */
+  private final Counter badMessageFormatErrors;
+
+  /**
+   * Counter of {@link ValidationException}s.
+   */
+  private final Counter validationErrors;
+
+  /**
+   * Number of exchanges in flight.
+   */
+  private final AtomicInteger activeRequests = new AtomicInteger();
+
+  /**
+   * Constructor. Registers the meters of every message type registered with the
+   * <code>processorRegistry</code>.
+   *
+   * @param meterRegistry Meter registry to register the meters with.
+   * @param processorRegistry Message processor registry whose message types to publish meters of.
+   */
+  public MicrometerMessengerMetrics(MeterRegistry meterRegistry,
+      MessageProcessorRegistry processorRegistry) {
+    this.meterRegistry = meterRegistry;
+    this.unknownTypeMeters = new TypeMeters(meterRegistry, UNKNOWN_TYPE);
+    this.messageTypeNotSupportedErrors = errorCounter(meterRegistry,
+        MessageTypeNotSupportedException.class);
+    this.badMessageFormatErrors = errorCounter(meterRegistry, BadMessageFormatException.class);
+    this.validationErrors = errorCounter(meterRegistry, ValidationException.class);
+
+    Gauge.builder("rest.messenger.processors", processorRegistry,
+        registry -> registry.getProcessors().size())
+        .description("Number of registered message processors")
+        .register(meterRegistry);
+    Gauge.builder("rest.messenger.requests.active", activeRequests, AtomicInteger::get)
+        .description("Number of messages being processed")
+        .register(meterRegistry);
+
+    // Register the meters of every message type up front, so processing never has to
+    for (MessageProcessor<?, ?> processor : processorRegistry.getProcessors()) {
+      MessageProcessorDescriptor<?, ?> descriptor = processorRegistry
+          .getDescriptorFor(processor.getCompatibleMessageType());
+      if (descriptor != null) {
+        lookupTypeMeters(descriptor);
+      }
+    }
+  }
+
+  /**
+   * Publishes the meters of the <code>messenger</code>'s exchanges to the
+   * <code>MeterRegistry</code> bean of the <code>springContext</code>, if there is exactly one or
+   * a primary one. Does nothing otherwise.
+   *
+   * @param springContext Spring Application Context to look up the meter registry in.
+   * @param messenger Messenger whose exchanges to publish meters of.
+   * @param processorRegistry Message processor registry of the <code>messenger</code>.
+   */
+  public static void bindIfMeterRegistryPresent(ApplicationContext springContext,
+      SpringRestMessenger messenger, MessageProcessorRegistry processorRegistry) {
+
+    if (springContext.getBeanNamesForType(MeterRegistry.class).length == 0) {
+      return;
+    }
+
+    MeterRegistry meterRegistry;
+    try {
+      meterRegistry = springContext.getBean(MeterRegistry.class);
+    } catch (NoUniqueBeanDefinitionException e) {
+      log.warning("REST-MESSENGER found several MeterRegistry beans and none of them is primary."
+          + " Micrometer meters will not be published.");
+      return;
+    }
+
+    messenger.addExchangeListener(new MicrometerMessengerMetrics(meterRegistry,
+        processorRegistry));
+    log.info("REST-MESSENGER will publish Micrometer meters to " + meterRegistry.getClass()
+        .getSimpleName() + ".");
+  }
+
+  @Override
+  public void exchangeStarted() {
+    activeRequests.incrementAndGet();
+  }
+
+  @Override
+  public void exchangeCompleted(MessageProcessorDescriptor<?, ?> descriptor, Throwable error,
+      long durationNanos, long requestBytes, long responseBytes) {
+    activeRequests.decrementAndGet();
+
+    TypeMeters typeMeters = lookupTypeMeters(descriptor);
+    if (requestBytes >= 0) {
+      typeMeters.requestSize.record(requestBytes);
+    }
+
+    if (error == null) {
+      typeMeters.success.record(durationNanos, TimeUnit.NANOSECONDS);
+      if (responseBytes >= 0) {
+        typeMeters.responseSize.record(responseBytes);
+      }
+      return;
+    }
+
+    if (error instanceof MessageTypeNotSupportedException) {
+      messageTypeNotSupportedErrors.increment();
+    } else if (error instanceof BadMessageFormatException) {
+      badMessageFormatErrors.increment();
+    } else if (error instanceof ValidationException) {
+      validationErrors.increment();
+    }
+
+    ResponseStatus responseStatus = AnnotatedElementUtils
+        .findMergedAnnotation(error.getClass(), ResponseStatus.class);
+    boolean clientError = responseStatus != null && responseStatus.code().is4xxClientError();
+    (clientError ? typeMeters.clientError : typeMeters.serverError)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @param descriptor Descriptor of the message processor of a message, or <code>null</code> if
+   * the message failed before its type was known.
+   * @return Meters of the message type.
+   */
+  private TypeMeters lookupTypeMeters(MessageProcessorDescriptor<?, ?> descriptor) {
+    if (descriptor == null) {
+      return unknownTypeMeters;
+    }
+
+    TypeMeters typeMeters = typeMetersByType.get(descriptor.getMessageType());
+    if (typeMeters != null) {
+      return typeMeters;
+    }
+
+    // Message processor registered after startup
+    return typeMetersByType.computeIfAbsent(descriptor.getMessageType(),
+        messageType -> new TypeMeters(meterRegistry, messageType));
+  }
+
+  /**
+   * @param meterRegistry Meter registry to register the counter with.
+   * @param exceptionClass Class of the exceptions to count.
+   * @return Counter of the exceptions.
+   */
+  private static Counter errorCounter(MeterRegistry meterRegistry,
+      Class<? extends RuntimeException> exceptionClass) {
+    return Counter.builder("rest.messenger.errors")
+        .description("Number of messages that failed with the exception")
+        .tag("exception", exceptionClass.getSimpleName())
+        .register(meterRegistry);
+  }
+
+  /**
+   * {@link TypeMeters} class holds the meters of a single message type.
+   */
+  private static class TypeMeters {
+
+    /**
+     * Timer of successful exchanges.
+     */
+    private final Timer success;
+
+    /**
+     * Timer of exchanges that failed because of the client.
+     */
+    private final Timer clientError;
+
+    /**
+     * Timer of exchanges that failed because of the server.
+     */
+    private final Timer serverError;
+
+    /**
+     * Distribution of the request body sizes.
+     */
+    private final DistributionSummary requestSize;
+
+    /**
+     * Distribution of the response body sizes.
+     */
+    private final DistributionSummary responseSize;
+
+    /**
+     * Constructor.
+     *
+     * @param meterRegistry Meter registry to register the meters with.
+     * @param messageType String-based type identifier of the message type.
+     */
+    private TypeMeters(MeterRegistry meterRegistry, String messageType) {
+      this.success = timer(meterRegistry, messageType, "SUCCESS");
+      this.clientError = timer(meterRegistry, messageType, "CLIENT_ERROR");
+      this.serverError = timer(meterRegistry, messageType, "SERVER_ERROR");
+      this.requestSize = DistributionSummary.builder("rest.messenger.request.size")
+          .description("Size of the message request bodies")
+          .baseUnit("bytes")
+          .tag("type", messageType)
+          .register(meterRegistry);
+      this.responseSize = DistributionSummary.builder("rest.messenger.response.size")
+          .description("Size of the message response bodies")
+          .baseUnit("bytes")
+          .tag("type", messageType)
+          .register(meterRegistry);
+    }
+
+    /**
+     * @param meterRegistry Meter registry to register the timer with.
+     * @param messageType String-based type identifier of the message type.
+     * @param outcome Outcome of the exchanges to time.
+     * @return Timer of the exchanges of the message type with the outcome.
+     */
+    private static Timer timer(MeterRegistry meterRegistry, String messageType, String outcome) {
+      return Timer.builder("rest.messenger.messages")
+          .description("Time taken to process messages")
+          .tags("type", messageType, "outcome", outcome)
+          .register(meterRegistry);
+    }
+  }
+}
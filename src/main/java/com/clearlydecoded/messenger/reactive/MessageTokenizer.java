@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.reactive;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import org.springframework.core.io.buffer.DataBuffer;
+
+/**
+ * {@link MessageTokenizer} class incrementally tokenizes a single JSON message as the
+ * {@link DataBuffer}s of the request body arrive, using Jackson's non-blocking parser. Each buffer
+ * is tokenized as soon as it is fed, so no thread ever waits for the rest of the body and the raw
+ * bytes of the body are never joined in memory.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class MessageTokenizer {
+
+  /**
+   * Non-blocking Jackson parser the body is fed to.
+   */
+  private final JsonParser parser;
+
+  /**
+   * Feeder of the non-blocking <code>parser</code>.
+   */
+  private final ByteArrayFeeder feeder;
+
+  /**
+   * Tokens of the message read so far.
+   */
+  private final TokenBuffer tokens;
+
+  /**
+   * Nesting depth of the current token within the message.
+   */
+  private int depth;
+
+  /**
+   * Flag to indicate that the whole message has been tokenized.
+   */
+  private boolean messageComplete;
+
+  /**
+   * Constructor.
+   *
+   * @param objectMapper Jackson object mapper whose factory creates the non-blocking parser.
+   * @throws IOException If the non-blocking parser can not be created.
+   */
+  MessageTokenizer(ObjectMapper objectMapper) throws IOException {
+    this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+    this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    this.tokens = new TokenBuffer(objectMapper, false);
+  }
+
+  /**
+   * Tokenizes the next chunk of the message and releases the <code>dataBuffer</code>.
+   *
+   * @param dataBuffer Next chunk of the request body.
+   * @return This tokenizer.
+   * @throws IOException If the chunk is not valid JSON.
+   */
+  MessageTokenizer feed(DataBuffer dataBuffer) throws IOException {
+    byte[] bytes = new byte[dataBuffer.readableByteCount()];
+    dataBuffer.read(bytes);
+    feeder.feedInput(bytes, 0, bytes.length);
+    tokenizeAvailableInput();
+    return this;
+  }
+
+  /**
+   * Signals the end of the request body.
+   *
+   * @return Tokens of the whole message.
+   * @throws IOException If the message is empty or incomplete.
+   */
+  TokenBuffer finish() throws IOException {
+    feeder.endOfInput();
+    tokenizeAvailableInput();
+
+    if (!messageComplete) {
+      throw new JsonParseException(parser, "Message is empty or incomplete.");
+    }
+    return tokens;
+  }
+
+  /**
+   * Copies every token that can be parsed from the input fed so far into <code>tokens</code>.
+   *
+   * @throws IOException If the input is not valid JSON or contains more than a single message.
+   */
+  private void tokenizeAvailableInput() throws IOException {
+
+    JsonToken token;
+    while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+      if (messageComplete) {
+        throw new JsonParseException(parser, "Request body must contain a single message.");
+      }
+
+      tokens.copyCurrentEvent(parser);
+
+      // Track nesting to know when the message is complete
+      if (token.isStructStart()) {
+        depth++;
+      } else if (token.isStructEnd()) {
+        depth--;
+      }
+      messageComplete = depth == 0;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.reactive;
+
+import com.clearlydecoded.messenger.AsyncMessageProcessor;
+import com.clearlydecoded.messenger.Message;
+import com.clearlydecoded.messenger.MessageResponse;
+import java.util.concurrent.CompletableFuture;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ReactiveMessageProcessor} interface is an {@link AsyncMessageProcessor} whose processing
+ * of a message is described by a Reactor {@link Mono}. Use it with the
+ * {@link ReactiveSpringRestMessenger} so that processors built on reactive clients never block an
+ * event loop thread.
+ * <p>
+ * Since {@link ReactiveMessageProcessor} is an {@link AsyncMessageProcessor}, it is discovered,
+ * validated and registered exactly the same way, and it can also be served by the servlet-based
+ * {@link com.clearlydecoded.messenger.rest.SpringRestMessenger}.
+ * </p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public interface ReactiveMessageProcessor
+    <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+    extends AsyncMessageProcessor<MessageT, MessageResponseT> {
+
+  /**
+   * Describes executing the <code>message</code>, producing a {@link Mono} of the message response
+   * of class type which is embedded in the type of <code>message</code>.
+   *
+   * <p>To validate the <code>message</code> before it is processed, annotate its parameter of this
+   * method with {@link javax.validation.Valid}.</p>
+   *
+   * @param message Message object containing data which is needed for processing this message.
+   * @return Mono of the message response object that represents a processed response to the
+   * <code>message</code>. Processing failures should be signalled as errors of the mono.
+   */
+  Mono<MessageResponseT> processReactive(MessageT message);
+
+  /**
+   * Starts executing the <code>message</code> by subscribing to
+   * {@link #processReactive(Message)}.
+   *
+   * @param message Message object containing data which is needed for processing this message.
+   * @return Future of the message response object that represents a processed response to the
+   * <code>message</code>.
+   */
+  @Override
+  default CompletableFuture<MessageResponseT> processAsync(MessageT message) {
+    return processReactive(message).toFuture();
+  }
+}
@@ -0,0 +1,423 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.reactive;
+
+import com.clearlydecoded.messenger.Message;
+import com.clearlydecoded.messenger.MessageProcessor;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageResponse;
+import com.clearlydecoded.messenger.discovery.SpringMessageProcessorRegistryFactory;
+import com.clearlydecoded.messenger.documentation.RestProcessorDocumentation;
+import com.clearlydecoded.messenger.documentation.RestProcessorDocumentationProvider;
+import com.clearlydecoded.messenger.exception.BadMessageFormatException;
+import com.clearlydecoded.messenger.rest.BatchMessageResult;
+import com.clearlydecoded.messenger.rest.MessageDispatcher;
+import com.clearlydecoded.messenger.rest.ReceivedMessage;
+import com.clearlydecoded.messenger.rest.SpringObjectMapperResolver;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.validation.Validator;
+import lombok.Setter;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RequestPredicates;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link ReactiveSpringRestMessenger} class is the Spring WebFlux counterpart of the
+ * {@link com.clearlydecoded.messenger.rest.SpringRestMessenger}. It serves the same
+ * <code>'/process'</code> contract, or a custom configured URI (through
+ * <code>'com.clearlydecoded.messenger.endpoint.uri'</code> property), as a {@link RouterFunction},
+ * so it runs on Netty or any other reactive server instead of a servlet container.
+ *
+ * <p>Because it is itself a {@link RouterFunction}, exposing it as a bean in a WebFlux application
+ * is all it takes to wire up its routes.</p>
+ *
+ * <p>Messages are tokenized incrementally as the request body arrives, without blocking. They are
+ * then processed by their message processors:</p>
+ * <ul>
+ * <li>{@link ReactiveMessageProcessor}s and other
+ * {@link com.clearlydecoded.messenger.AsyncMessageProcessor}s run without blocking any thread.</li>
+ * <li>Synchronous {@link MessageProcessor}s, which may block, run on a separate scheduler so that
+ * the event loop threads are never blocked.</li>
+ * </ul>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@SuppressWarnings("SpringJavaAutowiredMembersInspection")
+@Log
+public class ReactiveSpringRestMessenger implements RouterFunction<ServerResponse> {
+
+  /**
+   * URI of the endpoint. Defaults to '/process' unless configured otherwise in Spring-based
+   * properties.
+   */
+  @Value("${com.clearlydecoded.messenger.endpoint.uri:process}")
+  @Setter
+  private String endpointUri;
+
+  /**
+   * Spring application name, possibly wired in by the 'spring.application.name' property.
+   * Defaults to an empty string.
+   */
+  @Value("${spring.application.name:}")
+  @Setter
+  private String springApplicationName;
+
+  /**
+   * Message processor registry used to look up message processors based on the type identifier of a
+   * message received through the REST call.
+   */
+  private final MessageProcessorRegistry processorRegistry;
+
+  /**
+   * Dispatcher that reads messages, routes them to their message processors and writes their
+   * responses.
+   */
+  private final MessageDispatcher messageDispatcher;
+
+  /**
+   * Jackson object mapper shared by everything this messenger reads and writes.
+   */
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Provider of the documentation classes that can be used to describe inputs/outputs of all the
+   * processors registered in the system. Generates them on a background thread once this messenger
+   * is initialized.
+   */
+  private final RestProcessorDocumentationProvider documentationProvider;
+
+  /**
+   * Scheduler used to run synchronous message processors off the event loop threads.
+   */
+  @Setter
+  private Scheduler blockingProcessorScheduler = Schedulers.elastic();
+
+  /**
+   * Routes of this messenger, created once the endpoint URI is known.
+   */
+  private RouterFunction<ServerResponse> routes;
+
+  /**
+   * Constructor.
+   *
+   * <p>The Jackson {@link ObjectMapper} is taken from the Spring Context if one is available, so
+   * messages are read and written the same way as the rest of the application. Any
+   * {@link com.clearlydecoded.messenger.rest.ObjectMapperCustomizer} beans are applied to it before
+   * processors are registered.</p>
+   *
+   * @param springContext Spring Application Context.
+   */
+  public ReactiveSpringRestMessenger(ApplicationContext springContext) {
+    this(springContext, SpringObjectMapperResolver.resolveObjectMapper(springContext));
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param springContext Spring Application Context.
+   * @param objectMapper Jackson object mapper to share between the registry and this messenger.
+   */
+  private ReactiveSpringRestMessenger(ApplicationContext springContext,
+      ObjectMapper objectMapper) {
+    this(SpringMessageProcessorRegistryFactory
+        .discoverMessageProcessorsAndCreateRegistry(springContext, objectMapper), objectMapper);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param processorRegistry Message processor registry used to look up message processors based
+   * on the type identifier of a message received through the REST call.
+   * @param objectMapper Jackson object mapper used to parse messages and generate documentation.
+   */
+  public ReactiveSpringRestMessenger(MessageProcessorRegistry processorRegistry,
+      ObjectMapper objectMapper) {
+    this.processorRegistry = processorRegistry;
+    this.objectMapper = objectMapper;
+    this.messageDispatcher = new MessageDispatcher(processorRegistry, objectMapper);
+    this.documentationProvider = new RestProcessorDocumentationProvider(processorRegistry,
+        objectMapper);
+  }
+
+  /**
+   * @param validator Spring framework provided validator for JSR-380 validation.
+   */
+  @Autowired(required = false)
+  public void setValidator(Validator validator) {
+    messageDispatcher.setValidator(validator);
+  }
+
+  /**
+   * Creates the routes of this messenger with the <code>endpointUri</code>.
+   */
+  @PostConstruct
+  public void createRoutes() {
+
+    String logMessage = "REST-MESSENGER reactive endpoint configured for URI: /" + endpointUri
+        + ". To configure custom URI, supply 'com.clearlydecoded.messenger.endpoint.uri'"
+        + " property.";
+    log.info(logMessage);
+
+    String path = "/" + endpointUri;
+    routes = RouterFunctions
+        // Message processing
+        .route(RequestPredicates.POST(path)
+            .and(RequestPredicates.contentType(MediaType.APPLICATION_JSON)), this::process)
+
+        // Output of processor docs through REST endpoint, also directly in browser
+        .andRoute(RequestPredicates.GET(path)
+            .and(RequestPredicates.accept(MediaType.APPLICATION_JSON)), this::getJsonProcessorDocs)
+        .andRoute(RequestPredicates.GET(path + ".json"), this::getJsonProcessorDocs)
+
+        // Output of processor docs through an HTML page
+        .andRoute(RequestPredicates.GET(path), this::getProcessorDocs);
+
+    // Generate processor docs off the startup path; the docs routes return 503 until done
+    documentationProvider.generateInBackground();
+  }
+
+  @Override
+  public Mono<HandlerFunction<ServerResponse>> route(ServerRequest request) {
+    if (routes == null) {
+      createRoutes();
+    }
+    return routes.route(request);
+  }
+
+  /**
+   * Processes the message that is sent as the request body.
+   *
+   * @param request Request whose body contains the JSON message to process.
+   * @return JSON message response, or the error the message produced.
+   */
+  private Mono<ServerResponse> process(ServerRequest request) {
+    return readMessage(request.bodyToFlux(DataBuffer.class))
+        .flatMap(this::processMessage)
+        .onErrorResume(RuntimeException.class, this::createErrorResponse);
+  }
+
+  /**
+   * Tokenizes the message as the request body arrives, then binds and validates it.
+   *
+   * @param body Request body.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Concretely typed message along with the descriptor of its message processor.
+   */
+  private <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  Mono<ReceivedMessage<MessageT, MessageResponseT>> readMessage(Flux<DataBuffer> body) {
+
+    return Mono.defer(() -> body
+        .reduce(createTokenizer(), (tokenizer, dataBuffer) -> {
+          try {
+            return tokenizer.feed(dataBuffer);
+          } catch (IOException e) {
+            throw toBadMessageFormatException(e);
+          } finally {
+            DataBufferUtils.release(dataBuffer);
+          }
+        })
+        .map(tokenizer -> {
+          try {
+            return messageDispatcher.<MessageT, MessageResponseT>readMessage(
+                tokenizer.finish().asParser(objectMapper));
+          } catch (IOException e) {
+            throw toBadMessageFormatException(e);
+          }
+        }));
+  }
+
+  /**
+   * Processes the <code>receivedMessage</code> with its message processor without blocking the
+   * calling thread.
+   *
+   * @param receivedMessage Concretely typed message along with the descriptor of its processor.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return JSON message response.
+   */
+  private <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  Mono<ServerResponse> processMessage(
+      ReceivedMessage<MessageT, MessageResponseT> receivedMessage) {
+
+    Mono<MessageResponseT> messageResponse;
+    MessageProcessor<MessageT, MessageResponseT> processor = receivedMessage.getDescriptor()
+        .getProcessor();
+    if (processor instanceof ReactiveMessageProcessor) {
+      messageResponse = Mono.defer(() -> ((ReactiveMessageProcessor<MessageT, MessageResponseT>)
+          processor).processReactive(receivedMessage.getMessage()));
+    } else if (receivedMessage.getDescriptor().isAsync()) {
+      messageResponse = Mono.defer(() -> Mono
+          .fromFuture(messageDispatcher.processMessageAsync(receivedMessage)));
+    } else {
+      // Synchronous processors may block, so keep them off the event loop
+      messageResponse = Mono.fromCallable(() -> messageDispatcher.processMessage(receivedMessage))
+          .subscribeOn(blockingProcessorScheduler);
+    }
+
+    return messageResponse
+        .map(response -> {
+          if (log.isLoggable(Level.FINE)) {
+            log.fine("Message response to be sent: " + response);
+          }
+          return messageDispatcher.writeResponseAsBytes(receivedMessage.getDescriptor(), response);
+        })
+        .flatMap(responseBytes -> ServerResponse.ok()
+            .contentType(MediaType.APPLICATION_JSON_UTF8)
+            .syncBody(responseBytes));
+  }
+
+  /**
+   * Creates the same status and JSON error body for the <code>exception</code> as a batch result,
+   * i.e., honoring the {@link org.springframework.web.bind.annotation.ResponseStatus} annotation of
+   * the exception.
+   *
+   * @param exception Exception that was thrown while reading or processing the message.
+   * @return JSON error response.
+   */
+  private Mono<ServerResponse> createErrorResponse(RuntimeException exception) {
+    BatchMessageResult result = BatchMessageResult.failure(exception);
+    return ServerResponse.status(HttpStatus.valueOf(result.getStatus()))
+        .contentType(MediaType.APPLICATION_JSON_UTF8)
+        .syncBody(result);
+  }
+
+  /**
+   * @return New tokenizer for a single message.
+   * @throws BadMessageFormatException If the tokenizer can not be created.
+   */
+  private MessageTokenizer createTokenizer() {
+    try {
+      return new MessageTokenizer(objectMapper);
+    } catch (IOException e) {
+      throw toBadMessageFormatException(e);
+    }
+  }
+
+  /**
+   * @param cause Error that occurred while tokenizing the message.
+   * @return Exception reporting the malformed message.
+   */
+  private BadMessageFormatException toBadMessageFormatException(IOException cause) {
+    String logMessage = "Error reading message from JSON. Please verify that the message being sent"
+        + " is valid JSON.";
+    log.severe(logMessage);
+    return new BadMessageFormatException(logMessage, cause);
+  }
+
+  /**
+   * Renders the HTML page that displays all the documentation for the system discovered message
+   * processors.
+   *
+   * @param request Request for the documentation page.
+   * @return Rendered documentation page.
+   */
+  private Mono<ServerResponse> getProcessorDocs(ServerRequest request) {
+
+    List<RestProcessorDocumentation> processorDocs = documentationProvider.getDocumentation();
+    if (processorDocs == null) {
+      return documentationNotReady();
+    }
+
+    Map<String, Object> model = new HashMap<>();
+    model.put("docs", processorDocs);
+    model.put("endpointUri", endpointUri);
+    model.put("servletContextPath", "");
+    model.put("messageMappedModels", generateMessageMappedModels(processorDocs));
+
+    String appName = springApplicationName == null ? "" : springApplicationName.trim();
+    model.put("appName", appName.equals("") ? "unspecified" : appName);
+
+    return ServerResponse.ok()
+        .contentType(MediaType.TEXT_HTML)
+        .render("SpringRestProcessorDocumentation", model);
+  }
+
+  /**
+   * @param processorDocs Documentation of every registered processor.
+   * @return Map where the key is the <code>compatibleMessageType</code> and the value is the
+   * message model string.
+   */
+  private Map<String, String> generateMessageMappedModels(
+      List<RestProcessorDocumentation> processorDocs) {
+    return processorDocs.stream().collect(Collectors
+        .toMap(RestProcessorDocumentation::getMessageId,
+            RestProcessorDocumentation::getMessageModel));
+  }
+
+  /**
+   * @param request Request for the documentation.
+   * @return List of {@link RestProcessorDocumentation}s as JSON.
+   */
+  private Mono<ServerResponse> getJsonProcessorDocs(ServerRequest request) {
+    List<RestProcessorDocumentation> processorDocs = documentationProvider.getDocumentation();
+    if (processorDocs == null) {
+      return documentationNotReady();
+    }
+
+    return ServerResponse.ok()
+        .contentType(MediaType.APPLICATION_JSON_UTF8)
+        .syncBody(processorDocs);
+  }
+
+  /**
+   * @return HTTP 503 response telling the client to ask for the documentation again shortly, since
+   * it is still being generated.
+   */
+  private Mono<ServerResponse> documentationNotReady() {
+    return ServerResponse.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .build();
+  }
+
+  /**
+   * Waits for the documentation of the registered processors to be generated, e.g., before
+   * reporting the application as ready or in tests. The docs routes return HTTP 503 until then.
+   *
+   * @param timeout Maximum time to wait.
+   * @param unit Time unit of the <code>timeout</code>.
+   * @return <code>true</code> if the documentation is generated, <code>false</code> if the
+   * <code>timeout</code> elapsed first.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  public boolean awaitDocumentation(long timeout, TimeUnit unit) throws InterruptedException {
+    return documentationProvider.awaitDocumentation(timeout, unit);
+  }
+
+  /**
+   * @return Message processor registry used to look up message processors.
+   */
+  public MessageProcessorRegistry getProcessorRegistry() {
+    return processorRegistry;
+  }
+}
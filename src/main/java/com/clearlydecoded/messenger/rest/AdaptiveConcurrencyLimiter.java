@@ -0,0 +1,245 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.exception.ServiceUnavailableException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+
+/**
+ * {@link AdaptiveConcurrencyLimiter} class limits how many messages are processed at the same
+ * time, adjusting the limit to the measured round trip time (RTT) of each message. It follows the
+ * gradient algorithm of Netflix's concurrency-limits library.
+ *
+ * <p>The limiter keeps a long-term, slowly moving average of the RTT as the baseline of a healthy
+ * system. When the RTT of recent messages grows above the baseline, requests are queueing up
+ * somewhere, so the limit shrinks in proportion. While the RTT stays at the baseline, the limit
+ * grows by a small allowance for queueing. Messages over the limit are rejected right away with a
+ * {@link ServiceUnavailableException}, instead of adding to the overload.</p>
+ *
+ * <p>Admitting and releasing messages never waits for a lock. The RTT of a message released while
+ * another message is adjusting the limit is skipped, so the limiter does not add the contention it
+ * is meant to measure; the samples that do get through are enough to follow the trend.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+class AdaptiveConcurrencyLimiter {
+
+  /**
+   * Number of samples the long-term RTT average roughly spans.
+   */
+  private static final int LONG_WINDOW = 600;
+
+  /**
+   * How much higher than the long-term average the recent RTT may be before the limit shrinks.
+   */
+  private static final double RTT_TOLERANCE = 1.5;
+
+  /**
+   * Weight of a newly calculated limit against the current limit.
+   */
+  private static final double SMOOTHING = 0.2;
+
+  /**
+   * Weight of each message in the rejection rate, i.e., the rate roughly spans 100 messages.
+   */
+  private static final double REJECTION_RATE_WEIGHT = 0.01;
+
+  /**
+   * Lowest the limit can shrink to.
+   */
+  private final int minLimit;
+
+  /**
+   * Highest the limit can grow to.
+   */
+  private final int maxLimit;
+
+  /**
+   * Number of seconds a rejected client is asked to wait before sending the message again.
+   */
+  private final long retryAfterSeconds;
+
+  /**
+   * Number of messages currently being processed.
+   */
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  /**
+   * Number of messages accepted so far.
+   */
+  private final LongAdder accepted = new LongAdder();
+
+  /**
+   * Number of messages rejected so far.
+   */
+  private final LongAdder rejected = new LongAdder();
+
+  /**
+   * Bits of the exponentially weighted fraction of recent messages that were rejected.
+   */
+  private final AtomicLong rejectionRateBits = new AtomicLong(Double.doubleToLongBits(0));
+
+  /**
+   * Current limit, rounded from <code>estimatedLimit</code>.
+   */
+  private volatile int limit;
+
+  /**
+   * Lock taken while the limit is adjusted. Never waited for.
+   */
+  private final ReentrantLock updateLock = new ReentrantLock();
+
+  /**
+   * Current limit before rounding. Guarded by <code>updateLock</code>.
+   */
+  private double estimatedLimit;
+
+  /**
+   * Long-term exponential moving average of the RTT, in nanoseconds, or <code>0</code> before the
+   * first sample. Guarded by <code>updateLock</code>.
+   */
+  private double longRtt;
+
+  /**
+   * Constructor.
+   *
+   * @param initialLimit Limit to start with.
+   * @param minLimit Lowest the limit can shrink to.
+   * @param maxLimit Highest the limit can grow to.
+   * @param retryAfterSeconds Number of seconds a rejected client is asked to wait before sending
+   * the message again.
+   */
+  AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+      long retryAfterSeconds) {
+    this.minLimit = Math.max(1, minLimit);
+    this.maxLimit = Math.max(this.minLimit, maxLimit);
+    this.retryAfterSeconds = Math.max(0, retryAfterSeconds);
+    this.estimatedLimit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+    this.limit = (int) estimatedLimit;
+  }
+
+  /**
+   * Admits a message for processing, unless the limit is reached. Every admitted message must be
+   * released with {@link #release(long)} once its processing completes, successfully or not.
+   *
+   * @return Value of {@link System#nanoTime()} when the message was admitted.
+   * @throws ServiceUnavailableException If the limit is reached.
+   */
+  long acquire() {
+    int current;
+    do {
+      current = inFlight.get();
+      if (current >= limit) {
+        rejected.increment();
+        updateRejectionRate(1);
+        if (log.isLoggable(Level.FINE)) {
+          log.fine("Concurrency limit of " + limit + " reached. Rejecting message.");
+        }
+        throw new ServiceUnavailableException("Too many messages are being processed. Please"
+            + " retry later.", retryAfterSeconds);
+      }
+    } while (!inFlight.compareAndSet(current, current + 1));
+
+    accepted.increment();
+    updateRejectionRate(0);
+    return System.nanoTime();
+  }
+
+  /**
+   * Releases an admitted message and adjusts the limit to its RTT, unless the limit is being
+   * adjusted to the RTT of another message at the same time.
+   *
+   * @param startNanos Value returned by {@link #acquire()} for the message.
+   */
+  void release(long startNanos) {
+    long rtt = System.nanoTime() - startNanos;
+    int messagesInFlight = inFlight.getAndDecrement();
+
+    // Skip the sample rather than wait for the lock on the processing path
+    if (!updateLock.tryLock()) {
+      return;
+    }
+    try {
+      updateLimit(Math.max(1, rtt), messagesInFlight);
+    } finally {
+      updateLock.unlock();
+    }
+  }
+
+  /**
+   * @return Snapshot of the current limit, the messages in flight and the rejections.
+   */
+  ConcurrencyLimitStatistics getStatistics() {
+    return new ConcurrencyLimitStatistics(limit, inFlight.get(), accepted.sum(), rejected.sum(),
+        Double.longBitsToDouble(rejectionRateBits.get()));
+  }
+
+  /**
+   * Adjusts the limit to the RTT of a message. Must be called while holding
+   * <code>updateLock</code>.
+   *
+   * @param rtt RTT of the message, in nanoseconds.
+   * @param messagesInFlight Number of messages in flight, including this one, when it completed.
+   */
+  private void updateLimit(long rtt, int messagesInFlight) {
+
+    // Move the long-term average toward the sample
+    if (longRtt == 0) {
+      longRtt = rtt;
+    } else {
+      longRtt += (rtt - longRtt) / LONG_WINDOW;
+    }
+
+    // Let the baseline recover quickly once a past overload has cleared
+    if (longRtt / rtt > 2) {
+      longRtt *= 0.95;
+    }
+
+    // Don't grow the limit while it isn't even half used
+    if (messagesInFlight < estimatedLimit / 2) {
+      return;
+    }
+
+    // Shrink in proportion to how far the RTT grew above the baseline, or grow by a queue
+    // allowance of the square root of the limit
+    double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / rtt));
+    double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+    newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+
+    int roundedLimit = (int) estimatedLimit;
+    if (roundedLimit != limit) {
+      if (log.isLoggable(Level.FINE)) {
+        log.fine("Concurrency limit changed from " + limit + " to " + roundedLimit + ".");
+      }
+      limit = roundedLimit;
+    }
+  }
+
+  /**
+   * Adds the outcome of a message to the exponentially weighted rejection rate.
+   *
+   * @param outcome <code>1</code> if the message was rejected, <code>0</code> otherwise.
+   */
+  private void updateRejectionRate(double outcome) {
+    long bits;
+    double updated;
+    do {
+      bits = rejectionRateBits.get();
+      double rate = Double.longBitsToDouble(bits);
+      updated = rate + (outcome - rate) * REJECTION_RATE_WEIGHT;
+    } while (!rejectionRateBits.compareAndSet(bits, Double.doubleToLongBits(updated)));
+  }
+}
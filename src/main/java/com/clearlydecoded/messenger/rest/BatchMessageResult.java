@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.exception.ValidationErrorInfo;
+import com.clearlydecoded.messenger.exception.ValidationException;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.java.Log;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * {@link BatchMessageResult} class represents the outcome of processing a single message of a
+ * batch or a stream of messages. A successful outcome contains the message response; an
+ * unsuccessful one contains the same status and error information the message would have produced
+ * if it was sent on its own.
+ *
+ * <p>Server errors only carry the reason phrase of their HTTP status, so that no internal details
+ * reach the client; their cause is logged instead.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(Include.NON_NULL)
+@JsonPropertyOrder({"sequence", "status", "response", "error", "message", "errors"})
+public class BatchMessageResult implements Serializable {
+
+  /**
+   * Zero-based position of the message in a stream of messages. Only present for messages sent as
+   * a stream, where results may be written in a different order than the messages were received.
+   */
+  private Long sequence;
+
+  /**
+   * HTTP status code the message would have produced if it was sent on its own.
+   */
+  private int status;
+
+  /**
+   * Message response, serialized as JSON. Written as is, i.e., as a JSON object rather than a
+   * string. Only present if the message was processed successfully.
+   */
+  @JsonRawValue
+  private String response;
+
+  /**
+   * Reason phrase of the HTTP status. Only present if processing the message failed.
+   */
+  private String error;
+
+  /**
+   * Error message. Only present if processing the message failed because of the client.
+   */
+  private String message;
+
+  /**
+   * Information about the fields that failed validation. Only present if the message failed
+   * validation.
+   */
+  private List<ValidationErrorInfo> errors;
+
+  /**
+   * @param responseBytes UTF-8 encoded JSON message response of the successfully processed
+   * message.
+   * @return Successful outcome of processing a message.
+   */
+  public static BatchMessageResult success(byte[] responseBytes) {
+    return new BatchMessageResult(null, HttpStatus.OK.value(),
+        new String(responseBytes, StandardCharsets.UTF_8), null, null, null);
+  }
+
+  /**
+   * Creates an unsuccessful outcome of processing a message. The HTTP status is taken from the
+   * {@link ResponseStatus} annotation of the exception, e.g., 404 for
+   * {@link com.clearlydecoded.messenger.exception.MessageTypeNotSupportedException}, or is 500 if
+   * the exception is not annotated. The message of the exception is only included for client
+   * errors. Server errors are logged instead.
+   *
+   * @param exception Exception that was thrown while processing the message. A
+   * {@link CompletionException} is unwrapped to its cause.
+   * @return Unsuccessful outcome of processing a message.
+   */
+  public static BatchMessageResult failure(Throwable exception) {
+
+    if (exception instanceof CompletionException && exception.getCause() != null) {
+      exception = exception.getCause();
+    }
+
+    ResponseStatus responseStatus = AnnotatedElementUtils
+        .findMergedAnnotation(exception.getClass(), ResponseStatus.class);
+    HttpStatus status = responseStatus != null ? responseStatus.code()
+        : HttpStatus.INTERNAL_SERVER_ERROR;
+
+    List<ValidationErrorInfo> errors = exception instanceof ValidationException
+        ? ((ValidationException) exception).getErrors() : null;
+
+    // Keep internal details of server errors on the server
+    if (status.is5xxServerError()) {
+      if (responseStatus == null) {
+        log.log(Level.SEVERE, "Error processing message.", exception);
+      } else if (log.isLoggable(Level.FINE)) {
+        log.log(Level.FINE, "Message turned away: " + exception.getMessage(), exception);
+      }
+      return new BatchMessageResult(null, status.value(), null, status.getReasonPhrase(), null,
+          null);
+    }
+
+    return new BatchMessageResult(null, status.value(), null, status.getReasonPhrase(),
+        exception.getMessage(), errors);
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * {@link ConcurrencyLimitStatistics} class is a snapshot of the state of the adaptive concurrency
+ * limit of the <code>/process</code> endpoint.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ConcurrencyLimitStatistics implements Serializable {
+
+  /**
+   * Current limit of messages processed at the same time.
+   */
+  private int limit;
+
+  /**
+   * Number of messages currently being processed.
+   */
+  private int inFlight;
+
+  /**
+   * Number of messages accepted for processing so far.
+   */
+  private long accepted;
+
+  /**
+   * Number of messages rejected so far because the limit was reached.
+   */
+  private long rejected;
+
+  /**
+   * Fraction of recent messages, roughly the last 100, that were rejected, between 0 and 1.
+   */
+  private double rejectionRate;
+}
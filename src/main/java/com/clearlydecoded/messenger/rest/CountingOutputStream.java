@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import lombok.Getter;
+
+/**
+ * {@link CountingOutputStream} class counts the bytes written through it to another output stream.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class CountingOutputStream extends FilterOutputStream {
+
+  /**
+   * Number of bytes written so far.
+   */
+  @Getter
+  private long count;
+
+  /**
+   * Constructor.
+   *
+   * @param outputStream Output stream to write to.
+   */
+  CountingOutputStream(OutputStream outputStream) {
+    super(outputStream);
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    out.write(b);
+    count++;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    // Write the whole array at once, rather than a byte at a time like FilterOutputStream does
+    out.write(b, off, len);
+    count += len;
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link LatencyHistogram} class records latencies into log-linear buckets in the style of
+ * HdrHistogram. Latencies below 128 nanoseconds each get their own bucket. Above that, every power
+ * of two range is split into 64 equally wide buckets, so a latency is never more than about 1% off
+ * from the middle of its bucket, however large it is. Latencies of up to about 18 minutes are
+ * recorded; longer ones are counted as the largest.
+ *
+ * <p>Recording is a single atomic increment of a fixed array slot, i.e., it never locks or
+ * allocates and can be done from any number of threads at once. Snapshots are taken without
+ * stopping recording, so a latency recorded while a snapshot is taken may only show up in the next
+ * one.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class LatencyHistogram {
+
+  /**
+   * Number of bits of precision of each bucket.
+   */
+  private static final int SUB_BUCKET_BITS = 7;
+
+  /**
+   * Number of buckets of width 1 at the bottom of the histogram.
+   */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Number of buckets each power of two range is split into above the bottom of the histogram.
+   */
+  private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+  /**
+   * Number of bits of the largest latency recorded, in nanoseconds.
+   */
+  private static final int MAX_VALUE_BITS = 40;
+
+  /**
+   * Largest latency recorded, in nanoseconds.
+   */
+  private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+  /**
+   * Total number of buckets.
+   */
+  private static final int BUCKET_COUNT = SUB_BUCKET_COUNT
+      + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+  /**
+   * Number of latencies recorded in each bucket.
+   */
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+  /**
+   * Counts as of the previous interval snapshot, or <code>null</code> before the first one. Guarded
+   * by <code>this</code>.
+   */
+  private long[] intervalStartCounts;
+
+  /**
+   * @param latencyNanos Latency to record, in nanoseconds.
+   */
+  void record(long latencyNanos) {
+    counts.incrementAndGet(bucketIndex(Math.max(0, Math.min(MAX_VALUE, latencyNanos))));
+  }
+
+  /**
+   * @return Summary of every latency recorded so far.
+   */
+  LatencyStatistics getStatistics() {
+    return summarize(readCounts());
+  }
+
+  /**
+   * @return Summary of the latencies recorded since the previous call, or since the histogram was
+   * created for the first call.
+   */
+  synchronized LatencyStatistics getIntervalStatistics() {
+    long[] currentCounts = readCounts();
+    long[] intervalCounts = currentCounts.clone();
+    if (intervalStartCounts != null) {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        intervalCounts[i] -= intervalStartCounts[i];
+      }
+    }
+
+    intervalStartCounts = currentCounts;
+    return summarize(intervalCounts);
+  }
+
+  /**
+   * @return Copy of the current counts.
+   */
+  private long[] readCounts() {
+    long[] currentCounts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      currentCounts[i] = counts.get(i);
+    }
+    return currentCounts;
+  }
+
+  /**
+   * @param latencyNanos Latency between 0 and {@link #MAX_VALUE}, in nanoseconds.
+   * @return Index of the bucket the latency falls into.
+   */
+  private static int bucketIndex(long latencyNanos) {
+    if (latencyNanos < SUB_BUCKET_COUNT) {
+      return (int) latencyNanos;
+    }
+
+    // Keep only the top SUB_BUCKET_BITS - 1 bits below the highest bit
+    int shift = 64 - Long.numberOfLeadingZeros(latencyNanos) - SUB_BUCKET_BITS;
+    int subBucket = (int) (latencyNanos >>> shift) - SUB_BUCKET_HALF_COUNT;
+    return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + subBucket;
+  }
+
+  /**
+   * @param index Index of a bucket.
+   * @return Latency in the middle of the bucket, in nanoseconds.
+   */
+  private static double bucketMiddle(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+
+    int offset = index - SUB_BUCKET_COUNT;
+    int shift = offset / SUB_BUCKET_HALF_COUNT + 1;
+    long lowest = (long) (offset % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT) << shift;
+    return lowest + (double) ((1L << shift) - 1) / 2;
+  }
+
+  /**
+   * @param bucketCounts Number of latencies in each bucket.
+   * @return Summary of the latencies, in microseconds.
+   */
+  private static LatencyStatistics summarize(long[] bucketCounts) {
+    long count = 0;
+    double sum = 0;
+    int highestIndex = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      if (bucketCounts[i] > 0) {
+        count += bucketCounts[i];
+        sum += bucketCounts[i] * bucketMiddle(i);
+        highestIndex = i;
+      }
+    }
+
+    if (count == 0) {
+      return new LatencyStatistics();
+    }
+
+    return new LatencyStatistics(count, toMicros(sum / count),
+        toMicros(percentile(bucketCounts, count, 0.5)),
+        toMicros(percentile(bucketCounts, count, 0.99)),
+        toMicros(percentile(bucketCounts, count, 0.999)),
+        toMicros(bucketMiddle(highestIndex)));
+  }
+
+  /**
+   * @param bucketCounts Number of latencies in each bucket.
+   * @param count Total number of latencies.
+   * @param quantile Quantile between 0 and 1, e.g., 0.99 for the 99th percentile.
+   * @return Latency at the <code>quantile</code>, in nanoseconds.
+   */
+  private static double percentile(long[] bucketCounts, long count, double quantile) {
+    long rank = Math.max(1, (long) Math.ceil(count * quantile));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += bucketCounts[i];
+      if (seen >= rank) {
+        return bucketMiddle(i);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * @param nanos Duration in nanoseconds.
+   * @return Duration in microseconds, rounded to a tenth of a microsecond.
+   */
+  private static double toMicros(double nanos) {
+    return Math.round(nanos / 100) / 10.0;
+  }
+}
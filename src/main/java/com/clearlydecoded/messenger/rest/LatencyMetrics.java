@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link LatencyMetrics} class keeps a {@link LatencyHistogram} for every phase of every message
+ * type. Histograms of a message type are created the first time one of its phases completes.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class LatencyMetrics implements MessagePhaseListener {
+
+  /**
+   * Histograms of each message type, indexed by the ordinal of their {@link MessagePhase}.
+   */
+  private final Map<String, LatencyHistogram[]> histograms = new ConcurrentHashMap<>();
+
+  @Override
+  public void phaseCompleted(String messageType, MessagePhase phase, long durationNanos) {
+
+    // Look up first, since computeIfAbsent locks even if the histograms already exist
+    LatencyHistogram[] messageTypeHistograms = histograms.get(messageType);
+    if (messageTypeHistograms == null) {
+      messageTypeHistograms = histograms.computeIfAbsent(messageType,
+          type -> createHistograms());
+    }
+    messageTypeHistograms[phase.ordinal()].record(durationNanos);
+  }
+
+  /**
+   * Summarizes the latencies of every phase of every message type. Phases with no latencies are
+   * left out.
+   *
+   * @param interval Flag to summarize only the latencies recorded since the previous interval
+   * summary, instead of every latency recorded so far.
+   * @return Map of message types, in alphabetical order, to a map of phase names, in the order the
+   * phases happen, to the summary of their latencies.
+   */
+  Map<String, Map<String, LatencyStatistics>> getStatistics(boolean interval) {
+    Map<String, Map<String, LatencyStatistics>> statistics = new TreeMap<>();
+
+    histograms.forEach((messageType, messageTypeHistograms) -> {
+      Map<String, LatencyStatistics> phaseStatistics = new LinkedHashMap<>();
+      for (MessagePhase phase : MessagePhase.values()) {
+        LatencyHistogram histogram = messageTypeHistograms[phase.ordinal()];
+        LatencyStatistics latencyStatistics = interval ? histogram.getIntervalStatistics()
+            : histogram.getStatistics();
+        if (latencyStatistics.getCount() > 0) {
+          phaseStatistics.put(phase.getName(), latencyStatistics);
+        }
+      }
+
+      if (!phaseStatistics.isEmpty()) {
+        statistics.put(messageType, phaseStatistics);
+      }
+    });
+
+    return statistics;
+  }
+
+  /**
+   * Discards every latency recorded so far, including the start of the current interval.
+   */
+  void reset() {
+    histograms.clear();
+  }
+
+  /**
+   * @return New histogram for each phase.
+   */
+  private static LatencyHistogram[] createHistograms() {
+    LatencyHistogram[] messageTypeHistograms = new LatencyHistogram[MessagePhase.values().length];
+    for (int i = 0; i < messageTypeHistograms.length; i++) {
+      messageTypeHistograms[i] = new LatencyHistogram();
+    }
+    return messageTypeHistograms;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * {@link LatencyStatistics} class summarizes the latency distribution of a single phase of a single
+ * message type. Latencies are in microseconds and are accurate to within about 1%.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LatencyStatistics implements Serializable {
+
+  /**
+   * Number of recorded latencies.
+   */
+  private long count;
+
+  /**
+   * Mean latency.
+   */
+  private double mean;
+
+  /**
+   * Median latency.
+   */
+  private double p50;
+
+  /**
+   * 99th percentile latency.
+   */
+  private double p99;
+
+  /**
+   * 99.9th percentile latency.
+   */
+  private double p999;
+
+  /**
+   * Maximum latency.
+   */
+  private double max;
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.Bulkhead;
+import com.clearlydecoded.messenger.Message;
+import com.clearlydecoded.messenger.MessageResponse;
+import com.clearlydecoded.messenger.exception.ServiceUnavailableException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.java.Log;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * {@link MessageBulkheads} class isolates message types from one another by processing their
+ * messages on separate bounded thread pools. Message types marked with {@link Bulkhead} get a pool
+ * of their own; all other message types share the default pool.
+ *
+ * <p>Each pool has a bounded queue of messages waiting for a thread. A message that arrives while
+ * its pool's threads are busy and its queue is full is rejected right away with a
+ * {@link ServiceUnavailableException}, instead of tying up a container thread, so that a slow
+ * message type can only ever slow down itself.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+class MessageBulkheads {
+
+  /**
+   * Pool shared by message types without a bulkhead of their own.
+   */
+  private final ThreadPoolExecutor defaultBulkhead;
+
+  /**
+   * Pools of message types with a bulkhead of their own, keyed by message type.
+   */
+  private final Map<String, ThreadPoolExecutor> typeBulkheads = new ConcurrentHashMap<>();
+
+  /**
+   * Number of seconds a rejected client is asked to wait before sending the message again.
+   */
+  private final long retryAfterSeconds;
+
+  /**
+   * Constructor.
+   *
+   * @param defaultMaxConcurrent Maximum number of messages processed at the same time by the
+   * default bulkhead.
+   * @param defaultMaxQueued Maximum number of messages waiting for a thread of the default
+   * bulkhead.
+   * @param retryAfterSeconds Number of seconds a rejected client is asked to wait before sending
+   * the message again.
+   */
+  MessageBulkheads(int defaultMaxConcurrent, int defaultMaxQueued, long retryAfterSeconds) {
+    this.defaultBulkhead = createBulkhead("default", defaultMaxConcurrent, defaultMaxQueued);
+    this.retryAfterSeconds = Math.max(0, retryAfterSeconds);
+  }
+
+  /**
+   * Processes the <code>receivedMessage</code> on the bulkhead of its message type.
+   *
+   * @param messageDispatcher Dispatcher that routes the message to its message processor.
+   * @param receivedMessage Concretely typed message along with the descriptor of its processor.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Future of the message response. Exceptions thrown by the message processor complete
+   * the future exceptionally.
+   * @throws ServiceUnavailableException If the bulkhead's threads are busy and its queue is full.
+   */
+  <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  CompletableFuture<MessageResponseT> process(MessageDispatcher messageDispatcher,
+      ReceivedMessage<MessageT, MessageResponseT> receivedMessage) {
+
+    String messageType = receivedMessage.getDescriptor().getMessageType();
+    Bulkhead settings = receivedMessage.getDescriptor().getBulkhead();
+    ThreadPoolExecutor bulkhead = settings == null ? defaultBulkhead : typeBulkheads
+        .computeIfAbsent(messageType, type -> createBulkhead(type, settings.maxConcurrent(),
+            settings.maxQueued()));
+
+    try {
+      return CompletableFuture
+          .supplyAsync(() -> messageDispatcher.processMessage(receivedMessage), bulkhead);
+
+    } catch (RejectedExecutionException e) {
+      String logMessage = "Bulkhead of message type [" + messageType + "] is full. Rejecting"
+          + " message; client should retry after " + retryAfterSeconds + " seconds.";
+      log.warning(logMessage);
+      throw new ServiceUnavailableException("Too many messages of type [" + messageType
+          + "] are being processed. Please retry later.", e, retryAfterSeconds);
+    }
+  }
+
+  /**
+   * Stops the threads of every bulkhead.
+   */
+  void shutdown() {
+    defaultBulkhead.shutdown();
+    typeBulkheads.values().forEach(ThreadPoolExecutor::shutdown);
+  }
+
+  /**
+   * @param name Name of the bulkhead, used to name its threads.
+   * @param maxConcurrent Maximum number of messages processed at the same time.
+   * @param maxQueued Maximum number of messages waiting for a thread.
+   * @return New bounded thread pool that rejects messages once its queue is full.
+   */
+  private static ThreadPoolExecutor createBulkhead(String name, int maxConcurrent,
+      int maxQueued) {
+
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+        "rest-messenger-bulkhead-" + name + "-");
+    threadFactory.setDaemon(true);
+    int threads = Math.max(1, maxConcurrent);
+    BlockingQueue<Runnable> queue = maxQueued > 0 ? new ArrayBlockingQueue<>(maxQueued)
+        : new SynchronousQueue<>();
+
+    ThreadPoolExecutor bulkhead = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+        queue, threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    bulkhead.allowCoreThreadTimeOut(true);
+    log.info("REST-MESSENGER bulkhead [" + name + "] processes up to " + threads + " messages at"
+        + " the same time, with up to " + Math.max(0, maxQueued) + " more waiting.");
+    return bulkhead;
+  }
+}
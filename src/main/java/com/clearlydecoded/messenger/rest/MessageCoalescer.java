@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.CoalescedProcessing;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * {@link MessageCoalescer} class lets concurrent identical messages of types marked with
+ * {@link CoalescedProcessing} share a single processing. The first message starts the processing;
+ * every identical message that arrives before it completes is handed the same future of the
+ * serialized response instead of calling the processor again.
+ *
+ * <p>A processing is forgotten as soon as it completes, so a message that arrives afterwards is
+ * processed anew. Nothing is cached.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class MessageCoalescer {
+
+  /**
+   * Pending processings of each message type, keyed by message type and then by message key.
+   */
+  private final Map<String, Map<ByteBuffer, CompletableFuture<byte[]>>> pendingProcessings =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Number of messages of each message type that shared a pending processing, keyed by message
+   * type.
+   */
+  private final Map<String, LongAdder> coalescedCounts = new ConcurrentHashMap<>();
+
+  /**
+   * Processes the <code>receivedMessage</code>, unless an identical message is already being
+   * processed, in which case that pending processing is shared.
+   *
+   * @param receivedMessage Message whose type is coalesced, along with its message key.
+   * @param processing Starts the processing of the message and returns the future of its
+   * serialized response. Only called if no identical message is being processed.
+   * @return Future of the serialized response of the message.
+   */
+  CompletableFuture<byte[]> process(ReceivedMessage<?, ?> receivedMessage,
+      Supplier<CompletableFuture<byte[]>> processing) {
+
+    String messageType = receivedMessage.getDescriptor().getMessageType();
+    ByteBuffer messageKey = receivedMessage.getMessageKey();
+    Map<ByteBuffer, CompletableFuture<byte[]>> pending = pendingProcessings
+        .computeIfAbsent(messageType, type -> new ConcurrentHashMap<>());
+
+    // Share the pending processing of an identical message, if there is one
+    CompletableFuture<byte[]> sharedResponse = new CompletableFuture<>();
+    CompletableFuture<byte[]> pendingResponse = pending.putIfAbsent(messageKey, sharedResponse);
+    if (pendingResponse != null) {
+      coalescedCounts.computeIfAbsent(messageType, type -> new LongAdder()).increment();
+      return pendingResponse;
+    }
+
+    // Start processing, forgetting it before it completes so later messages are processed anew
+    CompletableFuture<byte[]> futureResponse;
+    try {
+      futureResponse = processing.get();
+    } catch (RuntimeException e) {
+      futureResponse = new CompletableFuture<>();
+      futureResponse.completeExceptionally(e);
+    }
+    futureResponse.whenComplete((responseBytes, error) -> {
+      pending.remove(messageKey, sharedResponse);
+      if (error != null) {
+        sharedResponse.completeExceptionally(error);
+      } else {
+        sharedResponse.complete(responseBytes);
+      }
+    });
+
+    return sharedResponse;
+  }
+
+  /**
+   * @return Number of messages of each message type that shared a pending processing instead of
+   * being processed themselves, keyed by message type.
+   */
+  Map<String, Long> getCoalescedCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    coalescedCounts.forEach((messageType, count) -> counts.put(messageType, count.sum()));
+    return counts;
+  }
+}
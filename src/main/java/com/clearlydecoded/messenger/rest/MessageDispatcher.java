@@ -0,0 +1,666 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.AsyncMessageProcessor;
+import com.clearlydecoded.messenger.Message;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageResponse;
+import com.clearlydecoded.messenger.exception.BadMessageFormatException;
+import com.clearlydecoded.messenger.exception.MessageTypeNotSupportedException;
+import com.clearlydecoded.messenger.exception.ValidationErrorInfo;
+import com.clearlydecoded.messenger.exception.ValidationException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import javax.validation.ConstraintViolation;
+import javax.validation.Valid;
+import javax.validation.Validator;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.java.Log;
+
+/**
+ * {@link MessageDispatcher} class reads JSON messages, routes them to the message processors
+ * registered for their string-based type identifiers, and writes the resulting message responses
+ * as JSON. It is the transport independent core shared by every endpoint of the
+ * {@link SpringRestMessenger}.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+public class MessageDispatcher {
+
+  /**
+   * Message processor registry used to look up message processors based on the type identifier of a
+   * message.
+   */
+  @Getter
+  private final MessageProcessorRegistry processorRegistry;
+
+  /**
+   * Jackson object mapper used to create parsers of the messages.
+   */
+  @Getter
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Validator for JSR-380 validation of messages whose processors declare {@link Valid}. Messages
+   * that must be validated are refused if it is not set.
+   */
+  @Setter
+  private Validator validator;
+
+  /**
+   * Cache of serialized responses of message types marked with
+   * {@link com.clearlydecoded.messenger.CacheableResponse}, or <code>null</code> if responses are
+   * never cached.
+   */
+  private MessageResponseCache responseCache;
+
+  /**
+   * Coalescer of concurrent identical messages of types marked with
+   * {@link com.clearlydecoded.messenger.CoalescedProcessing}, or <code>null</code> if every message
+   * is processed on its own.
+   */
+  private MessageCoalescer coalescer;
+
+  /**
+   * Rate limiter of message types marked with {@link com.clearlydecoded.messenger.RateLimit}, or
+   * <code>null</code> if message types are not rate limited.
+   */
+  @Setter(AccessLevel.PACKAGE)
+  private MessageRateLimiter rateLimiter;
+
+  /**
+   * Listeners told how long each phase of each message took.
+   */
+  private final List<MessagePhaseListener> phaseListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Constructor.
+   *
+   * @param processorRegistry Message processor registry used to look up message processors based
+   * on the type identifier of a message.
+   * @param objectMapper Jackson object mapper used to create parsers of the messages.
+   */
+  public MessageDispatcher(MessageProcessorRegistry processorRegistry,
+      ObjectMapper objectMapper) {
+    this.processorRegistry = processorRegistry;
+    this.objectMapper = objectMapper;
+  }
+
+  /**
+   * Turns caching of the responses of message types marked with
+   * {@link com.clearlydecoded.messenger.CacheableResponse} on or off.
+   *
+   * @param responseCacheEnabled Flag to indicate that responses of cacheable message types are
+   * cached.
+   */
+  public void setResponseCacheEnabled(boolean responseCacheEnabled) {
+    responseCache = responseCacheEnabled ? new MessageResponseCache() : null;
+  }
+
+  /**
+   * @return Snapshot of the hit, miss and eviction counters of the response cache of each cacheable
+   * message type that was received so far, keyed by message type.
+   */
+  public Map<String, ResponseCacheStatistics> getResponseCacheStatistics() {
+    return responseCache != null ? responseCache.getStatistics() : Collections.emptyMap();
+  }
+
+  /**
+   * Turns coalescing of concurrent identical messages of types marked with
+   * {@link com.clearlydecoded.messenger.CoalescedProcessing} on or off.
+   *
+   * @param coalescingEnabled Flag to indicate that concurrent identical messages of coalesced types
+   * share a single processing.
+   */
+  public void setCoalescingEnabled(boolean coalescingEnabled) {
+    coalescer = coalescingEnabled ? new MessageCoalescer() : null;
+  }
+
+  /**
+   * @return Number of messages of each coalesced message type that shared the processing of an
+   * identical message instead of being processed themselves, keyed by message type.
+   */
+  public Map<String, Long> getCoalescedCounts() {
+    return coalescer != null ? coalescer.getCoalescedCounts() : Collections.emptyMap();
+  }
+
+  /**
+   * Adds a listener to be told how long each {@link MessagePhase} of each message takes. Phases are
+   * only timed while at least one listener is added.
+   *
+   * @param phaseListener Listener to add.
+   */
+  public void addPhaseListener(MessagePhaseListener phaseListener) {
+    phaseListeners.add(phaseListener);
+  }
+
+  /**
+   * Reads, binds and validates a single JSON message from the <code>messageInputStream</code>.
+   *
+   * <p>If the response cache is enabled and the message type is cacheable, the response cache is
+   * looked up first. On a hit, the returned {@link ReceivedMessage} only holds the cached response,
+   * since the message is neither bound nor validated. On a miss, it holds the key to cache the
+   * response under with {@link #cacheResponse(ReceivedMessage, byte[])}. The same key is used to
+   * coalesce identical messages with {@link #coalesce(ReceivedMessage, Supplier)}.</p>
+   *
+   * @param messageInputStream Stream of the JSON message.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Concretely typed message along with the descriptor of its message processor.
+   * @throws BadMessageFormatException If the message can not be de-serialized.
+   * @throws MessageTypeNotSupportedException If no message processor is registered for the type of
+   * the message.
+   * @throws ValidationException If the message fails validation.
+   */
+  public <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  ReceivedMessage<MessageT, MessageResponseT> readMessage(InputStream messageInputStream) {
+    return readMessage(createParser(messageInputStream), null);
+  }
+
+  /**
+   * Reads, binds and validates a single JSON message from the <code>messageInputStream</code>,
+   * like {@link #readMessage(InputStream)}, handing the descriptor of its message processor to the
+   * <code>descriptorConsumer</code> as soon as the type of the message is known. A message that
+   * fails afterwards, e.g., validation, can therefore still be attributed to its type.
+   *
+   * @param messageInputStream Stream of the JSON message.
+   * @param descriptorConsumer Consumer of the descriptor of the message processor of the message.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Concretely typed message along with the descriptor of its message processor.
+   * @throws BadMessageFormatException If the message can not be de-serialized.
+   * @throws MessageTypeNotSupportedException If no message processor is registered for the type of
+   * the message.
+   * @throws ValidationException If the message fails validation.
+   */
+  public <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  ReceivedMessage<MessageT, MessageResponseT> readMessage(InputStream messageInputStream,
+      Consumer<MessageProcessorDescriptor<?, ?>> descriptorConsumer) {
+    return readMessage(createParser(messageInputStream), descriptorConsumer);
+  }
+
+  /**
+   * Reads, binds and validates a single JSON message from the <code>parser</code>. The parser
+   * must be positioned right before the start of the message object and is left positioned at its
+   * end, i.e., several messages can be read from the same parser one after another. Like
+   * {@link #readMessage(InputStream)}, the returned {@link ReceivedMessage} only holds the cached
+   * response of a cacheable message type on a cache hit.
+   *
+   * @param parser Parser positioned right before the start of the message object.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Concretely typed message or its cached response, along with the descriptor of its
+   * message processor.
+   * @throws BadMessageFormatException If the message can not be de-serialized.
+   * @throws MessageTypeNotSupportedException If no message processor is registered for the type of
+   * the message.
+   * @throws ValidationException If the message fails validation.
+   */
+  public <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  ReceivedMessage<MessageT, MessageResponseT> readMessage(JsonParser parser) {
+    return readMessage(parser, null);
+  }
+
+  /**
+   * Stores the serialized response of the <code>receivedMessage</code> in the response cache. Does
+   * nothing if the response of the message is not cacheable.
+   *
+   * @param receivedMessage Message as returned by {@link #readMessage(InputStream)}.
+   * @param responseBytes Serialized response of the message.
+   */
+  public void cacheResponse(ReceivedMessage<?, ?> receivedMessage, byte[] responseBytes) {
+    if (responseCache != null && receivedMessage.getMessageKey() != null
+        && receivedMessage.getDescriptor().getCacheableResponse() != null) {
+      responseCache.put(receivedMessage.getDescriptor(), receivedMessage.getMessageKey(),
+          responseBytes);
+    }
+  }
+
+  /**
+   * Processes the <code>receivedMessage</code> through the <code>processing</code>, unless an
+   * identical message of a coalesced message type is already being processed, in which case its
+   * pending response is shared instead.
+   *
+   * @param receivedMessage Message as returned by {@link #readMessage(InputStream)}.
+   * @param processing Starts the processing of the message and returns the future of its
+   * serialized response.
+   * @return Future of the serialized response of the message.
+   */
+  public CompletableFuture<byte[]> coalesce(ReceivedMessage<?, ?> receivedMessage,
+      Supplier<CompletableFuture<byte[]>> processing) {
+    if (coalescer == null || receivedMessage.getMessageKey() == null
+        || !receivedMessage.getDescriptor().isCoalescedProcessing()) {
+      return processing.get();
+    }
+
+    return coalescer.process(receivedMessage, processing);
+  }
+
+  /**
+   * Reads, binds and validates a single JSON message from the <code>parser</code>, looking up its
+   * response in the response cache first if its type is cacheable.
+   *
+   * @param parser Parser positioned right before the start of the message object.
+   * @param descriptorConsumer Consumer of the descriptor of the message processor of the message,
+   * as soon as the type of the message is known, or <code>null</code>.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Concretely typed message or its cached response, along with the descriptor of its
+   * message processor.
+   * @throws BadMessageFormatException If the message can not be de-serialized.
+   * @throws MessageTypeNotSupportedException If no message processor is registered for the type of
+   * the message.
+   * @throws ValidationException If the message fails validation.
+   */
+  private <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  ReceivedMessage<MessageT, MessageResponseT> readMessage(JsonParser parser,
+      Consumer<MessageProcessorDescriptor<?, ?>> descriptorConsumer) {
+
+    // Extract type ID of the message, buffering whatever precedes it for the concrete binding,
+    // and look up the precompiled message processor descriptor for it
+    long phaseStart = startPhase();
+    TypedMessageParser messageParser = new TypedMessageParser(parser);
+    MessageProcessorDescriptor<MessageT, MessageResponseT> descriptor = lookupMessageProcessor(
+        messageParser);
+    String messageType = descriptor.getMessageType();
+    if (log.isLoggable(Level.FINE)) {
+      log.fine("Identified message with type identifier: [" + messageType + "].");
+    }
+    completePhase(messageType, MessagePhase.TYPE_EXTRACTION, phaseStart);
+    if (descriptorConsumer != null) {
+      descriptorConsumer.accept(descriptor);
+    }
+
+    // Reject messages of a rate limited message type over its rate before any more work is done
+    if (rateLimiter != null) {
+      rateLimiter.acquireForType(descriptor);
+    }
+
+    // Compute the message key, only if it's going to be cached or coalesced by it
+    boolean cacheable = responseCache != null && descriptor.getCacheableResponse() != null;
+    boolean coalesced = coalescer != null && descriptor.isCoalescedProcessing();
+    ByteBuffer messageKey = null;
+    if (cacheable || coalesced) {
+      messageKey = extractMessageKey(messageParser);
+    }
+
+    // Serve cached response without binding or validating the message, if there is one
+    if (messageKey != null && cacheable) {
+      byte[] cachedResponse = responseCache.get(descriptor, messageKey);
+      if (cachedResponse != null) {
+        if (log.isLoggable(Level.FINE)) {
+          log.fine("Found cached response for message with type identifier: [" + messageType
+              + "].");
+        }
+        return new ReceivedMessage<>(descriptor, null, messageKey, cachedResponse);
+      }
+    }
+
+    // Extract concretely typed message object from the same parse of the message
+    phaseStart = startPhase();
+    MessageT javaTypedMessage = extractConcreteMessage(messageParser, descriptor);
+    completePhase(messageType, MessagePhase.BINDING, phaseStart);
+    if (log.isLoggable(Level.FINE)) {
+      log.fine("Message about to be processed: " + javaTypedMessage);
+    }
+
+    // Validate message if declared with @Valid
+    if (descriptor.isValidationRequired()) {
+      phaseStart = startPhase();
+      validateMessage(javaTypedMessage);
+      completePhase(messageType, MessagePhase.VALIDATION, phaseStart);
+    }
+
+    return new ReceivedMessage<>(descriptor, javaTypedMessage, messageKey, null);
+  }
+
+  /**
+   * Executes the <code>receivedMessage</code> with its message processor.
+   *
+   * @param receivedMessage Concretely typed message along with the descriptor of its processor.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Message response produced by the message processor.
+   */
+  public <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  MessageResponseT processMessage(ReceivedMessage<MessageT, MessageResponseT> receivedMessage) {
+    long phaseStart = startPhase();
+    MessageResponseT messageResponse = receivedMessage.getDescriptor().getProcessor()
+        .process(receivedMessage.getMessage());
+    completePhase(receivedMessage.getDescriptor().getMessageType(), MessagePhase.PROCESSING,
+        phaseStart);
+    return messageResponse;
+  }
+
+  /**
+   * Starts executing the <code>receivedMessage</code> with its message processor. If the processor
+   * is an {@link AsyncMessageProcessor}, the calling thread is not blocked while the processing is
+   * pending. Otherwise, the message is processed on the calling thread and an already completed
+   * future is returned.
+   *
+   * @param receivedMessage Concretely typed message along with the descriptor of its processor.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Future of the message response produced by the message processor. Exceptions thrown by
+   * the message processor complete the future exceptionally.
+   */
+  public <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  CompletableFuture<MessageResponseT> processMessageAsync(
+      ReceivedMessage<MessageT, MessageResponseT> receivedMessage) {
+
+    CompletableFuture<MessageResponseT> futureResponse;
+    try {
+      MessageProcessorDescriptor<MessageT, MessageResponseT> descriptor = receivedMessage
+          .getDescriptor();
+      if (descriptor.isAsync()) {
+        long phaseStart = startPhase();
+        futureResponse = ((AsyncMessageProcessor<MessageT, MessageResponseT>) descriptor
+            .getProcessor()).processAsync(receivedMessage.getMessage());
+
+        // Time the processing until the response is ready, not just until the future is returned
+        if (phaseStart != 0) {
+          futureResponse.whenComplete((messageResponse, e) -> {
+            if (e == null) {
+              completePhase(descriptor.getMessageType(), MessagePhase.PROCESSING, phaseStart);
+            }
+          });
+        }
+      } else {
+        futureResponse = CompletableFuture.completedFuture(processMessage(receivedMessage));
+      }
+    } catch (RuntimeException e) {
+      futureResponse = new CompletableFuture<>();
+      futureResponse.completeExceptionally(e);
+    }
+
+    return futureResponse;
+  }
+
+  /**
+   * @param messageInputStream Stream of JSON to create a parser for.
+   * @return Parser over the <code>messageInputStream</code>.
+   * @throws BadMessageFormatException If the parser can not be created.
+   */
+  public JsonParser createParser(InputStream messageInputStream) {
+    try {
+      return objectMapper.getFactory().createParser(messageInputStream);
+    } catch (IOException e) {
+      String logMessage = "Error creating JSON parser for message.";
+      log.severe(logMessage);
+      throw new BadMessageFormatException(logMessage, e);
+    }
+  }
+
+  /**
+   * Writes the <code>messageResponse</code> as UTF-8 encoded JSON bytes.
+   *
+   * @param descriptor Descriptor of the message processor that produced the response.
+   * @param messageResponse Concretely typed response message to write as JSON.
+   * @param <MessageResponseT> Message response type.
+   * @return UTF-8 encoded JSON of the <code>messageResponse</code>.
+   */
+  public <MessageResponseT extends MessageResponse> byte[] writeResponseAsBytes(
+      MessageProcessorDescriptor<?, MessageResponseT> descriptor,
+      MessageResponseT messageResponse) {
+
+    try {
+      long phaseStart = startPhase();
+      byte[] responseBytes = descriptor.getMessageResponseWriter(messageResponse)
+          .writeValueAsBytes(messageResponse);
+      completePhase(descriptor.getMessageType(), MessagePhase.SERIALIZATION, phaseStart);
+      return responseBytes;
+    } catch (JsonProcessingException e) {
+      String logMessage = "Error serializing " + messageResponse + " to JSON";
+      log.severe(logMessage);
+      throw new IllegalArgumentException(logMessage, e);
+    }
+  }
+
+  /**
+   * @param messageParser Single-pass parser of the message to scan for the type property.
+   * @param <MessageT> Message type.
+   * @param <MessageResponseT> Message response type.
+   * @return Precompiled descriptor of the concretely typed message processor that handles messages
+   * with the string-based type ID of the message.
+   * @throws BadMessageFormatException If the type ID of the message can not be read.
+   * @throws MessageTypeNotSupportedException If message processor for the type ID of the message
+   * is not found.
+   */
+  @SuppressWarnings("unchecked")
+  private <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  MessageProcessorDescriptor<MessageT, MessageResponseT> lookupMessageProcessor(
+      TypedMessageParser messageParser) {
+
+    // Look up processor descriptor by message type
+    MessageProcessorDescriptor<MessageT, MessageResponseT> descriptor =
+        (MessageProcessorDescriptor<MessageT, MessageResponseT>) extractMessageDescriptor(
+            messageParser);
+
+    // Throw exception if no such message processor is found
+    if (descriptor == null) {
+      String messageType = messageParser.getMessageType();
+      String logMessage = "No registered message processor found for message type [" + messageType
+          + "]. If you think you have a MessageProcessor class implemented for this message type,"
+          + " check that your message processor class is injected into the Spring Context either"
+          + " by manually injecting it (in an @Configuration class) or by having the message"
+          + " processor class annotated with either @Service, @Component, etc.";
+      log.severe(logMessage);
+
+      throw new MessageTypeNotSupportedException(
+          "Message with type [" + messageType + "] is not supported.");
+    }
+
+    return descriptor;
+  }
+
+  /**
+   * Writes the <code>messageResponse</code> as UTF-8 encoded JSON to the
+   * <code>outputStream</code>.
+   *
+   * @param descriptor Descriptor of the message processor that produced the response.
+   * @param messageResponse Concretely typed response message to write as JSON.
+   * @param outputStream Stream to write the UTF-8 encoded JSON response to.
+   * @param <MessageResponseT> Message response type.
+   * @throws IOException If writing to the <code>outputStream</code> fails.
+   */
+  public <MessageResponseT extends MessageResponse> void writeResponse(
+      MessageProcessorDescriptor<?, MessageResponseT> descriptor,
+      MessageResponseT messageResponse, OutputStream outputStream) throws IOException {
+
+    try {
+      long phaseStart = startPhase();
+      descriptor.getMessageResponseWriter(messageResponse)
+          .writeValue(outputStream, messageResponse);
+      completePhase(descriptor.getMessageType(), MessagePhase.SERIALIZATION, phaseStart);
+    } catch (JsonMappingException e) {
+      String logMessage = "Error serializing " + messageResponse + " to JSON";
+      log.severe(logMessage);
+      throw new IllegalArgumentException(logMessage, e);
+    }
+  }
+
+  /**
+   * @return Start time of a phase in nanoseconds, or 0 if phases are not timed because there are no
+   * phase listeners.
+   */
+  private long startPhase() {
+    return phaseListeners.isEmpty() ? 0 : System.nanoTime();
+  }
+
+  /**
+   * Tells every phase listener how long the <code>phase</code> took. Does nothing if the phase was
+   * not timed.
+   *
+   * @param messageType String-based type identifier of the message.
+   * @param phase Phase the message completed.
+   * @param phaseStart Start time of the phase as returned by {@link #startPhase()}.
+   */
+  private void completePhase(String messageType, MessagePhase phase, long phaseStart) {
+    if (phaseStart == 0) {
+      return;
+    }
+
+    long durationNanos = System.nanoTime() - phaseStart;
+    for (MessagePhaseListener phaseListener : phaseListeners) {
+      phaseListener.phaseCompleted(messageType, phase, durationNanos);
+    }
+  }
+
+  /**
+   * @param messageParser Single-pass parser of the message to scan for the type property.
+   * @return Descriptor of the processor of the message type or <code>null</code> if the message
+   * does not contain the type property or no processor is registered for its type.
+   * @throws BadMessageFormatException If anything goes wrong during de-serialization.
+   */
+  private MessageProcessorDescriptor<?, ?> extractMessageDescriptor(
+      TypedMessageParser messageParser) {
+    try {
+      // Scan the message just far enough to find out the type identifier
+      return messageParser.scanMessageDescriptor(processorRegistry);
+
+    } catch (IOException e) {
+      String logMessage = "Error deserializing message type identifier from JSON at "
+          + messageParser.getCurrentLocation() + ". Please verify that the message being sent"
+          + " contains the [type] property and that the message is valid JSON.";
+      log.severe(logMessage);
+      throw new BadMessageFormatException(logMessage, e);
+    }
+  }
+
+  /**
+   * @param messageParser Single-pass parser of the message, already positioned past the type
+   * property. The rest of the message is buffered so that it can still be bound afterwards.
+   * @return Key the message is cached and coalesced under.
+   * @throws BadMessageFormatException If the message is not valid JSON.
+   */
+  private ByteBuffer extractMessageKey(TypedMessageParser messageParser) {
+    try {
+      TokenBuffer message = messageParser.bufferMessage();
+      return MessageKey.of(message.asParser(objectMapper));
+
+    } catch (IOException e) {
+      String logMessage = "Error reading message from JSON at "
+          + messageParser.getCurrentLocation() + ". Please verify that the message is valid JSON.";
+      log.severe(logMessage);
+      throw new BadMessageFormatException(logMessage, e);
+    }
+  }
+
+  /**
+   * @param messageParser Single-pass parser of the message, already positioned past the type
+   * property.
+   * @param descriptor Descriptor of the message processor compatible with message (by its string
+   * type ID).
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Object of concrete MessageT type, de-serialized from the message.
+   * @throws BadMessageFormatException If anything goes wrong during de-serialization.
+   */
+  private <MessageT extends Message<MessageResponseT>,
+      MessageResponseT extends MessageResponse> MessageT extractConcreteMessage(
+      TypedMessageParser messageParser,
+      MessageProcessorDescriptor<MessageT, MessageResponseT> descriptor) {
+
+    // Retrieve message processor's message class type
+    Class<MessageT> processorMessageClassType = descriptor.getMessageClass();
+
+    try {
+
+      // Attempt to deserialize the rest of the message using message processor's message reader
+      return messageParser.readMessage(descriptor.getMessageReader());
+
+    } catch (IOException e) {
+      String errorMessage = "Error deserializing message at " + messageParser.getCurrentLocation()
+          + " to " + processorMessageClassType + ". Please verify that the message is valid JSON,"
+          + " no unrelated properties are included, and that the required message properties are"
+          + " present.";
+
+      // Add to the log message a hint for server-side developers
+      String logMessage = " Also, verify that the [" + processorMessageClassType + "] contains"
+          + " correct Jackson annotations for properties that can be ignored and properties that"
+          + " are required.";
+      log.severe(errorMessage + logMessage);
+
+      throw new BadMessageFormatException(errorMessage, e);
+    }
+  }
+
+  /**
+   * Validates processor received message according to the JSR-380. Only called for processors that
+   * annotate their message argument with {@link Valid}.
+   *
+   * @param messageObject Message object to validate.
+   * @throws ValidationException If validation fails. All of the validation messages will be
+   * comma-separated in the exception message. Additional information about the fields that failed
+   * validation is contained in this exception instance as well.
+   * @throws IllegalStateException If no validator is set.
+   */
+  private void validateMessage(Object messageObject) {
+
+    // Refuse to process the message unvalidated
+    if (validator == null) {
+      String logMessage = "Message [" + messageObject.getClass().getName() + "] must be"
+          + " validated, since its processor declares @Valid, but no JSR-380 Validator is set."
+          + " Please make a javax.validation.Validator available, e.g., by adding a Bean"
+          + " Validation provider such as Hibernate Validator, or set one through setValidator.";
+      log.severe(logMessage);
+      throw new IllegalStateException(logMessage);
+    }
+
+    // Execute validation on the message object
+    Set<ConstraintViolation<Object>> violations = validator.validate(messageObject);
+
+    // If no validation errors, nothing else to do
+    if (violations.isEmpty()) {
+      return;
+    }
+
+    // Extract custom validation error info from each violation
+    final List<ValidationErrorInfo> validationErrors = new ArrayList<>();
+    for (ConstraintViolation<Object> violation : violations) {
+      ValidationErrorInfo validationError = new ValidationErrorInfo(
+          violation.getPropertyPath().toString(),
+          violation.getMessage());
+      validationErrors.add(validationError);
+    }
+
+    // Create exception object and combine all validation error messages together
+    final ValidationException validationException = new ValidationException();
+    validationException.setErrors(validationErrors);
+    validationErrors.stream()
+        .map(ValidationErrorInfo::getDefaultMessage)
+        .reduce((violationMessages, violationMessage) ->
+            String.format("%s, %s", violationMessages, violationMessage))
+        .ifPresent(validationException::setMessage);
+
+    throw validationException;
+  }
+}
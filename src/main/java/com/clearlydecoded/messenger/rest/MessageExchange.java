@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import lombok.Setter;
+
+/**
+ * {@link MessageExchange} class follows a single request to the <code>/process</code> endpoint
+ * from the moment it arrives until its response is ready, and tells the
+ * {@link MessageExchangeListener}s about it. Only created if there are listeners.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class MessageExchange {
+
+  /**
+   * Listeners to tell about the exchange.
+   */
+  private final List<MessageExchangeListener> listeners;
+
+  /**
+   * Time the exchange started, in nanoseconds.
+   */
+  private final long startedAt;
+
+  /**
+   * Size of the request body, or -1 if the client did not declare it.
+   */
+  private final long requestBytes;
+
+  /**
+   * Descriptor of the message processor of the message, once the type of the message is known.
+   */
+  @Setter
+  private MessageProcessorDescriptor<?, ?> descriptor;
+
+  /**
+   * Stream counting the bytes of the response written to it, if the response is written through
+   * one.
+   */
+  private CountingOutputStream responseOutputStream;
+
+  /**
+   * Constructor. Tells the <code>listeners</code> that the exchange started.
+   *
+   * @param listeners Listeners to tell about the exchange.
+   * @param requestBytes Size of the request body, or -1 if the client did not declare it.
+   */
+  MessageExchange(List<MessageExchangeListener> listeners, long requestBytes) {
+    this.listeners = listeners;
+    this.startedAt = System.nanoTime();
+    this.requestBytes = requestBytes;
+    listeners.forEach(MessageExchangeListener::exchangeStarted);
+  }
+
+  /**
+   * @param outputStream Stream the response is about to be written to.
+   * @return Stream that counts the bytes of the response as they are written to the
+   * <code>outputStream</code>.
+   */
+  OutputStream countResponseBytes(OutputStream outputStream) {
+    responseOutputStream = new CountingOutputStream(outputStream);
+    return responseOutputStream;
+  }
+
+  /**
+   * Tells the listeners that the response was written through the stream returned by
+   * {@link #countResponseBytes(OutputStream)}.
+   */
+  void completed() {
+    completed(responseOutputStream != null ? responseOutputStream.getCount() : -1);
+  }
+
+  /**
+   * Tells the listeners that the exchange succeeded.
+   *
+   * @param responseBytes Size of the response body.
+   */
+  void completed(long responseBytes) {
+    complete(null, responseBytes);
+  }
+
+  /**
+   * Tells the listeners that the exchange failed.
+   *
+   * @param error Error that failed the exchange, possibly wrapped in a
+   * {@link CompletionException}.
+   */
+  void failed(Throwable error) {
+    complete(error instanceof CompletionException && error.getCause() != null
+        ? error.getCause() : error, -1);
+  }
+
+  /**
+   * @param error Error that failed the exchange, or <code>null</code> if it succeeded.
+   * @param responseBytes Size of the response body, or -1 if the exchange failed.
+   */
+  private void complete(Throwable error, long responseBytes) {
+    long durationNanos = System.nanoTime() - startedAt;
+    for (MessageExchangeListener listener : listeners) {
+      listener.exchangeCompleted(descriptor, error, durationNanos, requestBytes, responseBytes);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+
+/**
+ * {@link MessageExchangeListener} interface is implemented by classes that want to be told about
+ * every message exchange of the <code>/process</code> endpoint of the {@link SpringRestMessenger},
+ * i.e., every request from the moment it arrives until its response is written, e.g., to publish
+ * metrics. Listeners are called on the thread that started or completed the exchange, so
+ * implementations must be thread safe and fast.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public interface MessageExchangeListener {
+
+  /**
+   * Called when a request arrives, before anything is read from it. Every call is followed by
+   * exactly one call to {@link #exchangeCompleted}.
+   */
+  void exchangeStarted();
+
+  /**
+   * Called once the response of a request is ready to be written, or the request failed.
+   *
+   * @param descriptor Descriptor of the message processor of the message, or <code>null</code> if
+   * the message failed before it was completely read, e.g., because its type is not supported or
+   * it failed binding or validation.
+   * @param error Error that failed the request, or <code>null</code> if it was successful.
+   * @param durationNanos How long the exchange took, in nanoseconds.
+   * @param requestBytes Size of the request body, or -1 if the client did not declare it.
+   * @param responseBytes Size of the response body, or -1 if the request failed.
+   */
+  void exchangeCompleted(MessageProcessorDescriptor<?, ?> descriptor, Throwable error,
+      long durationNanos, long requestBytes, long responseBytes);
+}
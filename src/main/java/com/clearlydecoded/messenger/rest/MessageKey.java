@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@link MessageKey} class computes the key that identifies a message for caching and coalescing:
+ * a SHA-256 hash of the canonical form of the message. The canonical form ignores whitespace and
+ * the order of object properties, so semantically identical messages share a key however they were
+ * written.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class MessageKey {
+
+  /**
+   * Name of the hash algorithm.
+   */
+  private static final String ALGORITHM = "SHA-256";
+
+  /**
+   * Computes the key of the message.
+   *
+   * @param parser Parser positioned right before the start of the message.
+   * @return Hash of the canonical form of the message, wrapped so that it can be used as a map key.
+   * @throws IOException If the message is not valid JSON.
+   */
+  static ByteBuffer of(JsonParser parser) throws IOException {
+    MessageDigest digest = newDigest();
+    parser.nextToken();
+    digestValue(parser, digest);
+    return ByteBuffer.wrap(digest.digest());
+  }
+
+  /**
+   * Adds the canonical form of the value the <code>parser</code> is positioned at to the
+   * <code>digest</code>, leaving the parser positioned at the last token of the value.
+   *
+   * @param parser Parser positioned at the first token of a value.
+   * @param digest Digest to add the value to.
+   * @throws IOException If the value is not valid JSON.
+   */
+  private static void digestValue(JsonParser parser, MessageDigest digest) throws IOException {
+    JsonToken token = parser.getCurrentToken();
+    if (token == null) {
+      throw new IOException("Unexpected end of message.");
+    }
+
+    switch (token) {
+      case START_OBJECT:
+
+        // Hash each property separately, then add them sorted by name
+        Map<String, byte[]> properties = new TreeMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.getCurrentName();
+          parser.nextToken();
+          MessageDigest propertyDigest = newDigest();
+          digestValue(parser, propertyDigest);
+          properties.put(name, propertyDigest.digest());
+        }
+
+        digest.update((byte) '{');
+        for (Map.Entry<String, byte[]> property : properties.entrySet()) {
+          digestText(property.getKey(), digest);
+          digest.update(property.getValue());
+        }
+        digest.update((byte) '}');
+        break;
+
+      case START_ARRAY:
+        digest.update((byte) '[');
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          digestValue(parser, digest);
+        }
+        digest.update((byte) ']');
+        break;
+
+      case VALUE_STRING:
+        digest.update((byte) 's');
+        digestText(parser.getText(), digest);
+        break;
+
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        digest.update((byte) 'n');
+        digestText(parser.getText(), digest);
+        break;
+
+      default:
+        // Remaining scalars: true, false, null and embedded objects
+        digest.update((byte) token.ordinal());
+        digestText(parser.getText(), digest);
+    }
+  }
+
+  /**
+   * Adds the length-prefixed UTF-8 bytes of the <code>text</code> to the <code>digest</code>, so
+   * that adjacent texts can not be confused with one another.
+   *
+   * @param text Text to add.
+   * @param digest Digest to add the text to.
+   */
+  private static void digestText(String text, MessageDigest digest) {
+    byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+    digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+    digest.update(bytes);
+  }
+
+  /**
+   * @return New SHA-256 digest.
+   */
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance(ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(ALGORITHM + " is not supported by this Java runtime.", e);
+    }
+  }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * {@link MessagePhase} enum lists the phases a message goes through from the moment it is read
+ * until its message response is written.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Getter
+@AllArgsConstructor
+public enum MessagePhase {
+
+  /**
+   * Scanning the message for its <code>type</code> property and looking up its message processor.
+   */
+  TYPE_EXTRACTION("typeExtraction"),
+
+  /**
+   * Binding the message to its concrete message class with Jackson.
+   */
+  BINDING("binding"),
+
+  /**
+   * Validating the message according to JSR-380.
+   */
+  VALIDATION("validation"),
+
+  /**
+   * Processing the message with its message processor, until its message response is ready.
+   */
+  PROCESSING("processing"),
+
+  /**
+   * Serializing the message response to JSON.
+   */
+  SERIALIZATION("serialization");
+
+  /**
+   * Name of the phase as it appears in metrics.
+   */
+  private final String name;
+}
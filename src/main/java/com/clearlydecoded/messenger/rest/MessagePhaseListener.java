@@ -0,0 +1,28 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+/**
+ * {@link MessagePhaseListener} interface is implemented by classes that want to be told how long
+ * each {@link MessagePhase} of each message took, e.g., to record latency metrics. Listeners are
+ * called on the thread that completed the phase, so implementations must be thread safe and fast.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public interface MessagePhaseListener {
+
+  /**
+   * Called every time a message completes a phase successfully.
+   *
+   * @param messageType String-based type identifier of the message.
+   * @param phase Phase the message completed.
+   * @param durationNanos How long the phase took, in nanoseconds.
+   */
+  void phaseCompleted(String messageType, MessagePhase phase, long durationNanos);
+}
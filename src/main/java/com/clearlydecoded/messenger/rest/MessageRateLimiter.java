@@ -0,0 +1,208 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.RateLimit;
+import com.clearlydecoded.messenger.exception.TooManyRequestsException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+
+/**
+ * {@link MessageRateLimiter} class enforces rate limits with a {@link TokenBucket} per message type
+ * marked with {@link RateLimit} and, if configured, a token bucket per client.
+ *
+ * <p>Client buckets are kept in a map bounded by <code>maxClients</code>. Once the map is full,
+ * the buckets of clients that have been quiet long enough for their buckets to be full again are
+ * discarded first, which does not change how those clients are limited. Only if every client is
+ * still active are arbitrary buckets discarded, which can at worst give those clients a fresh
+ * burst.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+class MessageRateLimiter {
+
+  /**
+   * Buckets of rate limited message types, keyed by message type.
+   */
+  private final Map<String, TypeBucket> typeBuckets = new ConcurrentHashMap<>();
+
+  /**
+   * Buckets of clients, keyed by client key.
+   */
+  private final Map<String, TokenBucket> clientBuckets = new ConcurrentHashMap<>();
+
+  /**
+   * Number of messages each client may send per second, or <code>0</code> if clients are not rate
+   * limited.
+   */
+  private final double clientPermitsPerSecond;
+
+  /**
+   * Maximum number of messages each client may send at once after a quiet period.
+   */
+  private final int clientBurst;
+
+  /**
+   * Maximum number of client buckets kept.
+   */
+  private final int maxClients;
+
+  /**
+   * Constructor.
+   *
+   * @param clientPermitsPerSecond Number of messages each client may send per second, or
+   * <code>0</code> if clients are not rate limited.
+   * @param clientBurst Maximum number of messages each client may send at once after a quiet
+   * period.
+   * @param maxClients Maximum number of client buckets kept.
+   */
+  MessageRateLimiter(double clientPermitsPerSecond, int clientBurst, int maxClients) {
+    this.clientPermitsPerSecond = Math.max(0, clientPermitsPerSecond);
+    this.clientBurst = Math.max(1, clientBurst);
+    this.maxClients = Math.max(1, maxClients);
+  }
+
+  /**
+   * @return <code>true</code> if clients are rate limited.
+   */
+  boolean isClientLimited() {
+    return clientPermitsPerSecond > 0;
+  }
+
+  /**
+   * Takes a token from the bucket of the client, if clients are rate limited.
+   *
+   * @param clientKey Key that identifies the client, e.g., its remote address.
+   * @throws TooManyRequestsException If the client exceeded its rate limit.
+   */
+  void acquireForClient(String clientKey) {
+    if (!isClientLimited()) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    TokenBucket bucket = clientBuckets.get(clientKey);
+    if (bucket == null) {
+      if (clientBuckets.size() >= maxClients) {
+        evictClientBuckets(now);
+      }
+      bucket = clientBuckets.computeIfAbsent(clientKey,
+          key -> new TokenBucket(clientPermitsPerSecond, clientBurst, now));
+    }
+
+    long waitNanos = bucket.tryAcquire(now);
+    if (waitNanos > 0) {
+      if (log.isLoggable(Level.FINE)) {
+        log.fine("Client [" + clientKey + "] exceeded its rate limit.");
+      }
+      throw new TooManyRequestsException("Too many requests. Please retry later.",
+          toRetryAfterSeconds(waitNanos));
+    }
+  }
+
+  /**
+   * Takes a token from the bucket of the message type, if it is marked with {@link RateLimit}.
+   *
+   * @param descriptor Descriptor of the message processor of the message type.
+   * @throws TooManyRequestsException If the message type exceeded its rate limit.
+   */
+  void acquireForType(MessageProcessorDescriptor<?, ?> descriptor) {
+    if (descriptor.getRateLimit() == null) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    long waitNanos = getTypeBucket(descriptor, now).tryAcquire(now);
+    if (waitNanos > 0) {
+      if (log.isLoggable(Level.FINE)) {
+        log.fine("Message type [" + descriptor.getMessageType() + "] exceeded its rate limit.");
+      }
+      throw new TooManyRequestsException("Too many messages of type ["
+          + descriptor.getMessageType() + "]. Please retry later.",
+          toRetryAfterSeconds(waitNanos));
+    }
+  }
+
+  /**
+   * @param descriptor Descriptor of the message processor of a rate limited message type.
+   * @param now Current value of {@link System#nanoTime()}.
+   * @return Bucket of the message type. A new bucket is started if the message processor was
+   * replaced since the bucket was created.
+   */
+  private TokenBucket getTypeBucket(MessageProcessorDescriptor<?, ?> descriptor, long now) {
+    TypeBucket typeBucket = typeBuckets.get(descriptor.getMessageType());
+    if (typeBucket != null && typeBucket.descriptor == descriptor) {
+      return typeBucket.bucket;
+    }
+
+    RateLimit rateLimit = descriptor.getRateLimit();
+    return typeBuckets.compute(descriptor.getMessageType(), (messageType, existing) ->
+        existing != null && existing.descriptor == descriptor ? existing
+            : new TypeBucket(descriptor,
+                new TokenBucket(rateLimit.permitsPerSecond(), rateLimit.burst(), now))).bucket;
+  }
+
+  /**
+   * Makes room for a new client bucket, discarding full buckets first, then arbitrary ones.
+   *
+   * @param now Current value of {@link System#nanoTime()}.
+   */
+  private void evictClientBuckets(long now) {
+    clientBuckets.values().removeIf(bucket -> bucket.isFull(now));
+
+    Iterator<String> clientKeys = clientBuckets.keySet().iterator();
+    while (clientBuckets.size() >= maxClients && clientKeys.hasNext()) {
+      clientKeys.next();
+      clientKeys.remove();
+    }
+  }
+
+  /**
+   * @param waitNanos Number of nanoseconds until a token will be available.
+   * @return Number of whole seconds to wait, rounded up, as required by <code>Retry-After</code>.
+   */
+  private static long toRetryAfterSeconds(long waitNanos) {
+    long second = TimeUnit.SECONDS.toNanos(1);
+    return Math.max(1, (waitNanos + second - 1) / second);
+  }
+
+  /**
+   * {@link TypeBucket} class is the bucket of a message type, along with the descriptor of the
+   * message processor whose rate limit it enforces.
+   */
+  private static class TypeBucket {
+
+    /**
+     * Descriptor of the message processor whose rate limit is enforced.
+     */
+    private final MessageProcessorDescriptor<?, ?> descriptor;
+
+    /**
+     * Bucket of the message type.
+     */
+    private final TokenBucket bucket;
+
+    /**
+     * Constructor.
+     *
+     * @param descriptor Descriptor of the message processor whose rate limit is enforced.
+     * @param bucket Bucket of the message type.
+     */
+    TypeBucket(MessageProcessorDescriptor<?, ?> descriptor, TokenBucket bucket) {
+      this.descriptor = descriptor;
+      this.bucket = bucket;
+    }
+  }
+}
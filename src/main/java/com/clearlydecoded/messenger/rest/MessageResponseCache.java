@@ -0,0 +1,200 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.CacheableResponse;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link MessageResponseCache} class caches serialized message responses of message types marked
+ * with {@link CacheableResponse}. Each message type has its own bounded, least recently used cache
+ * with its own time to live, and its own hit, miss and eviction counters.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class MessageResponseCache {
+
+  /**
+   * Caches of each message type, keyed by message type.
+   */
+  private final Map<String, TypeCache> typeCaches = new ConcurrentHashMap<>();
+
+  /**
+   * @param descriptor Descriptor of the message processor of a cacheable message type.
+   * @param key Cache key of the message.
+   * @return Cached serialized response of the message or <code>null</code> if there is none.
+   */
+  byte[] get(MessageProcessorDescriptor<?, ?> descriptor, ByteBuffer key) {
+    return getTypeCache(descriptor).get(key);
+  }
+
+  /**
+   * @param descriptor Descriptor of the message processor of a cacheable message type.
+   * @param key Cache key of the message.
+   * @param response Serialized response of the message to cache.
+   */
+  void put(MessageProcessorDescriptor<?, ?> descriptor, ByteBuffer key, byte[] response) {
+    getTypeCache(descriptor).put(key, response);
+  }
+
+  /**
+   * @return Snapshot of the counters of each message type, keyed by message type.
+   */
+  Map<String, ResponseCacheStatistics> getStatistics() {
+    Map<String, ResponseCacheStatistics> statistics = new TreeMap<>();
+    typeCaches.forEach((messageType, typeCache) -> statistics
+        .put(messageType, typeCache.getStatistics()));
+    return statistics;
+  }
+
+  /**
+   * @param descriptor Descriptor of the message processor of a cacheable message type.
+   * @return Cache of the message type. A new cache is started if the message processor was
+   * replaced since the cache was created.
+   */
+  private TypeCache getTypeCache(MessageProcessorDescriptor<?, ?> descriptor) {
+    TypeCache typeCache = typeCaches.get(descriptor.getMessageType());
+    if (typeCache != null && typeCache.descriptor == descriptor) {
+      return typeCache;
+    }
+
+    return typeCaches.compute(descriptor.getMessageType(), (messageType, existing) ->
+        existing != null && existing.descriptor == descriptor ? existing
+            : new TypeCache(descriptor));
+  }
+
+  /**
+   * {@link TypeCache} class is the least recently used cache of a single message type.
+   */
+  private static class TypeCache {
+
+    /**
+     * Descriptor of the message processor whose responses are cached.
+     */
+    private final MessageProcessorDescriptor<?, ?> descriptor;
+
+    /**
+     * How long a cached response stays valid, in nanoseconds.
+     */
+    private final long ttlNanos;
+
+    /**
+     * Cached responses in least recently used order.
+     */
+    private final LinkedHashMap<ByteBuffer, CachedResponse> responses;
+
+    /**
+     * Number of messages whose response was served from the cache.
+     */
+    private long hits;
+
+    /**
+     * Number of messages whose response was not in the cache.
+     */
+    private long misses;
+
+    /**
+     * Number of cached responses removed because the cache was full or because they expired.
+     */
+    private long evictions;
+
+    /**
+     * Constructor.
+     *
+     * @param descriptor Descriptor of the message processor whose responses are cached.
+     */
+    TypeCache(MessageProcessorDescriptor<?, ?> descriptor) {
+      CacheableResponse settings = descriptor.getCacheableResponse();
+      int maxSize = Math.max(1, settings.maxSize());
+
+      this.descriptor = descriptor;
+      this.ttlNanos = settings.timeUnit().toNanos(settings.ttl());
+      this.responses = new LinkedHashMap<ByteBuffer, CachedResponse>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Entry<ByteBuffer, CachedResponse> eldest) {
+          if (size() > maxSize) {
+            evictions++;
+            return true;
+          }
+          return false;
+        }
+      };
+    }
+
+    /**
+     * @param key Cache key of the message.
+     * @return Cached serialized response or <code>null</code> if there is none or it expired.
+     */
+    synchronized byte[] get(ByteBuffer key) {
+      CachedResponse cachedResponse = responses.get(key);
+      if (cachedResponse == null) {
+        misses++;
+        return null;
+      }
+
+      if (System.nanoTime() - cachedResponse.cachedAt > ttlNanos) {
+        responses.remove(key);
+        evictions++;
+        misses++;
+        return null;
+      }
+
+      hits++;
+      return cachedResponse.response;
+    }
+
+    /**
+     * @param key Cache key of the message.
+     * @param response Serialized response to cache.
+     */
+    synchronized void put(ByteBuffer key, byte[] response) {
+      responses.put(key, new CachedResponse(response, System.nanoTime()));
+    }
+
+    /**
+     * @return Snapshot of the counters.
+     */
+    synchronized ResponseCacheStatistics getStatistics() {
+      return new ResponseCacheStatistics(hits, misses, evictions, responses.size());
+    }
+  }
+
+  /**
+   * {@link CachedResponse} class is a serialized response along with the time it was cached.
+   */
+  private static class CachedResponse {
+
+    /**
+     * Serialized response.
+     */
+    private final byte[] response;
+
+    /**
+     * Value of {@link System#nanoTime()} when the response was cached.
+     */
+    private final long cachedAt;
+
+    /**
+     * Constructor.
+     *
+     * @param response Serialized response.
+     * @param cachedAt Value of {@link System#nanoTime()} when the response was cached.
+     */
+    CachedResponse(byte[] response, long cachedAt) {
+      this.response = response;
+      this.cachedAt = cachedAt;
+    }
+  }
+}
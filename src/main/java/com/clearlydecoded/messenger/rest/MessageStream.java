@@ -0,0 +1,294 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.exception.BadMessageFormatException;
+import com.clearlydecoded.messenger.exception.ServiceUnavailableException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.logging.Level;
+import lombok.extern.java.Log;
+
+/**
+ * {@link MessageStream} class processes a single stream of newline-delimited JSON (NDJSON)
+ * messages. Messages are parsed one at a time as their bytes arrive, processed on the provided
+ * executor, and their results are written back one line each as soon as they are ready. Messages
+ * that are processed asynchronously do not hold an executor thread while they are pending.
+ *
+ * <p>At most <code>maxInFlight</code> messages are held in memory at any time, counting both the
+ * messages being processed and the results waiting to be written. Once that limit is reached, no
+ * more of the request body is read until a result is written, which pushes back on the client
+ * through the connection itself. Memory therefore stays flat no matter how long the stream is.
+ * Every message also takes a permit shared by all the streams, so that all of them together hold
+ * a bounded number of messages, and a single large stream can not crowd the other streams out of
+ * the executor.</p>
+ *
+ * <p>In ordered mode, results are written in the same order as the messages were received, so a
+ * slow message holds back the results of the messages after it. In unordered mode, results are
+ * written as soon as they are ready; the <code>sequence</code> of each result identifies its
+ * message.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+class MessageStream {
+
+  /**
+   * Dispatcher used to create the parser of the stream.
+   */
+  private final MessageDispatcher messageDispatcher;
+
+  /**
+   * Starts processing a single buffered message and returns the future of its result.
+   */
+  private final Function<TokenBuffer, CompletableFuture<BatchMessageResult>> messageProcessing;
+
+  /**
+   * Jackson writer prepared to write results.
+   */
+  private final ObjectWriter resultWriter;
+
+  /**
+   * Executor used to process messages.
+   */
+  private final Executor executor;
+
+  /**
+   * Stream the results are written to, one line each.
+   */
+  private final OutputStream resultOutputStream;
+
+  /**
+   * Maximum number of messages held in memory at any time.
+   */
+  private final int maxInFlight;
+
+  /**
+   * Flag to indicate that results must be written in the order their messages were received.
+   */
+  private final boolean ordered;
+
+  /**
+   * Permits for messages held in memory. A permit is taken before a message is read and is given
+   * back once its result is written.
+   */
+  private final Semaphore inFlightPermits;
+
+  /**
+   * Permits for messages held in memory, shared by all the streams. Taken and given back along with
+   * the permits of this stream.
+   */
+  private final Semaphore sharedInFlightPermits;
+
+  /**
+   * Results that are ready but still wait for the results of earlier messages to be written, keyed
+   * by their sequence. Only used in ordered mode. Also guards writing to the
+   * <code>resultOutputStream</code>.
+   */
+  private final Map<Long, BatchMessageResult> pendingResults = new HashMap<>();
+
+  /**
+   * Sequence of the next result to write in ordered mode.
+   */
+  private long nextSequenceToWrite;
+
+  /**
+   * Error that occurred while writing a result, e.g., because the client went away. Once set, no
+   * more messages are read and no more results are written.
+   */
+  private volatile IOException writeFailure;
+
+  /**
+   * Constructor.
+   *
+   * @param messageDispatcher Dispatcher used to create the parser of the stream.
+   * @param messageProcessing Starts processing a single buffered message and returns the future
+   * of its result, which must never complete exceptionally.
+   * @param objectMapper Jackson object mapper used to write results.
+   * @param executor Executor used to process messages.
+   * @param resultOutputStream Stream to write the results to.
+   * @param maxInFlight Maximum number of messages held in memory at any time.
+   * @param sharedInFlightPermits Permits for messages held in memory, shared by all the streams.
+   * Should be fair, so that waiting streams take turns.
+   * @param ordered Flag to indicate that results must be written in the order their messages were
+   * received.
+   */
+  MessageStream(MessageDispatcher messageDispatcher,
+      Function<TokenBuffer, CompletableFuture<BatchMessageResult>> messageProcessing,
+      ObjectMapper objectMapper, Executor executor, OutputStream resultOutputStream,
+      int maxInFlight, Semaphore sharedInFlightPermits, boolean ordered) {
+    this.messageDispatcher = messageDispatcher;
+    this.messageProcessing = messageProcessing;
+    this.resultWriter = objectMapper.writerFor(BatchMessageResult.class);
+    this.executor = executor;
+    this.resultOutputStream = resultOutputStream;
+    this.maxInFlight = Math.max(1, maxInFlight);
+    this.ordered = ordered;
+    this.inFlightPermits = new Semaphore(this.maxInFlight);
+    this.sharedInFlightPermits = sharedInFlightPermits;
+  }
+
+  /**
+   * Reads every message from the <code>messageInputStream</code>, processes it and writes its
+   * result. Returns once the result of every message read has been written.
+   *
+   * <p>If the stream stops being valid JSON, the messages read so far are still processed, a final
+   * result with the 400 status is written in place of the malformed message and the rest of the
+   * stream is ignored, since there is no reliable way to find where the next message starts.</p>
+   *
+   * @param messageInputStream Stream of newline-delimited JSON messages.
+   * @throws IOException If writing a result fails.
+   */
+  void process(InputStream messageInputStream) throws IOException {
+
+    JsonParser parser = messageDispatcher.createParser(messageInputStream);
+    long sequence = 0;
+
+    try {
+      while (writeFailure == null) {
+
+        // Wait for room before reading the next message, which slows a fast client down
+        acquirePermits();
+
+        TokenBuffer message;
+        try {
+          if (parser.nextToken() == null) {
+            releasePermits();
+            break;
+          }
+          message = new TokenBuffer(parser);
+          message.copyCurrentStructure(parser);
+
+        } catch (IOException e) {
+          String logMessage = "Error reading message #" + sequence + " of a message stream from"
+              + " JSON at " + parser.getCurrentLocation() + ". Please verify that every message"
+              + " being sent is valid JSON. The rest of the stream is ignored.";
+          log.severe(logMessage);
+          complete(sequence, BatchMessageResult.failure(
+              new BadMessageFormatException(logMessage, e)));
+          break;
+        }
+
+        long messageSequence = sequence++;
+        try {
+          executor.execute(() -> messageProcessing.apply(message)
+              .thenAccept(result -> complete(messageSequence, result)));
+        } catch (RejectedExecutionException e) {
+          String logMessage = "Unable to process message #" + messageSequence + " of a message"
+              + " stream, since message processing is shutting down. The rest of the stream is"
+              + " ignored.";
+          log.warning(logMessage);
+          complete(messageSequence, BatchMessageResult.failure(
+              new ServiceUnavailableException(logMessage, e, 1)));
+          break;
+        }
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.warning("Interrupted while reading a message stream. The rest of the stream is ignored.");
+
+    } finally {
+      // Wait for the result of every message read so far to be written
+      inFlightPermits.acquireUninterruptibly(maxInFlight);
+    }
+
+    if (log.isLoggable(Level.FINE)) {
+      log.fine("Processed message stream of " + sequence + " messages.");
+    }
+    if (writeFailure != null) {
+      throw writeFailure;
+    }
+  }
+
+  /**
+   * Takes a permit of this stream and a shared permit for the next message, waiting for both.
+   *
+   * @throws InterruptedException If interrupted while waiting, in which case no permit is taken.
+   */
+  private void acquirePermits() throws InterruptedException {
+    inFlightPermits.acquire();
+    try {
+      sharedInFlightPermits.acquire();
+    } catch (InterruptedException e) {
+      inFlightPermits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Gives back the permit of this stream and the shared permit taken for a message.
+   */
+  private void releasePermits() {
+    sharedInFlightPermits.release();
+    inFlightPermits.release();
+  }
+
+  /**
+   * Writes the <code>result</code> of a message, and in ordered mode, every result that was waiting
+   * for it, giving back their permits.
+   *
+   * @param sequence Sequence of the message in the stream.
+   * @param result Result of processing the message.
+   */
+  private void complete(long sequence, BatchMessageResult result) {
+    result.setSequence(sequence);
+
+    synchronized (pendingResults) {
+      if (!ordered) {
+        writeResult(result);
+        releasePermits();
+        return;
+      }
+
+      // Write every result that is next in line
+      pendingResults.put(sequence, result);
+      BatchMessageResult nextResult;
+      while ((nextResult = pendingResults.remove(nextSequenceToWrite)) != null) {
+        writeResult(nextResult);
+        nextSequenceToWrite++;
+        releasePermits();
+      }
+    }
+  }
+
+  /**
+   * Writes the <code>result</code> as a single line and flushes it to the client. Must be called
+   * while holding the lock on <code>pendingResults</code>.
+   *
+   * @param result Result of processing a message.
+   */
+  private void writeResult(BatchMessageResult result) {
+    if (writeFailure != null) {
+      return;
+    }
+
+    try {
+      resultOutputStream.write(resultWriter.writeValueAsBytes(result));
+      resultOutputStream.write('\n');
+      resultOutputStream.flush();
+    } catch (IOException e) {
+      log.warning("Unable to write result of message stream. The rest of the stream is ignored: "
+          + e.getMessage());
+      writeFailure = e;
+    }
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * {@link ObjectMapperCustomizer} interface is a hook to customize the Jackson {@link ObjectMapper}
+ * used by the {@link SpringRestMessenger}, e.g., to register Jackson modules.
+ *
+ * <p>Beans implementing this interface are discovered in the Spring Context and applied exactly
+ * once, before any message processor is registered, so every prepared message reader and response
+ * writer picks up the customizations. Customizers are applied in the order defined by
+ * {@link org.springframework.core.annotation.Order} or {@link org.springframework.core.Ordered}.
+ * </p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@FunctionalInterface
+public interface ObjectMapperCustomizer {
+
+  /**
+   * Customizes the <code>objectMapper</code> used by the {@link SpringRestMessenger}.
+   *
+   * @param objectMapper Jackson object mapper to customize.
+   */
+  void customize(ObjectMapper objectMapper);
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.documentation.RestProcessorDocumentation;
+import com.clearlydecoded.messenger.documentation.RestProcessorDocumentationProvider;
+import com.clearlydecoded.messenger.exception.ServiceUnavailableException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import lombok.extern.java.Log;
+import org.springframework.beans.BeanUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.ClassUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+/**
+ * {@link ProcessorDocumentationResponses} class serves the documentation of the registered message
+ * processors, as an HTML page and as JSON. Both are rendered once into byte arrays, plain and
+ * gzipped, each with a strong ETag, and are rendered again only when the documentation changes,
+ * i.e., when processors are added to or removed from the registry.
+ *
+ * <p>Responses carry the ETag and the configured <code>Cache-Control</code> header. A request whose
+ * <code>If-None-Match</code> header holds the current ETag is answered with HTTP 304 and no body by
+ * Spring MVC, so polling clients only get the documentation again once it changes. The gzipped
+ * body is served to clients that accept it.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+class ProcessorDocumentationResponses {
+
+  /**
+   * Name of the Thymeleaf template of the HTML page.
+   */
+  static final String TEMPLATE_NAME = "SpringRestProcessorDocumentation";
+
+  /**
+   * Name of the HTML template mode, which Thymeleaf 3 renamed from <code>HTML5</code>.
+   */
+  private static final String HTML_TEMPLATE_MODE = ClassUtils.isPresent(
+      "org.thymeleaf.templatemode.TemplateMode", ProcessorDocumentationResponses.class
+          .getClassLoader()) ? "HTML" : "HTML5";
+
+  /**
+   * Spring template engines of Thymeleaf 3 (Spring 5) and of Thymeleaf 2 (Spring 4), in the order
+   * they are looked for. Only one of them is on the class path.
+   */
+  private static final String[] SPRING_TEMPLATE_ENGINES = {
+      "org.thymeleaf.spring5.SpringTemplateEngine", "org.thymeleaf.spring4.SpringTemplateEngine"};
+
+  /**
+   * Content type of the HTML page.
+   */
+  private static final MediaType TEXT_HTML_UTF8 = new MediaType(MediaType.TEXT_HTML,
+      StandardCharsets.UTF_8);
+
+  /**
+   * Provider of the documentation of every registered processor.
+   */
+  private final RestProcessorDocumentationProvider documentationProvider;
+
+  /**
+   * Jackson writer prepared to write the documentation as JSON.
+   */
+  private final ObjectWriter documentationWriter;
+
+  /**
+   * Template engine that renders the HTML page from the template on the class path.
+   */
+  private final TemplateEngine templateEngine;
+
+  /**
+   * Variables of the HTML page that do not depend on the documentation, e.g., the endpoint URI.
+   */
+  private final Map<String, Object> pageVariables;
+
+  /**
+   * Value of the <code>Cache-Control</code> header of every response.
+   */
+  private final String cacheControl;
+
+  /**
+   * Responses rendered from the latest documentation, or <code>null</code> if none is rendered
+   * yet. Only replaced while holding the lock on this instance.
+   */
+  private volatile RenderedDocumentation renderedDocumentation;
+
+  /**
+   * Constructor.
+   *
+   * @param documentationProvider Provider of the documentation of every registered processor.
+   * @param objectMapper Jackson object mapper used to write the documentation as JSON.
+   * @param pageVariables Variables of the HTML page that do not depend on the documentation.
+   * @param cacheControl Value of the <code>Cache-Control</code> header of every response.
+   */
+  ProcessorDocumentationResponses(RestProcessorDocumentationProvider documentationProvider,
+      ObjectMapper objectMapper, Map<String, Object> pageVariables, String cacheControl) {
+    this.documentationProvider = documentationProvider;
+    this.documentationWriter = objectMapper.writerFor(List.class);
+    this.pageVariables = pageVariables;
+    this.cacheControl = cacheControl;
+
+    // Render with an engine of our own, so the page does not depend on the application's setup
+    ClassLoaderTemplateResolver templateResolver = new ClassLoaderTemplateResolver();
+    templateResolver.setPrefix("templates/");
+    templateResolver.setSuffix(".html");
+    templateResolver.setTemplateMode(HTML_TEMPLATE_MODE);
+    templateResolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    templateResolver.setCacheable(false);
+    this.templateEngine = createTemplateEngine();
+    this.templateEngine.setTemplateResolver(templateResolver);
+  }
+
+  /**
+   * Creates the Spring template engine of the Thymeleaf on the class path, so that the page is
+   * rendered with Spring expressions by both Spring Boot 1 and Spring Boot 2 applications.
+   *
+   * @return Template engine that evaluates Spring expressions.
+   * @throws IllegalStateException If neither Spring template engine is on the class path.
+   */
+  private static TemplateEngine createTemplateEngine() {
+    ClassLoader classLoader = ProcessorDocumentationResponses.class.getClassLoader();
+    for (String engineClassName : SPRING_TEMPLATE_ENGINES) {
+      if (ClassUtils.isPresent(engineClassName, classLoader)) {
+        return (TemplateEngine) BeanUtils.instantiateClass(
+            ClassUtils.resolveClassName(engineClassName, classLoader));
+      }
+    }
+    throw new IllegalStateException("Thymeleaf Spring integration is required to render the"
+        + " message processor documentation.");
+  }
+
+  /**
+   * @param request HTTP request for the HTML page.
+   * @return HTML page documenting every registered processor.
+   * @throws ServiceUnavailableException If the documentation is still being generated.
+   */
+  ResponseEntity<byte[]> getHtml(HttpServletRequest request) throws ServiceUnavailableException {
+    return getRenderedDocumentation().html.toResponse(request, cacheControl);
+  }
+
+  /**
+   * @param request HTTP request for the JSON documentation.
+   * @return JSON array documenting every registered processor.
+   * @throws ServiceUnavailableException If the documentation is still being generated.
+   */
+  ResponseEntity<byte[]> getJson(HttpServletRequest request) throws ServiceUnavailableException {
+    return getRenderedDocumentation().json.toResponse(request, cacheControl);
+  }
+
+  /**
+   * @return Responses rendered from the current documentation, rendering them if it changed.
+   * @throws ServiceUnavailableException If the documentation is still being generated.
+   */
+  private RenderedDocumentation getRenderedDocumentation() throws ServiceUnavailableException {
+
+    List<RestProcessorDocumentation> processorDocs = documentationProvider.getDocumentation();
+    if (processorDocs == null) {
+      throw new ServiceUnavailableException("Message processor documentation is still being"
+          + " generated. Please try again shortly.", 1);
+    }
+
+    // The provider returns the same list until the documentation changes
+    RenderedDocumentation rendered = renderedDocumentation;
+    if (rendered != null && rendered.processorDocs == processorDocs) {
+      return rendered;
+    }
+
+    synchronized (this) {
+      rendered = renderedDocumentation;
+      if (rendered == null || rendered.processorDocs != processorDocs) {
+        rendered = render(processorDocs);
+        renderedDocumentation = rendered;
+      }
+      return rendered;
+    }
+  }
+
+  /**
+   * @param processorDocs Documentation of every registered processor.
+   * @return HTML page and JSON rendered from the <code>processorDocs</code>.
+   */
+  private RenderedDocumentation render(List<RestProcessorDocumentation> processorDocs) {
+    long start = System.nanoTime();
+
+    // Render the HTML page
+    Context context = new Context(Locale.ROOT, pageVariables);
+    context.setVariable("docs", processorDocs);
+    context.setVariable("messageMappedModels", processorDocs.stream().collect(Collectors
+        .toMap(RestProcessorDocumentation::getMessageId,
+            RestProcessorDocumentation::getMessageModel)));
+    byte[] html = templateEngine.process(TEMPLATE_NAME, context).getBytes(StandardCharsets.UTF_8);
+
+    // Render the JSON
+    byte[] json;
+    try {
+      json = documentationWriter.writeValueAsBytes(processorDocs);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Unable to write message processor documentation as JSON.",
+          e);
+    }
+
+    RenderedDocumentation rendered = new RenderedDocumentation(processorDocs,
+        new RenderedDocument(html, TEXT_HTML_UTF8),
+        new RenderedDocument(json, MediaType.APPLICATION_JSON_UTF8));
+    log.info("Rendered documentation of " + processorDocs.size() + " message processors in "
+        + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms.");
+    return rendered;
+  }
+
+  /**
+   * {@link RenderedDocumentation} class holds the responses rendered from the same documentation.
+   */
+  private static class RenderedDocumentation {
+
+    /**
+     * Documentation the responses are rendered from.
+     */
+    private final List<RestProcessorDocumentation> processorDocs;
+
+    /**
+     * Rendered HTML page.
+     */
+    private final RenderedDocument html;
+
+    /**
+     * Rendered JSON.
+     */
+    private final RenderedDocument json;
+
+    /**
+     * Constructor.
+     *
+     * @param processorDocs Documentation the responses are rendered from.
+     * @param html Rendered HTML page.
+     * @param json Rendered JSON.
+     */
+    private RenderedDocumentation(List<RestProcessorDocumentation> processorDocs,
+        RenderedDocument html, RenderedDocument json) {
+      this.processorDocs = processorDocs;
+      this.html = html;
+      this.json = json;
+    }
+  }
+
+  /**
+   * {@link RenderedDocument} class holds a single rendered document, plain and gzipped, along with
+   * the ETags of both.
+   */
+  private static class RenderedDocument {
+
+    /**
+     * Content type of the document.
+     */
+    private final MediaType contentType;
+
+    /**
+     * Plain body.
+     */
+    private final byte[] body;
+
+    /**
+     * Gzipped body.
+     */
+    private final byte[] gzippedBody;
+
+    /**
+     * Strong ETag of the plain body.
+     */
+    private final String etag;
+
+    /**
+     * Strong ETag of the gzipped body. Differs from the ETag of the plain body, since the bodies
+     * differ.
+     */
+    private final String gzippedEtag;
+
+    /**
+     * Constructor.
+     *
+     * @param body Plain body.
+     * @param contentType Content type of the document.
+     */
+    private RenderedDocument(byte[] body, MediaType contentType) {
+      this.contentType = contentType;
+      this.body = body;
+      this.gzippedBody = gzip(body);
+      String hash = hash(body);
+      this.etag = "\"" + hash + "\"";
+      this.gzippedEtag = "\"" + hash + "-gzip\"";
+    }
+
+    /**
+     * Creates the response to the <code>request</code>, gzipped if the client accepts it. Spring
+     * MVC turns it into HTTP 304 without a body if the <code>If-None-Match</code> header of the
+     * request holds its ETag.
+     *
+     * @param request HTTP request for the document.
+     * @param cacheControl Value of the <code>Cache-Control</code> header.
+     * @return Response holding the document.
+     */
+    private ResponseEntity<byte[]> toResponse(HttpServletRequest request, String cacheControl) {
+      boolean gzipped = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+
+      HttpHeaders headers = new HttpHeaders();
+      headers.setContentType(contentType);
+      headers.setETag(gzipped ? gzippedEtag : etag);
+      headers.setCacheControl(cacheControl);
+      headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING));
+      if (gzipped) {
+        headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+      }
+
+      return new ResponseEntity<>(gzipped ? gzippedBody : body, headers, HttpStatus.OK);
+    }
+
+    /**
+     * @param acceptEncoding Value of the <code>Accept-Encoding</code> header, possibly
+     * <code>null</code>.
+     * @return <code>true</code> if gzip is among the accepted encodings, <code>false</code>
+     * otherwise.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+      if (acceptEncoding == null) {
+        return false;
+      }
+
+      for (String encoding : acceptEncoding.split(",")) {
+        String[] parameters = encoding.split(";");
+        if (!parameters[0].trim().equalsIgnoreCase("gzip")) {
+          continue;
+        }
+
+        // Encoding is refused with a quality of 0
+        for (int i = 1; i < parameters.length; i++) {
+          String parameter = parameters[i].trim();
+          if (parameter.startsWith("q=")) {
+            try {
+              return Double.parseDouble(parameter.substring(2)) > 0;
+            } catch (NumberFormatException e) {
+              return false;
+            }
+          }
+        }
+        return true;
+      }
+
+      return false;
+    }
+
+    /**
+     * @param body Body to compress.
+     * @return Gzipped <code>body</code>.
+     */
+    private static byte[] gzip(byte[] body) {
+      ByteArrayOutputStream gzippedBody = new ByteArrayOutputStream(body.length / 4 + 64);
+      try (GZIPOutputStream gzipStream = new GZIPOutputStream(gzippedBody)) {
+        gzipStream.write(body);
+      } catch (IOException e) {
+        // Never thrown when writing to memory
+        throw new UncheckedIOException(e);
+      }
+      return gzippedBody.toByteArray();
+    }
+
+    /**
+     * @param body Body to hash.
+     * @return Hex-encoded SHA-256 hash of the <code>body</code>, shortened to 128 bits.
+     */
+    private static String hash(byte[] body) {
+      try {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+        StringBuilder hash = new StringBuilder(32);
+        for (int i = 0; i < 16; i++) {
+          hash.append(String.format("%02x", digest[i]));
+        }
+        return hash.toString();
+      } catch (NoSuchAlgorithmException e) {
+        // Every Java platform is required to support SHA-256
+        throw new IllegalStateException(e);
+      }
+    }
+  }
+}
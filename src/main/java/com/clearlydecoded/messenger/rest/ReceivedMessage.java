@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.Message;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.MessageResponse;
+import java.nio.ByteBuffer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * {@link ReceivedMessage} class holds a message that was read, bound to its concrete
+ * {@link Message} class and validated, along with the descriptor of the message processor that is
+ * going to process it. If the response of the message was found in the response cache, the message
+ * is neither bound nor validated and only the cached response is held instead.
+ *
+ * @param <MessageT> Concrete message type.
+ * @param <MessageResponseT> Concrete message response type.
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Getter
+@AllArgsConstructor
+public class ReceivedMessage
+    <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse> {
+
+  /**
+   * Descriptor of the message processor that is going to process the message.
+   */
+  private final MessageProcessorDescriptor<MessageT, MessageResponseT> descriptor;
+
+  /**
+   * Concretely typed message, or <code>null</code> if its response was found in the response
+   * cache.
+   */
+  private final MessageT message;
+
+  /**
+   * Canonical hash of the message that its response is cached and its processing is coalesced
+   * under, or <code>null</code> if the message type is neither cacheable nor coalesced.
+   */
+  private final ByteBuffer messageKey;
+
+  /**
+   * Cached serialized response of the message, or <code>null</code> if the message still has to be
+   * processed.
+   */
+  private final byte[] cachedResponse;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import java.io.Serializable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * {@link ResponseCacheStatistics} class is a snapshot of the response cache counters of a single
+ * message type.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResponseCacheStatistics implements Serializable {
+
+  /**
+   * Number of messages whose response was served from the cache.
+   */
+  private long hits;
+
+  /**
+   * Number of messages whose response was not in the cache and had to be processed.
+   */
+  private long misses;
+
+  /**
+   * Number of cached responses removed because the cache was full or because they expired.
+   */
+  private long evictions;
+
+  /**
+   * Number of responses currently cached.
+   */
+  private int size;
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.java.Log;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotationAwareOrderComparator;
+
+/**
+ * {@link SpringObjectMapperResolver} class is a helper class that resolves the Jackson
+ * {@link ObjectMapper} a messenger shares between its registry, documentation and endpoints.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+public class SpringObjectMapperResolver {
+
+  /**
+   * Resolves the Jackson object mapper to use for the messenger. If the Spring Context contains a
+   * single (or primary) {@link ObjectMapper}, a copy of it is used so that customizations applied
+   * here don't leak into the rest of the application. Otherwise, a new {@link ObjectMapper} is
+   * created. All {@link ObjectMapperCustomizer} beans are then applied to it, in order.
+   *
+   * @param springContext Spring Application Context.
+   * @return Jackson object mapper to use for the messenger.
+   */
+  public static ObjectMapper resolveObjectMapper(ApplicationContext springContext) {
+
+    ObjectMapper objectMapper;
+    try {
+      objectMapper = springContext.getBean(ObjectMapper.class).copy();
+      log.fine("Using Jackson ObjectMapper from the Spring Context.");
+    } catch (NoSuchBeanDefinitionException e) {
+      log.fine("No single Jackson ObjectMapper found in the Spring Context. Using default one.");
+      objectMapper = new ObjectMapper();
+    }
+
+    // Apply customizations exactly once, before any reader or writer is prepared
+    List<ObjectMapperCustomizer> customizers = new ArrayList<>(
+        springContext.getBeansOfType(ObjectMapperCustomizer.class).values());
+    AnnotationAwareOrderComparator.sort(customizers);
+    for (ObjectMapperCustomizer customizer : customizers) {
+      customizer.customize(objectMapper);
+    }
+
+    return objectMapper;
+  }
+}
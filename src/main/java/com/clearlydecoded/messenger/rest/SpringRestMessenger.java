@@ -8,42 +8,70 @@
  */
 package com.clearlydecoded.messenger.rest;
 
+import com.clearlydecoded.messenger.AsyncMessageProcessor;
 import com.clearlydecoded.messenger.Message;
 import com.clearlydecoded.messenger.MessageProcessor;
 import com.clearlydecoded.messenger.MessageProcessorRegistry;
 import com.clearlydecoded.messenger.MessageResponse;
 import com.clearlydecoded.messenger.discovery.SpringMessageProcessorRegistryFactory;
 import com.clearlydecoded.messenger.documentation.RestProcessorDocumentation;
-import com.clearlydecoded.messenger.documentation.RestProcessorDocumentationGenerator;
+import com.clearlydecoded.messenger.documentation.RestProcessorDocumentationProvider;
 import com.clearlydecoded.messenger.exception.BadMessageFormatException;
-import com.clearlydecoded.messenger.exception.MessageTypeNotSupportedException;
-import com.clearlydecoded.messenger.exception.ValidationErrorInfo;
-import com.clearlydecoded.messenger.exception.ValidationException;
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.clearlydecoded.messenger.exception.PayloadTooLargeException;
+import com.clearlydecoded.messenger.exception.RetryLaterException;
+import com.clearlydecoded.messenger.exception.ServiceUnavailableException;
+import com.clearlydecoded.messenger.micrometer.MicrometerMessengerMetrics;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import java.io.IOException;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
 import javax.annotation.PostConstruct;
-import javax.validation.ConstraintViolation;
-import javax.validation.Valid;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Validator;
 import lombok.Setter;
 import lombok.extern.java.Log;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.ui.Model;
-import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
@@ -61,6 +89,11 @@ import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandl
 @Log
 public class SpringRestMessenger {
 
+  /**
+   * Media type of a stream of newline-delimited JSON (NDJSON) messages or results.
+   */
+  public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
   /**
    * URI of the endpoint. Defaults to '/process' unless configured otherwise in Spring-based
    * properties.
@@ -85,17 +118,313 @@ public class SpringRestMessenger {
   private MessageProcessorRegistry processorRegistry;
 
   /**
-   * List of documentation classes that can be used to describe inputs/outputs of all the processors
-   * registered in the system.
+   * Provider of the documentation classes that can be used to describe inputs/outputs of all the
+   * processors registered in the system. Generates them on a background thread once this messenger
+   * is initialized.
+   */
+  private final RestProcessorDocumentationProvider documentationProvider;
+
+  /**
+   * Value of the <code>Cache-Control</code> header of the docs endpoints. Defaults to
+   * <code>no-cache</code>, i.e., clients may keep the docs but must revalidate them through their
+   * ETag, which costs an empty HTTP 304 response until processors are added or removed.
+   */
+  @Value("${com.clearlydecoded.messenger.docs.cache-control:no-cache}")
+  @Setter
+  private String docsCacheControl;
+
+  /**
+   * Pre-rendered responses of the docs endpoints. Created once the endpoint URI is known.
+   */
+  private ProcessorDocumentationResponses documentationResponses;
+
+  /**
+   * Maximum number of messages a single batch may contain. Defaults to 1000. Larger batches are
+   * rejected with HTTP 413 while they are read, before any of their messages is processed.
+   */
+  @Value("${com.clearlydecoded.messenger.batch.max-messages:1000}")
+  @Setter
+  private int batchMaxMessages;
+
+  /**
+   * Maximum number of messages of a single batch processed in parallel. Defaults to 1, i.e., the
+   * messages of a batch are dispatched one after another from the request thread.
+   */
+  @Value("${com.clearlydecoded.messenger.batch.parallelism:1}")
+  @Setter
+  private int batchParallelism;
+
+  /**
+   * Maximum number of batch messages waiting for a thread when processed in parallel. Once full,
+   * further messages are processed on the request thread itself.
+   */
+  @Value("${com.clearlydecoded.messenger.batch.queue-capacity:1000}")
+  @Setter
+  private int batchQueueCapacity;
+
+  /**
+   * Bounded executor used to process messages of a batch in parallel, or <code>null</code> if
+   * batch messages are processed sequentially.
+   */
+  private ExecutorService batchExecutor;
+
+  /**
+   * Maximum number of messages of a single stream held in memory at any time, either being
+   * processed or waiting for their results to be written. Defaults to 16.
+   */
+  @Value("${com.clearlydecoded.messenger.stream.max-in-flight:16}")
+  @Setter
+  private int streamMaxInFlight;
+
+  /**
+   * Maximum number of messages of all the streams together held in memory at any time. Defaults to
+   * 64. Once reached, streams take turns reading their next message, so a single large stream can
+   * not crowd the other streams out.
+   */
+  @Value("${com.clearlydecoded.messenger.stream.max-in-flight-total:64}")
+  @Setter
+  private int streamMaxInFlightTotal;
+
+  /**
+   * Permits for messages held in memory, shared by all the streams.
+   */
+  private Semaphore streamPermits;
+
+  /**
+   * Flag to indicate that results of a stream are written in the same order as its messages were
+   * received. Defaults to <code>true</code>. If <code>false</code>, results are written as soon as
+   * they are ready.
+   */
+  @Value("${com.clearlydecoded.messenger.stream.ordered:true}")
+  @Setter
+  private boolean streamOrdered;
+
+  /**
+   * Executor used to process messages of streams.
+   */
+  private ExecutorService streamExecutor;
+
+  /**
+   * Flag to indicate that synchronous message processors run on virtual threads, freeing the
+   * container thread while they are running. Defaults to <code>false</code>. Requires Java 21 or
+   * later; ignored with a warning otherwise.
+   */
+  @Value("${com.clearlydecoded.messenger.virtual-threads.enabled:false}")
+  @Setter
+  private boolean virtualThreadsEnabled;
+
+  /**
+   * Maximum number of messages of the same type processed on virtual threads at the same time.
+   * Defaults to 0, i.e., unlimited.
+   */
+  @Value("${com.clearlydecoded.messenger.virtual-threads.max-concurrency-per-type:0}")
+  @Setter
+  private int virtualThreadsMaxConcurrencyPerType;
+
+  /**
+   * Executor used to process messages on virtual threads, or <code>null</code> if messages are
+   * processed on the container threads.
+   */
+  private VirtualThreadMessageExecutor virtualThreadExecutor;
+
+  /**
+   * Flag to indicate that synchronous message processors run on bulkheads, i.e., bounded thread
+   * pools that isolate message types marked with {@link com.clearlydecoded.messenger.Bulkhead}
+   * from each other and from the rest. Defaults to <code>false</code>. Takes precedence over
+   * virtual threads.
+   */
+  @Value("${com.clearlydecoded.messenger.bulkhead.enabled:false}")
+  @Setter
+  private boolean bulkheadsEnabled;
+
+  /**
+   * Maximum number of messages processed at the same time by the bulkhead shared by message types
+   * without a bulkhead of their own. Defaults to 50.
+   */
+  @Value("${com.clearlydecoded.messenger.bulkhead.default.max-concurrent:50}")
+  @Setter
+  private int defaultBulkheadMaxConcurrent;
+
+  /**
+   * Maximum number of messages waiting for a thread of the bulkhead shared by message types without
+   * a bulkhead of their own. Defaults to 100.
+   */
+  @Value("${com.clearlydecoded.messenger.bulkhead.default.max-queued:100}")
+  @Setter
+  private int defaultBulkheadMaxQueued;
+
+  /**
+   * Number of seconds a client whose message was rejected by a full bulkhead is asked to wait
+   * before sending it again, through the <code>Retry-After</code> header. Defaults to 1.
+   */
+  @Value("${com.clearlydecoded.messenger.bulkhead.retry-after-seconds:1}")
+  @Setter
+  private long bulkheadRetryAfterSeconds;
+
+  /**
+   * Bulkheads used to process messages of synchronous message processors, or <code>null</code> if
+   * bulkheads are not enabled.
+   */
+  private MessageBulkheads bulkheads;
+
+  /**
+   * Flag to indicate that rate limits are enforced, both of message types marked with
+   * {@link com.clearlydecoded.messenger.RateLimit} and of clients, if configured. Defaults to
+   * <code>true</code>.
+   */
+  @Value("${com.clearlydecoded.messenger.rate-limit.enabled:true}")
+  @Setter
+  private boolean rateLimitEnabled;
+
+  /**
+   * Number of requests each client may send per second. Defaults to 0, i.e., clients are not rate
+   * limited.
+   */
+  @Value("${com.clearlydecoded.messenger.rate-limit.client.permits-per-second:0}")
+  @Setter
+  private double clientRateLimitPermitsPerSecond;
+
+  /**
+   * Maximum number of requests each client may send at once after a quiet period. Defaults to 10.
+   */
+  @Value("${com.clearlydecoded.messenger.rate-limit.client.burst:10}")
+  @Setter
+  private int clientRateLimitBurst;
+
+  /**
+   * Name of the HTTP header that identifies the client, e.g., an API key header. Defaults to an
+   * empty string, i.e., clients are identified by their remote address. Requests without the
+   * header are also identified by their remote address.
+   */
+  @Value("${com.clearlydecoded.messenger.rate-limit.client.key-header:}")
+  @Setter
+  private String clientRateLimitKeyHeader;
+
+  /**
+   * Maximum number of clients whose rate limit state is kept at the same time. Defaults to 10000.
+   */
+  @Value("${com.clearlydecoded.messenger.rate-limit.client.max-clients:10000}")
+  @Setter
+  private int clientRateLimitMaxClients;
+
+  /**
+   * Rate limiter of clients and message types, or <code>null</code> if rate limits are not
+   * enforced.
+   */
+  private MessageRateLimiter rateLimiter;
+
+  /**
+   * Flag to indicate that the number of messages processed at the same time is limited by an
+   * adaptive limit that follows the measured round trip time of messages. Defaults to
+   * <code>false</code>.
+   */
+  @Value("${com.clearlydecoded.messenger.concurrency-limit.enabled:false}")
+  @Setter
+  private boolean concurrencyLimitEnabled;
+
+  /**
+   * Adaptive concurrency limit to start with. Defaults to 20.
+   */
+  @Value("${com.clearlydecoded.messenger.concurrency-limit.initial:20}")
+  @Setter
+  private int concurrencyLimitInitial;
+
+  /**
+   * Lowest the adaptive concurrency limit can shrink to. Defaults to 1.
+   */
+  @Value("${com.clearlydecoded.messenger.concurrency-limit.min:1}")
+  @Setter
+  private int concurrencyLimitMin;
+
+  /**
+   * Highest the adaptive concurrency limit can grow to. Defaults to 1000.
    */
-  private List<RestProcessorDocumentation> processorDocs;
+  @Value("${com.clearlydecoded.messenger.concurrency-limit.max:1000}")
+  @Setter
+  private int concurrencyLimitMax;
+
+  /**
+   * Number of seconds a client whose message was rejected by the adaptive concurrency limit is
+   * asked to wait before sending it again, through the <code>Retry-After</code> header. Defaults
+   * to 1.
+   */
+  @Value("${com.clearlydecoded.messenger.concurrency-limit.retry-after-seconds:1}")
+  @Setter
+  private long concurrencyLimitRetryAfterSeconds;
 
   /**
-   * String framework provided validator for JSR-380 validation.
+   * Adaptive limiter of messages processed at the same time, or <code>null</code> if not enabled.
    */
+  private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+  /**
+   * Flag to indicate that responses of message types marked with
+   * {@link com.clearlydecoded.messenger.CacheableResponse} are cached. Defaults to
+   * <code>true</code>.
+   */
+  @Value("${com.clearlydecoded.messenger.cache.enabled:true}")
+  @Setter
+  private boolean responseCacheEnabled;
+
+  /**
+   * Flag to indicate that concurrent identical messages of types marked with
+   * {@link com.clearlydecoded.messenger.CoalescedProcessing} share a single processing. Defaults to
+   * <code>true</code>.
+   */
+  @Value("${com.clearlydecoded.messenger.coalescing.enabled:true}")
+  @Setter
+  private boolean coalescingEnabled;
+
+  /**
+   * Flag to indicate that per-phase latency histograms of every message type are recorded and
+   * exposed at <code>'/process/metrics'</code>. Defaults to <code>false</code>.
+   */
+  @Value("${com.clearlydecoded.messenger.metrics.enabled:false}")
+  @Setter
+  private boolean metricsEnabled;
+
+  /**
+   * Flag to indicate that a <code>DELETE</code> request to <code>'/process/metrics'</code> resets
+   * the latency histograms. Defaults to <code>false</code>, since anyone able to reach the endpoint
+   * could otherwise wipe the statistics. Only applies if metrics are enabled.
+   */
+  @Value("${com.clearlydecoded.messenger.metrics.reset-enabled:false}")
+  @Setter
+  private boolean metricsResetEnabled;
+
+  /**
+   * Latency histograms of every phase of every message type, or <code>null</code> if not enabled.
+   */
+  private LatencyMetrics latencyMetrics;
+
+  /**
+   * Flag to indicate that Micrometer meters are published whenever Micrometer is on the classpath
+   * and a <code>MeterRegistry</code> bean is present. Defaults to <code>true</code>.
+   */
+  @Value("${com.clearlydecoded.messenger.micrometer.enabled:true}")
+  @Setter
+  private boolean micrometerEnabled;
+
+  /**
+   * Spring Application Context, used to look up optional beans such as a Micrometer
+   * <code>MeterRegistry</code>.
+   */
+  @SuppressWarnings({"SpringJavaAutowiredFieldsWarningInspection",
+      "SpringJavaAutowiredMembersInspection"})
   @Autowired
   @Setter
-  private Validator validator;
+  private ApplicationContext applicationContext;
+
+  /**
+   * Listeners told about every message exchange of the <code>/process</code> endpoint.
+   */
+  private final List<MessageExchangeListener> exchangeListeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Dispatcher that reads messages, routes them to their message processors and writes their
+   * responses.
+   */
+  private final MessageDispatcher messageDispatcher;
 
   /**
    * Application's context path as is registered by the servlet container.
@@ -110,6 +439,11 @@ public class SpringRestMessenger {
   @Value("${spring.application.name:}")
   private String springApplicationName;
 
+  /**
+   * Jackson object mapper shared by everything this messenger reads and writes.
+   */
+  private final ObjectMapper objectMapper;
+
   /**
    * Constructor.
    *
@@ -117,11 +451,25 @@ public class SpringRestMessenger {
    * MessageProcessorRegistry}. (Hint: in majority of cases, you don't need {@link
    * MessageProcessorRegistry} to be available directly in the Spring Context.</p>
    *
+   * <p>The Jackson {@link ObjectMapper} is taken from the Spring Context if one is available, so
+   * messages are read and written the same way as the rest of the application. Any
+   * {@link ObjectMapperCustomizer} beans are applied to it before processors are registered.</p>
+   *
    * @param springContext Spring Application Context.
    */
   public SpringRestMessenger(ApplicationContext springContext) {
+    this(springContext, SpringObjectMapperResolver.resolveObjectMapper(springContext));
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param springContext Spring Application Context.
+   * @param objectMapper Jackson object mapper to share between the registry and this messenger.
+   */
+  private SpringRestMessenger(ApplicationContext springContext, ObjectMapper objectMapper) {
     this(SpringMessageProcessorRegistryFactory
-        .discoverMessageProcessorsAndCreateRegistry(springContext));
+        .discoverMessageProcessorsAndCreateRegistry(springContext, objectMapper), objectMapper);
   }
 
   /**
@@ -138,24 +486,38 @@ public class SpringRestMessenger {
    * on the type identifier of a message received through the REST call.
    */
   public SpringRestMessenger(MessageProcessorRegistry processorRegistry) {
-    this.processorRegistry = processorRegistry;
+    this(processorRegistry, new ObjectMapper());
+  }
 
-    processorDocs = new ArrayList<>();
+  /**
+   * Constructor.
+   *
+   * <p>Use this constructor if you manually created {@link MessageProcessorRegistry} with a
+   * specific Jackson {@link ObjectMapper}. The same <code>objectMapper</code> should be used to
+   * create the registry, e.g., through
+   * {@link SpringMessageProcessorRegistryFactory#discoverMessageProcessorsAndCreateRegistry(
+   * ApplicationContext, ObjectMapper)}, so that messages, message responses and documentation are
+   * all handled by one mapper.</p>
+   *
+   * @param processorRegistry Message processor registry used to look up message processors based
+   * on the type identifier of a message received through the REST call.
+   * @param objectMapper Jackson object mapper used to parse messages and generate documentation.
+   */
+  public SpringRestMessenger(MessageProcessorRegistry processorRegistry,
+      ObjectMapper objectMapper) {
+    this.processorRegistry = processorRegistry;
+    this.objectMapper = objectMapper;
+    this.messageDispatcher = new MessageDispatcher(processorRegistry, objectMapper);
+    this.documentationProvider = new RestProcessorDocumentationProvider(processorRegistry,
+        objectMapper);
+  }
 
-    try {
-      // Generate docs for message processors
-      for (MessageProcessor messageProcessor : processorRegistry.getProcessors()) {
-        RestProcessorDocumentation documentation = RestProcessorDocumentationGenerator
-            .generateDocumentation(messageProcessor);
-        processorDocs.add(documentation);
-      }
-    } catch (Exception e) {
-      String logMessage = "Generating message processor documentation failed. However, this will"
-          + " NOT affect the functionality of the rest of the application. While it is most"
-          + " probably a bug, the application will still function correctly because it only"
-          + " affects the documentation of the REST API.";
-      log.severe(logMessage);
-    }
+  /**
+   * @param validator Spring framework provided validator for JSR-380 validation.
+   */
+  @Autowired
+  public void setValidator(Validator validator) {
+    messageDispatcher.setValidator(validator);
   }
 
   /**
@@ -178,7 +540,136 @@ public class SpringRestMessenger {
         .produces(MediaType.APPLICATION_JSON_UTF8_VALUE)
         .build();
     requestMappingHandlerMapping.registerMapping(messageProcessingRequestMappingInfo, this,
-        SpringRestMessenger.class.getDeclaredMethod("process", String.class));
+        SpringRestMessenger.class.getDeclaredMethod("process", HttpServletRequest.class,
+            HttpServletResponse.class));
+
+    // Wire up request mapping for processing a stream of newline-delimited JSON messages
+    RequestMappingInfo streamProcessingRequestMappingInfo = RequestMappingInfo
+        .paths(endpointUri)
+        .methods(RequestMethod.POST)
+        .consumes(APPLICATION_NDJSON_VALUE)
+        .produces(APPLICATION_NDJSON_VALUE)
+        .build();
+    requestMappingHandlerMapping.registerMapping(streamProcessingRequestMappingInfo, this,
+        SpringRestMessenger.class.getDeclaredMethod("processStream", HttpServletRequest.class,
+            HttpServletResponse.class));
+
+    // Wire up request mapping for processing a batch of messages
+    RequestMappingInfo batchProcessingRequestMappingInfo = RequestMappingInfo
+        .paths(endpointUri + "/batch")
+        .methods(RequestMethod.POST)
+        .consumes(MediaType.APPLICATION_JSON_UTF8_VALUE)
+        .produces(MediaType.APPLICATION_JSON_UTF8_VALUE)
+        .build();
+    requestMappingHandlerMapping.registerMapping(batchProcessingRequestMappingInfo, this,
+        SpringRestMessenger.class.getDeclaredMethod("processBatch", HttpServletRequest.class,
+            HttpServletResponse.class));
+
+    // Create bounded executor for processing batch messages in parallel, if configured
+    if (batchParallelism > 1) {
+      CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+          "rest-messenger-batch-");
+      threadFactory.setDaemon(true);
+      batchExecutor = new ThreadPoolExecutor(batchParallelism, batchParallelism, 0L,
+          TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(batchQueueCapacity), threadFactory,
+          new ThreadPoolExecutor.CallerRunsPolicy());
+      log.info("REST-MESSENGER batch messages will be processed by up to " + batchParallelism
+          + " threads in parallel.");
+    }
+
+    // Cache responses of cacheable message types, unless turned off
+    messageDispatcher.setResponseCacheEnabled(responseCacheEnabled);
+
+    // Coalesce concurrent identical messages of coalesced message types, unless turned off
+    messageDispatcher.setCoalescingEnabled(coalescingEnabled);
+
+    // Record latency histograms of every phase of every message type and expose them, if enabled
+    if (metricsEnabled) {
+      latencyMetrics = new LatencyMetrics();
+      messageDispatcher.addPhaseListener(latencyMetrics);
+
+      RequestMappingInfo getMetricsRequestMappingInfo = RequestMappingInfo
+          .paths(endpointUri + "/metrics")
+          .methods(RequestMethod.GET)
+          .produces(MediaType.APPLICATION_JSON_UTF8_VALUE)
+          .build();
+      requestMappingHandlerMapping.registerMapping(getMetricsRequestMappingInfo, this,
+          SpringRestMessenger.class.getDeclaredMethod("getMetrics", boolean.class));
+
+      // Let clients reset the histograms only if explicitly allowed
+      if (metricsResetEnabled) {
+        RequestMappingInfo resetMetricsRequestMappingInfo = RequestMappingInfo
+            .paths(endpointUri + "/metrics")
+            .methods(RequestMethod.DELETE)
+            .build();
+        requestMappingHandlerMapping.registerMapping(resetMetricsRequestMappingInfo, this,
+            SpringRestMessenger.class.getDeclaredMethod("resetMetrics"));
+      }
+    }
+
+    // Publish Micrometer meters, if Micrometer is present along with a meter registry
+    if (micrometerEnabled && applicationContext != null && ClassUtils
+        .isPresent("io.micrometer.core.instrument.MeterRegistry", getClass().getClassLoader())) {
+      MicrometerMessengerMetrics.bindIfMeterRegistryPresent(applicationContext, this,
+          processorRegistry);
+    }
+
+    // Enforce rate limits of message types and, if configured, of clients
+    if (rateLimitEnabled) {
+      rateLimiter = new MessageRateLimiter(clientRateLimitPermitsPerSecond, clientRateLimitBurst,
+          clientRateLimitMaxClients);
+      messageDispatcher.setRateLimiter(rateLimiter);
+    }
+
+    // Create adaptive concurrency limiter, if configured
+    if (concurrencyLimitEnabled) {
+      concurrencyLimiter = new AdaptiveConcurrencyLimiter(concurrencyLimitInitial,
+          concurrencyLimitMin, concurrencyLimitMax, concurrencyLimitRetryAfterSeconds);
+      log.info("REST-MESSENGER concurrency of messages will be limited adaptively, starting at "
+          + concurrencyLimitInitial + ".");
+    }
+
+    // Create bulkheads for processing messages of synchronous processors, if configured
+    if (bulkheadsEnabled) {
+      bulkheads = new MessageBulkheads(defaultBulkheadMaxConcurrent, defaultBulkheadMaxQueued,
+          bulkheadRetryAfterSeconds);
+      if (virtualThreadsEnabled) {
+        log.warning("REST-MESSENGER bulkheads and virtual threads are both enabled. Bulkheads"
+            + " take precedence; virtual threads will not be used.");
+      }
+    }
+
+    // Create executor for processing messages on virtual threads, if configured and supported
+    if (virtualThreadsEnabled && bulkheads == null) {
+      virtualThreadExecutor = VirtualThreadMessageExecutor
+          .create(virtualThreadsMaxConcurrencyPerType);
+      if (virtualThreadExecutor != null) {
+        log.info("REST-MESSENGER messages will be processed on virtual threads.");
+        VirtualThreadMessageExecutor.warnAboutPinning(processorRegistry);
+      }
+    }
+
+    // Create executor for processing messages of streams; its queue never holds more messages
+    // than the shared permits allow
+    streamPermits = new Semaphore(Math.max(1, streamMaxInFlightTotal), true);
+    CustomizableThreadFactory streamThreadFactory = new CustomizableThreadFactory(
+        "rest-messenger-stream-");
+    streamThreadFactory.setDaemon(true);
+    int streamThreads = Math.max(1, streamMaxInFlight);
+    ThreadPoolExecutor streamThreadPool = new ThreadPoolExecutor(streamThreads, streamThreads, 60L,
+        TimeUnit.SECONDS, new ArrayBlockingQueue<>(Math.max(1, streamMaxInFlightTotal)),
+        streamThreadFactory);
+    streamThreadPool.allowCoreThreadTimeOut(true);
+    streamExecutor = streamThreadPool;
+
+    // Prepare the docs responses, rendered once per change of the registered processors
+    Map<String, Object> docsPageVariables = new HashMap<>();
+    docsPageVariables.put("endpointUri", endpointUri);
+    docsPageVariables.put("servletContextPath", servletContextPath);
+    String appName = springApplicationName.trim();
+    docsPageVariables.put("appName", appName.equals("") ? "unspecified" : appName);
+    documentationResponses = new ProcessorDocumentationResponses(documentationProvider,
+        objectMapper, docsPageVariables, docsCacheControl);
 
     // Wire up request mapping for output of processor docs through an HTML page
     RequestMappingInfo getProcessorDocsRequestMappingInfo = RequestMappingInfo
@@ -187,7 +678,8 @@ public class SpringRestMessenger {
         .produces(MediaType.TEXT_HTML_VALUE)
         .build();
     requestMappingHandlerMapping.registerMapping(getProcessorDocsRequestMappingInfo, this,
-        SpringRestMessenger.class.getDeclaredMethod("getProcessorDocs", Model.class));
+        SpringRestMessenger.class.getDeclaredMethod("getProcessorDocs",
+            HttpServletRequest.class));
 
     // Wire up request mapping for output of processor docs through REST endpoint
     RequestMappingInfo getJsonProcessorDocsRequestMappingInfo = RequestMappingInfo
@@ -197,7 +689,8 @@ public class SpringRestMessenger {
         .produces(MediaType.APPLICATION_JSON_UTF8_VALUE)
         .build();
     requestMappingHandlerMapping.registerMapping(getJsonProcessorDocsRequestMappingInfo, this,
-        SpringRestMessenger.class.getDeclaredMethod("getJsonProcessorDocs"));
+        SpringRestMessenger.class.getDeclaredMethod("getJsonProcessorDocs",
+            HttpServletRequest.class));
 
     // Wire up request mapping for output of processor docs through REST endpoint
     // Should be able to request directly in browser
@@ -207,257 +700,632 @@ public class SpringRestMessenger {
         .produces(MediaType.APPLICATION_JSON_UTF8_VALUE)
         .build();
     requestMappingHandlerMapping.registerMapping(getBrowserJsonProcessorDocsRequestMappingInfo,
-        this, SpringRestMessenger.class.getDeclaredMethod("getJsonProcessorDocs"));
+        this, SpringRestMessenger.class.getDeclaredMethod("getJsonProcessorDocs",
+            HttpServletRequest.class));
+
+    // Generate processor docs off the startup path; the docs endpoints return 503 until done
+    documentationProvider.generateInBackground();
   }
 
   /**
-   * Processes messages that are sent as part of the request body.
+   * Processes messages that are sent as part of the request body. The message is read straight
+   * from the request's input stream and the message response is written straight to the response's
+   * output stream as UTF-8 encoded JSON, i.e., neither is ever held in memory as a string.
+   *
+   * <p>If the message processor is an {@link AsyncMessageProcessor}, or if messages are processed
+   * on bulkheads or virtual threads, the request is switched to Servlet async processing so the
+   * container thread is released while the processing is pending. The message response is written
+   * once it is ready.</p>
+   *
+   * <p>Responses of message types marked with
+   * {@link com.clearlydecoded.messenger.CacheableResponse} are cached as serialized bytes. Repeats
+   * of such messages are answered straight from the cache, without binding, validating or
+   * processing the message.</p>
+   *
+   * <p>Requests of a client over its rate limit are rejected with HTTP 429 before they are read.
+   * Messages of a type over its rate limit are rejected as soon as their type is known, before
+   * they are bound. See {@link MessageRateLimiter} for details.</p>
    *
-   * @param message JSON string representing the message to process.
-   * @return Message response, serialized as a JSON string.
+   * <p>If the adaptive concurrency limit is enabled and reached, the message is rejected right away
+   * with HTTP 503. See {@link AdaptiveConcurrencyLimiter} for details.</p>
+   *
+   * <p>Messages of types marked with {@link com.clearlydecoded.messenger.CoalescedProcessing} that
+   * are identical to a message still being processed share its serialized response instead of
+   * being processed again. They are always handed over to Servlet async processing.</p>
+   *
+   * <p>Every {@link MessageExchangeListener} is told about the request once it arrives, and again
+   * once its response is ready or it fails.</p>
+   *
+   * @param request HTTP request whose body contains the JSON message to process.
+   * @param response HTTP response to write the JSON message response to.
+   * @return Deferred JSON message response if the message is processed asynchronously,
+   * <code>null</code> if the message response has already been written.
+   * @throws IOException If reading the request or writing the response fails.
    */
-  @ResponseBody
-  @SuppressWarnings("unchecked")
-  private <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
-  String process(@RequestBody String message) {
+  private DeferredResult<ResponseEntity<byte[]>> process(HttpServletRequest request,
+      HttpServletResponse response) throws IOException {
 
-    log.fine("Full message string received: " + message);
+    // Follow the exchange only if anybody listens to it
+    MessageExchange exchange = exchangeListeners.isEmpty() ? null
+        : new MessageExchange(exchangeListeners, request.getContentLengthLong());
 
-    // Extract type ID of the message
-    String messageType = extractMessageType(message);
-    log.fine("Identified message with type identifier: [" + messageType + "].");
+    try {
+      return process(request, response, exchange);
+    } catch (IOException | RuntimeException e) {
+      if (exchange != null) {
+        exchange.failed(e);
+      }
+      throw e;
+    }
+  }
 
-    // Look up message processor for this message type identifier
-    MessageProcessor<MessageT, MessageResponseT> messageProcessor = lookupMessageProcessor(
-        messageType);
+  /**
+   * Processes the message that is sent as part of the request body. See
+   * {@link #process(HttpServletRequest, HttpServletResponse)}.
+   *
+   * @param request HTTP request whose body contains the JSON message to process.
+   * @param response HTTP response to write the JSON message response to.
+   * @param exchange Exchange to report the outcome to, or <code>null</code> if there are no
+   * exchange listeners.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Deferred JSON message response if the message is processed asynchronously,
+   * <code>null</code> if the message response has already been written.
+   * @throws IOException If reading the request or writing the response fails.
+   */
+  private <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  DeferredResult<ResponseEntity<byte[]>> process(HttpServletRequest request,
+      HttpServletResponse response, MessageExchange exchange) throws IOException {
 
-    // Extract concretely typed message object
-    MessageT javaTypedMessage = extractConcreteMessage(message, messageProcessor);
-    log.fine("Message about to be processed: " + javaTypedMessage);
+    // Reject requests of a client over its rate before even reading them
+    acquireClientRateLimit(request);
 
-    // Validate message if declared with @Valid
-    validateMessage(messageProcessor, javaTypedMessage);
+    // Read, bind and validate the message in a single pass over the request body, attributing the
+    // exchange to the message type as soon as it is known
+    ReceivedMessage<MessageT, MessageResponseT> receivedMessage = exchange == null
+        ? messageDispatcher.readMessage(request.getInputStream())
+        : messageDispatcher.readMessage(request.getInputStream(), exchange::setDescriptor);
 
-    // Execute de-serialized message
-    MessageResponseT messageResponse = messageProcessor.process(javaTypedMessage);
+    // Write cached response as is, if there is one
+    if (receivedMessage.getCachedResponse() != null) {
+      response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+      response.getOutputStream().write(receivedMessage.getCachedResponse());
+      if (exchange != null) {
+        exchange.completed(receivedMessage.getCachedResponse().length);
+      }
+      return null;
+    }
+
+    // Turn the message away right away if too many messages are already being processed
+    long admittedAt = concurrencyLimiter != null ? concurrencyLimiter.acquire() : 0;
+    CompletableFuture<byte[]> futureResponseBytes = null;
+    try {
+      futureResponseBytes = dispatch(receivedMessage, response, exchange);
+    } finally {
+      if (futureResponseBytes == null) {
+        releaseConcurrencyLimit(admittedAt);
+      }
+    }
 
-    // Generate JSON string as a response
-    String response = generateStringResponse(messageResponse);
-    log.fine("Full message response string to be sent: " + response);
+    if (futureResponseBytes == null) {
+      if (exchange != null) {
+        exchange.completed();
+      }
+      return null;
+    }
 
-    return response;
+    // Release the message before its response is handed over, so the limit is never overstated
+    futureResponseBytes = futureResponseBytes
+        .whenComplete((responseBytes, error) -> releaseConcurrencyLimit(admittedAt));
+    if (exchange != null) {
+      futureResponseBytes = futureResponseBytes.whenComplete((responseBytes, error) -> {
+        if (error != null) {
+          exchange.failed(error);
+        } else {
+          exchange.completed(responseBytes.length);
+        }
+      });
+    }
+    return deferResponse(futureResponseBytes);
   }
 
   /**
-   * Directs the request to the HTML page that displays all the documentation for the system
-   * discovered message processors.
+   * Processes the <code>receivedMessage</code>, either writing its message response right away or
+   * handing back the future of its message response to be written through Servlet async
+   * processing.
    *
-   * @param model Shared model with the view.
-   * @return ID of the page to serve to the client.
+   * @param receivedMessage Concretely typed message along with the descriptor of its processor.
+   * @param response HTTP response to write the JSON message response to.
+   * @param exchange Exchange to count the bytes of the written response for, or <code>null</code>
+   * if there are no exchange listeners.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Future of the UTF-8 encoded JSON message response if the message is processed
+   * asynchronously, <code>null</code> if the message response has already been written.
+   * @throws IOException If writing the response fails.
    */
-  private String getProcessorDocs(Model model) {
+  private <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  CompletableFuture<byte[]> dispatch(ReceivedMessage<MessageT, MessageResponseT> receivedMessage,
+      HttpServletResponse response, MessageExchange exchange) throws IOException {
 
-    model.addAttribute("docs", processorDocs);
-    model.addAttribute("endpointUri", endpointUri);
-    model.addAttribute("servletContextPath", servletContextPath);
-    model.addAttribute("messageMappedModels", generateMessageMappedModels());
+    // Share the processing of an identical message that is still pending, if there is one
+    if (receivedMessage.getDescriptor().isCoalescedProcessing()
+        && receivedMessage.getMessageKey() != null) {
+      return messageDispatcher.coalesce(receivedMessage, () -> processAsBytes(receivedMessage));
+    }
 
-    String appName = springApplicationName.trim();
-    model.addAttribute("appName", appName.equals("") ? "unspecified" : appName);
+    // Hand asynchronously processed messages, or messages processed on bulkheads or virtual
+    // threads, over to Servlet async processing
+    if (receivedMessage.getDescriptor().isAsync() || bulkheads != null
+        || virtualThreadExecutor != null) {
+      return processAsBytes(receivedMessage);
+    }
+
+    // Execute de-serialized message
+    MessageResponseT messageResponse = messageDispatcher.processMessage(receivedMessage);
+
+    if (log.isLoggable(Level.FINE)) {
+      log.fine("Message response to be sent: " + messageResponse);
+    }
+    response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+    OutputStream responseOutputStream = exchange != null
+        ? exchange.countResponseBytes(response.getOutputStream()) : response.getOutputStream();
 
-    return "SpringRestProcessorDocumentation";
+    // Serialize cacheable response once, both to cache it and to write it
+    if (receivedMessage.getMessageKey() != null) {
+      byte[] responseBytes = messageDispatcher
+          .writeResponseAsBytes(receivedMessage.getDescriptor(), messageResponse);
+      messageDispatcher.cacheResponse(receivedMessage, responseBytes);
+      responseOutputStream.write(responseBytes);
+      return null;
+    }
+
+    // Write JSON response straight to the response output stream
+    messageDispatcher.writeResponse(receivedMessage.getDescriptor(), messageResponse,
+        responseOutputStream);
+
+    return null;
   }
 
   /**
-   * @return Map where the key is the <code>compatibleMessageType</code> and the value is the
-   * message model string.
+   * Takes a token from the rate limit bucket of the client that sent the <code>request</code>, if
+   * clients are rate limited. Clients are identified by the configured key header or, without
+   * one, by their remote address.
+   *
+   * @param request HTTP request sent by the client.
+   * @throws com.clearlydecoded.messenger.exception.TooManyRequestsException If the client
+   * exceeded its rate limit.
    */
-  private Map<String, String> generateMessageMappedModels() {
-    return processorDocs.stream().collect(Collectors
-        .toMap(RestProcessorDocumentation::getMessageId,
-            RestProcessorDocumentation::getMessageModel));
+  private void acquireClientRateLimit(HttpServletRequest request) {
+    if (rateLimiter == null || !rateLimiter.isClientLimited()) {
+      return;
+    }
+
+    String clientKey = clientRateLimitKeyHeader.isEmpty() ? null
+        : request.getHeader(clientRateLimitKeyHeader);
+    rateLimiter.acquireForClient(clientKey != null ? clientKey : request.getRemoteAddr());
   }
 
   /**
-   * @return List of {@link RestProcessorDocumentation}s as a REST endpoint, i.e., returns docs as
-   * JSON.
+   * Releases a message admitted by the adaptive concurrency limiter, if it is enabled.
+   *
+   * @param admittedAt Value returned by the limiter when the message was admitted.
    */
-  @ResponseBody
-  private List<RestProcessorDocumentation> getJsonProcessorDocs() {
-    return processorDocs;
+  private void releaseConcurrencyLimit(long admittedAt) {
+    if (concurrencyLimiter != null) {
+      concurrencyLimiter.release(admittedAt);
+    }
   }
 
   /**
-   * @param messageType String-based message type ID that uniquely identifies message processor.
-   * @param <MessageT> Message type.
-   * @param <MessageResponseT> Message response type.
-   * @return Concretely typed message processor that handles messages with string-based type ID
-   * provided by <code>messageType</code>.
-   * @throws IllegalArgumentException If message processor for the provided <code>messageType</code>
-   * is not found.
+   * Starts processing the <code>receivedMessage</code> with its asynchronous message processor, on
+   * its bulkhead, on a virtual thread, or otherwise on the calling thread, and serializes its
+   * message response once it is ready. Cacheable responses are cached.
+   *
+   * @param receivedMessage Concretely typed message along with the descriptor of its processor.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Future of the UTF-8 encoded JSON message response.
+   * @throws com.clearlydecoded.messenger.exception.ServiceUnavailableException If the bulkhead of
+   * the message type is full.
    */
-  @SuppressWarnings("unchecked")
   private <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
-  MessageProcessor<MessageT, MessageResponseT> lookupMessageProcessor(String messageType) {
-
-    // Look up processor by message type
-    MessageProcessor<MessageT, MessageResponseT> messageProcessor =
-        (MessageProcessor<MessageT, MessageResponseT>) processorRegistry
-            .getProcessorFor(messageType);
-
-    // Throw exception if no such message processor is found
-    if (messageProcessor == null) {
-      String logMessage = "No registered message processor found for message type [" + messageType
-          + "]. If you think you have a MessageProcessor class implemented for this message type,"
-          + " check that your message processor class is injected into the Spring Context either"
-          + " by manually injecting it (in an @Configuration class) or by having the message"
-          + " processor class annotated with either @Service, @Component, etc.";
-      log.severe(logMessage);
+  CompletableFuture<byte[]> processAsBytes(
+      ReceivedMessage<MessageT, MessageResponseT> receivedMessage) {
 
-      throw new MessageTypeNotSupportedException(
-          "Message with type [" + messageType + "] is not supported.");
+    CompletableFuture<MessageResponseT> futureResponse;
+    if (receivedMessage.getDescriptor().isAsync()) {
+      futureResponse = messageDispatcher.processMessageAsync(receivedMessage);
+    } else if (bulkheads != null) {
+      futureResponse = bulkheads.process(messageDispatcher, receivedMessage);
+    } else if (virtualThreadExecutor != null) {
+      futureResponse = virtualThreadExecutor.process(messageDispatcher, receivedMessage);
+    } else {
+      futureResponse = messageDispatcher.processMessageAsync(receivedMessage);
     }
 
-    return messageProcessor;
+    return futureResponse.thenApply(messageResponse -> {
+      if (log.isLoggable(Level.FINE)) {
+        log.fine("Message response to be sent: " + messageResponse);
+      }
+      byte[] responseBytes = messageDispatcher
+          .writeResponseAsBytes(receivedMessage.getDescriptor(), messageResponse);
+      messageDispatcher.cacheResponse(receivedMessage, responseBytes);
+      return responseBytes;
+    });
   }
 
   /**
-   * @param messageResponse Concretely typed response message to convert to JSON string.
-   * @param <MessageResponseT> Message response type.
-   * @return JSON string representing the response message.
+   * Defers writing the message response until its processing completes.
+   *
+   * @param futureResponseBytes Future of the UTF-8 encoded JSON message response.
+   * @return Deferred JSON message response that is set once the processing completes.
    */
-  private <MessageResponseT extends MessageResponse> String generateStringResponse(
-      MessageResponseT messageResponse) {
+  private DeferredResult<ResponseEntity<byte[]>> deferResponse(
+      CompletableFuture<byte[]> futureResponseBytes) {
 
-    ObjectMapper mapper = new ObjectMapper();
+    DeferredResult<ResponseEntity<byte[]>> deferredResult = new DeferredResult<>();
+    futureResponseBytes.whenComplete((responseBytes, error) -> {
 
-    try {
-      return mapper.writeValueAsString(messageResponse);
-    } catch (JsonProcessingException e) {
-      String logMessage = "Error serializing " + messageResponse + " to JSON";
-      log.severe(logMessage);
-      throw new IllegalArgumentException(logMessage, e);
+      // Let Spring report failures just like failures of synchronous processors
+      if (error != null) {
+        deferredResult.setErrorResult(error instanceof CompletionException
+            && error.getCause() != null ? error.getCause() : error);
+        return;
+      }
+
+      deferredResult.setResult(ResponseEntity.ok()
+          .contentType(MediaType.APPLICATION_JSON_UTF8)
+          .body(responseBytes));
+    });
+
+    return deferredResult;
+  }
+
+  /**
+   * Reports a message that was turned away because of load with the HTTP status of the exception
+   * and a <code>Retry-After</code> header telling the client when to send it again.
+   *
+   * @param exception Exception that turned the message away.
+   * @param response HTTP response to report the exception to.
+   * @throws IOException If writing the response fails.
+   */
+  @ExceptionHandler(RetryLaterException.class)
+  private void handleRetryLater(RetryLaterException exception, HttpServletResponse response)
+      throws IOException {
+
+    ResponseStatus responseStatus = AnnotatedElementUtils
+        .findMergedAnnotation(exception.getClass(), ResponseStatus.class);
+    HttpStatus status = responseStatus != null ? responseStatus.code()
+        : HttpStatus.SERVICE_UNAVAILABLE;
+
+    response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()));
+    response.sendError(status.value(), exception.getMessage());
+  }
+
+  /**
+   * Processes a stream of newline-delimited JSON (NDJSON) messages sent as the request body. Each
+   * message is parsed as its bytes arrive and its result is written back as a single line as soon
+   * as it is ready, so neither the messages nor the results of the stream are ever all held in
+   * memory. See {@link MessageStream} for details. The whole stream counts as a single request
+   * against the rate limit of the client.
+   *
+   * @param request HTTP request whose body contains the newline-delimited JSON messages.
+   * @param response HTTP response to write the newline-delimited JSON results to.
+   * @throws IOException If reading the request or writing the response fails.
+   */
+  private void processStream(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+
+    acquireClientRateLimit(request);
+    response.setContentType(APPLICATION_NDJSON_VALUE);
+    MessageStream messageStream = new MessageStream(messageDispatcher,
+        this::processBatchMessage, objectMapper, streamExecutor, response.getOutputStream(),
+        streamMaxInFlight, streamPermits, streamOrdered);
+    messageStream.process(request.getInputStream());
+  }
+
+  /**
+   * Processes a batch of messages sent as a JSON array in the request body. Each message is
+   * dispatched to its own message processor, possibly in parallel, and the results are written back
+   * as a JSON array in the same order as the messages. Each result contains either the message
+   * response or the error the message would have produced if it was sent on its own. The whole
+   * batch counts as a single request against the rate limit of the client, while each message is
+   * still subject to every other limit of a message sent on its own. See
+   * {@link #processBatchMessage(TokenBuffer)}.
+   *
+   * @param request HTTP request whose body contains the JSON array of messages to process.
+   * @param response HTTP response to write the JSON array of results to.
+   * @throws IOException If reading the request or writing the response fails.
+   * @throws BadMessageFormatException If the request body is not a valid JSON array.
+   * @throws PayloadTooLargeException If the batch contains more messages than allowed.
+   */
+  private void processBatch(HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+
+    acquireClientRateLimit(request);
+
+    // Buffer every message of the batch so malformed JSON is rejected before anything is written
+    List<TokenBuffer> messages = readBatchMessages(request.getInputStream());
+    if (log.isLoggable(Level.FINE)) {
+      log.fine("Received batch of " + messages.size() + " messages.");
+    }
+
+    // Dispatch messages either from this thread or in parallel, keeping their original order
+    List<Future<BatchMessageResult>> results = new ArrayList<>(messages.size());
+    for (TokenBuffer message : messages) {
+      if (batchExecutor == null) {
+        results.add(processBatchMessage(message));
+      } else {
+        results.add(CompletableFuture
+            .supplyAsync(() -> processBatchMessage(message), batchExecutor)
+            .thenCompose(Function.identity()));
+      }
+    }
+
+    // Write results as JSON array straight to the response output stream
+    response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+    ObjectWriter resultWriter = objectMapper.writerFor(BatchMessageResult.class);
+    try (JsonGenerator generator = objectMapper.getFactory()
+        .createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+      generator.writeStartArray();
+      for (Future<BatchMessageResult> result : results) {
+        resultWriter.writeValue(generator, awaitBatchMessageResult(result));
+      }
+      generator.writeEndArray();
     }
   }
 
   /**
-   * @param message String-based message to extract message object with just the type property.
-   * @return Message object with just the type property de-serialized.
-   * @throws BadMessageFormatException If anything goes wrong during de-serialization.
+   * @param batchInputStream Stream of the JSON array of messages.
+   * @return Buffered tokens of every message in the batch, in their original order.
+   * @throws BadMessageFormatException If the batch is not a valid JSON array.
+   * @throws PayloadTooLargeException If the batch contains more messages than allowed.
    */
-  private String extractMessageType(String message) {
-    // Create Jackson JSON/Object mapper
-    ObjectMapper mapper = new ObjectMapper();
+  private List<TokenBuffer> readBatchMessages(InputStream batchInputStream) {
 
+    List<TokenBuffer> messages = new ArrayList<>();
+    JsonParser parser = messageDispatcher.createParser(batchInputStream);
     try {
-      // Deserialize message just to find out the type identifier
-      MessageWithJustType messageWithJustType = mapper
-          .readValue(message, MessageWithJustType.class);
+      if (parser.nextToken() != JsonToken.START_ARRAY) {
+        throw JsonMappingException.from(parser, "Batch of messages must be a JSON array.");
+      }
+
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+
+        // Stop reading as soon as the batch is too large, so it is never held in memory
+        if (messages.size() >= batchMaxMessages) {
+          String logMessage = "Batch of messages contains more than " + batchMaxMessages
+              + " messages. Please split it into smaller batches.";
+          log.warning(logMessage);
+          throw new PayloadTooLargeException(logMessage);
+        }
 
-      return messageWithJustType.getType();
+        TokenBuffer message = new TokenBuffer(parser);
+        message.copyCurrentStructure(parser);
+        messages.add(message);
+      }
+
+      return messages;
 
     } catch (IOException e) {
-      String logMessage = "Error deserializing message type identifier from JSON: " + message
-          + ". Please verify that the message being sent contains the [type] property and that"
-          + " the message is valid JSON.";
+      String logMessage = "Error reading batch of messages from JSON at "
+          + parser.getCurrentLocation() + ". Please verify that the batch being sent is a valid"
+          + " JSON array of messages.";
       log.severe(logMessage);
       throw new BadMessageFormatException(logMessage, e);
     }
   }
 
   /**
-   * @param message String-based message to extract the complete concrete object from based on
-   * processor's compatible message type.
-   * @param messageProcessor Message processor compatible with message (by its string type ID).
-   * @param <MessageT> Concrete message type.
-   * @param <MessageResponseT> Concrete message response type.
-   * @return Object of concrete MessageT type, de-serialized from the string-based message.
-   * @throws BadMessageFormatException If anything goes wrong during de-serialization.
+   * Processes a single message of a batch or a stream the same way as a message sent on its own,
+   * i.e., subject to the rate limit of its type, answered from the response cache, admitted by
+   * the adaptive concurrency limiter, coalesced with an identical pending message, and processed
+   * with its asynchronous message processor, on its bulkhead or on a virtual thread. Asynchronous
+   * processing does not block the calling thread.
+   *
+   * @param message Buffered tokens of a single message of a batch or a stream.
+   * @return Future of the result of processing the <code>message</code>, successful or not. Never
+   * completes exceptionally.
    */
-  private <MessageT extends Message<MessageResponseT>,
-      MessageResponseT extends MessageResponse> MessageT extractConcreteMessage(
-      String message,
-      MessageProcessor<MessageT, MessageResponseT> messageProcessor) {
+  private CompletableFuture<BatchMessageResult> processBatchMessage(TokenBuffer message) {
+
+    CompletableFuture<byte[]> futureResponseBytes;
+    try {
+      ReceivedMessage<?, ?> receivedMessage = messageDispatcher
+          .readMessage(message.asParser(objectMapper));
+      if (receivedMessage.getCachedResponse() != null) {
+        return CompletableFuture.completedFuture(
+            BatchMessageResult.success(receivedMessage.getCachedResponse()));
+      }
+      futureResponseBytes = processAdmitted(receivedMessage);
+    } catch (RuntimeException e) {
+      return CompletableFuture.completedFuture(BatchMessageResult.failure(e));
+    }
 
-    ObjectMapper mapper = new ObjectMapper();
+    return futureResponseBytes.handle((responseBytes, error) -> error == null
+        ? BatchMessageResult.success(responseBytes) : BatchMessageResult.failure(error));
+  }
 
-    // Retrieve message processor's message class type
-    Class<MessageT> processorMessageClassType = messageProcessor.getCompatibleMessageClassType();
+  /**
+   * Processes the <code>receivedMessage</code> once it is admitted by the adaptive concurrency
+   * limiter, if it is enabled, sharing the processing of an identical pending message of a
+   * coalesced type, if there is one.
+   *
+   * @param receivedMessage Concretely typed message along with the descriptor of its processor.
+   * @return Future of the UTF-8 encoded JSON message response.
+   * @throws com.clearlydecoded.messenger.exception.ServiceUnavailableException If the concurrency
+   * limit or the bulkhead of the message type is reached.
+   */
+  private CompletableFuture<byte[]> processAdmitted(ReceivedMessage<?, ?> receivedMessage) {
 
+    long admittedAt = concurrencyLimiter != null ? concurrencyLimiter.acquire() : 0;
+    CompletableFuture<byte[]> futureResponseBytes = null;
     try {
+      futureResponseBytes = messageDispatcher
+          .coalesce(receivedMessage, () -> processAsBytes(receivedMessage));
+    } finally {
+      if (futureResponseBytes == null) {
+        releaseConcurrencyLimit(admittedAt);
+      }
+    }
 
-      // Attempt to deserialize string message using message processor's message class type
-      return mapper.readValue(message, processorMessageClassType);
+    return futureResponseBytes
+        .whenComplete((responseBytes, error) -> releaseConcurrencyLimit(admittedAt));
+  }
 
-    } catch (IOException e) {
-      String errorMessage = "Error deserializing " + message + " to " + processorMessageClassType
-          + ". Please verify that the message is valid JSON, no unrelated properties are included,"
-          + " and that the required message properties are present.";
+  /**
+   * @param result Pending result of processing a single message of a batch.
+   * @return Result of processing the message once it's done.
+   */
+  private BatchMessageResult awaitBatchMessageResult(Future<BatchMessageResult> result) {
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return BatchMessageResult.failure(new IllegalStateException("Interrupted.", e));
+    } catch (ExecutionException e) {
+      return BatchMessageResult.failure(e.getCause());
+    }
+  }
 
-      // Add to the log message a hint for server-side developers
-      String logMessage = " Also, verify that the [" + processorMessageClassType + "] contains"
-          + " correct Jackson annotations for properties that can be ignored and properties that"
-          + " are required.";
-      log.severe(errorMessage + logMessage);
+  /**
+   * Retrieves the counters of the response cache. Only message types marked with
+   * {@link com.clearlydecoded.messenger.CacheableResponse} that were received at least once are
+   * included.
+   *
+   * @return Snapshot of the hit, miss and eviction counters, and the number of cached responses, of
+   * each cacheable message type, keyed by message type.
+   */
+  public Map<String, ResponseCacheStatistics> getResponseCacheStatistics() {
+    return messageDispatcher.getResponseCacheStatistics();
+  }
 
-      throw new BadMessageFormatException(errorMessage, e);
-    }
+  /**
+   * Retrieves how many messages were coalesced. Only message types marked with
+   * {@link com.clearlydecoded.messenger.CoalescedProcessing} that were coalesced at least once are
+   * included.
+   *
+   * @return Number of messages of each coalesced message type that shared the processing of an
+   * identical message instead of being processed themselves, keyed by message type.
+   */
+  public Map<String, Long> getCoalescedCounts() {
+    return messageDispatcher.getCoalescedCounts();
   }
 
   /**
-   * Validates processor received message according to the JSR-380 if the message is annotated with
-   * {@link Valid}.
+   * Retrieves the state of the adaptive concurrency limit of the <code>/process</code> endpoint.
    *
-   * @param messageProcessor Message processor whose message to potentially validate.
-   * @param messageObject Message object to potentially validate.
-   * @throws ValidationException If validation is triggered and fails. All of the validation
-   * messages will be comma-separated in the exception message. Additional information about the
-   * fields that failed validation is contained in this exception instance as well.
+   * @return Snapshot of the current limit, the number of messages in flight, and the rejections,
+   * or <code>null</code> if the adaptive concurrency limit is not enabled.
    */
-  private void validateMessage(MessageProcessor messageProcessor, Object messageObject) {
-    try {
-      Method method = messageProcessor.getClass()
-          .getDeclaredMethod("process", messageProcessor.getCompatibleMessageClassType());
-
-      // Extract annotations for the 1st and only parameter
-      Annotation[] messageAnnotations = method.getParameterAnnotations()[0];
-
-      // Validate if @Valid is one of the annotations
-      final List<ValidationErrorInfo> validationErrors = new ArrayList<>();
-      Arrays.stream(messageAnnotations)
-          .filter(Valid.class::isInstance)
-          .findAny()
-          .ifPresent(annotation -> {
-
-            // Execute validation on the message object
-            Set<ConstraintViolation<Object>> violations = validator.validate(messageObject);
-
-            // Extract custom validation error info from each violation
-            for (ConstraintViolation<Object> violation : violations) {
-              ValidationErrorInfo validationError = new ValidationErrorInfo(
-                  violation.getPropertyPath().toString(),
-                  violation.getMessage());
-              validationErrors.add(validationError);
-            }
-
-            // Create exception object and combine all validation error messages together
-            final ValidationException validationException = new ValidationException();
-            validationException.setErrors(validationErrors);
-            validationErrors.stream()
-                .map(ValidationErrorInfo::getDefaultMessage)
-                .reduce((violationMessages, violationMessage) ->
-                    String.format("%s, %s", violationMessages, violationMessage))
-                .ifPresent(validationException::setMessage);
-
-            // If at least 1 validation error, throw exception
-            if (validationErrors.size() > 0) {
-              throw validationException;
-            }
-          });
-    } catch (NoSuchMethodException e) {
-      String message = "Unable to execute validation.";
-      log.severe(message + ": " + e);
-      throw new RuntimeException(message, e);
+  public ConcurrencyLimitStatistics getConcurrencyLimitStatistics() {
+    return concurrencyLimiter != null ? concurrencyLimiter.getStatistics() : null;
+  }
+
+  /**
+   * Adds a listener to be told about every message exchange of the <code>/process</code> endpoint.
+   * Exchanges are only followed while at least one listener is added.
+   *
+   * @param exchangeListener Listener to add.
+   */
+  public void addExchangeListener(MessageExchangeListener exchangeListener) {
+    exchangeListeners.add(exchangeListener);
+  }
+
+  /**
+   * Retrieves the latency histograms of the phases of every message type, summarized as count,
+   * mean, p50, p99, p99.9 and max, in microseconds. Only message types and phases that completed at
+   * least once are included.
+   *
+   * @param interval Flag to summarize only the latencies recorded since the previous interval
+   * summary, instead of every latency recorded so far.
+   * @return Map of message types to a map of phase names, e.g., <code>processing</code>, to the
+   * summary of their latencies, or an empty map if metrics are not enabled.
+   */
+  public Map<String, Map<String, LatencyStatistics>> getLatencyStatistics(boolean interval) {
+    return latencyMetrics != null ? latencyMetrics.getStatistics(interval)
+        : Collections.emptyMap();
+  }
+
+  /**
+   * Stops the executors used for processing messages of batches and streams, on virtual threads,
+   * and on bulkheads.
+   */
+  @PreDestroy
+  private void shutdown() {
+    if (batchExecutor != null) {
+      batchExecutor.shutdown();
+    }
+    if (streamExecutor != null) {
+      streamExecutor.shutdown();
+    }
+    if (virtualThreadExecutor != null) {
+      virtualThreadExecutor.shutdown();
     }
+    if (bulkheads != null) {
+      bulkheads.shutdown();
+    }
+  }
+
+  /**
+   * @param interval Flag to summarize only the latencies recorded since the previous interval
+   * summary, i.e., <code>'/process/metrics?interval=true'</code>.
+   * @return Summaries of the latency histograms of the phases of every message type as JSON.
+   */
+  @ResponseBody
+  private Map<String, Map<String, LatencyStatistics>> getMetrics(
+      @RequestParam(name = "interval", defaultValue = "false") boolean interval) {
+    return getLatencyStatistics(interval);
+  }
+
+  /**
+   * Discards every latency recorded so far, including the start of the current interval.
+   */
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  private void resetMetrics() {
+    latencyMetrics.reset();
+  }
+
+  /**
+   * Serves the HTML page that displays all the documentation for the system discovered message
+   * processors. The page is rendered once and served from memory until processors are added or
+   * removed; a request that already holds it, per its ETag, gets HTTP 304 without a body.
+   *
+   * @param request HTTP request for the page.
+   * @return Pre-rendered HTML page.
+   * @throws ServiceUnavailableException If the documentation is still being generated.
+   */
+  private ResponseEntity<byte[]> getProcessorDocs(HttpServletRequest request)
+      throws ServiceUnavailableException {
+    return documentationResponses.getHtml(request);
+  }
+
+  /**
+   * Serves the list of {@link RestProcessorDocumentation}s as JSON. The JSON is written once and
+   * served from memory until processors are added or removed; a request that already holds it, per
+   * its ETag, gets HTTP 304 without a body.
+   *
+   * @param request HTTP request for the docs.
+   * @return Pre-rendered JSON docs.
+   * @throws ServiceUnavailableException If the documentation is still being generated.
+   */
+  private ResponseEntity<byte[]> getJsonProcessorDocs(HttpServletRequest request)
+      throws ServiceUnavailableException {
+    return documentationResponses.getJson(request);
+  }
+
+  /**
+   * Waits for the documentation of the registered processors to be generated, e.g., before
+   * reporting the application as ready or in tests. The docs endpoints return HTTP 503 until then.
+   *
+   * @param timeout Maximum time to wait.
+   * @param unit Time unit of the <code>timeout</code>.
+   * @return <code>true</code> if the documentation is generated, <code>false</code> if the
+   * <code>timeout</code> elapsed first.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  public boolean awaitDocumentation(long timeout, TimeUnit unit) throws InterruptedException {
+    return documentationProvider.awaitDocumentation(timeout, unit);
   }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link TokenBucket} class is a lock-free token bucket. Instead of a token count and the time of
+ * the last refill, which would need to be updated together, its whole state is a single
+ * <code>long</code>: the time at which the bucket will be full again, also known as the
+ * theoretical arrival time of the generic cell rate algorithm (GCRA). Taking a token pushes that
+ * time one refill interval further out with a single compare-and-set.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class TokenBucket {
+
+  /**
+   * Time it takes to refill one token, in nanoseconds.
+   */
+  private final long refillIntervalNanos;
+
+  /**
+   * Time it takes to refill the whole bucket from empty, in nanoseconds.
+   */
+  private final long capacityNanos;
+
+  /**
+   * Value of {@link System#nanoTime()} at which the bucket will be full again. The bucket is full
+   * whenever this is in the past.
+   */
+  private final AtomicLong fullAt;
+
+  /**
+   * Constructor.
+   *
+   * @param permitsPerSecond Number of tokens refilled per second.
+   * @param burst Maximum number of tokens the bucket holds.
+   * @param nowNanos Current value of {@link System#nanoTime()}. The bucket starts out full.
+   */
+  TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+    this.refillIntervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+    this.capacityNanos = refillIntervalNanos * Math.max(1, burst);
+    this.fullAt = new AtomicLong(nowNanos);
+  }
+
+  /**
+   * Takes a token, if there is one.
+   *
+   * @param nowNanos Current value of {@link System#nanoTime()}.
+   * @return <code>0</code> if a token was taken, otherwise the number of nanoseconds until a token
+   * will be available.
+   */
+  long tryAcquire(long nowNanos) {
+    long currentFullAt;
+    long newFullAt;
+    do {
+      currentFullAt = fullAt.get();
+      newFullAt = (currentFullAt - nowNanos > 0 ? currentFullAt : nowNanos) + refillIntervalNanos;
+
+      // Taking a token would leave the bucket needing longer than its capacity to refill
+      long overdraftNanos = newFullAt - nowNanos - capacityNanos;
+      if (overdraftNanos > 0) {
+        return overdraftNanos;
+      }
+    } while (!fullAt.compareAndSet(currentFullAt, newFullAt));
+
+    return 0;
+  }
+
+  /**
+   * @param nowNanos Current value of {@link System#nanoTime()}.
+   * @return <code>true</code> if the bucket is full, i.e., it behaves exactly like a new bucket
+   * and can be discarded.
+   */
+  boolean isFull(long nowNanos) {
+    return fullAt.get() - nowNanos <= 0;
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.Message;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+
+/**
+ * {@link TypedMessageParser} class reads a JSON message in a single pass. It scans the tokens of
+ * the message until it finds the <code>type</code> property, buffering every token it sees before
+ * it. Once the concrete {@link Message} class is known, the buffered tokens are replayed, followed
+ * by the rest of the message straight from the underlying parser, so the message is never parsed
+ * twice.
+ *
+ * <p>The message type is looked up in the registry straight from the characters the parser holds,
+ * so a message of a registered type is identified without creating a string for its type.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+class TypedMessageParser {
+
+  /**
+   * Name of the property that holds the string-based message type identifier.
+   */
+  private static final String TYPE_PROPERTY = "type";
+
+  /**
+   * Parser positioned over the raw JSON message.
+   */
+  private final JsonParser parser;
+
+  /**
+   * Tokens read from the <code>parser</code> up to and including the <code>type</code> property.
+   */
+  private final TokenBuffer bufferedTokens;
+
+  /**
+   * Flag to indicate that the whole message was consumed while looking for the <code>type</code>
+   * property, i.e., the message does not contain one.
+   */
+  private boolean messageConsumed;
+
+  /**
+   * String-based type identifier of the message, once scanned. <code>null</code> if the message
+   * does not contain the <code>type</code> property.
+   */
+  private String messageType;
+
+  /**
+   * Constructor.
+   *
+   * @param parser Parser positioned before the first token of the JSON message.
+   */
+  TypedMessageParser(JsonParser parser) {
+    this.parser = parser;
+    this.bufferedTokens = new TokenBuffer(parser);
+  }
+
+  /**
+   * Scans the message up to its <code>type</code> property, buffering the tokens that precede it,
+   * and looks up the descriptor of the processor of its type. The type identifier of a registered
+   * message type is taken from its descriptor rather than created from the parsed characters.
+   *
+   * @param registry Registry to look up the message type in.
+   * @return Descriptor of the processor of the message type or <code>null</code> if the message
+   * does not contain the <code>type</code> property or no processor is registered for its type.
+   * @throws IOException If the message is not valid JSON or is not a JSON object.
+   */
+  MessageProcessorDescriptor<?, ?> scanMessageDescriptor(MessageProcessorRegistry registry)
+      throws IOException {
+
+    if (parser.nextToken() != JsonToken.START_OBJECT) {
+      throw JsonMappingException.from(parser, "Message must be a JSON object.");
+    }
+    bufferedTokens.writeStartObject();
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String propertyName = parser.getCurrentName();
+      JsonToken valueToken = parser.nextToken();
+      bufferedTokens.writeFieldName(propertyName);
+
+      // Stop scanning as soon as the type property is found
+      if (TYPE_PROPERTY.equals(propertyName)) {
+        if (!valueToken.isScalarValue()) {
+          throw JsonMappingException.from(parser, "Message [type] property must be a string.");
+        }
+        return lookUpMessageDescriptor(registry, valueToken);
+      }
+
+      // Buffer the property value, including any nested objects or arrays
+      bufferedTokens.copyCurrentStructure(parser);
+    }
+
+    // Reached the end of the message without finding the type property
+    bufferedTokens.writeEndObject();
+    messageConsumed = true;
+    return null;
+  }
+
+  /**
+   * Looks up the descriptor of the message type the parser is positioned at and buffers the type.
+   *
+   * @param registry Registry to look up the message type in.
+   * @param valueToken Token of the value of the <code>type</code> property.
+   * @return Descriptor of the processor of the message type or <code>null</code> if no processor is
+   * registered for it.
+   * @throws IOException If the value of the <code>type</code> property can not be read.
+   */
+  private MessageProcessorDescriptor<?, ?> lookUpMessageDescriptor(
+      MessageProcessorRegistry registry, JsonToken valueToken) throws IOException {
+
+    // Look up string type identifiers by the characters in the parser's buffer
+    MessageProcessorDescriptor<?, ?> descriptor = null;
+    if (valueToken == JsonToken.VALUE_STRING) {
+      descriptor = registry.getDescriptorFor(parser.getTextCharacters(), parser.getTextOffset(),
+          parser.getTextLength());
+    }
+
+    if (descriptor != null) {
+      messageType = descriptor.getMessageType();
+      bufferedTokens.writeString(messageType);
+      return descriptor;
+    }
+
+    // Not a registered string type identifier, so this is an error path and may allocate
+    messageType = parser.getValueAsString();
+    bufferedTokens.copyCurrentEvent(parser);
+    return messageType == null || valueToken == JsonToken.VALUE_STRING ? null
+        : registry.getDescriptorFor(messageType);
+  }
+
+  /**
+   * @return String-based type identifier of the message, once scanned. <code>null</code> if the
+   * message does not contain the <code>type</code> property.
+   */
+  String getMessageType() {
+    return messageType;
+  }
+
+  /**
+   * @return Location of the parser within the message, used for error reporting.
+   */
+  JsonLocation getCurrentLocation() {
+    return parser.getCurrentLocation();
+  }
+
+  /**
+   * Buffers the rest of the message, so that it can be read more than once, e.g., to compute its
+   * cache key and then to bind it to its concrete message class. Must be called after
+   * {@link #scanMessageDescriptor(MessageProcessorRegistry)}.
+   *
+   * @return Buffered tokens of the whole message.
+   * @throws IOException If the message is not valid JSON.
+   */
+  TokenBuffer bufferMessage() throws IOException {
+    if (!messageConsumed) {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        bufferedTokens.copyCurrentStructure(parser);
+      }
+      bufferedTokens.writeEndObject();
+      messageConsumed = true;
+    }
+
+    return bufferedTokens;
+  }
+
+  /**
+   * Binds the message to its concrete message class, first replaying the buffered
+   * tokens and then reading the rest of the message from the underlying parser.
+   *
+   * @param messageReader Jackson reader prepared for the concrete message class.
+   * @param <MessageT> Concrete message type.
+   * @return Message of the concrete message class.
+   * @throws IOException If the message can not be bound to the concrete message class.
+   */
+  <MessageT> MessageT readMessage(ObjectReader messageReader) throws IOException {
+
+    JsonParser bufferedParser = bufferedTokens.asParser(parser);
+    JsonParser messageParser = messageConsumed ? bufferedParser
+        : JsonParserSequence.createFlattened(false, bufferedParser, parser);
+
+    return messageReader.readValue(messageParser);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package com.clearlydecoded.messenger.rest;
+
+import com.clearlydecoded.messenger.Message;
+import com.clearlydecoded.messenger.MessageProcessor;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageResponse;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import lombok.extern.java.Log;
+
+/**
+ * {@link VirtualThreadMessageExecutor} class runs message processors on virtual threads, one per
+ * message, so that processors making blocking calls (e.g., JDBC or HTTP) no longer hold on to
+ * container threads while they wait.
+ *
+ * <p>Virtual threads are only available on Java 21 or later. Since this library is built for
+ * Java 8, the virtual thread executor is looked up reflectively and {@link #create(int)} returns
+ * <code>null</code> on older runtimes.</p>
+ *
+ * <p>The number of messages of the same type processed at the same time can be limited. Messages
+ * over the limit wait on their own virtual thread, which is cheap, until a slot frees up.</p>
+ *
+ * <p>A virtual thread that blocks inside a <code>synchronized</code> method or block pins its
+ * carrier thread on Java versions before 24, which can starve all other virtual threads. Message
+ * processors should guard shared state with {@link java.util.concurrent.locks.ReentrantLock}
+ * instead. {@link #warnAboutPinning(MessageProcessorRegistry)} detects <code>synchronized</code>
+ * processing methods; <code>synchronized</code> blocks can be found at runtime by running with
+ * <code>-Djdk.tracePinnedThreads=full</code>.</p>
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Log
+class VirtualThreadMessageExecutor {
+
+  /**
+   * Executor that starts a new virtual thread for each message.
+   */
+  private final ExecutorService executor;
+
+  /**
+   * Maximum number of messages of the same type processed at the same time, or <code>0</code> if
+   * unlimited.
+   */
+  private final int maxConcurrencyPerType;
+
+  /**
+   * Limits of concurrently processed messages, keyed by message type.
+   */
+  private final Map<String, Semaphore> typeLimits = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param executor Executor that starts a new virtual thread for each message.
+   * @param maxConcurrencyPerType Maximum number of messages of the same type processed at the same
+   * time, or <code>0</code> if unlimited.
+   */
+  private VirtualThreadMessageExecutor(ExecutorService executor, int maxConcurrencyPerType) {
+    this.executor = executor;
+    this.maxConcurrencyPerType = maxConcurrencyPerType;
+  }
+
+  /**
+   * Creates the executor if the Java runtime supports virtual threads.
+   *
+   * @param maxConcurrencyPerType Maximum number of messages of the same type processed at the same
+   * time, or <code>0</code> if unlimited.
+   * @return New executor or <code>null</code> if the Java runtime does not support virtual threads.
+   */
+  static VirtualThreadMessageExecutor create(int maxConcurrencyPerType) {
+    try {
+      Method factoryMethod = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      ExecutorService executor = (ExecutorService) factoryMethod.invoke(null);
+      return new VirtualThreadMessageExecutor(executor, Math.max(0, maxConcurrencyPerType));
+
+    } catch (ReflectiveOperationException e) {
+      String logMessage = "REST-MESSENGER virtual threads were requested, but Java "
+          + System.getProperty("java.version") + " does not support them. Virtual threads require"
+          + " Java 21 or later. Messages will be processed on the container threads.";
+      log.warning(logMessage);
+      return null;
+    }
+  }
+
+  /**
+   * Processes the <code>receivedMessage</code> on a new virtual thread, waiting for a slot first if
+   * its message type is at its concurrency limit.
+   *
+   * @param messageDispatcher Dispatcher that routes the message to its message processor.
+   * @param receivedMessage Concretely typed message along with the descriptor of its processor.
+   * @param <MessageT> Concrete message type.
+   * @param <MessageResponseT> Concrete message response type.
+   * @return Future of the message response. Exceptions thrown by the message processor complete
+   * the future exceptionally.
+   */
+  <MessageT extends Message<MessageResponseT>, MessageResponseT extends MessageResponse>
+  CompletableFuture<MessageResponseT> process(MessageDispatcher messageDispatcher,
+      ReceivedMessage<MessageT, MessageResponseT> receivedMessage) {
+
+    CompletableFuture<MessageResponseT> futureResponse = new CompletableFuture<>();
+    Semaphore typeLimit = maxConcurrencyPerType == 0 ? null : typeLimits.computeIfAbsent(
+        receivedMessage.getDescriptor().getMessageType(),
+        messageType -> new Semaphore(maxConcurrencyPerType));
+
+    executor.execute(() -> {
+      try {
+        if (typeLimit != null) {
+          typeLimit.acquire();
+        }
+        try {
+          futureResponse.complete(messageDispatcher.processMessage(receivedMessage));
+        } finally {
+          if (typeLimit != null) {
+            typeLimit.release();
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        futureResponse.completeExceptionally(e);
+      } catch (Throwable e) {
+        futureResponse.completeExceptionally(e);
+      }
+    });
+
+    return futureResponse;
+  }
+
+  /**
+   * Stops accepting new messages.
+   */
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  /**
+   * Logs a warning for each registered message processor whose processing method is
+   * <code>synchronized</code>, since it pins the carrier thread of every virtual thread waiting to
+   * enter it.
+   *
+   * @param processorRegistry Registry whose message processors to inspect.
+   */
+  static void warnAboutPinning(MessageProcessorRegistry processorRegistry) {
+    for (MessageProcessor<?, ?> processor : processorRegistry.getProcessors()) {
+      for (Class<?> type = processor.getClass(); type != null; type = type.getSuperclass()) {
+        for (Method method : type.getDeclaredMethods()) {
+          if (method.getName().equals("process")
+              && Modifier.isSynchronized(method.getModifiers())) {
+            String logMessage = "REST-MESSENGER message processor ["
+                + processor.getClass().getName() + "] has a synchronized process method. On Java"
+                + " versions before 24, it pins the carrier thread of every virtual thread that"
+                + " runs or waits for it. Consider using java.util.concurrent.locks.ReentrantLock"
+                + " instead.";
+            log.warning(logMessage);
+          }
+        }
+      }
+    }
+  }
+}
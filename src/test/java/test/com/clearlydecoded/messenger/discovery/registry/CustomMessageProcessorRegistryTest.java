@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.discovery.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.clearlydecoded.messenger.Message;
+import com.clearlydecoded.messenger.MessageProcessor;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * {@link CustomMessageProcessorRegistryTest} class is used to test the default methods of the
+ * {@link MessageProcessorRegistry} interface with a registry that only implements the methods it
+ * has to.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public class CustomMessageProcessorRegistryTest {
+
+  @Test
+  public void testDescriptorIsCompiledOncePerProcessor() {
+    MapMessageProcessorRegistry registry = new MapMessageProcessorRegistry();
+    Message2Processor processor = new Message2Processor();
+    registry.addProcessor(processor);
+
+    MessageProcessorDescriptor<?, ?> descriptor = registry.getDescriptorFor(Message2.TYPE);
+    assertSame(processor, descriptor.getProcessor());
+    assertEquals(Message2.class, descriptor.getMessageClass());
+    assertSame("Descriptor should be reused.", descriptor,
+        registry.getDescriptorFor(Message2.TYPE));
+    char[] typeCharacters = ("{" + Message2.TYPE + "}").toCharArray();
+    assertSame("Descriptor should be reused.", descriptor,
+        registry.getDescriptorFor(typeCharacters, 1, Message2.TYPE.length()));
+  }
+
+  @Test
+  public void testReplacedProcessorGetsItsOwnDescriptor() {
+    MapMessageProcessorRegistry registry = new MapMessageProcessorRegistry();
+    registry.addProcessor(new Message2Processor());
+    MessageProcessorDescriptor<?, ?> descriptor = registry.getDescriptorFor(Message2.TYPE);
+
+    Message2Processor replacement = new Message2Processor();
+    registry.addProcessor(replacement);
+
+    MessageProcessorDescriptor<?, ?> replacementDescriptor = registry
+        .getDescriptorFor(Message2.TYPE);
+    assertNotSame(descriptor, replacementDescriptor);
+    assertSame(replacement, replacementDescriptor.getProcessor());
+  }
+
+  @Test
+  public void testUnknownMessageTypeHasNoDescriptor() {
+    assertNull(new MapMessageProcessorRegistry().getDescriptorFor(Message2.TYPE));
+  }
+
+  /**
+   * {@link MapMessageProcessorRegistry} class is a registry that only implements the methods of
+   * {@link MessageProcessorRegistry} without a default implementation.
+   */
+  private static class MapMessageProcessorRegistry implements MessageProcessorRegistry {
+
+    private final Map<String, MessageProcessor<? extends Message<? extends MessageResponse>,
+        ? extends MessageResponse>> processors = new LinkedHashMap<>();
+
+    @Override
+    public void addProcessor(MessageProcessor<? extends Message<? extends MessageResponse>,
+        ? extends MessageResponse> processor) {
+      processors.put(processor.getCompatibleMessageType(), processor);
+    }
+
+    @Override
+    public void addProcessors(List<? extends MessageProcessor<? extends Message<?
+        extends MessageResponse>, ? extends MessageResponse>> processors) {
+      processors.forEach(this::addProcessor);
+    }
+
+    @Override
+    public MessageProcessor<? extends Message<? extends MessageResponse>,
+        ? extends MessageResponse> getProcessorFor(String messageType) {
+      return processors.get(messageType);
+    }
+
+    @Override
+    public void removeProcessor(String messageType) {
+      processors.remove(messageType);
+    }
+
+    @Override
+    public List<MessageProcessor<? extends Message<? extends MessageResponse>,
+        ? extends MessageResponse>> getProcessors() {
+      return new ArrayList<>(processors.values());
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.discovery.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.clearlydecoded.messenger.DefaultMessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageProcessor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+
+/**
+ * {@link DefaultMessageProcessorRegistryConcurrencyTest} class is used to test changing the
+ * message processor registry while it is being read.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public class DefaultMessageProcessorRegistryConcurrencyTest {
+
+  @Test
+  public void testReadersSeeConsistentSnapshotsWhileProcessorsChange() throws Exception {
+    DefaultMessageProcessorRegistry registry = new DefaultMessageProcessorRegistry();
+    registry.addProcessor(new Message1Handler());
+
+    AtomicBoolean done = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      List<Future<?>> readers = Arrays.asList(
+          executor.submit(() -> {
+            while (!done.get()) {
+              assertNotNull("Processor that is never removed should always be found.",
+                  registry.getDescriptorFor(Message1.TYPE));
+            }
+          }),
+          executor.submit(() -> {
+            while (!done.get()) {
+              List<MessageProcessor<?, ?>> processors = (List) registry.getProcessors();
+              assertTrue("Snapshot should hold 1 to 3 processors.",
+                  processors.size() >= 1 && processors.size() <= 3);
+              assertTrue("Processor that is never removed should be in every snapshot.",
+                  processors.get(0) instanceof Message1Handler);
+            }
+          }));
+
+      // Add and remove processors, one at a time and in batches, while the readers run
+      Future<?> writer = executor.submit(() -> {
+        for (int i = 0; i < 2000; i++) {
+          registry.addProcessor(new Message2Processor());
+          registry.addProcessors(Arrays.asList(new Message3Processor()));
+          registry.removeProcessor(Message2.TYPE);
+          registry.removeProcessor(Message3.TYPE);
+        }
+      });
+      writer.get(30, TimeUnit.SECONDS);
+      done.set(true);
+      for (Future<?> reader : readers) {
+        reader.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals(1, registry.getProcessors().size());
+    assertNull(registry.getProcessorFor(Message2.TYPE));
+  }
+
+  @Test
+  public void testReturnedProcessorsAreNotAffectedByLaterChanges() {
+    DefaultMessageProcessorRegistry registry = new DefaultMessageProcessorRegistry();
+    registry.addProcessor(new Message1Handler());
+
+    List<?> processors = registry.getProcessors();
+    registry.addProcessor(new Message2Processor());
+    registry.removeProcessor(Message1.TYPE);
+
+    assertEquals(1, processors.size());
+    assertTrue(processors.get(0) instanceof Message1Handler);
+    assertEquals(1, registry.getProcessors().size());
+    assertTrue(registry.getProcessors().get(0) instanceof Message2Processor);
+  }
+
+  @Test
+  public void testBatchWithInvalidProcessorKeepsProcessorsAddedBeforeIt() {
+    DefaultMessageProcessorRegistry registry = new DefaultMessageProcessorRegistry();
+    registry.addProcessor(new Message1Handler());
+
+    try {
+      registry.addProcessors(Arrays.asList(new Message2Processor(), new Message1Handler()));
+      fail("A processor of Message1 is already registered.");
+    } catch (IllegalStateException e) {
+      // Expected, since a processor of Message1 is already registered
+    }
+
+    assertNotNull(registry.getProcessorFor(Message2.TYPE));
+    assertEquals(2, registry.getProcessors().size());
+  }
+
+  @Test
+  public void testLargeBatchIsRegisteredInOrderWithDuplicatesDetected() {
+    DefaultMessageProcessorRegistry registry = new DefaultMessageProcessorRegistry();
+
+    // Large enough to be validated and compiled in parallel
+    List<MessageProcessor<?, ?>> processors = new ArrayList<>(Arrays.asList(
+        new Message1Handler(), new Message2Processor(), new Message3Processor()));
+    while (processors.size() < 32) {
+      processors.add(new Message2Processor());
+    }
+
+    try {
+      registry.addProcessors((List) processors);
+      fail("The 4th processor processes the same message type as the 2nd one.");
+    } catch (IllegalStateException e) {
+      assertTrue("The 1st duplicate should be reported.",
+          e.getMessage().contains(Message2.TYPE));
+    }
+
+    List<?> registeredProcessors = registry.getProcessors();
+    assertEquals(3, registeredProcessors.size());
+    assertSame(processors.get(0), registeredProcessors.get(0));
+    assertSame(processors.get(1), registeredProcessors.get(1));
+    assertSame(processors.get(2), registeredProcessors.get(2));
+    assertSame(processors.get(1), registry.getProcessorFor(Message2.TYPE));
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.discovery.registry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.clearlydecoded.messenger.DefaultMessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.discovery.MessageProcessorIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@link MessageProcessorIndexTest} class is used to test registering message processors from the
+ * build-time message processor index.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public class MessageProcessorIndexTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testIndexedProcessorIsRegisteredWithoutAskingIt() {
+    Properties properties = new Properties();
+    properties.setProperty(WontBeDiscoveredProcessor.class.getName(), Message2.class.getName()
+        + "," + Message2Response.class.getName() + "," + Message2.TYPE);
+    DefaultMessageProcessorRegistry registry = new DefaultMessageProcessorRegistry(
+        new ObjectMapper(), new MessageProcessorIndex(properties));
+
+    // The processor returns null for its message type and classes, only the index knows them
+    WontBeDiscoveredProcessor processor = new WontBeDiscoveredProcessor();
+    registry.addProcessor(processor);
+
+    MessageProcessorDescriptor<?, ?> descriptor = registry.getDescriptorFor(Message2.TYPE);
+    assertSame(processor, descriptor.getProcessor());
+    assertEquals(Message2.class, descriptor.getMessageClass());
+    assertEquals(Message2Response.class, descriptor.getMessageResponseClass());
+  }
+
+  @Test
+  public void testProcessorMissingFromIndexIsValidated() {
+    DefaultMessageProcessorRegistry registry = new DefaultMessageProcessorRegistry(
+        new ObjectMapper(), MessageProcessorIndex.EMPTY);
+
+    try {
+      registry.addProcessor(new WontBeDiscoveredProcessor());
+      fail("Processor does not declare its message type and classes.");
+    } catch (RuntimeException e) {
+      // Expected, since the processor is validated at registration
+    }
+    assertNull(registry.getProcessorFor(Message2.TYPE));
+  }
+
+  @Test
+  public void testIndexOfEveryJarIsLoaded() throws Exception {
+    URL firstJar = writeIndex("first", Message1Handler.class, Message1.class,
+        Message1Response.class, Message1.TYPE);
+    URL secondJar = writeIndex("second", Message2Processor.class, Message2.class,
+        Message2Response.class, Message2.TYPE);
+
+    MessageProcessorIndex index;
+    try (URLClassLoader classLoader = new URLClassLoader(new URL[]{firstJar, secondJar}, null)) {
+      index = MessageProcessorIndex.load(classLoader);
+    }
+
+    assertEquals(2, index.size());
+    assertEquals(Message1.TYPE, index.get(Message1Handler.class).getMessageType());
+    assertEquals(Message2.class, index.get(Message2Processor.class).getMessageClass());
+    assertNull(index.get(Message3Processor.class));
+  }
+
+  private URL writeIndex(String jarName, Class<?> processorClass, Class<?> messageClass,
+      Class<?> messageResponseClass, String messageType) throws Exception {
+    File jarRoot = folder.newFolder(jarName);
+    Path indexFile = jarRoot.toPath().resolve(MessageProcessorIndex.INDEX_LOCATION);
+    Files.createDirectories(indexFile.getParent());
+    Files.write(indexFile, (processorClass.getName() + "=" + messageClass.getName() + ","
+        + messageResponseClass.getName() + "," + messageType + "\n")
+        .getBytes(StandardCharsets.ISO_8859_1));
+    return jarRoot.toURI().toURL();
+  }
+}
@@ -9,8 +9,12 @@
 package test.com.clearlydecoded.messenger.discovery.registry;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
 import com.clearlydecoded.messenger.MessageProcessorRegistry;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -44,4 +48,33 @@ public class SpringMessageProcessorRegistryFactoryTest {
     assertEquals("3 message processors should have been automatically discovered and registered.",
         3, messageProcessorRegistry.getProcessors().size());
   }
+
+  @Test
+  public void testDescriptorIsCompiledAtRegistration() {
+    MessageProcessorDescriptor<?, ?> descriptor = messageProcessorRegistry
+        .getDescriptorFor(Message1.TYPE);
+    assertNotNull("Descriptor should be registered for Message1.", descriptor);
+    assertEquals(Message1.TYPE, descriptor.getMessageType());
+    assertEquals(Message1.class, descriptor.getMessageClass());
+    assertEquals(Message1Response.class, descriptor.getMessageResponseClass());
+    assertFalse("Message1Handler does not declare @Valid.", descriptor.isValidationRequired());
+    assertSame("Descriptor should be compiled only once.", descriptor,
+        messageProcessorRegistry.getDescriptorFor(Message1.TYPE));
+    assertNull("Unknown message type should not have a descriptor.",
+        messageProcessorRegistry.getDescriptorFor("Unknown-Message"));
+  }
+
+  @Test
+  public void testDescriptorIsFoundByTypeCharacters() {
+    char[] buffer = ("{\"type\":\"" + Message2.TYPE + "\"}").toCharArray();
+    int offset = "{\"type\":\"".length();
+
+    assertSame("Descriptor found by characters should be the one found by string.",
+        messageProcessorRegistry.getDescriptorFor(Message2.TYPE),
+        messageProcessorRegistry.getDescriptorFor(buffer, offset, Message2.TYPE.length()));
+    assertNull("Prefix of a registered message type should not have a descriptor.",
+        messageProcessorRegistry.getDescriptorFor(buffer, offset, Message2.TYPE.length() - 1));
+    assertNull("Unknown message type should not have a descriptor.",
+        messageProcessorRegistry.getDescriptorFor("Unknown".toCharArray(), 0, 7));
+  }
 }
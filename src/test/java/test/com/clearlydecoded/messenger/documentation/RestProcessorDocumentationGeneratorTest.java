@@ -9,9 +9,18 @@
 package test.com.clearlydecoded.messenger.documentation;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
+import com.clearlydecoded.messenger.DefaultMessageProcessorRegistry;
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
 import com.clearlydecoded.messenger.documentation.RestProcessorDocumentation;
 import com.clearlydecoded.messenger.documentation.RestProcessorDocumentationGenerator;
+import com.clearlydecoded.messenger.documentation.RestProcessorDocumentationProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import org.junit.Test;
 
 /**
@@ -163,4 +172,39 @@ public class RestProcessorDocumentationGeneratorTest {
         docs.getMessageModel());
 
   }
+
+  @Test
+  public void testSharedMessageResponseClassIsDocumentedOnce() throws Exception {
+    MessageProcessorRegistry registry = new DefaultMessageProcessorRegistry();
+    registry.addProcessor(new GetPersonMessageProcessor());
+    registry.addProcessor(new EmployeeMessageProcessor());
+
+    List<RestProcessorDocumentation> docs = RestProcessorDocumentationGenerator
+        .generateDocumentation(registry, new ObjectMapper());
+
+    assertEquals(2, docs.size());
+    assertSame("Schema of shared message response class should be generated once.",
+        docs.get(0).getMessageResponseSchema(), docs.get(1).getMessageResponseSchema());
+    assertEquals("Message response schema should describe the message response class.",
+        "urn:jsonschema:test:com:clearlydecoded:messenger:documentation:GetPersonMessageResponse",
+        docs.get(0).getMessageResponseSchema().getId());
+    assertTrue("Message schema should keep its type property.", docs.get(0).getMessageSchema()
+        .asObjectSchema().getProperties().containsKey("type"));
+  }
+
+  @Test
+  public void testDocumentationIsGeneratedInBackground() throws Exception {
+    MessageProcessorRegistry registry = new DefaultMessageProcessorRegistry();
+    registry.addProcessor(new GetPersonMessageProcessor());
+    registry.addProcessor(new EmployeeMessageProcessor());
+    RestProcessorDocumentationProvider provider = new RestProcessorDocumentationProvider(registry,
+        new ObjectMapper());
+
+    provider.generateInBackground();
+
+    assertTrue("Documentation should be generated.",
+        provider.awaitDocumentation(30, TimeUnit.SECONDS));
+    assertNotNull(provider.getDocumentation());
+    assertEquals(2, provider.getDocumentation().size());
+  }
 }
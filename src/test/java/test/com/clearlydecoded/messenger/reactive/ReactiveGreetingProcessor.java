@@ -0,0 +1,26 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.reactive;
+
+import com.clearlydecoded.messenger.exception.MessageTypeNotSupportedException;
+import com.clearlydecoded.messenger.reactive.AbstractReactiveMessageProcessor;
+import javax.validation.Valid;
+import reactor.core.publisher.Mono;
+
+public class ReactiveGreetingProcessor
+    extends AbstractReactiveMessageProcessor<ReactiveGreeting, ReactiveGreetingResponse> {
+
+  @Override
+  public Mono<ReactiveGreetingResponse> processReactive(@Valid ReactiveGreeting message) {
+    if (message.getName().equals("Nobody")) {
+      return Mono.error(new MessageTypeNotSupportedException("Nobody can not be greeted."));
+    }
+    return Mono.just(new ReactiveGreetingResponse("Hello, " + message.getName() + "!"));
+  }
+}
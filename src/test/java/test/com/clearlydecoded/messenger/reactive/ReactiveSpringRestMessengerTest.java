@@ -0,0 +1,137 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.reactive;
+
+import static org.junit.Assert.assertTrue;
+
+import com.clearlydecoded.messenger.DefaultMessageProcessorRegistry;
+import com.clearlydecoded.messenger.reactive.ReactiveSpringRestMessenger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.TimeUnit;
+import javax.validation.Validation;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import test.com.clearlydecoded.messenger.rest.basic.Message5;
+import test.com.clearlydecoded.messenger.rest.basic.Message5Processor;
+import test.com.clearlydecoded.messenger.rest.basic.Message5Response;
+
+/**
+ * {@link ReactiveSpringRestMessengerTest} class tests the reactive rest messenger.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public class ReactiveSpringRestMessengerTest {
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  private ReactiveSpringRestMessenger messenger;
+
+  private WebTestClient client;
+
+  @Before
+  public void setUp() {
+    DefaultMessageProcessorRegistry registry = new DefaultMessageProcessorRegistry(mapper);
+    registry.addProcessor(new ReactiveGreetingProcessor());
+    registry.addProcessor(new Message5Processor());
+
+    messenger = new ReactiveSpringRestMessenger(registry, mapper);
+    messenger.setValidator(Validation.buildDefaultValidatorFactory().getValidator());
+    messenger.setEndpointUri("process");
+    messenger.createRoutes();
+    client = WebTestClient.bindToRouterFunction(messenger).build();
+  }
+
+  @Test
+  public void testReactiveProcessorIsValidated() {
+    assertTrue("@Valid on processReactive should be detected.",
+        messenger.getProcessorRegistry().getDescriptorFor("ReactiveGreeting")
+            .isValidationRequired());
+  }
+
+  @Test
+  public void testSendingReactiveMessage() throws Exception {
+    client.post().uri("/process")
+        .contentType(MediaType.APPLICATION_JSON)
+        .syncBody(mapper.writeValueAsString(new ReactiveGreeting("Yaakov")))
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(MediaType.APPLICATION_JSON_UTF8)
+        .expectBody(String.class)
+        .isEqualTo(mapper.writeValueAsString(new ReactiveGreetingResponse("Hello, Yaakov!")));
+  }
+
+  @Test
+  public void testSendingInvalidReactiveMessage() throws Exception {
+    client.post().uri("/process")
+        .contentType(MediaType.APPLICATION_JSON)
+        .syncBody(mapper.writeValueAsString(new ReactiveGreeting("Y")))
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  public void testSendingReactiveMessageWithoutValidator() throws Exception {
+    messenger.setValidator(null);
+    client.post().uri("/process")
+        .contentType(MediaType.APPLICATION_JSON)
+        .syncBody(mapper.writeValueAsString(new ReactiveGreeting("Yaakov")))
+        .exchange()
+        .expectStatus().is5xxServerError();
+  }
+
+  @Test
+  public void testSendingSynchronousMessage() throws Exception {
+    client.post().uri("/process")
+        .contentType(MediaType.APPLICATION_JSON)
+        .syncBody(mapper.writeValueAsString(new Message5("Hello")))
+        .exchange()
+        .expectStatus().isOk()
+        .expectBody(String.class)
+        .isEqualTo(mapper.writeValueAsString(new Message5Response("Hi!")));
+  }
+
+  @Test
+  public void testFailingReactiveMessage() throws Exception {
+    client.post().uri("/process")
+        .contentType(MediaType.APPLICATION_JSON)
+        .syncBody(mapper.writeValueAsString(new ReactiveGreeting("Nobody")))
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  public void testSendingMalformedMessage() {
+    client.post().uri("/process")
+        .contentType(MediaType.APPLICATION_JSON)
+        .syncBody("{\"type\":\"ReactiveGreeting\",")
+        .exchange()
+        .expectStatus().isBadRequest();
+  }
+
+  @Test
+  public void testSendingUnsupportedMessage() {
+    client.post().uri("/process")
+        .contentType(MediaType.APPLICATION_JSON)
+        .syncBody("{\"type\":\"Unknown\"}")
+        .exchange()
+        .expectStatus().isNotFound();
+  }
+
+  @Test
+  public void testGettingJsonDocs() throws Exception {
+    assertTrue("Documentation should be generated in the background.",
+        messenger.awaitDocumentation(30, TimeUnit.SECONDS));
+    client.get().uri("/process.json")
+        .exchange()
+        .expectStatus().isOk()
+        .expectHeader().contentType(MediaType.APPLICATION_JSON_UTF8);
+  }
+}
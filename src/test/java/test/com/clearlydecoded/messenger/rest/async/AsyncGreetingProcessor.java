@@ -0,0 +1,29 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.async;
+
+import com.clearlydecoded.messenger.AbstractAsyncMessageProcessor;
+import java.util.concurrent.CompletableFuture;
+import javax.validation.Valid;
+import org.springframework.stereotype.Service;
+
+@Service
+public class AsyncGreetingProcessor
+    extends AbstractAsyncMessageProcessor<AsyncGreeting, AsyncGreetingResponse> {
+
+  @Override
+  public CompletableFuture<AsyncGreetingResponse> processAsync(@Valid AsyncGreeting message) {
+    return CompletableFuture.supplyAsync(() -> {
+      if (message.getName().equals("Nobody")) {
+        throw new GreetingRefusedException("Refusing to greet nobody.");
+      }
+      return new AsyncGreetingResponse("Hello, " + message.getName() + "!");
+    });
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.async;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.clearlydecoded.messenger.MessageProcessorRegistry;
+import com.clearlydecoded.messenger.discovery.SpringMessageProcessorRegistryFactory;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * {@link SpringRestMessengerAsyncTest} class tests processing messages with asynchronous message
+ * processors through the rest controller.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ApplicationConfig.class)
+@AutoConfigureMockMvc
+public class SpringRestMessengerAsyncTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Autowired
+  private ApplicationContext springContext;
+
+  @Test
+  public void testAsyncProcessorIsDiscovered() {
+    MessageProcessorRegistry registry = SpringMessageProcessorRegistryFactory
+        .discoverMessageProcessorsAndCreateRegistry(springContext);
+
+    assertTrue("Async processor should be registered.",
+        registry.getProcessorFor("AsyncGreeting") instanceof AsyncGreetingProcessor);
+    assertTrue("Async processor should be described as async.",
+        registry.getDescriptorFor("AsyncGreeting").isAsync());
+    assertTrue("@Valid on processAsync should be detected.",
+        registry.getDescriptorFor("AsyncGreeting").isValidationRequired());
+  }
+
+  @Test
+  public void testSendingAsyncMessage() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    String messageString = mapper.writeValueAsString(new AsyncGreeting("Yaakov"));
+    String expectedResponseString = mapper
+        .writeValueAsString(new AsyncGreetingResponse("Hello, Yaakov!"));
+
+    MvcResult result = mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .content(messageString)
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+        .andExpect(content().string(expectedResponseString));
+  }
+
+  @Test
+  public void testSendingInvalidAsyncMessage() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    String messageString = mapper.writeValueAsString(new AsyncGreeting(""));
+
+    // Validation happens before the request goes async
+    mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .content(messageString)
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(request().asyncNotStarted())
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testAsyncMessageFailing() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    String messageString = mapper.writeValueAsString(new AsyncGreeting("Nobody"));
+
+    MvcResult result = mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .content(messageString)
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    mvc.perform(asyncDispatch(result))
+        .andExpect(status().isConflict());
+  }
+
+  @Test
+  public void testSendingAsyncMessagesInBatch() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    String batchString = mapper.writeValueAsString(Arrays.asList(
+        new AsyncGreeting("Yaakov"), new AsyncGreeting("Nobody")));
+
+    MvcResult result = mvc.perform(post("/process/batch").accept(MediaType.APPLICATION_JSON)
+        .content(batchString)
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andReturn();
+
+    JsonNode results = mapper.readTree(result.getResponse().getContentAsString());
+    assertEquals("Hello, Yaakov!", results.get(0).get("response").get("greeting").asText());
+    assertEquals(409, results.get(1).get("status").asInt());
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.clearlydecoded.messenger.exception.MessageTypeNotSupportedException;
+import com.clearlydecoded.messenger.rest.BatchMessageResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletionException;
+import org.junit.Test;
+
+/**
+ * {@link BatchMessageResultTest} class tests the results of single messages of a batch.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public class BatchMessageResultTest {
+
+  @Test
+  public void testSuccessWritesResponseAsJsonObject() throws Exception {
+    BatchMessageResult result = BatchMessageResult
+        .success("{\"greeting\":\"Hi!\"}".getBytes(StandardCharsets.UTF_8));
+
+    assertEquals("{\"status\":200,\"response\":{\"greeting\":\"Hi!\"}}",
+        new ObjectMapper().writeValueAsString(result));
+  }
+
+  @Test
+  public void testClientErrorKeepsItsMessage() {
+    BatchMessageResult result = BatchMessageResult.failure(
+        new CompletionException(new MessageTypeNotSupportedException("Not supported.")));
+
+    assertEquals(404, result.getStatus());
+    assertEquals("Not Found", result.getError());
+    assertEquals("Not supported.", result.getMessage());
+  }
+
+  @Test
+  public void testServerErrorHidesItsMessage() {
+    BatchMessageResult result = BatchMessageResult.failure(
+        new IllegalStateException("Connection to db.internal:5432 refused."));
+
+    assertEquals(500, result.getStatus());
+    assertEquals("Internal Server Error", result.getError());
+    assertNull(result.getMessage());
+  }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.basic;
+
+import com.clearlydecoded.messenger.rest.ObjectMapperCustomizer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link CountingObjectMapperCustomizer} class is used for testing that the rest controller applies
+ * object mapper customizations exactly once.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@Component
+public class CountingObjectMapperCustomizer implements ObjectMapperCustomizer {
+
+  @Getter
+  private final AtomicInteger invocationCount = new AtomicInteger();
+
+  @Override
+  public void customize(ObjectMapper objectMapper) {
+    invocationCount.incrementAndGet();
+  }
+}
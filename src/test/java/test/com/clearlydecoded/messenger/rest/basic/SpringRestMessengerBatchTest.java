@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * {@link SpringRestMessengerBatchTest} class tests the batch endpoint of the rest controller.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ApplicationConfig.class,
+    properties = "com.clearlydecoded.messenger.batch.max-messages=5")
+@AutoConfigureMockMvc
+public class SpringRestMessengerBatchTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Test
+  public void testSendingBatchOfMessages() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    String batchString = mapper.writeValueAsString(Arrays.asList(
+        new Message4("Hello", new Person("Yaakov", "Chaikin")),
+        new Message5("Hello"),
+        new UnsupportedMessage(),
+        "not a message",
+        new Message5("Good Bye")));
+
+    MvcResult result = mvc.perform(post("/process/batch").accept(MediaType.APPLICATION_JSON)
+        .content(batchString)
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+        .andReturn();
+
+    JsonNode results = mapper.readTree(result.getResponse().getContentAsString());
+    assertEquals("Should have a result for each message.", 5, results.size());
+    assertEquals(200, results.get(0).get("status").asInt());
+    assertEquals("Echo of Hello", results.get(0).get("response").get("greetingEcho").asText());
+    assertEquals(200, results.get(1).get("status").asInt());
+    assertEquals("Hi!", results.get(1).get("response").get("greetingResponse").asText());
+    assertEquals(404, results.get(2).get("status").asInt());
+    assertEquals("Message with type [Unknown-Message] is not supported.",
+        results.get(2).get("message").asText());
+    assertEquals(400, results.get(3).get("status").asInt());
+    assertEquals(200, results.get(4).get("status").asInt());
+    assertEquals("Bye!", results.get(4).get("response").get("greetingResponse").asText());
+  }
+
+  @Test
+  public void testSendingEmptyBatch() throws Exception {
+    mvc.perform(post("/process/batch").accept(MediaType.APPLICATION_JSON)
+        .content("[]")
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(content().string("[]"));
+  }
+
+  @Test
+  public void testSendingBatchOfTooManyMessages() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    String batchString = mapper.writeValueAsString(Arrays.asList(
+        new Message5("1"), new Message5("2"), new Message5("3"), new Message5("4"),
+        new Message5("5"), new Message5("6")));
+
+    mvc.perform(post("/process/batch").accept(MediaType.APPLICATION_JSON)
+        .content(batchString)
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isPayloadTooLarge());
+  }
+
+  @Test
+  public void testSendingBatchThatIsNotAnArray() throws Exception {
+    ObjectMapper mapper = new ObjectMapper();
+    mvc.perform(post("/process/batch").accept(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(new Message5("Hello")))
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testSendingMalformedBatch() throws Exception {
+    mvc.perform(post("/process/batch").accept(MediaType.APPLICATION_JSON)
+        .content("[{\"type\":\"Message-5\",\"greeting\":\"Hello\"},{\"type\":")
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+  }
+}
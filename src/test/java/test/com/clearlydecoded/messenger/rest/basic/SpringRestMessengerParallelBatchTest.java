@@ -0,0 +1,29 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.basic;
+
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * {@link SpringRestMessengerParallelBatchTest} class runs the batch endpoint tests of the rest
+ * controller with batch messages processed in parallel.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ApplicationConfig.class,
+    properties = {"com.clearlydecoded.messenger.batch.parallelism=4",
+        "com.clearlydecoded.messenger.batch.max-messages=5"})
+@AutoConfigureMockMvc
+public class SpringRestMessengerParallelBatchTest extends SpringRestMessengerBatchTest {
+
+}
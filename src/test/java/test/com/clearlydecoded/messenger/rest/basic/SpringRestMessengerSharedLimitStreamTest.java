@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.basic;
+
+import static org.junit.Assert.assertEquals;
+
+import com.clearlydecoded.messenger.rest.SpringRestMessenger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * {@link SpringRestMessengerSharedLimitStreamTest} class runs the stream endpoint tests of the rest
+ * controller with fewer messages allowed in flight for all the streams together than for a single
+ * stream.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ApplicationConfig.class, properties = {
+    "com.clearlydecoded.messenger.stream.max-in-flight=4",
+    "com.clearlydecoded.messenger.stream.max-in-flight-total=2"})
+@AutoConfigureMockMvc
+public class SpringRestMessengerSharedLimitStreamTest extends SpringRestMessengerStreamTest {
+
+  @Autowired
+  private SpringRestMessenger springRestMessenger;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  @DirtiesContext
+  public void testSendingStreamWhileShuttingDown() throws Exception {
+    ExecutorService streamExecutor = (ExecutorService) ReflectionTestUtils
+        .getField(springRestMessenger, "streamExecutor");
+    streamExecutor.shutdown();
+
+    String stream = mapper.writeValueAsString(new Message5("Hello")) + "\n"
+        + mapper.writeValueAsString(new Message5("Hello")) + "\n";
+
+    List<JsonNode> results = sendStream(stream);
+    assertEquals("Should stop at the first rejected message.", 1, results.size());
+    assertEquals(503, results.get(0).get("status").asInt());
+    assertEquals(0, results.get(0).get("sequence").asInt());
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.basic;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.clearlydecoded.messenger.rest.SpringRestMessenger;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * {@link SpringRestMessengerStreamTest} class tests the newline-delimited JSON stream endpoint of
+ * the rest controller.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = ApplicationConfig.class)
+@AutoConfigureMockMvc
+public class SpringRestMessengerStreamTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Value("${com.clearlydecoded.messenger.stream.ordered:true}")
+  private boolean ordered;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  public void testSendingStreamOfMessages() throws Exception {
+
+    // Send more messages than are allowed in flight at once
+    int messageCount = 100;
+    StringBuilder stream = new StringBuilder();
+    for (int i = 0; i < messageCount; i++) {
+      Object message = i % 2 == 0 ? new Message5("Hello") : new UnsupportedMessage();
+      stream.append(mapper.writeValueAsString(message)).append('\n');
+    }
+
+    List<JsonNode> results = sendStream(stream.toString());
+    assertEquals("Should have a result for each message.", messageCount, results.size());
+    for (int i = 0; i < messageCount; i++) {
+      JsonNode result = results.get(i);
+      assertEquals(i, result.get("sequence").asInt());
+      if (i % 2 == 0) {
+        assertEquals(200, result.get("status").asInt());
+        assertEquals("Hi!", result.get("response").get("greetingResponse").asText());
+      } else {
+        assertEquals(404, result.get("status").asInt());
+      }
+    }
+  }
+
+  @Test
+  public void testSendingEmptyStream() throws Exception {
+    assertEquals(0, sendStream("").size());
+  }
+
+  @Test
+  public void testSendingMalformedStream() throws Exception {
+    String stream = mapper.writeValueAsString(new Message5("Hello")) + "\n"
+        + "{\"type\":\"Message-5\",\"greeting\":\"Good Bye\"}\n"
+        + "{\"type\":\"Message-5\",\n"
+        + mapper.writeValueAsString(new Message5("Hello")) + "\n";
+
+    List<JsonNode> results = sendStream(stream);
+    assertEquals("Should stop at the malformed message.", 3, results.size());
+    assertEquals("Hi!", results.get(0).get("response").get("greetingResponse").asText());
+    assertEquals("Bye!", results.get(1).get("response").get("greetingResponse").asText());
+    assertEquals(400, results.get(2).get("status").asInt());
+    assertEquals(2, results.get(2).get("sequence").asInt());
+  }
+
+  /**
+   * @param stream Newline-delimited JSON messages to send.
+   * @return Results of the stream, in the order they were written if the stream is ordered, sorted
+   * by their sequence otherwise.
+   * @throws Exception If sending the stream fails.
+   */
+  protected List<JsonNode> sendStream(String stream) throws Exception {
+    MvcResult result = mvc.perform(post("/process")
+        .accept(SpringRestMessenger.APPLICATION_NDJSON_VALUE)
+        .content(stream)
+        .contentType(SpringRestMessenger.APPLICATION_NDJSON_VALUE))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(SpringRestMessenger.APPLICATION_NDJSON_VALUE))
+        .andReturn();
+
+    List<JsonNode> results = new ArrayList<>();
+    for (String line : result.getResponse().getContentAsString().split("\n")) {
+      if (!line.isEmpty()) {
+        results.add(mapper.readTree(line));
+      }
+    }
+    if (!ordered) {
+      results.sort(Comparator.comparingInt(node -> node.get("sequence").asInt()));
+    }
+    return results;
+  }
+}
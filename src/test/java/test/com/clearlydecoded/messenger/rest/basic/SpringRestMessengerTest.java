@@ -8,23 +8,34 @@
  */
 package test.com.clearlydecoded.messenger.rest.basic;
 
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
+import com.clearlydecoded.messenger.rest.SpringRestMessenger;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.StreamUtils;
 
 /**
  * {@link SpringRestMessengerTest} class tests the rest controller.
@@ -39,6 +50,18 @@ public class SpringRestMessengerTest {
   @Autowired
   private MockMvc mvc;
 
+  @Autowired
+  private CountingObjectMapperCustomizer objectMapperCustomizer;
+
+  @Autowired
+  private SpringRestMessenger springRestMessenger;
+
+  @Test
+  public void testObjectMapperCustomizerIsAppliedOnce() {
+    assertEquals("Object mapper customizer should be applied exactly once.", 1,
+        objectMapperCustomizer.getInvocationCount().get());
+  }
+
   @Test
   public void testSendingMessage4() throws Exception {
     Message4 message4 = new Message4("Hello", new Person("Yaakov", "Chaikin"));
@@ -81,6 +104,36 @@ public class SpringRestMessengerTest {
         .andExpect(content().string(expectedResponseString));
   }
 
+  @Test
+  public void testSendingMessage4WithTypeAsLastProperty() throws Exception {
+    String message4String = "{\"greeting\":\"Hello\",\"person\":{\"firstName\":\"Yaakov\","
+        + "\"lastName\":\"Chaikin\"},\"type\":\"Message-4\"}";
+    Message4Response expectedResponse = new Message4Response("Echo of Hello");
+    ObjectMapper mapper = new ObjectMapper();
+    String expectedResponseString = mapper.writeValueAsString(expectedResponse);
+    mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON).content(message4String)
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+        .andExpect(content().string(expectedResponseString));
+  }
+
+  @Test
+  public void testSendingMalformedMessage() throws Exception {
+    mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .content("{\"greeting\":\"Hello\",\"type\":")
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  public void testSendingNonObjectMessage() throws Exception {
+    mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .content("[\"Message-4\"]")
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   public void testSendingUnknownMessage() throws Exception {
     UnsupportedMessage unsupportedMessage = new UnsupportedMessage();
@@ -95,9 +148,11 @@ public class SpringRestMessengerTest {
 
   @Test
   public void testGetAvailableMessagesForwardsToCorrectTemplate() throws Exception {
+    assertTrue("Documentation should be generated in the background.",
+        springRestMessenger.awaitDocumentation(30, TimeUnit.SECONDS));
     MvcResult result = mvc.perform(get("/process"))
         .andExpect(status().isOk())
-        .andExpect(view().name("SpringRestProcessorDocumentation"))
+        .andExpect(header().string(HttpHeaders.ETAG, notNullValue()))
         .andExpect(content().contentType(MediaType.TEXT_HTML_VALUE + ";charset=UTF-8"))
         .andReturn();
 
@@ -108,6 +163,8 @@ public class SpringRestMessengerTest {
 
   @Test
   public void testGetAvailableMessagesJsonDocs() throws Exception {
+    assertTrue("Documentation should be generated in the background.",
+        springRestMessenger.awaitDocumentation(30, TimeUnit.SECONDS));
     MvcResult result = mvc.perform(get("/process").contentType(MediaType.APPLICATION_JSON_VALUE))
         .andExpect(status().isOk())
         .andExpect(content().contentType(MediaType.APPLICATION_JSON_VALUE + ";charset=UTF-8"))
@@ -122,6 +179,68 @@ public class SpringRestMessengerTest {
         stringResult.contains("\"messageSchema\":{\"type\":\"object\",\"id\":\"urn:jsonschema"));
     assertTrue("Response should contain corect properties schema for message", stringResult
         .contains(
-            "\"properties\":{\"type\":{\"type\":\"string\"},\"greeting\":{\"type\":\"string\"}}}}"));
+            "\"properties\":{\"type\":{\"type\":\"string\"},\"greeting\":{\"type\":\"string\"}}}"));
+    assertTrue("Response should contain schema of message response, not of message",
+        stringResult.contains("\"messageResponseSchema\":{\"type\":\"object\",\"id\":"
+            + "\"urn:jsonschema:test:com:clearlydecoded:messenger:rest:basic:Message5Response\""));
+  }
+
+  @Test
+  public void testDocsAreNotSentAgainWhileUnchanged() throws Exception {
+    assertTrue("Documentation should be generated in the background.",
+        springRestMessenger.awaitDocumentation(30, TimeUnit.SECONDS));
+    MvcResult result = mvc.perform(get("/process.json"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+        .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+        .andReturn();
+    String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+    assertTrue("ETag should be strong.", etag.startsWith("\""));
+
+    // Same docs are served with the same ETag
+    mvc.perform(get("/process.json"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, etag));
+
+    // Client that already holds the docs gets no body
+    result = mvc.perform(get("/process.json").header(HttpHeaders.IF_NONE_MATCH, etag))
+        .andExpect(status().isNotModified())
+        .andReturn();
+    assertEquals("Response should have no body.", 0,
+        result.getResponse().getContentAsByteArray().length);
+  }
+
+  @Test
+  public void testDocsAreGzippedForClientsThatAcceptIt() throws Exception {
+    assertTrue("Documentation should be generated in the background.",
+        springRestMessenger.awaitDocumentation(30, TimeUnit.SECONDS));
+    String plainDocs = mvc.perform(get("/process.json"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, nullValue()))
+        .andReturn().getResponse().getContentAsString();
+
+    MvcResult result = mvc.perform(get("/process.json")
+        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+        .andReturn();
+    assertTrue("Gzipped docs should have their own ETag.",
+        result.getResponse().getHeader(HttpHeaders.ETAG).endsWith("-gzip\""));
+
+    byte[] gzippedDocs = result.getResponse().getContentAsByteArray();
+    String unzippedDocs = StreamUtils.copyToString(
+        new GZIPInputStream(new ByteArrayInputStream(gzippedDocs)), StandardCharsets.UTF_8);
+    assertEquals("Gzipped docs should hold the same JSON.", plainDocs, unzippedDocs);
+
+    // Encoding refused with a quality of 0
+    mvc.perform(get("/process.json").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, nullValue()));
+  }
+
+  @Test
+  public void testMetricsEndpointIsOffByDefault() throws Exception {
+    mvc.perform(get("/process/metrics")).andExpect(status().isNotFound());
+    mvc.perform(delete("/process/metrics")).andExpect(status().isNotFound());
   }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.bulkhead;
+
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import test.com.clearlydecoded.messenger.rest.fixture.ApplicationConfig;
+
+/**
+ * {@link SpringRestMessengerBulkheadTest} class tests that message types are isolated from each
+ * other by their bulkheads, and that messages over a full bulkhead are rejected.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {ApplicationConfig.class, SlowReportProcessor.class,
+    QuickPingProcessor.class}, properties = {
+    "com.clearlydecoded.messenger.bulkhead.enabled=true",
+    "com.clearlydecoded.messenger.bulkhead.default.max-concurrent=2",
+    "com.clearlydecoded.messenger.bulkhead.retry-after-seconds=3"})
+@AutoConfigureMockMvc
+public class SpringRestMessengerBulkheadTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Autowired
+  private SlowReportProcessor reportProcessor;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @After
+  public void tearDown() {
+    reportProcessor.release();
+  }
+
+  @Test
+  public void testMessageIsProcessedOnBulkhead() throws Exception {
+    MvcResult result = send(mapper.writeValueAsString(new QuickPing("1")))
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+    String response = mvc.perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().json("{\"result\":\"Pong 1\"}"))
+        .andReturn().getResponse().getContentAsString();
+    assertTrue(response, response.contains("rest-messenger-bulkhead-default-"));
+  }
+
+  @Test
+  public void testFullBulkheadRejectsOnlyItsOwnMessageType() throws Exception {
+    String report = mapper.writeValueAsString(new SlowReport("monthly"));
+
+    // Occupy the only thread and the only queue slot of the report bulkhead
+    reportProcessor.hold();
+    MvcResult running = send(report).andReturn();
+    reportProcessor.awaitStarted();
+    MvcResult queued = send(report).andReturn();
+
+    send(report)
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "3"));
+
+    // Other message types are not affected
+    mvc.perform(asyncDispatch(send(mapper.writeValueAsString(new QuickPing("2"))).andReturn()))
+        .andExpect(status().isOk());
+
+    reportProcessor.release();
+    String response = mvc.perform(asyncDispatch(running))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    assertTrue(response, response.contains("rest-messenger-bulkhead-SlowReport-"));
+    mvc.perform(asyncDispatch(queued))
+        .andExpect(status().isOk());
+  }
+
+  private ResultActions send(String message) throws Exception {
+    return mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .content(message)
+        .contentType(MediaType.APPLICATION_JSON));
+  }
+}
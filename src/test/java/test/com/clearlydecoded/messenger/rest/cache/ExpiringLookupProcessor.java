@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.cache;
+
+import com.clearlydecoded.messenger.AbstractMessageProcessor;
+import com.clearlydecoded.messenger.CacheableResponse;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Service;
+
+@Service
+@CacheableResponse(ttl = 100, timeUnit = TimeUnit.MILLISECONDS)
+public class ExpiringLookupProcessor
+    extends AbstractMessageProcessor<ExpiringLookup, LookupResponse> {
+
+  private final AtomicInteger invocations = new AtomicInteger();
+
+  @Override
+  public LookupResponse process(ExpiringLookup message) {
+    return new LookupResponse("Value of " + message.getKey(), invocations.incrementAndGet());
+  }
+
+  public int getInvocations() {
+    return invocations.get();
+  }
+}
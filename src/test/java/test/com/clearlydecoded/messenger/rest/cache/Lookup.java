@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.cache;
+
+import com.clearlydecoded.messenger.CacheableResponse;
+import com.clearlydecoded.messenger.Message;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@CacheableResponse(maxSize = 2)
+public class Lookup implements Message<LookupResponse> {
+
+  private final String type = "Lookup";
+
+  @NotNull(message = "'key' must not be null")
+  private String key;
+
+  @Override
+  public String getType() {
+    return type;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.clearlydecoded.messenger.rest.ResponseCacheStatistics;
+import com.clearlydecoded.messenger.rest.SpringRestMessenger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import test.com.clearlydecoded.messenger.rest.fixture.ApplicationConfig;
+
+/**
+ * {@link SpringRestMessengerResponseCacheTest} class tests serving responses of cacheable message
+ * types from the response cache of the rest controller.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {ApplicationConfig.class, LookupProcessor.class,
+    ExpiringLookupProcessor.class})
+@AutoConfigureMockMvc
+public class SpringRestMessengerResponseCacheTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Autowired
+  private SpringRestMessenger messenger;
+
+  @Autowired
+  private LookupProcessor lookupProcessor;
+
+  @Autowired
+  private ExpiringLookupProcessor expiringLookupProcessor;
+
+  @Test
+  public void testRepeatedMessageIsServedFromCache() throws Exception {
+    ResponseCacheStatistics before = getStatistics("Lookup");
+    int invocations = lookupProcessor.getInvocations();
+    String message = "{\"type\":\"Lookup\",\"key\":\"repeated\"}";
+
+    String firstResponse = send(message).andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    send(message)
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+        .andExpect(content().string(firstResponse));
+
+    ResponseCacheStatistics after = getStatistics("Lookup");
+    assertEquals("Processor should only be called once.", invocations + 1,
+        lookupProcessor.getInvocations());
+    assertEquals(before.getHits() + 1, after.getHits());
+    assertEquals(before.getMisses() + 1, after.getMisses());
+  }
+
+  @Test
+  public void testRepeatedMessageOfBatchIsServedFromCache() throws Exception {
+    int invocations = lookupProcessor.getInvocations();
+    String message = "{\"type\":\"Lookup\",\"key\":\"batched\"}";
+
+    mvc.perform(post("/process/batch").accept(MediaType.APPLICATION_JSON)
+        .content("[" + message + "," + message + "]")
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(content().json("[{\"status\":200,\"response\":{\"value\":\"Value of batched\"}},"
+            + "{\"status\":200,\"response\":{\"value\":\"Value of batched\"}}]"));
+
+    assertEquals("Processor should only be called once.", invocations + 1,
+        lookupProcessor.getInvocations());
+  }
+
+  @Test
+  public void testCacheKeyIgnoresPropertyOrderAndWhitespace() throws Exception {
+    int invocations = lookupProcessor.getInvocations();
+
+    String firstResponse = send("{\"type\":\"Lookup\",\"key\":\"reordered\"}")
+        .andReturn().getResponse().getContentAsString();
+    send("{ \"key\" : \"reordered\",\n  \"type\" : \"Lookup\" }")
+        .andExpect(status().isOk())
+        .andExpect(content().string(firstResponse));
+
+    assertEquals("Processor should only be called once.", invocations + 1,
+        lookupProcessor.getInvocations());
+  }
+
+  @Test
+  public void testDifferentMessagesAreNotConfused() throws Exception {
+    send("{\"type\":\"Lookup\",\"key\":\"first\"}")
+        .andExpect(content().json("{\"value\":\"Value of first\"}"));
+    send("{\"type\":\"Lookup\",\"key\":\"second\"}")
+        .andExpect(content().json("{\"value\":\"Value of second\"}"));
+  }
+
+  @Test
+  public void testInvalidMessageIsNotCached() throws Exception {
+    int invocations = lookupProcessor.getInvocations();
+
+    send("{\"type\":\"Lookup\"}").andExpect(status().isBadRequest());
+    send("{\"type\":\"Lookup\"}").andExpect(status().isBadRequest());
+
+    assertEquals(invocations, lookupProcessor.getInvocations());
+  }
+
+  @Test
+  public void testExpiredResponseIsNotServed() throws Exception {
+    ResponseCacheStatistics before = getStatistics("ExpiringLookup");
+    int invocations = expiringLookupProcessor.getInvocations();
+    String message = "{\"type\":\"ExpiringLookup\",\"key\":\"expiring\"}";
+
+    send(message).andExpect(status().isOk());
+    Thread.sleep(150);
+    send(message).andExpect(status().isOk());
+
+    ResponseCacheStatistics after = getStatistics("ExpiringLookup");
+    assertEquals("Processor should be called again once the response expired.", invocations + 2,
+        expiringLookupProcessor.getInvocations());
+    assertEquals(before.getEvictions() + 1, after.getEvictions());
+    assertEquals(before.getHits(), after.getHits());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedResponseIsEvicted() throws Exception {
+    send("{\"type\":\"Lookup\",\"key\":\"kept\"}");
+    send("{\"type\":\"Lookup\",\"key\":\"evicted\"}");
+    send("{\"type\":\"Lookup\",\"key\":\"kept\"}");
+    ResponseCacheStatistics before = getStatistics("Lookup");
+    int invocations = lookupProcessor.getInvocations();
+
+    // Cache of Lookup holds at most 2 responses, so the least recently used one makes room
+    send("{\"type\":\"Lookup\",\"key\":\"added\"}");
+    send("{\"type\":\"Lookup\",\"key\":\"kept\"}");
+    send("{\"type\":\"Lookup\",\"key\":\"evicted\"}");
+
+    ResponseCacheStatistics after = getStatistics("Lookup");
+    assertEquals(invocations + 2, lookupProcessor.getInvocations());
+    assertEquals(before.getEvictions() + 2, after.getEvictions());
+    assertEquals(2, after.getSize());
+  }
+
+  private ResultActions send(String message) throws Exception {
+    return mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .content(message)
+        .contentType(MediaType.APPLICATION_JSON));
+  }
+
+  private ResponseCacheStatistics getStatistics(String messageType) {
+    ResponseCacheStatistics statistics = messenger.getResponseCacheStatistics().get(messageType);
+    return statistics != null ? statistics : new ResponseCacheStatistics();
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.coalescing;
+
+import com.clearlydecoded.messenger.AbstractMessageProcessor;
+import com.clearlydecoded.messenger.CoalescedProcessing;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Service;
+
+@Service
+@CoalescedProcessing
+public class ExpensiveQueryProcessor
+    extends AbstractMessageProcessor<ExpensiveQuery, ExpensiveQueryResponse> {
+
+  private final AtomicInteger executions = new AtomicInteger();
+
+  private volatile CountDownLatch started = new CountDownLatch(0);
+
+  private volatile CountDownLatch released = new CountDownLatch(0);
+
+  @Override
+  public ExpensiveQueryResponse process(ExpensiveQuery message) {
+    int execution = executions.incrementAndGet();
+    started.countDown();
+    try {
+      released.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return new ExpensiveQueryResponse("Result of " + message.getQuery(), execution);
+  }
+
+  public void hold() {
+    started = new CountDownLatch(1);
+    released = new CountDownLatch(1);
+  }
+
+  public void awaitStarted() throws InterruptedException {
+    started.await(5, TimeUnit.SECONDS);
+  }
+
+  public void release() {
+    released.countDown();
+  }
+
+  public int getExecutions() {
+    return executions.get();
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.coalescing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.clearlydecoded.messenger.rest.SpringRestMessenger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import test.com.clearlydecoded.messenger.rest.fixture.ApplicationConfig;
+
+/**
+ * {@link SpringRestMessengerCoalescingTest} class tests that concurrent identical messages of a
+ * coalesced message type share a single processing.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {ApplicationConfig.class, ExpensiveQueryProcessor.class})
+@AutoConfigureMockMvc
+public class SpringRestMessengerCoalescingTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Autowired
+  private SpringRestMessenger messenger;
+
+  @Autowired
+  private ExpensiveQueryProcessor processor;
+
+  private ExecutorService clients;
+
+  @Before
+  public void setUp() {
+    clients = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    processor.release();
+    clients.shutdownNow();
+  }
+
+  @Test
+  public void testIdenticalPendingMessagesShareProcessing() throws Exception {
+    long coalesced = messenger.getCoalescedCounts().getOrDefault("ExpensiveQuery", 0L);
+    int executions = processor.getExecutions();
+
+    // Hold the first message in its processor while identical messages arrive
+    processor.hold();
+    Future<MvcResult> first = clients.submit(() -> send("{\"type\":\"ExpensiveQuery\","
+        + "\"query\":\"totals\"}"));
+    processor.awaitStarted();
+
+    List<MvcResult> followers = new ArrayList<>();
+    followers.add(send("{\"type\":\"ExpensiveQuery\",\"query\":\"totals\"}"));
+    followers.add(send("{\"query\": \"totals\", \"type\": \"ExpensiveQuery\"}"));
+    followers.add(send("{\"type\":\"ExpensiveQuery\",\"query\":\"totals\"}"));
+    processor.release();
+
+    String firstResponse = mvc.perform(asyncDispatch(first.get()))
+        .andExpect(status().isOk())
+        .andReturn().getResponse().getContentAsString();
+    for (MvcResult follower : followers) {
+      mvc.perform(asyncDispatch(follower))
+          .andExpect(status().isOk())
+          .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+          .andExpect(content().string(firstResponse));
+    }
+
+    assertEquals("Processor should only be called once.", executions + 1,
+        processor.getExecutions());
+    assertEquals(coalesced + 3,
+        (long) messenger.getCoalescedCounts().get("ExpensiveQuery"));
+  }
+
+  @Test
+  public void testDifferentMessagesAreNotCoalesced() throws Exception {
+    int executions = processor.getExecutions();
+
+    processor.hold();
+    Future<MvcResult> first = clients.submit(() -> send("{\"type\":\"ExpensiveQuery\","
+        + "\"query\":\"first\"}"));
+    processor.awaitStarted();
+    Future<MvcResult> second = clients.submit(() -> send("{\"type\":\"ExpensiveQuery\","
+        + "\"query\":\"second\"}"));
+    processor.release();
+
+    mvc.perform(asyncDispatch(first.get()))
+        .andExpect(content().json("{\"result\":\"Result of first\"}"));
+    mvc.perform(asyncDispatch(second.get()))
+        .andExpect(content().json("{\"result\":\"Result of second\"}"));
+    assertEquals(executions + 2, processor.getExecutions());
+  }
+
+  @Test
+  public void testCompletedProcessingIsNotReused() throws Exception {
+    int executions = processor.getExecutions();
+    String message = new ObjectMapper().writeValueAsString(new ExpensiveQuery("repeated"));
+
+    MvcResult first = send(message);
+    mvc.perform(asyncDispatch(first)).andExpect(status().isOk());
+    MvcResult second = send(message);
+    String secondResponse = mvc.perform(asyncDispatch(second))
+        .andReturn().getResponse().getContentAsString();
+
+    assertEquals(executions + 2, processor.getExecutions());
+    assertTrue(secondResponse.contains("\"execution\":" + (executions + 2)));
+  }
+
+  private MvcResult send(String message) throws Exception {
+    return mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .content(message)
+        .contentType(MediaType.APPLICATION_JSON))
+        .andReturn();
+  }
+}
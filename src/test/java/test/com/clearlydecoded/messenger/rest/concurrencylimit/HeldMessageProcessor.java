@@ -0,0 +1,33 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.concurrencylimit;
+
+import com.clearlydecoded.messenger.AbstractAsyncMessageProcessor;
+import java.util.concurrent.CompletableFuture;
+import org.springframework.stereotype.Service;
+
+@Service
+public class HeldMessageProcessor
+    extends AbstractAsyncMessageProcessor<HeldMessage, HeldMessageResponse> {
+
+  private volatile CompletableFuture<Void> released = CompletableFuture.completedFuture(null);
+
+  @Override
+  public CompletableFuture<HeldMessageResponse> processAsync(HeldMessage message) {
+    return released.thenApply(ignored -> new HeldMessageResponse(message.getName()));
+  }
+
+  public void hold() {
+    released = new CompletableFuture<>();
+  }
+
+  public void release() {
+    released.complete(null);
+  }
+}
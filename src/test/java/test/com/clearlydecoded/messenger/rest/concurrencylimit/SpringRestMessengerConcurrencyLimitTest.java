@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.concurrencylimit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.clearlydecoded.messenger.rest.ConcurrencyLimitStatistics;
+import com.clearlydecoded.messenger.rest.SpringRestMessenger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import test.com.clearlydecoded.messenger.rest.fixture.ApplicationConfig;
+
+/**
+ * {@link SpringRestMessengerConcurrencyLimitTest} class tests that messages over the adaptive
+ * concurrency limit are rejected, and that the state of the limit is exposed. The limit is pinned
+ * to 1 so that it does not adapt during the test.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {ApplicationConfig.class, HeldMessageProcessor.class}, properties = {
+    "com.clearlydecoded.messenger.concurrency-limit.enabled=true",
+    "com.clearlydecoded.messenger.concurrency-limit.initial=1",
+    "com.clearlydecoded.messenger.concurrency-limit.max=1",
+    "com.clearlydecoded.messenger.concurrency-limit.retry-after-seconds=2"})
+@AutoConfigureMockMvc
+public class SpringRestMessengerConcurrencyLimitTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Autowired
+  private SpringRestMessenger messenger;
+
+  @Autowired
+  private HeldMessageProcessor processor;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @After
+  public void tearDown() {
+    processor.release();
+  }
+
+  @Test
+  public void testMessageOverLimitIsRejected() throws Exception {
+    long rejected = messenger.getConcurrencyLimitStatistics().getRejected();
+
+    processor.hold();
+    MvcResult held = send("first").andReturn();
+    assertEquals(1, messenger.getConcurrencyLimitStatistics().getInFlight());
+
+    send("second")
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "2"));
+
+    processor.release();
+    mvc.perform(asyncDispatch(held))
+        .andExpect(status().isOk())
+        .andExpect(content().json("{\"name\":\"first\"}"));
+
+    ConcurrencyLimitStatistics statistics = messenger.getConcurrencyLimitStatistics();
+    assertEquals(rejected + 1, statistics.getRejected());
+    assertEquals(0, statistics.getInFlight());
+    assertTrue(statistics.getRejectionRate() > 0);
+  }
+
+  @Test
+  public void testMessagesWithinLimitAreAccepted() throws Exception {
+    long accepted = messenger.getConcurrencyLimitStatistics().getAccepted();
+
+    for (int i = 0; i < 3; i++) {
+      mvc.perform(asyncDispatch(send("message " + i).andReturn()))
+          .andExpect(status().isOk());
+    }
+
+    ConcurrencyLimitStatistics statistics = messenger.getConcurrencyLimitStatistics();
+    assertEquals(accepted + 3, statistics.getAccepted());
+    assertEquals(1, statistics.getLimit());
+    assertEquals(0, statistics.getInFlight());
+  }
+
+  private ResultActions send(String name) throws Exception {
+    return mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(new HeldMessage(name)))
+        .contentType(MediaType.APPLICATION_JSON));
+  }
+}
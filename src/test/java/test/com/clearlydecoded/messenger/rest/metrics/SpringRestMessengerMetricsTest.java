@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.metrics;
+
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import test.com.clearlydecoded.messenger.rest.fixture.ApplicationConfig;
+
+/**
+ * {@link SpringRestMessengerMetricsTest} class tests the per-phase latency histograms exposed at
+ * the <code>/process/metrics</code> endpoint.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {ApplicationConfig.class, MeasuredProcessor.class}, properties = {
+    "com.clearlydecoded.messenger.metrics.enabled=true",
+    "com.clearlydecoded.messenger.metrics.reset-enabled=true"})
+@AutoConfigureMockMvc
+public class SpringRestMessengerMetricsTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Before
+  public void resetMetrics() throws Exception {
+    mvc.perform(delete("/process/metrics")).andExpect(status().isNoContent());
+  }
+
+  @Test
+  public void testEveryPhaseIsRecorded() throws Exception {
+    send(20);
+    send(20);
+
+    mvc.perform(get("/process/metrics"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.Measured.typeExtraction.count").value(2))
+        .andExpect(jsonPath("$.Measured.binding.count").value(2))
+        .andExpect(jsonPath("$.Measured.validation.count").value(2))
+        .andExpect(jsonPath("$.Measured.processing.count").value(2))
+        .andExpect(jsonPath("$.Measured.serialization.count").value(2))
+        .andExpect(jsonPath("$.Measured.processing.p50").value(greaterThanOrEqualTo(19000.0)))
+        .andExpect(jsonPath("$.Measured.processing.p99").value(greaterThanOrEqualTo(19000.0)))
+        .andExpect(jsonPath("$.Measured.processing.p999").value(greaterThanOrEqualTo(19000.0)))
+        .andExpect(jsonPath("$.Measured.processing.max").value(greaterThanOrEqualTo(19000.0)))
+        .andExpect(jsonPath("$.Measured.binding.max").value(lessThan(19000.0)));
+  }
+
+  @Test
+  public void testFailedPhaseIsNotRecorded() throws Exception {
+    mvc.perform(post("/process")
+        .content("{\"type\":\"Measured\",\"delayMillis\":-1}")
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isBadRequest());
+
+    mvc.perform(get("/process/metrics"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.Measured.binding.count").value(1))
+        .andExpect(jsonPath("$.Measured.validation").doesNotExist())
+        .andExpect(jsonPath("$.Measured.processing").doesNotExist());
+  }
+
+  @Test
+  public void testIntervalOnlyIncludesLatenciesSincePreviousInterval() throws Exception {
+    send(0);
+    mvc.perform(get("/process/metrics").param("interval", "true"))
+        .andExpect(jsonPath("$.Measured.processing.count").value(1));
+
+    send(0);
+    send(0);
+    mvc.perform(get("/process/metrics").param("interval", "true"))
+        .andExpect(jsonPath("$.Measured.processing.count").value(2));
+    mvc.perform(get("/process/metrics").param("interval", "true"))
+        .andExpect(content().json("{}"));
+
+    // Intervals do not affect the cumulative histograms
+    mvc.perform(get("/process/metrics"))
+        .andExpect(jsonPath("$.Measured.processing.count").value(3));
+  }
+
+  @Test
+  public void testResetDiscardsEveryLatency() throws Exception {
+    send(0);
+    mvc.perform(delete("/process/metrics")).andExpect(status().isNoContent());
+
+    mvc.perform(get("/process/metrics"))
+        .andExpect(status().isOk())
+        .andExpect(content().json("{}"));
+  }
+
+  private void send(long delayMillis) throws Exception {
+    mvc.perform(post("/process")
+        .content("{\"type\":\"Measured\",\"delayMillis\":" + delayMillis + "}")
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isOk());
+  }
+}
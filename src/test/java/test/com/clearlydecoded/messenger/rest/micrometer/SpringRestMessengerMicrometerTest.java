@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.micrometer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import test.com.clearlydecoded.messenger.rest.fixture.ApplicationConfig;
+import test.com.clearlydecoded.messenger.rest.fixture.EchoProcessor;
+
+/**
+ * {@link SpringRestMessengerMicrometerTest} class tests the Micrometer meters published when a
+ * meter registry, here an in-memory one, is present.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {ApplicationConfig.class, EchoProcessor.class, SimpleMeterRegistry.class})
+@AutoConfigureMockMvc
+public class SpringRestMessengerMicrometerTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @Test
+  public void testMetersAreRegisteredAtStartup() {
+    assertNotNull(timer("Echo", "SUCCESS"));
+    assertNotNull(timer("Echo", "CLIENT_ERROR"));
+    assertNotNull(meterRegistry.find("rest.messenger.request.size").tags("type", "Echo")
+        .summary());
+
+    Gauge processors = meterRegistry.find("rest.messenger.processors").gauge();
+    assertNotNull(processors);
+    assertEquals(1, processors.value(), 0);
+  }
+
+  @Test
+  public void testSuccessfulMessageIsTimedAndSized() throws Exception {
+    long successes = timer("Echo", "SUCCESS").count();
+    DistributionSummary responseSize = meterRegistry.find("rest.messenger.response.size")
+        .tags("type", "Echo").summary();
+    long responses = responseSize.count();
+
+    send("{\"type\":\"Echo\",\"count\":1}").andExpect(status().isOk());
+
+    assertEquals(successes + 1, timer("Echo", "SUCCESS").count());
+    assertEquals(responses + 1, responseSize.count());
+    assertEquals(0, meterRegistry.find("rest.messenger.requests.active").gauge().value(), 0);
+  }
+
+  @Test
+  public void testErrorsAreCounted() throws Exception {
+    double unsupported = errors("MessageTypeNotSupportedException").count();
+    double badFormat = errors("BadMessageFormatException").count();
+    long unknownClientErrors = timer("UNKNOWN", "CLIENT_ERROR").count();
+    long echoClientErrors = timer("Echo", "CLIENT_ERROR").count();
+
+    send("{\"type\":\"Nobody\"}").andExpect(status().isNotFound());
+    send("{\"type\":\"Echo\",\"count\":\"not a number\"}").andExpect(status().isBadRequest());
+
+    assertEquals(unsupported + 1, errors("MessageTypeNotSupportedException").count(), 0);
+    assertEquals(badFormat + 1, errors("BadMessageFormatException").count(), 0);
+    assertEquals("Unsupported type should be unknown.", unknownClientErrors + 1,
+        timer("UNKNOWN", "CLIENT_ERROR").count());
+    assertEquals("Bad format of a known type should be attributed to it.", echoClientErrors + 1,
+        timer("Echo", "CLIENT_ERROR").count());
+  }
+
+  private Timer timer(String type, String outcome) {
+    return meterRegistry.find("rest.messenger.messages").tags("type", type, "outcome", outcome)
+        .timer();
+  }
+
+  private Counter errors(String exception) {
+    return meterRegistry.find("rest.messenger.errors").tags("exception", exception).counter();
+  }
+
+  private ResultActions send(String message) throws Exception {
+    return mvc.perform(post("/process")
+        .content(message)
+        .contentType(MediaType.APPLICATION_JSON));
+  }
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.ratelimit;
+
+import com.clearlydecoded.messenger.AbstractMessageProcessor;
+import org.springframework.stereotype.Service;
+import test.com.clearlydecoded.messenger.rest.fixture.EchoResponse;
+
+@Service
+public class LimitedEchoProcessor extends AbstractMessageProcessor<LimitedEcho, EchoResponse> {
+
+  @Override
+  public EchoResponse process(LimitedEcho message) {
+    return new EchoResponse(message.getCount());
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.ratelimit;
+
+import static org.junit.Assert.assertNotNull;
+
+import com.clearlydecoded.messenger.AbstractMessageProcessor;
+import com.clearlydecoded.messenger.MessageProcessorDescriptor;
+import com.clearlydecoded.messenger.RateLimit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import test.com.clearlydecoded.messenger.rest.fixture.Echo;
+import test.com.clearlydecoded.messenger.rest.fixture.EchoResponse;
+
+/**
+ * {@link RateLimitValidationTest} class tests that invalid {@link RateLimit} annotations are
+ * rejected when the message processor descriptor is compiled.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+public class RateLimitValidationTest {
+
+  @Test
+  public void testValidRateLimitIsAccepted() {
+    assertNotNull(MessageProcessorDescriptor.compile(new LimitedEchoProcessor(),
+        new ObjectMapper()).getRateLimit());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroPermitsPerSecondIsRejected() {
+    MessageProcessorDescriptor.compile(new ZeroRateEchoProcessor(), new ObjectMapper());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNaNPermitsPerSecondIsRejected() {
+    MessageProcessorDescriptor.compile(new NaNRateEchoProcessor(), new ObjectMapper());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInfinitePermitsPerSecondIsRejected() {
+    MessageProcessorDescriptor.compile(new InfiniteRateEchoProcessor(), new ObjectMapper());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroBurstIsRejected() {
+    MessageProcessorDescriptor.compile(new ZeroBurstEchoProcessor(), new ObjectMapper());
+  }
+
+  @RateLimit(permitsPerSecond = 0)
+  public static class ZeroRateEchoProcessor extends AbstractMessageProcessor<Echo, EchoResponse> {
+
+    @Override
+    public EchoResponse process(Echo message) {
+      return new EchoResponse(message.getCount());
+    }
+  }
+
+  @RateLimit(permitsPerSecond = Double.NaN)
+  public static class NaNRateEchoProcessor extends AbstractMessageProcessor<Echo, EchoResponse> {
+
+    @Override
+    public EchoResponse process(Echo message) {
+      return new EchoResponse(message.getCount());
+    }
+  }
+
+  @RateLimit(permitsPerSecond = Double.POSITIVE_INFINITY)
+  public static class InfiniteRateEchoProcessor
+      extends AbstractMessageProcessor<Echo, EchoResponse> {
+
+    @Override
+    public EchoResponse process(Echo message) {
+      return new EchoResponse(message.getCount());
+    }
+  }
+
+  @RateLimit(permitsPerSecond = 1, burst = 0)
+  public static class ZeroBurstEchoProcessor extends AbstractMessageProcessor<Echo, EchoResponse> {
+
+    @Override
+    public EchoResponse process(Echo message) {
+      return new EchoResponse(message.getCount());
+    }
+  }
+}
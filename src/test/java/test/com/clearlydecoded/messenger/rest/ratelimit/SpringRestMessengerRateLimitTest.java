@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.ratelimit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import test.com.clearlydecoded.messenger.rest.fixture.ApplicationConfig;
+import test.com.clearlydecoded.messenger.rest.fixture.EchoProcessor;
+
+/**
+ * {@link SpringRestMessengerRateLimitTest} class tests rate limiting of clients and of message
+ * types.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {ApplicationConfig.class, EchoProcessor.class,
+    LimitedEchoProcessor.class}, properties = {
+    "com.clearlydecoded.messenger.rate-limit.client.permits-per-second=0.2",
+    "com.clearlydecoded.messenger.rate-limit.client.burst=2",
+    "com.clearlydecoded.messenger.rate-limit.client.key-header=X-Client-Id"})
+@AutoConfigureMockMvc
+public class SpringRestMessengerRateLimitTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Test
+  public void testClientOverItsRateIsRejected() throws Exception {
+    String message = "{\"type\":\"Echo\",\"count\":1}";
+
+    send(message, "noisy").andExpect(status().isOk());
+    send(message, "noisy").andExpect(status().isOk());
+    send(message, "noisy")
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string("Retry-After", "5"));
+
+    // Other clients are not affected
+    send(message, "quiet").andExpect(status().isOk());
+  }
+
+  @Test
+  public void testClientOverItsRateIsRejectedFromBatch() throws Exception {
+    String batch = "[{\"type\":\"Echo\",\"count\":1}]";
+
+    for (int i = 0; i < 2; i++) {
+      mvc.perform(post("/process/batch").header("X-Client-Id", "batching")
+          .content(batch)
+          .contentType(MediaType.APPLICATION_JSON))
+          .andExpect(status().isOk());
+    }
+    mvc.perform(post("/process/batch").header("X-Client-Id", "batching")
+        .content(batch)
+        .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(status().isTooManyRequests());
+  }
+
+  @Test
+  public void testMessageTypeOverItsRateIsRejectedBeforeBinding() throws Exception {
+    send("{\"type\":\"LimitedEcho\",\"count\":1}", "first").andExpect(status().isOk());
+
+    // Would fail binding with 400, but is rejected as soon as its type is known
+    send("{\"type\":\"LimitedEcho\",\"count\":\"not a number\"}", "second")
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string("Retry-After", "2"));
+
+    // Other message types are not affected
+    send("{\"type\":\"Echo\",\"count\":1}", "third").andExpect(status().isOk());
+  }
+
+  private ResultActions send(String message, String clientId) throws Exception {
+    return mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .header("X-Client-Id", clientId)
+        .content(message)
+        .contentType(MediaType.APPLICATION_JSON));
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.virtualthreads;
+
+import com.clearlydecoded.messenger.AbstractMessageProcessor;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import org.springframework.stereotype.Service;
+
+@Service
+public class BlockingMessageProcessor
+    extends AbstractMessageProcessor<BlockingMessage, BlockingMessageResponse> {
+
+  private final AtomicInteger running = new AtomicInteger();
+
+  @Getter
+  private final AtomicInteger maxRunning = new AtomicInteger();
+
+  @Override
+  public BlockingMessageResponse process(BlockingMessage message) {
+    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+    try {
+      // Simulate a blocking call
+      Thread.sleep(50);
+      return new BlockingMessageResponse(isVirtual(Thread.currentThread()));
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    } finally {
+      running.decrementAndGet();
+    }
+  }
+
+  static boolean isVirtual(Thread thread) {
+    try {
+      return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+    } catch (ReflectiveOperationException e) {
+      return false;
+    }
+  }
+}
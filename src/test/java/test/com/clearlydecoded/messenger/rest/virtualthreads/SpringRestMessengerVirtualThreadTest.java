@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 Yaakov Chaikin (yaakov@ClearlyDecoded.com). Licensed under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0. Unless required
+ * by applicable law or agreed to in writing, software distributed under the License is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See
+ * the License for the specific language governing permissions and limitations under the License.
+ */
+package test.com.clearlydecoded.messenger.rest.virtualthreads;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import test.com.clearlydecoded.messenger.rest.fixture.ApplicationConfig;
+
+/**
+ * {@link SpringRestMessengerVirtualThreadTest} class tests processing messages on virtual threads.
+ * On Java versions without virtual threads, messages must still be processed, on the container
+ * threads.
+ *
+ * @author Yaakov Chaikin (yaakov@ClearlyDecoded.com)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = {ApplicationConfig.class, BlockingMessageProcessor.class}, properties = {
+    "com.clearlydecoded.messenger.virtual-threads.enabled=true",
+    "com.clearlydecoded.messenger.virtual-threads.max-concurrency-per-type=1"})
+@AutoConfigureMockMvc
+public class SpringRestMessengerVirtualThreadTest {
+
+  @Autowired
+  private MockMvc mvc;
+
+  @Autowired
+  private BlockingMessageProcessor processor;
+
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  @Test
+  public void testSendingMessage() throws Exception {
+    String expectedResponseString = mapper
+        .writeValueAsString(new BlockingMessageResponse(isJava21OrLater()));
+
+    awaitResponse(sendMessage())
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+        .andExpect(content().string(expectedResponseString));
+  }
+
+  @Test
+  public void testConcurrencyPerTypeIsLimited() throws Exception {
+    processor.getMaxRunning().set(0);
+
+    // Start all requests before waiting for any of them
+    List<ResultActions> requests = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      requests.add(sendMessage());
+    }
+    for (ResultActions request : requests) {
+      awaitResponse(request).andExpect(status().isOk());
+    }
+
+    assertTrue("Messages should have been processed.", processor.getMaxRunning().get() > 0);
+    assertEquals("No more than 1 message should run at a time.", 1,
+        processor.getMaxRunning().get());
+  }
+
+  private ResultActions sendMessage() throws Exception {
+    return mvc.perform(post("/process").accept(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(new BlockingMessage()))
+        .contentType(MediaType.APPLICATION_JSON));
+  }
+
+  private ResultActions awaitResponse(ResultActions request) throws Exception {
+    MvcResult result = request.andReturn();
+    return result.getRequest().isAsyncStarted() ? mvc.perform(asyncDispatch(result)) : request;
+  }
+
+  private static boolean isJava21OrLater() {
+    try {
+      Thread.class.getMethod("isVirtual");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+}